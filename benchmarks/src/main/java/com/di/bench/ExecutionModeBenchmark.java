@@ -0,0 +1,87 @@
+package com.di.bench;
+
+import com.di.concurrent.DestinationLimiter;
+import com.di.concurrent.ExecutionMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Many blocking RT writes spread over a few destinations, each write a sleep of writeMicros under
+ * the destination's DestinationLimiter. PLATFORM runs them on a fixed pool of poolSize threads,
+ * VIRTUAL on a virtual thread per write; the score is the time to finish all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class ExecutionModeBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int writes;
+
+    @Param({"1000"})
+    public int writeMicros;
+
+    @Param({"64"})
+    public int poolSize;
+
+    @Param({"4"})
+    public int destinations;
+
+    @Param({"256"})
+    public int maxConcurrentWrites;
+
+    private ExecutorService executor;
+    private DestinationLimiter[] limiters;
+
+    @Setup
+    public void setup() {
+        ExecutionMode executionMode = ExecutionMode.of(mode);
+        executor = executionMode == ExecutionMode.VIRTUAL
+                ? executionMode.newTaskExecutor("bench-write")
+                : Executors.newFixedThreadPool(poolSize, executionMode.threadFactory("bench-write"));
+        limiters = new DestinationLimiter[destinations];
+        for (int i = 0; i < destinations; i++) {
+            limiters[i] = new DestinationLimiter("bench-" + i, maxConcurrentWrites);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long blockingWrites() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(writes);
+        for (int i = 0; i < writes; i++) {
+            DestinationLimiter limiter = limiters[i % destinations];
+            executor.execute(() -> {
+                try {
+                    limiter.acquire();
+                    try {
+                        TimeUnit.MICROSECONDS.sleep(writeMicros);
+                    } finally {
+                        limiter.release();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return done.getCount();
+    }
+}
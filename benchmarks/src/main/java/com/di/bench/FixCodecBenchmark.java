@@ -0,0 +1,55 @@
+package com.di.bench;
+
+import com.di.codec.FixCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+// FixCodec against the LocalDate/LocalTime based parseFixDate/parseFixTime it replaced
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class FixCodecBenchmark {
+    private static final String[] DATES = {"20250102", "20250317", "20251231", "20260630"};
+    private static final String[] TIMES = {"10:15:30.123", "23:59:59.999", "00:00:01", "14:02:07.5"};
+
+    private int next;
+
+    private int nextIndex() {
+        return next++ & 3;
+    }
+
+    @Benchmark
+    public int parseEpochDay() {
+        return FixCodec.parseEpochDay(DATES[nextIndex()]);
+    }
+
+    @Benchmark
+    public long parseNanosOfDay() {
+        return FixCodec.parseNanosOfDay(TIMES[nextIndex()]);
+    }
+
+    @Benchmark
+    public java.sql.Date jdkParseFixDate() {
+        String yyyymmdd = DATES[nextIndex()];
+        int year = Integer.parseInt(yyyymmdd.substring(0, 4));
+        int month = Integer.parseInt(yyyymmdd.substring(4, 6));
+        int day = Integer.parseInt(yyyymmdd.substring(6, 8));
+        return java.sql.Date.valueOf(LocalDate.of(year, month, day));
+    }
+
+    @Benchmark
+    public java.sql.Timestamp jdkParseFixTime() {
+        String hhmmss = TIMES[nextIndex()];
+        if (!hhmmss.contains(":")) return java.sql.Timestamp.from(Instant.now());
+        LocalTime time = LocalTime.parse(hhmmss);
+        return java.sql.Timestamp.valueOf(LocalDateTime.of(LocalDate.now(), time));
+    }
+}
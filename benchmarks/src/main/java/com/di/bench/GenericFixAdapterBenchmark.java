@@ -0,0 +1,85 @@
+package com.di.bench;
+
+import com.di.fixadapter.GenericFixAdapter;
+import com.di.kdbpublisher.KdbConnection;
+import com.di.kdbpublisher.KdbPublisher;
+import org.openjdk.jmh.annotations.*;
+import quickfix.SessionID;
+import quickfix.field.ClOrdID;
+import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Price;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.TransactTime;
+import quickfix.fix44.OrderCancelRequest;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// fromApp on a 35=F (the msgType mapped in the sample) against the sample fix-kdb-mapping.yaml, with the kdb+ insert
+// stubbed out; batchSize rows per KdbPublisher write
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class GenericFixAdapterBenchmark {
+    private static final String MAPPING_FILE = "fix-kdb-mapping.yaml";
+
+    @Param({"1", "512"})
+    public int batchSize;
+
+    private KdbPublisher publisher;
+    private GenericFixAdapter adapter;
+    private OrderCancelRequest message;
+    private SessionID sessionID;
+    private Path mappingPath;
+    private long rows;
+
+    @Setup
+    public void setup() throws Exception {
+        // The adapter reads its mapping from a file path, so copy the classpath sample out
+        mappingPath = Files.createTempFile("fix-kdb-mapping", ".yaml");
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(MAPPING_FILE)) {
+            if (is == null) {
+                throw new IllegalStateException(MAPPING_FILE + " not found on the classpath");
+            }
+            Files.copy(is, mappingPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        KdbConnection connection = new KdbConnection("localhost", 5010, "", "", false) {
+            @Override
+            public void insert(String table, Object[] columns, int count) {
+                rows += count;
+            }
+        };
+        publisher = new KdbPublisher(connection, batchSize, false);
+        publisher.start();
+        adapter = new GenericFixAdapter(mappingPath.toString(), publisher);
+
+        message = new OrderCancelRequest(new OrigClOrdID("ORD-1"), new ClOrdID("ORD-2"), new Side(Side.BUY),
+                new TransactTime(LocalDateTime.of(2025, 1, 2, 10, 15, 30)));
+        message.set(new Symbol("EUR/USD"));
+        message.setField(new Price(1.0845));
+        message.setField(new OrderQty(1_000_000));
+        sessionID = new SessionID("FIX.4.4", "CLIENT", "FEED");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        publisher.close();
+        Files.deleteIfExists(mappingPath);
+    }
+
+    @Benchmark
+    public long fromApp() {
+        adapter.fromApp(message, sessionID);
+        return rows;
+    }
+}
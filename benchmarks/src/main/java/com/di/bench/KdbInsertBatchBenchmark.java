@@ -0,0 +1,47 @@
+package com.di.bench;
+
+import com.di.connection.KdbConnectionRT;
+import com.di.connection.MarketDataBatch;
+import com.di.fix.MarketDataDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Row conversion and validation in KdbConnectionRT with the BulkLoader replaced by a counting writer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class KdbInsertBatchBenchmark {
+
+    @Param({"2", "10", "50"})
+    public int entries;
+
+    private KdbConnectionRT connection;
+    private MarketDataBatch batch;
+    private Object[][] rows;
+    private long written;
+
+    @Setup
+    public void setup() throws Exception {
+        connection = new KdbConnectionRT(data -> written += data.length);
+        batch = new MarketDataBatch();
+        batch.copyFrom(new MarketDataDecoder().decode(SnapshotMessages.parse("EUR/USD", entries)));
+        rows = batch.toRows();
+    }
+
+    @Benchmark
+    public long insertBatch() throws IOException {
+        connection.insertBatch(batch);
+        return written;
+    }
+
+    @Benchmark
+    public long insertRows() throws IOException {
+        connection.insertBatch(rows);
+        return written;
+    }
+}
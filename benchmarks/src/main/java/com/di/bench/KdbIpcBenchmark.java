@@ -0,0 +1,84 @@
+package com.di.bench;
+
+import com.di.kdbpublisher.KdbConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * KdbConnection.insert of a rows-row quote batch (symbol, price, size, time) over one loopback
+ * connection to a stand-in server that answers the handshake and discards everything after it.
+ * Scores are batches per second; multiply by rows for rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class KdbIpcBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int rows;
+
+    @Param({"0", "2000"})
+    public int compressMinBytes;
+
+    private ServerSocket server;
+    private KdbConnection connection;
+    private Object[] columns;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new ServerSocket(0);
+        Thread sink = new Thread(this::discard, "kdb-stand-in");
+        sink.setDaemon(true);
+        sink.start();
+        connection = new KdbConnection("localhost", server.getLocalPort(), "bench", "", false, compressMinBytes);
+        connection.open();
+
+        String[] symbols = {"EURUSD", "USDJPY", "GBPUSD", "AUDUSD", "USDCHF"};
+        String[] sym = new String[rows];
+        double[] price = new double[rows];
+        long[] size = new long[rows];
+        long[] time = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            sym[i] = symbols[i % symbols.length];
+            price[i] = 1.08 + (i % 100) * 1e-5;
+            size[i] = 1_000_000L * (1 + i % 5);
+            time[i] = 800_000_000_000_000_000L + i * 1_000L;
+        }
+        columns = new Object[]{sym, price, size, new KdbConnection.Timestamps(time)};
+    }
+
+    private void discard() {
+        try (Socket socket = server.accept(); InputStream in = socket.getInputStream()) {
+            int b;
+            while ((b = in.read()) > 0) {
+                // credentials and capability up to the terminating 0
+            }
+            socket.getOutputStream().write(3);
+            byte[] sink = new byte[1 << 20];
+            while (in.read(sink) >= 0) {
+                // discard
+            }
+        } catch (IOException e) {
+            // closed at tear down
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connection.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void insert() throws IOException {
+        connection.insert("quotes", columns, rows);
+    }
+}
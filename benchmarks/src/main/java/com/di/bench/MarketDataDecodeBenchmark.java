@@ -0,0 +1,76 @@
+package com.di.bench;
+
+import com.di.connection.Connection;
+import com.di.connection.MarketDataBatch;
+import com.di.fix.FIXApplication;
+import com.di.fix.MarketDataDecoder;
+import org.openjdk.jmh.annotations.*;
+import quickfix.FieldNotFound;
+import quickfix.SessionID;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class MarketDataDecodeBenchmark {
+
+    @Param({"2", "10", "50"})
+    public int entries;
+
+    private MarketDataSnapshotFullRefresh message;
+    private String raw;
+    private MarketDataDecoder decoder;
+    private CountingConnection connection;
+    private FIXApplication application;
+    private SessionID sessionID;
+
+    @Setup
+    public void setup() throws Exception {
+        message = SnapshotMessages.parse("EUR/USD", entries);
+        raw = SnapshotMessages.raw("EUR/USD", entries);
+        decoder = new MarketDataDecoder();
+        connection = new CountingConnection();
+        application = new FIXApplication(connection);
+        sessionID = new SessionID("FIX.4.4", "CLIENT", "FEED");
+    }
+
+    @Benchmark
+    public MarketDataBatch decode() throws FieldNotFound {
+        return decoder.decode(message);
+    }
+
+    // Raw-byte path used with decode.rawSnapshots=true, no FieldMap lookups
+    @Benchmark
+    public MarketDataBatch decodeRaw() throws FieldNotFound {
+        return decoder.decodeRaw(raw, 0L);
+    }
+
+    // Full session-thread path: journal (when enabled), decode, audit check and publish
+    @Benchmark
+    public long onMessage() {
+        application.onMessage(message, sessionID);
+        return connection.rows;
+    }
+
+    static final class CountingConnection implements Connection {
+        long rows;
+
+        @Override
+        public void openConnection() {
+        }
+
+        @Override
+        public void closeConnection() {
+        }
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) {
+            rows += batch.getRowCount();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.di.bench;
+
+import quickfix.DataDictionary;
+import quickfix.MessageUtils;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+// Builds 35=W snapshots shaped like the venue's forward feed and parses them the way the session would
+final class SnapshotMessages {
+    static final String DICTIONARY = "FIX44-aquaq.xml";
+
+    private static final char SOH = '\001';
+    private static final String[] TENORS = {
+            "ON", "TN", "SN", "1W", "2W", "3W", "1M", "2M", "3M", "4M", "5M", "6M",
+            "9M", "1Y", "15M", "18M", "2Y", "3Y", "4Y", "5Y", "IMM1", "IMM2", "20250917", "FED_Sep_25"
+    };
+
+    private SnapshotMessages() {
+    }
+
+    static MarketDataSnapshotFullRefresh parse(String symbol, int entries) throws Exception {
+        DataDictionary dictionary = new DataDictionary(DICTIONARY);
+        return (MarketDataSnapshotFullRefresh) MessageUtils.parse(
+                new quickfix.fix44.MessageFactory(), dictionary, raw(symbol, entries));
+    }
+
+    static String raw(String symbol, int entries) {
+        StringBuilder body = new StringBuilder(128 + entries * 160);
+        field(body, 35, "W");
+        field(body, 34, "1042");
+        field(body, 49, "FEED");
+        field(body, 52, "20250102-10:15:30.123");
+        field(body, 56, "CLIENT");
+        field(body, 262, symbol + "_FWD");
+        field(body, 55, symbol);
+        field(body, 268, Integer.toString(entries));
+        for (int i = 0; i < entries; i++) {
+            boolean bid = (i & 1) == 0;
+            int tenor = (i / 2) % TENORS.length;
+            double points = 1.25 * (tenor + 1) + (bid ? 0.0 : 0.35);
+            field(body, 269, bid ? "0" : "1");
+            field(body, 270, String.format("1.%05d", 8450 + tenor * 7 + (bid ? 0 : 2)));
+            field(body, 271, "1000000");
+            field(body, 272, "20250102");
+            field(body, 273, "10:15:30.123");
+            field(body, 276, "A");
+            field(body, 64, String.format("2025%02d%02d", 1 + tenor % 12, 1 + tenor % 28));
+            field(body, 5675, String.format("%.4f", points));
+            field(body, 5678, "4");
+            field(body, 6215, TENORS[tenor]);
+            field(body, 6314, "20250106");
+        }
+
+        StringBuilder message = new StringBuilder(body.length() + 32);
+        field(message, 8, "FIX.4.4");
+        field(message, 9, Integer.toString(body.length()));
+        message.append(body);
+        int checksum = 0;
+        for (int i = 0; i < message.length(); i++) {
+            checksum += message.charAt(i);
+        }
+        field(message, 10, String.format("%03d", checksum & 0xFF));
+        return message.toString();
+    }
+
+    private static void field(StringBuilder sb, int tag, String value) {
+        sb.append(tag).append('=').append(value).append(SOH);
+    }
+}
@@ -0,0 +1,45 @@
+package com.di.bench;
+
+import com.di.subscription.SubscriptionPlan;
+import com.di.subscription.SwapPointsLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Compiling the subscription plan from a synthetic swap points file of pairs x tenors rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class SubscriptionPlanBenchmark {
+    private static final String[] TENORS = {
+            "ON", "TN", "SN", "1W", "2W", "3W", "1M", "2M", "3M", "6M", "9M", "1Y", "18M", "2Y", "3Y", "5Y",
+            "SP:BOM1", "SP:BOM2", "SP:EOM3", "SP-IMM1", "SP-IMM2", "EOQ1", "F1", "M2", "ON+1"
+    };
+
+    @Param({"400"})
+    private int pairs;
+
+    private byte[] csv;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("ccy1,ccy2,from_maturity,to_maturity\n");
+        for (int p = 0; p < pairs; p++) {
+            String ccy2 = "C" + (char) ('A' + p / 26 % 26) + (char) ('A' + p % 26);
+            for (String tenor : TENORS) {
+                sb.append("USD,").append(ccy2).append(",SP,").append(tenor).append('\n');
+            }
+        }
+        csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public SubscriptionPlan compile() throws Exception {
+        return SwapPointsLoader.compile(new ByteArrayInputStream(csv));
+    }
+}
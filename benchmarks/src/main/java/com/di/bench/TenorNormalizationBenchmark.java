@@ -0,0 +1,82 @@
+package com.di.bench;
+
+import com.di.tenor.Tenor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cycles through every from/to maturity in the swap points file, i.e. the mix seen at subscription time
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-bench.xml")
+public class TenorNormalizationBenchmark {
+    private static final String SWAP_POINTS_FILE = "KX Swap Pts.csv";
+
+    private String[] tenors;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        List<String> values = new ArrayList<>();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(SWAP_POINTS_FILE)) {
+            if (is == null) {
+                throw new IllegalStateException(SWAP_POINTS_FILE + " not found on the classpath");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length >= 4) {
+                    values.add(fields[2].trim());
+                    values.add(fields[3].trim());
+                }
+            }
+        }
+        tenors = values.toArray(new String[0]);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == tenors.length ? 0 : i + 1;
+        return i;
+    }
+
+    // Also the per-entry lookup done by the decoder for tag 6215
+    @Benchmark
+    public Tenor parse() {
+        return Tenor.parse(tenors[nextIndex()]);
+    }
+
+    @Benchmark
+    public String regexNormalizeTenor() {
+        return regexNormalizeTenor(tenors[nextIndex()]);
+    }
+
+    // The String.matches based normalizeTenor that Tenor replaced, without its warning log
+    static String regexNormalizeTenor(String tenor) {
+        if (tenor == null || tenor.isEmpty()) return "";
+        String normalizedTenor = tenor.replaceAll("^(SP-|SP:)", "");
+        if (normalizedTenor.matches("^(FED|RBA|ECB|BOE|BOC|SNB)_\\w{3}_\\d{2}$")) return normalizedTenor;
+        if (normalizedTenor.matches("^IMM\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^(EOQ|BOQ)\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^[FMT]\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^(ON|TN|SN)(\\+\\d+)?$")) return normalizedTenor;
+        if (normalizedTenor.matches(".*BOM\\d+.*") || normalizedTenor.matches(".*EOM\\d+.*")) {
+            String number = normalizedTenor.replaceAll(".*?(\\d+).*", "$1");
+            return number.isEmpty() ? "" : number + "M";
+        }
+        if (normalizedTenor.matches("^\\d+[DWMY]$")) return normalizedTenor;
+        if (normalizedTenor.matches("^\\d{8}$")) return normalizedTenor;
+        return normalizedTenor;
+    }
+}
@@ -0,0 +1,131 @@
+package com.di;
+
+import com.di.fix.FIXApplication;
+import com.di.helper.FeedConfig;
+import com.di.helper.PropertiesHelper;
+import com.di.latency.LatencyTracker;
+import com.di.latency.ReceiveTimeLogFactory;
+import com.di.metrics.MetricsServer;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.*;
+
+import java.io.FileInputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+
+@Slf4j
+public class MainApplication {
+	public static Properties fixSessionIds = PropertiesHelper.loadProperties("src/main/resources/fix.properties");
+
+	public static void main(String[] args) {
+
+		System.out.println("Starting QuickFix Acceptor !! ");
+		if (args.length != 1) {
+			log.error("Please provide config file path as an argument.");
+			System.out.println("Please provide config file path as an argument.");
+			return;
+		}
+
+		String fileName = args[0];
+		FIXApplication application = null;
+		try {
+			application = (FIXApplication) Class.forName(fixSessionIds.getProperty("fix_application_class")).getDeclaredConstructor().newInstance();
+			log.info("Application class loaded {}", application.getClass().toString());
+		} catch (Exception e) {
+			log.error("Error Loading Fix Application Class {}", e.getMessage());
+		}
+
+		try {
+			FeedConfig config = FeedConfig.get();
+			SessionSettings settings = selectSessions(new SessionSettings(new FileInputStream(fileName)),
+					config.getSet("fix.sessions"));
+			MessageStoreFactory storeFactory = new FileStoreFactory(settings);
+			LogFactory logFactory = new SLF4JLogFactory(settings);
+			if (LatencyTracker.get().isEnabled()) {
+				logFactory = new ReceiveTimeLogFactory(logFactory);
+			}
+			MessageFactory messageFactory = new DefaultMessageFactory();
+			Connector connector = createConnector(application, storeFactory, settings, logFactory, messageFactory,
+					config.getString("fix.threadModel", "single"));
+			connector.start();
+			MetricsServer metricsServer = MetricsServer.start(config);
+
+			FIXApplication app = application;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				connector.stop();
+				app.shutdown();
+				if (metricsServer != null) {
+					metricsServer.stop();
+				}
+			}, "shutdown"));
+
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * ConnectionType in the settings picks initiator or acceptor. threadModel "perSession" uses the
+	 * threaded connectors, which give every session its own message processing thread; "single"
+	 * processes the messages of all sessions on one thread, and "lanes" does too but only to queue
+	 * market data for the session's own lane thread in FIXApplication.
+	 */
+	static Connector createConnector(Application application, MessageStoreFactory storeFactory,
+			SessionSettings settings, LogFactory logFactory, MessageFactory messageFactory, String threadModel)
+			throws ConfigError {
+		boolean initiator = settings.isSetting(SessionFactory.SETTING_CONNECTION_TYPE)
+				&& SessionFactory.INITIATOR_CONNECTION_TYPE.equals(settings.getString(SessionFactory.SETTING_CONNECTION_TYPE));
+		boolean perSession = switch (threadModel) {
+			case "perSession" -> true;
+			case "single", "lanes" -> false;
+			default -> {
+				log.warn("Unknown fix.threadModel '{}', falling back to single", threadModel);
+				yield false;
+			}
+		};
+		log.info("Starting {} {} for {} sessions", perSession ? "threaded" : "single-threaded",
+				initiator ? "initiator" : "acceptor", countSessions(settings));
+		if (initiator) {
+			return perSession
+					? new ThreadedSocketInitiator(application, storeFactory, settings, logFactory, messageFactory)
+					: new SocketInitiator(application, storeFactory, settings, logFactory, messageFactory);
+		}
+		return perSession
+				? new ThreadedSocketAcceptor(application, storeFactory, settings, logFactory, messageFactory)
+				: new SocketAcceptor(application, storeFactory, settings, logFactory, messageFactory);
+	}
+
+	// Keeps the sessions named in fix.sessions (keys of fix.properties); all of them when none are named
+	static SessionSettings selectSessions(SessionSettings settings, Set<String> names) throws ConfigError {
+		if (names.isEmpty()) return settings;
+		Set<String> wanted = new HashSet<>();
+		for (String name : names) {
+			String sessionId = fixSessionIds.getProperty(name);
+			if (sessionId == null) {
+				log.warn("Session {} is not in fix.properties, skipping it", name);
+			} else {
+				wanted.add(sessionId);
+			}
+		}
+		SessionSettings selected = new SessionSettings();
+		selected.set(settings.getDefaultProperties());
+		for (Iterator<SessionID> sections = settings.sectionIterator(); sections.hasNext(); ) {
+			SessionID sessionId = sections.next();
+			if (!wanted.remove(sessionId.toString())) continue;
+			Properties properties = settings.getSessionProperties(sessionId, false);
+			properties.forEach((key, value) -> selected.setString(sessionId, (String) key, (String) value));
+		}
+		wanted.forEach(sessionId -> log.warn("Session {} is not in the session settings, skipping it", sessionId));
+		return selected;
+	}
+
+	private static int countSessions(SessionSettings settings) {
+		int count = 0;
+		for (Iterator<SessionID> sections = settings.sectionIterator(); sections.hasNext(); sections.next()) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,329 @@
+package com.di;
+
+import com.di.codec.EpochClock;
+import com.di.codec.FixCodec;
+import com.di.codec.RawFixFields;
+import com.di.codec.StringDictionary;
+import com.di.connection.Connection;
+import com.di.connection.ConnectionFactory;
+import com.di.connection.MarketDataBatch;
+import com.di.fix.MarketDataDecoder;
+import com.di.helper.FeedConfig;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.DataDictionary;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.field.MsgType;
+import quickfix.field.SendingTime;
+import quickfix.field.Symbol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Backfills KDB from QuickFIX/J FileLog message logs (FileLogPath, *.messages.log). Every 35=W line
+ * goes through the same MarketDataDecoder as FIXApplication.onMessage. Files are read in parallel
+ * and lines are routed to decode workers by symbol, so each symbol is decoded and written in file
+ * order; a symbol that appears in several files is only ordered within each file. The final
+ * rows/sec line makes it usable as a throughput benchmark with --connection=null.
+ *
+ * --decoder=raw decodes the raw text without building a quickfix.Message (the decode.rawSnapshots
+ * path); --decoder=verify writes the Message-decoded rows and checks every row field for field
+ * against the raw decoder, logging the first mismatches.
+ *
+ * Usage: ReplayApplication [--connection=rt|null] [--threads=N] [--from=YYYYMMDD-HH:MM:SS]
+ *                          [--to=YYYYMMDD-HH:MM:SS] [--symbols=EUR/USD,USD/JPY]
+ *                          [--dictionary=FIX44-aquaq.xml] [--decoder=message|raw|verify] file...
+ */
+@Slf4j
+public class ReplayApplication {
+    // Only non-empty 35=W lines are queued, so an empty line can mark the end
+    private static final String END_OF_STREAM = "";
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final int LOGGED_MISMATCHES = 20;
+
+    private final Options options;
+    private final Connection connection;
+    private final DataDictionary dictionary;
+    // Row string values for everything this run writes to the connection, shared by the workers
+    private final StringDictionary values = new StringDictionary();
+    private final List<BlockingQueue<String>> queues = new ArrayList<>();
+
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong messagesDecoded = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+
+    static class Options {
+        String connection = "null";
+        int threads = Runtime.getRuntime().availableProcessors();
+        String from;
+        String to;
+        Set<String> symbols = new HashSet<>();
+        String dictionary = "FIX44-aquaq.xml";
+        String decoder = "message";
+        List<Path> files = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (arg.startsWith("--connection=")) {
+                    options.connection = value(arg);
+                } else if (arg.startsWith("--threads=")) {
+                    options.threads = Integer.parseInt(value(arg));
+                } else if (arg.startsWith("--from=")) {
+                    options.from = value(arg);
+                } else if (arg.startsWith("--to=")) {
+                    options.to = value(arg);
+                } else if (arg.startsWith("--symbols=")) {
+                    for (String symbol : value(arg).split(",")) {
+                        if (!symbol.isBlank()) options.symbols.add(symbol.trim());
+                    }
+                } else if (arg.startsWith("--dictionary=")) {
+                    options.dictionary = value(arg);
+                } else if (arg.startsWith("--decoder=")) {
+                    options.decoder = value(arg);
+                } else {
+                    options.files.add(Path.of(arg));
+                }
+            }
+            return options;
+        }
+
+        private static String value(String arg) {
+            return arg.substring(arg.indexOf('=') + 1);
+        }
+    }
+
+    // Counts rows and discards them; measures the read/decode path on its own
+    static class NullConnection implements Connection {
+        @Override public void openConnection() {}
+        @Override public void closeConnection() {}
+        @Override public void insertBatch(MarketDataBatch batch) {}
+    }
+
+    public ReplayApplication(Options options, Connection connection) throws Exception {
+        this.options = options;
+        this.connection = connection;
+        this.dictionary = new DataDictionary(options.dictionary);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options.files.isEmpty()) {
+            log.info("Usage: ReplayApplication [--connection=rt|null] [--threads=N] [--from=YYYYMMDD-HH:MM:SS] "
+                    + "[--to=YYYYMMDD-HH:MM:SS] [--symbols=EUR/USD,...] [--dictionary=FIX44-aquaq.xml] "
+                    + "[--decoder=message|raw|verify] file...");
+            return;
+        }
+        Connection connection = "rt".equals(options.connection)
+                ? ConnectionFactory.create(FeedConfig.get())
+                : new NullConnection();
+        new ReplayApplication(options, connection).run();
+    }
+
+    public void run() throws Exception {
+        connection.openConnection();
+        int threads = Math.max(1, options.threads);
+        for (int i = 0; i < threads; i++) {
+            queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, named("replay-decode"));
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(threads, options.files.size()), named("replay-read"));
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(named("replay-progress"));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workerFutures = new ArrayList<>();
+            for (BlockingQueue<String> queue : queues) {
+                workerFutures.add(workers.submit(() -> decodeLoop(queue)));
+            }
+            List<Future<?>> readerFutures = new ArrayList<>();
+            for (Path file : options.files) {
+                readerFutures.add(readers.submit(() -> {
+                    readFile(file);
+                    return null;
+                }));
+            }
+            progress.scheduleAtFixedRate(() -> logProgress(start, false),
+                    PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            for (Future<?> future : readerFutures) {
+                future.get();
+            }
+            for (BlockingQueue<String> queue : queues) {
+                queue.put(END_OF_STREAM);
+            }
+            for (Future<?> future : workerFutures) {
+                future.get();
+            }
+        } finally {
+            progress.shutdownNow();
+            readers.shutdownNow();
+            workers.shutdownNow();
+            connection.closeConnection();
+        }
+        logProgress(start, true);
+    }
+
+    private void readFile(Path file) throws IOException, InterruptedException {
+        log.info("Replaying {}", file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                linesRead.incrementAndGet();
+                String message = stripTimestampPrefix(line);
+                if (!isMarketDataSnapshot(message)) continue;
+
+                int symbolStart = RawFixFields.valueStart(message, Symbol.FIELD);
+                if (symbolStart == RawFixFields.NOT_FOUND) continue;
+                String symbol = message.substring(symbolStart, RawFixFields.valueEnd(message, symbolStart));
+                if (!options.symbols.isEmpty() && !options.symbols.contains(symbol)) continue;
+                if (!inTimeRange(message)) continue;
+
+                queues.get(Math.floorMod(symbol.hashCode(), queues.size())).put(line);
+            }
+        }
+    }
+
+    private void decodeLoop(BlockingQueue<String> queue) {
+        MarketDataDecoder decoder = new MarketDataDecoder(values);
+        MarketDataDecoder rawDecoder = new MarketDataDecoder(values);
+        boolean rawOnly = "raw".equals(options.decoder);
+        boolean verify = "verify".equals(options.decoder);
+        quickfix.MessageFactory messageFactory = new quickfix.fix44.MessageFactory();
+        while (true) {
+            String line;
+            try {
+                line = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (line.isEmpty()) return;
+            try {
+                String raw = stripTimestampPrefix(line);
+                long rcvNanos = receiveTime(line, raw);
+                MarketDataBatch batch;
+                if (rawOnly) {
+                    batch = rawDecoder.decodeRaw(raw, rcvNanos);
+                } else {
+                    Message message = MessageUtils.parse(messageFactory, dictionary, raw);
+                    batch = decoder.decode(message, rcvNanos);
+                    if (verify) {
+                        compare(batch, rawDecoder.decodeRaw(raw, rcvNanos), raw);
+                    }
+                }
+                messagesDecoded.incrementAndGet();
+                synchronized (connection) {
+                    connection.insertBacklogBatch(batch);
+                }
+                rowsWritten.addAndGet(batch.getRowCount());
+            } catch (Exception e) {
+                long failed = failures.incrementAndGet();
+                if ((failed & (failed - 1)) == 0) {
+                    log.warn("Failed to replay line ({} failures so far): {}", failed, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void compare(MarketDataBatch expected, MarketDataBatch actual, String raw) {
+        Object[][] expectedRows = expected.toRows();
+        Object[][] actualRows = actual.toRows();
+        if (expectedRows.length != actualRows.length) {
+            mismatch(String.format("row count %d, raw decoder %d", expectedRows.length, actualRows.length), raw);
+            return;
+        }
+        for (int row = 0; row < expectedRows.length; row++) {
+            for (int column = 0; column < expectedRows[row].length; column++) {
+                if (!Objects.equals(expectedRows[row][column], actualRows[row][column])) {
+                    mismatch(String.format("row %d column %d: %s, raw decoder %s", row, column,
+                            expectedRows[row][column], actualRows[row][column]), raw);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void mismatch(String detail, String raw) {
+        if (mismatches.incrementAndGet() <= LOGGED_MISMATCHES) {
+            log.warn("Raw decoder mismatch, {}: {}", detail, raw.replace(RawFixFields.SOH, '|'));
+        }
+    }
+
+    // FileLogIncludeTimeStampForMessages=Y prefixes lines with "YYYYMMDD-HH:MM:SS.sss: "
+    private static String stripTimestampPrefix(String line) {
+        int separator = line.indexOf(": 8=");
+        return separator > 0 && separator < 32 ? line.substring(separator + 2) : line;
+    }
+
+    private static boolean isMarketDataSnapshot(String message) {
+        int start = RawFixFields.valueStart(message, MsgType.FIELD);
+        return start != RawFixFields.NOT_FOUND
+                && RawFixFields.valueEnd(message, start) == start + 1
+                && message.charAt(start) == MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH.charAt(0);
+    }
+
+    // UTCTimestamps compare correctly as strings, so the filter needs no date parsing
+    private boolean inTimeRange(String message) {
+        if (options.from == null && options.to == null) return true;
+        String sendingTime = RawFixFields.getString(message, SendingTime.FIELD);
+        if (sendingTime == null) return false;
+        return (options.from == null || sendingTime.compareTo(options.from) >= 0)
+                && (options.to == null || sendingTime.compareTo(options.to) < 0);
+    }
+
+    // The log timestamp is when the message was received; fall back to SendingTime without one
+    private static long receiveTime(String line, String raw) {
+        if (line.length() != raw.length()) {
+            long logged = FixCodec.parseUtcTimestamp(line, 0, line.indexOf(": 8="));
+            if (logged != FixCodec.INVALID_TIME) return logged;
+        }
+        int start = RawFixFields.valueStart(raw, SendingTime.FIELD);
+        if (start != RawFixFields.NOT_FOUND) {
+            long sent = FixCodec.parseUtcTimestamp(raw, start, RawFixFields.valueEnd(raw, start));
+            if (sent != FixCodec.INVALID_TIME) return sent;
+        }
+        return EpochClock.nowNanos();
+    }
+
+    private void logProgress(long startNanos, boolean done) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        long rows = rowsWritten.get();
+        long messages = messagesDecoded.get();
+        String line = String.format("%s: lines=%d messages=%d rows=%d failures=%d elapsed=%.1fs rate=%.0f msgs/s %.0f rows/s",
+                done ? "Replay finished" : "Replay progress", linesRead.get(), messages, rows, failures.get(),
+                seconds, messages / seconds, rows / seconds);
+        if ("verify".equals(options.decoder)) {
+            line += " mismatches=" + mismatches.get();
+        }
+        log.info(line);
+    }
+
+    private static java.util.concurrent.ThreadFactory named(String prefix) {
+        AtomicLong counter = new AtomicLong();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
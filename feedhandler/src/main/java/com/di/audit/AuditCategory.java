@@ -0,0 +1,8 @@
+package com.di.audit;
+
+public enum AuditCategory {
+    ADMIN_IN,
+    APP_IN,
+    APP_OUT,
+    SNAPSHOT
+}
@@ -0,0 +1,195 @@
+package com.di.audit;
+
+import com.di.helper.FeedConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Sampled, rate-limited payload logging for the FIX hot path. Nothing is formatted unless a
+ * message is sampled or traced: callers ask shouldAudit first and pass the payload object as a
+ * parameter, so toString only runs for messages that are actually written. The payload-audit
+ * logger is an AsyncLogger (see log4j2.xml) using log4j2's garbage-free parameter handling.
+ * Payloads are formatted on the calling thread because batches are reused after the call.
+ */
+@Slf4j
+public class PayloadAudit implements PayloadAuditMXBean {
+    private static final Logger AUDIT = LogManager.getLogger("payload-audit");
+    private static final PayloadAudit INSTANCE = new PayloadAudit(FeedConfig.get());
+
+    private final Channel[] channels = new Channel[AuditCategory.values().length];
+    private final Set<String> tracedSymbols = ConcurrentHashMap.newKeySet();
+    private final Set<String> tracedMdReqIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean tracing;
+
+    private static class Channel {
+        // 0 disables sampling, 1 logs every message, N logs one in N
+        volatile int sampleEvery;
+        volatile int maxPerSecond;
+        final AtomicLong seen = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong rateLimited = new AtomicLong();
+        long windowSecond;
+        int windowCount;
+
+        Channel(int sampleEvery, int maxPerSecond) {
+            this.sampleEvery = sampleEvery;
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        boolean sample() {
+            int every = sampleEvery;
+            if (every <= 0) return false;
+            long count = seen.incrementAndGet();
+            return every == 1 || count % every == 0;
+        }
+
+        synchronized boolean acquire(long nowMillis) {
+            long second = nowMillis / 1000;
+            if (second != windowSecond) {
+                windowSecond = second;
+                windowCount = 0;
+            }
+            if (maxPerSecond > 0 && windowCount >= maxPerSecond) {
+                rateLimited.incrementAndGet();
+                return false;
+            }
+            windowCount++;
+            written.incrementAndGet();
+            return true;
+        }
+    }
+
+    // Package-private for tests; the feed uses the shared instance
+    PayloadAudit(FeedConfig config) {
+        int defaultMaxPerSecond = config.getInt("audit.maxPerSecond", 100);
+        for (AuditCategory category : AuditCategory.values()) {
+            channels[category.ordinal()] = new Channel(
+                    config.getInt("audit.sampleEvery." + category, 0),
+                    config.getInt("audit.maxPerSecond." + category, defaultMaxPerSecond));
+        }
+        tracedSymbols.addAll(config.getSet("audit.trace.symbols"));
+        tracedMdReqIds.addAll(config.getSet("audit.trace.mdReqIds"));
+        updateTracing();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.di:type=PayloadAudit"));
+        } catch (Exception e) {
+            log.warn("Could not register PayloadAudit MBean: {}", e.getMessage());
+        }
+    }
+
+    public static PayloadAudit get() {
+        return INSTANCE;
+    }
+
+    public boolean isTracing() {
+        return tracing;
+    }
+
+    public boolean isTraced(String symbol, String mdReqId) {
+        return tracing && ((symbol != null && tracedSymbols.contains(symbol))
+                || (mdReqId != null && tracedMdReqIds.contains(mdReqId)));
+    }
+
+    // Sampling and rate limiting; true means the caller should call write for this payload
+    public boolean shouldAudit(AuditCategory category) {
+        return shouldAudit(category, System.currentTimeMillis());
+    }
+
+    boolean shouldAudit(AuditCategory category, long nowMillis) {
+        Channel channel = channels[category.ordinal()];
+        return channel.sample() && channel.acquire(nowMillis);
+    }
+
+    public void write(AuditCategory category, Object payload) {
+        AUDIT.info("{} {}", category, payload);
+    }
+
+    public void write(AuditCategory category, String key, Object payload) {
+        AUDIT.info("{} {} {}", category, key, payload);
+    }
+
+    public void audit(AuditCategory category, Object payload) {
+        if (shouldAudit(category)) {
+            write(category, payload);
+        }
+    }
+
+    private void updateTracing() {
+        tracing = !tracedSymbols.isEmpty() || !tracedMdReqIds.isEmpty();
+    }
+
+    @Override
+    public void traceSymbol(String symbol) {
+        tracedSymbols.add(symbol);
+        updateTracing();
+        log.info("Payload tracing enabled for symbol {}", symbol);
+    }
+
+    @Override
+    public void untraceSymbol(String symbol) {
+        tracedSymbols.remove(symbol);
+        updateTracing();
+    }
+
+    @Override
+    public void traceMdReqId(String mdReqId) {
+        tracedMdReqIds.add(mdReqId);
+        updateTracing();
+        log.info("Payload tracing enabled for MDReqID {}", mdReqId);
+    }
+
+    @Override
+    public void untraceMdReqId(String mdReqId) {
+        tracedMdReqIds.remove(mdReqId);
+        updateTracing();
+    }
+
+    @Override
+    public void clearTraces() {
+        tracedSymbols.clear();
+        tracedMdReqIds.clear();
+        updateTracing();
+    }
+
+    @Override
+    public Set<String> getTracedSymbols() {
+        return Set.copyOf(tracedSymbols);
+    }
+
+    @Override
+    public Set<String> getTracedMdReqIds() {
+        return Set.copyOf(tracedMdReqIds);
+    }
+
+    @Override
+    public void setSampleEvery(String category, int sampleEvery) {
+        channels[AuditCategory.valueOf(category).ordinal()].sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void setMaxPerSecond(String category, int maxPerSecond) {
+        channels[AuditCategory.valueOf(category).ordinal()].maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public String getStats() {
+        StringBuilder sb = new StringBuilder();
+        for (AuditCategory category : AuditCategory.values()) {
+            Channel channel = channels[category.ordinal()];
+            sb.append(category).append(": sampleEvery=").append(channel.sampleEvery)
+                    .append(" maxPerSecond=").append(channel.maxPerSecond)
+                    .append(" seen=").append(channel.seen.get())
+                    .append(" written=").append(channel.written.get())
+                    .append(" rateLimited=").append(channel.rateLimited.get())
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+}
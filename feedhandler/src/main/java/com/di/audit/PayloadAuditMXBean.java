@@ -0,0 +1,26 @@
+package com.di.audit;
+
+import java.util.Set;
+
+// Runtime controls for the payload audit channel, registered as com.di:type=PayloadAudit
+public interface PayloadAuditMXBean {
+    void traceSymbol(String symbol);
+
+    void untraceSymbol(String symbol);
+
+    void traceMdReqId(String mdReqId);
+
+    void untraceMdReqId(String mdReqId);
+
+    void clearTraces();
+
+    Set<String> getTracedSymbols();
+
+    Set<String> getTracedMdReqIds();
+
+    void setSampleEvery(String category, int sampleEvery);
+
+    void setMaxPerSecond(String category, int maxPerSecond);
+
+    String getStats();
+}
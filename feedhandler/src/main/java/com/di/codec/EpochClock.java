@@ -0,0 +1,48 @@
+package com.di.codec;
+
+import java.time.Instant;
+
+/*
+ * Wall-clock time in epoch nanos with System.nanoTime resolution that does not allocate on the
+ * hot path. nanoTime is offset onto the epoch. Once a second the offset is checked against
+ * Instant.now, so clock adjustments are picked up within a second.
+ */
+public final class EpochClock {
+    private static final long RESYNC_NANOS = FixCodec.NANOS_PER_SECOND;
+    // Drift tolerated before the offset moves, so readings do not jitter on every resync
+    private static final long MAX_DRIFT_NANOS = 100_000L;
+
+    private static volatile long offsetNanos;
+    private static volatile long syncedAt;
+
+    static {
+        long ticks = System.nanoTime();
+        offsetNanos = wallNanos() - ticks;
+        syncedAt = ticks;
+    }
+
+    private EpochClock() {
+    }
+
+    public static long nowNanos() {
+        long ticks = System.nanoTime();
+        if (ticks - syncedAt >= RESYNC_NANOS) {
+            resync(ticks);
+        }
+        return ticks + offsetNanos;
+    }
+
+    // Racing threads compute near-identical offsets, so last writer wins without locking
+    private static void resync(long ticks) {
+        long offset = wallNanos() - ticks;
+        if (Math.abs(offset - offsetNanos) > MAX_DRIFT_NANOS) {
+            offsetNanos = offset;
+        }
+        syncedAt = ticks;
+    }
+
+    private static long wallNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * FixCodec.NANOS_PER_SECOND + now.getNano();
+    }
+}
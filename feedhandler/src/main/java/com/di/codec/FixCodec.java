@@ -0,0 +1,176 @@
+package com.di.codec;
+
+// Allocation-free parsers for the FIX field formats used on the market data path
+public class FixCodec {
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+    public static final long NANOS_PER_DAY = 86_400L * NANOS_PER_SECOND;
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+    public static final long INVALID_TIME = -1L;
+    // kdb+ timestamps count nanos from 2000.01.01D00:00:00
+    public static final long KDB_EPOCH_NANOS = 946_684_800L * NANOS_PER_SECOND;
+
+    // Exact powers of ten; mantissa / POW10[n] is correctly rounded while mantissa < 2^53
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private FixCodec() {
+    }
+
+    // Plain decimals take the fast path; anything else (exponents, NaN, long mantissas) falls back to the JDK
+    public static double parseDouble(CharSequence value) {
+        return parseDouble(value, 0, value.length());
+    }
+
+    public static double parseDouble(CharSequence value, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char first = value.charAt(i);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                i++;
+            }
+        }
+        long mantissa = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean digits = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(value.subSequence(start, end).toString());
+                }
+                if (dot) scale++;
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(value.subSequence(start, end).toString());
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a number: '" + value.subSequence(start, end) + "'");
+        }
+        if (scale >= POW10.length) {
+            return Double.parseDouble(value.subSequence(start, end).toString());
+        }
+        double result = mantissa / POW10[scale];
+        return negative ? -result : result;
+    }
+
+    // Unsigned decimal int (SeqNum, NumInGroup and similar)
+    public static int parseInt(CharSequence value, int start, int end) {
+        if (start == end || end - start > 9) {
+            return Integer.parseInt(value.subSequence(start, end).toString());
+        }
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not an int: '" + value.subSequence(start, end) + "'");
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    // YYYYMMDD to epoch day, INVALID_DATE when malformed or not a calendar date
+    public static int parseEpochDay(CharSequence yyyymmdd) {
+        if (yyyymmdd == null || yyyymmdd.length() != 8) return INVALID_DATE;
+        return parseEpochDay(yyyymmdd, 0);
+    }
+
+    public static int parseEpochDay(CharSequence value, int offset) {
+        if (offset + 8 > value.length()) return INVALID_DATE;
+        int year = digits(value, offset, 4);
+        int month = digits(value, offset + 4, 2);
+        int day = digits(value, offset + 6, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID_DATE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    // HH:MM[:SS[.fffffffff]] to nanos of day, INVALID_TIME when malformed
+    public static long parseNanosOfDay(CharSequence value) {
+        if (value == null) return INVALID_TIME;
+        return parseNanosOfDay(value, 0, value.length());
+    }
+
+    public static long parseNanosOfDay(CharSequence value, int offset, int end) {
+        int length = end - offset;
+        if (length < 5 || value.charAt(offset + 2) != ':') return INVALID_TIME;
+        int hours = digits(value, offset, 2);
+        int minutes = digits(value, offset + 3, 2);
+        int seconds = 0;
+        long fraction = 0;
+        if (length > 5) {
+            if (length < 8 || value.charAt(offset + 5) != ':') return INVALID_TIME;
+            seconds = digits(value, offset + 6, 2);
+            if (length > 8) {
+                int fractionDigits = length - 9;
+                if (value.charAt(offset + 8) != '.' || fractionDigits < 1 || fractionDigits > 9) return INVALID_TIME;
+                int parsed = digits(value, offset + 9, fractionDigits);
+                if (parsed < 0) return INVALID_TIME;
+                fraction = parsed;
+                for (int i = fractionDigits; i < 9; i++) {
+                    fraction *= 10;
+                }
+            }
+        }
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return INVALID_TIME;
+        }
+        return ((hours * 60L + minutes) * 60L + seconds) * NANOS_PER_SECOND + fraction;
+    }
+
+    public static long toKdbTimestamp(long epochNanos) {
+        return epochNanos - KDB_EPOCH_NANOS;
+    }
+
+    // UTCTimestamp (YYYYMMDD-HH:MM:SS[.fff...]) to epoch nanos, INVALID_TIME when malformed
+    public static long parseUtcTimestamp(CharSequence value, int offset, int end) {
+        if (end - offset < 14 || value.charAt(offset + 8) != '-') return INVALID_TIME;
+        int day = parseEpochDay(value, offset);
+        long nanosOfDay = parseNanosOfDay(value, offset + 9, end);
+        if (day == INVALID_DATE || nanosOfDay == INVALID_TIME) return INVALID_TIME;
+        return day * NANOS_PER_DAY + nanosOfDay;
+    }
+
+    public static long parseUtcTimestamp(CharSequence value) {
+        return value == null ? INVALID_TIME : parseUtcTimestamp(value, 0, value.length());
+    }
+
+    private static int digits(CharSequence value, int offset, int count) {
+        int result = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Days from civil (proleptic Gregorian), same result as LocalDate.of(y, m, d).toEpochDay()
+    public static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
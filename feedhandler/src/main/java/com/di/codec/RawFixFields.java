@@ -0,0 +1,47 @@
+package com.di.codec;
+
+// Lookups of single tags in a raw SOH-delimited FIX message without parsing it
+public class RawFixFields {
+    public static final char SOH = '\u0001';
+    public static final int NOT_FOUND = -1;
+
+    private RawFixFields() {
+    }
+
+    // Index of the first character of the tag's value, or NOT_FOUND; only whole tags match
+    public static int valueStart(CharSequence message, int tag) {
+        int length = message.length();
+        int fieldStart = 0;
+        while (fieldStart < length) {
+            int parsedTag = 0;
+            int i = fieldStart;
+            char c;
+            while (i < length && (c = message.charAt(i)) >= '0' && c <= '9') {
+                parsedTag = parsedTag * 10 + (c - '0');
+                i++;
+            }
+            if (i < length && message.charAt(i) == '=' && parsedTag == tag) {
+                return i + 1;
+            }
+            while (i < length && message.charAt(i) != SOH) {
+                i++;
+            }
+            fieldStart = i + 1;
+        }
+        return NOT_FOUND;
+    }
+
+    public static int valueEnd(CharSequence message, int valueStart) {
+        int length = message.length();
+        int i = valueStart;
+        while (i < length && message.charAt(i) != SOH) {
+            i++;
+        }
+        return i;
+    }
+
+    public static String getString(CharSequence message, int tag) {
+        int start = valueStart(message, tag);
+        return start == NOT_FOUND ? null : message.subSequence(start, valueEnd(message, start)).toString();
+    }
+}
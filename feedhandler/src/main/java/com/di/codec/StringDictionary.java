@@ -0,0 +1,141 @@
+package com.di.codec;
+
+import java.util.Arrays;
+
+/*
+ * Append-only dictionary mapping repeated string values (symbols, origins, pips, ...) to
+ * dense int ids. Id 0 is the empty string, which is also what null encodes to.
+ *
+ * Lookups are lock-free and do not allocate on a hit, including lookups of a CharSequence range
+ * such as a slice of the raw FIX message. Inserts are synchronized. A lock-free probe that races
+ * with an insert can miss the new entry, in which case the locked path finds it.
+ */
+public class StringDictionary {
+    public static final int EMPTY = 0;
+
+    private static final StringDictionary SHARED = new StringDictionary();
+
+    private volatile String[] values = new String[64];
+    private volatile int[] hashes = new int[64];
+    // Open addressing table of id + 1, 0 marks a free slot
+    private volatile int[] slots = new int[128];
+    private volatile int size;
+
+    public StringDictionary() {
+        insert("", 0);
+    }
+
+    // Process-wide dictionary used by batches that are not given one
+    public static StringDictionary shared() {
+        return SHARED;
+    }
+
+    public int idOf(String value) {
+        if (value == null || value.isEmpty()) return EMPTY;
+        int hash = value.hashCode();
+        int id = find(value, 0, value.length(), hash);
+        return id >= 0 ? id : add(value, 0, value.length(), hash);
+    }
+
+    public int idOf(CharSequence value, int start, int end) {
+        if (value == null || start >= end) return EMPTY;
+        int hash = hash(value, start, end);
+        int id = find(value, start, end, hash);
+        return id >= 0 ? id : add(value, start, end, hash);
+    }
+
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Same hash as String.hashCode so String and range lookups land on the same slot
+    private static int hash(CharSequence value, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    private int find(CharSequence value, int start, int end, int hash) {
+        int[] table = slots;
+        String[] strings = values;
+        int[] stringHashes = hashes;
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) return -1;
+            int id = entry - 1;
+            if (id >= strings.length || id >= stringHashes.length) return -1;
+            if (stringHashes[id] == hash) {
+                String candidate = strings[id];
+                if (candidate == null) return -1;
+                if (matches(candidate, value, start, end)) return id;
+            }
+        }
+    }
+
+    private static boolean matches(String candidate, CharSequence value, int start, int end) {
+        int length = end - start;
+        if (candidate.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != value.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private synchronized int add(CharSequence value, int start, int end, int hash) {
+        int existing = find(value, start, end, hash);
+        if (existing >= 0) return existing;
+        return insert(value.subSequence(start, end).toString(), hash);
+    }
+
+    // Caller holds the lock (or is the constructor)
+    private int insert(String value, int hash) {
+        int id = size;
+        String[] strings = values;
+        int[] stringHashes = hashes;
+        if (id == strings.length) {
+            strings = Arrays.copyOf(strings, id * 2);
+            stringHashes = Arrays.copyOf(stringHashes, id * 2);
+        }
+        strings[id] = value;
+        stringHashes[id] = hash;
+        values = strings;
+        hashes = stringHashes;
+
+        int[] table = slots;
+        if ((id + 1) * 2 > table.length) {
+            table = rehash(table.length * 2, stringHashes, id);
+        }
+        place(table, hash, id);
+        slots = table;
+        size = id + 1;
+        return id;
+    }
+
+    private static int[] rehash(int capacity, int[] stringHashes, int count) {
+        int[] table = new int[capacity];
+        for (int id = 0; id < count; id++) {
+            place(table, stringHashes[id], id);
+        }
+        return table;
+    }
+
+    private static void place(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = mix(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
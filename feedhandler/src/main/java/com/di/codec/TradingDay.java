@@ -0,0 +1,98 @@
+package com.di.codec;
+
+import com.di.helper.FeedConfig;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/*
+ * Cached trading-day calendar for the snapshot decoders. Not thread safe, one instance per decoder.
+ *
+ * The trading day rolls at the FIX session start (StartTime in the session settings). A session
+ * that starts in the evening, such as 23:00 America/New_York, trades as the next calendar day.
+ * MDEntryTime carries no date, so it goes on the calendar day of the receive time in the entry
+ * time zone. If the result is more than half a day away from the receive time, it goes on the
+ * neighbouring day instead.
+ *
+ * Both are recomputed only when a receive time falls outside the cached day. Otherwise a message
+ * costs a few comparisons and no allocation.
+ */
+public final class TradingDay {
+    private static final long HALF_DAY_NANOS = FixCodec.NANOS_PER_DAY / 2;
+
+    private final LocalTime sessionStart;
+    private final ZoneId sessionZone;
+    private final ZoneId entryZone;
+    private final int rollDays;
+
+    // Epoch day of the current trading day, used for entryDate
+    @Getter
+    private int epochDay;
+    private long sessionStartNanos = Long.MAX_VALUE;
+    private long nextSessionStartNanos = Long.MIN_VALUE;
+
+    // Calendar day in entryZone that MDEntryTime is placed on
+    private long midnightNanos = Long.MAX_VALUE;
+    private long nextMidnightNanos = Long.MIN_VALUE;
+
+    public TradingDay(LocalTime sessionStart, ZoneId sessionZone, ZoneId entryZone) {
+        this.sessionStart = sessionStart;
+        this.sessionZone = sessionZone;
+        this.entryZone = entryZone;
+        this.rollDays = sessionStart.isAfter(LocalTime.NOON) ? 1 : 0;
+    }
+
+    // session.startTime uses the QuickFIX/J StartTime format "HH:MM:SS [zone]"
+    public static TradingDay fromConfig(FeedConfig config) {
+        String[] start = config.getString("session.startTime", "00:00:00").trim().split("\\s+", 2);
+        ZoneId sessionZone = start.length > 1 ? ZoneId.of(start[1]) : ZoneId.systemDefault();
+        String entryZone = config.getString("decode.entryTimeZone", "");
+        return new TradingDay(LocalTime.parse(start[0]), sessionZone,
+                entryZone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(entryZone));
+    }
+
+    public void refresh(long rcvNanos) {
+        if (rcvNanos < sessionStartNanos || rcvNanos >= nextSessionStartNanos) {
+            rollSession(rcvNanos);
+        }
+        if (rcvNanos < midnightNanos || rcvNanos >= nextMidnightNanos) {
+            rollMidnight(rcvNanos);
+        }
+    }
+
+    // nanosOfDay is a parsed MDEntryTime, rcvNanos must have been passed to refresh first
+    public long entryTimeNanos(long nanosOfDay, long rcvNanos) {
+        long time = midnightNanos + nanosOfDay;
+        if (time - rcvNanos > HALF_DAY_NANOS) return time - FixCodec.NANOS_PER_DAY;
+        if (rcvNanos - time > HALF_DAY_NANOS) return time + FixCodec.NANOS_PER_DAY;
+        return time;
+    }
+
+    private void rollSession(long rcvNanos) {
+        ZonedDateTime now = atZone(rcvNanos, sessionZone);
+        LocalDate startDate = now.toLocalTime().isBefore(sessionStart)
+                ? now.toLocalDate().minusDays(1) : now.toLocalDate();
+        sessionStartNanos = epochNanos(startDate.atTime(sessionStart).atZone(sessionZone));
+        nextSessionStartNanos = epochNanos(startDate.plusDays(1).atTime(sessionStart).atZone(sessionZone));
+        epochDay = (int) startDate.plusDays(rollDays).toEpochDay();
+    }
+
+    private void rollMidnight(long rcvNanos) {
+        LocalDate today = atZone(rcvNanos, entryZone).toLocalDate();
+        midnightNanos = epochNanos(today.atStartOfDay(entryZone));
+        nextMidnightNanos = epochNanos(today.plusDays(1).atStartOfDay(entryZone));
+    }
+
+    private static ZonedDateTime atZone(long epochNanos, ZoneId zone) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, FixCodec.NANOS_PER_SECOND),
+                Math.floorMod(epochNanos, FixCodec.NANOS_PER_SECOND)).atZone(zone);
+    }
+
+    private static long epochNanos(ZonedDateTime time) {
+        return time.toEpochSecond() * FixCodec.NANOS_PER_SECOND + time.getNano();
+    }
+}
@@ -0,0 +1,62 @@
+package com.di.concurrent;
+
+import com.di.helper.FeedConfig;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Caps the writes in flight to one RT destination, however many session chains write to it
+ * (publish.rt.maxConcurrentWrites, or publish.rt.maxConcurrentWrites.<destination>; 0 = no cap).
+ * A writer over the cap waits for a permit, which on a virtual thread frees its carrier.
+ */
+public final class DestinationLimiter {
+    private static final ConcurrentHashMap<String, DestinationLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final String destination;
+    // Null when there is no cap
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public DestinationLimiter(String destination, int maxConcurrentWrites) {
+        this.destination = destination;
+        this.permits = maxConcurrentWrites > 0 ? new Semaphore(maxConcurrentWrites, true) : null;
+    }
+
+    public static DestinationLimiter forDestination(String destination) {
+        return LIMITERS.computeIfAbsent(destination, name -> {
+            FeedConfig config = FeedConfig.get();
+            return new DestinationLimiter(name, config.getInt("publish.rt.maxConcurrentWrites." + name,
+                    config.getInt("publish.rt.maxConcurrentWrites", 0)));
+        });
+    }
+
+    public void acquire() throws InterruptedIOException {
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting to write to " + destination);
+            }
+        }
+        inFlight.incrementAndGet();
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+}
@@ -0,0 +1,46 @@
+package com.di.concurrent;
+
+import com.di.helper.FeedConfig;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Which threads run the long-lived loops of the feed: session lanes, publisher threads, the
+ * coalescing timer and the subscription pacer (execution.mode). PLATFORM gives each loop an OS
+ * thread; VIRTUAL runs them as virtual threads, which leave their carrier while blocked in an RT
+ * write or a queue take. On Java 21 a virtual thread blocked inside synchronized keeps its carrier,
+ * so the code these threads block in waits on java.util.concurrent locks instead.
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    public static ExecutionMode of(String name) {
+        return "virtual".equalsIgnoreCase(name) ? VIRTUAL : PLATFORM;
+    }
+
+    public static ExecutionMode fromConfig(FeedConfig config) {
+        return of(config.getString("execution.mode", "platform"));
+    }
+
+    // Unstarted; platform threads are daemons, as virtual threads always are
+    public Thread newThread(String name, Runnable task) {
+        return builder(name).unstarted(task);
+    }
+
+    // Every thread of the factory gets the same name
+    public ThreadFactory threadFactory(String name) {
+        return builder(name).factory();
+    }
+
+    // Thread per task; close() waits for every submitted task, so a try-with-resources block scopes them
+    public ExecutorService newTaskExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(threadFactory(name));
+    }
+
+    private Thread.Builder builder(String name) {
+        return this == VIRTUAL ? Thread.ofVirtual().name(name) : Thread.ofPlatform().name(name).daemon(true);
+    }
+}
@@ -0,0 +1,106 @@
+package com.di.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Padding lives in superclasses: the JVM lays out a superclass's fields before its subclass's and
+// never reorders across the hierarchy, while fields within one class may be packed in any order
+abstract class SpscPadding0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SpscHead extends SpscPadding0 {
+    volatile long head;
+    long tailCache;
+}
+
+abstract class SpscPadding1 extends SpscHead {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class SpscTail extends SpscPadding1 {
+    volatile long tail;
+    long headCache;
+}
+
+abstract class SpscPadding2 extends SpscTail {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/*
+ * Bounded single-producer/single-consumer queue. Exactly one thread may call offer and exactly
+ * one (other) thread may call poll. Head and tail are published with release/acquire semantics
+ * and each side caches the other's index so the common path touches no shared cache line.
+ */
+public class SpscRingBuffer<E> extends SpscPadding2 {
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscHead.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscTail.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] buffer;
+    private final int mask;
+
+    public SpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2, got " + requestedCapacity);
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.buffer = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    // Producer side
+    public boolean offer(E element) {
+        long t = tail;
+        if (t - headCache >= buffer.length) {
+            headCache = (long) HEAD.getAcquire(this);
+            if (t - headCache >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) (t & mask)] = element;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    // Consumer side
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = (long) TAIL.getAcquire(this);
+            if (h >= tailCache) {
+                return null;
+            }
+        }
+        int index = (int) (h & mask);
+        E element = (E) buffer[index];
+        buffer[index] = null;
+        HEAD.setRelease(this, h + 1);
+        return element;
+    }
+
+    // Approximate when called from a third thread, exact from either end
+    public int size() {
+        long h = (long) HEAD.getAcquire(this);
+        long t = (long) TAIL.getAcquire(this);
+        return (int) Math.max(0, t - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.di.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Back-off used by ring buffer producers and consumers while they wait for the other side
+public interface WaitStrategy {
+
+    // Called repeatedly while waiting; idleCount starts at 0 and is reset by the caller once work arrives
+    void idle(int idleCount);
+
+    static WaitStrategy of(String name, long parkNanos) {
+        return switch (name.toLowerCase()) {
+            case "busyspin" -> new BusySpinWaitStrategy();
+            case "park" -> new ParkingWaitStrategy(parkNanos);
+            default -> new YieldingWaitStrategy();
+        };
+    }
+
+    class BusySpinWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int idleCount) {
+            Thread.onSpinWait();
+        }
+
+        @Override
+        public String toString() {
+            return "busyspin";
+        }
+    }
+
+    class YieldingWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "yield";
+        }
+    }
+
+    class ParkingWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+
+        private final long parkNanos;
+
+        public ParkingWaitStrategy(long parkNanos) {
+            this.parkNanos = parkNanos;
+        }
+
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idleCount < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "park(" + parkNanos + "ns)";
+        }
+    }
+}
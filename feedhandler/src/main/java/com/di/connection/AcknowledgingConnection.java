@@ -0,0 +1,38 @@
+package com.di.connection;
+
+import java.io.IOException;
+
+/*
+ * Innermost stage of the publish chain: once a batch has been written successfully its source
+ * positions are acknowledged. Acknowledgements are high-water marks, so a batch whose write fails
+ * is rejected instead, and its source keeps later acknowledgements below it until it has
+ * published the batch's rows again (see MarketDataJournal).
+ */
+public class AcknowledgingConnection implements Connection {
+    private final Connection delegate;
+
+    public AcknowledgingConnection(Connection delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void openConnection() throws IOException {
+        delegate.openConnection();
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        delegate.closeConnection();
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        try {
+            delegate.insertBatch(batch);
+        } catch (IOException | RuntimeException e) {
+            batch.reject();
+            throw e;
+        }
+        batch.acknowledge();
+    }
+}
@@ -0,0 +1,251 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.concurrent.SpscRingBuffer;
+import com.di.concurrent.WaitStrategy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Hands batches from the FIX session thread to a dedicated publisher thread so a slow
+ * BulkLoader.writeTable never stalls session reading or heartbeats. The session thread is the
+ * only producer, so the queue is a single-producer/single-consumer ring. Batches are copied into
+ * preallocated slots that travel back to the producer through a second ring once published, so
+ * the hand-off allocates nothing in steady state.
+ *
+ * Threads sharing a chain take turns in a SharedConnection in front of this one. A producer that
+ * enters while another is still enqueueing would corrupt both rings, so its batch is rejected and
+ * it gets an IOException instead.
+ */
+@Slf4j
+public class AsyncConnection implements Connection {
+    private final Connection delegate;
+    private final SpscRingBuffer<MarketDataBatch> ring;
+    private final SpscRingBuffer<MarketDataBatch> freeSlots;
+    private final WaitStrategy waitStrategy;
+    private final boolean blockWhenFull;
+    private final long statsIntervalNanos;
+    private final long closeTimeoutMillis;
+    private final ExecutionMode executionMode;
+    private final String threadName;
+
+    private final AtomicLong publishedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final AtomicLong stallNanos = new AtomicLong();
+    // Held by the thread enqueueing, so a second producer is caught rather than let into the rings
+    private final AtomicBoolean enqueuing = new AtomicBoolean();
+
+    private volatile boolean running;
+    private Thread publisherThread;
+    // A close that timed out leaves closing the delegate to the publisher thread once it is done
+    private final Object exitLock = new Object();
+    private boolean publisherExited;
+    private boolean closeOnExit;
+
+    public AsyncConnection(Connection delegate, int capacity, WaitStrategy waitStrategy,
+                           boolean blockWhenFull, long statsIntervalMs, long closeTimeoutMs,
+                           ExecutionMode executionMode) {
+        this(delegate, capacity, waitStrategy, blockWhenFull, statsIntervalMs, closeTimeoutMs, executionMode,
+                "kdb-publisher");
+    }
+
+    // closeTimeoutMs is how long closeConnection waits for the queued batches to be written
+    public AsyncConnection(Connection delegate, int capacity, WaitStrategy waitStrategy, boolean blockWhenFull,
+                           long statsIntervalMs, long closeTimeoutMs, ExecutionMode executionMode,
+                           String threadName) {
+        this.delegate = delegate;
+        this.ring = new SpscRingBuffer<>(capacity);
+        this.freeSlots = new SpscRingBuffer<>(capacity);
+        for (int i = 0; i < ring.capacity(); i++) {
+            freeSlots.offer(new MarketDataBatch());
+        }
+        this.waitStrategy = waitStrategy;
+        this.blockWhenFull = blockWhenFull;
+        this.statsIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statsIntervalMs);
+        this.closeTimeoutMillis = Math.max(1, closeTimeoutMs);
+        this.executionMode = executionMode;
+        this.threadName = threadName;
+    }
+
+    @Override
+    public synchronized void openConnection() throws IOException {
+        if (publisherThread != null && !running) {
+            if (publisherThread.isAlive()) {
+                // Only one consumer may poll the ring
+                throw new IOException("Async publisher " + threadName + " is still writing its last batches");
+            }
+            publisherThread = null;
+        }
+        if (publisherThread == null) {
+            synchronized (exitLock) {
+                publisherExited = false;
+                closeOnExit = false;
+            }
+            running = true;
+            publisherThread = executionMode.newThread(threadName, this::runPublisher);
+            publisherThread.start();
+            log.info("Async publisher {} started: capacity={} waitStrategy={} blockWhenFull={} thread={}",
+                    threadName, ring.capacity(), waitStrategy, blockWhenFull, executionMode);
+        }
+        delegate.openConnection();
+    }
+
+    @Override
+    public synchronized void closeConnection() throws IOException {
+        if (publisherThread != null) {
+            running = false;
+            try {
+                publisherThread.join(closeTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (exitLock) {
+                if (!publisherExited) {
+                    // Closing now would close the delegate under a write
+                    closeOnExit = true;
+                    log.warn("Async publisher {} still writing after close, it closes the connection when done "
+                            + "(depth={})", threadName, getQueueDepth());
+                    return;
+                }
+            }
+            publisherThread = null;
+            logStats();
+        }
+        delegate.closeConnection();
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        enqueue(batch, blockWhenFull);
+    }
+
+    @Override
+    public void insertBacklogBatch(MarketDataBatch batch) throws IOException {
+        enqueue(batch, true);
+    }
+
+    private void enqueue(MarketDataBatch batch, boolean block) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        if (!enqueuing.compareAndSet(false, true)) {
+            batch.reject();
+            throw new IOException("Async publisher " + threadName + " has more than one producer, "
+                    + "put a SharedConnection in front of it");
+        }
+        try {
+            offer(batch, block);
+        } finally {
+            enqueuing.set(false);
+        }
+    }
+
+    private void offer(MarketDataBatch batch, boolean block) throws IOException {
+        MarketDataBatch slot = freeSlots.poll();
+        if (slot == null) {
+            if (!block) {
+                long dropped = droppedBatches.incrementAndGet();
+                if ((dropped & (dropped - 1)) == 0) {  // Log on powers of two to avoid flooding
+                    log.warn("Publish queue full, dropped {} batches so far", dropped);
+                }
+                batch.reject();
+                return;
+            }
+            long start = System.nanoTime();
+            int idle = 0;
+            while ((slot = freeSlots.poll()) == null) {
+                if (!running) {
+                    throw new IOException("Async publisher is not running");
+                }
+                waitStrategy.idle(idle++);
+            }
+            stallNanos.addAndGet(System.nanoTime() - start);
+        }
+        slot.copyFrom(batch);
+        ring.offer(slot);  // Cannot fail, every slot taken from freeSlots has room in ring
+    }
+
+    private void runPublisher() {
+        long nextStats = System.nanoTime() + statsIntervalNanos;
+        int idle = 0;
+        while (true) {
+            MarketDataBatch batch = ring.poll();
+            if (batch != null) {
+                idle = 0;
+                publish(batch);
+            } else if (!running) {
+                break;
+            } else {
+                waitStrategy.idle(idle++);
+            }
+            if (statsIntervalNanos > 0 && System.nanoTime() - nextStats >= 0) {
+                logStats();
+                nextStats += statsIntervalNanos;
+            }
+        }
+        // Drain whatever the session thread queued before close
+        MarketDataBatch batch;
+        while ((batch = ring.poll()) != null) {
+            publish(batch);
+        }
+        synchronized (exitLock) {
+            publisherExited = true;
+            if (closeOnExit) {
+                try {
+                    delegate.closeConnection();
+                } catch (IOException e) {
+                    log.warn("Closing the connection of async publisher {} failed: {}", threadName, e.getMessage());
+                }
+                logStats();
+            }
+        }
+    }
+
+    private void publish(MarketDataBatch batch) {
+        try {
+            delegate.insertBatch(batch);
+            publishedBatches.incrementAndGet();
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("Async publish of {} rows failed: {}", batch.getRowCount(), e.getMessage(), e);
+        } finally {
+            batch.clear();
+            freeSlots.offer(batch);
+        }
+    }
+
+    private void logStats() {
+        log.info("Async publisher {} stats: depth={} published={} failed={} dropped={} stalledMs={}",
+                threadName, getQueueDepth(), getPublishedBatches(), getFailedBatches(), getDroppedBatches(),
+                TimeUnit.NANOSECONDS.toMillis(getStallNanos()));
+    }
+
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    public int getQueueCapacity() {
+        return ring.capacity();
+    }
+
+    public long getPublishedBatches() {
+        return publishedBatches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getDroppedBatches() {
+        return droppedBatches.get();
+    }
+
+    public long getStallNanos() {
+        return stallNanos.get();
+    }
+}
@@ -0,0 +1,67 @@
+package com.di.connection;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Power-of-two bucketed distribution of rows per flushed batch
+public class BatchSizeHistogram {
+    private static final int BUCKETS = 17;  // 1, 2-3, 4-7, ... , 65536+
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    public void record(int rowCount) {
+        if (rowCount <= 0) return;
+        int bucket = Math.min(BUCKETS - 1, 31 - Integer.numberOfLeadingZeros(rowCount));
+        counts.incrementAndGet(bucket);
+        batches.increment();
+        rows.add(rowCount);
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    public double getMeanBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0.0 : (double) rows.sum() / count;
+    }
+
+    // Lower bound of the bucket holding the given percentile (0-100)
+    public int getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= threshold) return 1 << i;
+        }
+        return 1 << (BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("batches=").append(getBatchCount())
+                .append(" rows=").append(getRowCount())
+                .append(String.format(" mean=%.1f p50=%d p99=%d [", getMeanBatchSize(), getPercentile(50), getPercentile(99)));
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count == 0) continue;
+            if (!first) sb.append(' ');
+            sb.append(1 << i).append(i == BUCKETS - 1 ? "+:" : ":").append(count);
+            first = false;
+        }
+        return sb.append(']').toString();
+    }
+}
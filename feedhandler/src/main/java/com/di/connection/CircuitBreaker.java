@@ -0,0 +1,99 @@
+package com.di.connection;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Health of the RT link as SpillingConnection sees it. CLOSED: writes go through, and
+ * failureThreshold failed writes in a row open it. OPEN: nothing is written; a reconnect is due
+ * after a backoff that starts at initialBackoffMs and doubles up to maxBackoffMs. A reconnect that
+ * succeeds moves it to HALF_OPEN, where the next write decides: success closes it and resets the
+ * backoff, failure opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long backoffNanos;
+    private long retryAtNanos;
+    private long openedNanos;
+    private volatile long trips;
+
+    public CircuitBreaker(String name, int failureThreshold, long initialBackoffMs, long maxBackoffMs) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMs);
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, TimeUnit.MILLISECONDS.toNanos(maxBackoffMs));
+        this.backoffNanos = initialBackoffNanos;
+    }
+
+    public boolean allowsWrites() {
+        return state != State.OPEN;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            log.info("RT {} healthy again after {} ms, circuit closed", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedNanos));
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void onFailure(long nowNanos, String reason) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            open(nowNanos, reason);
+        }
+    }
+
+    // Failed to connect: stays or goes OPEN with a longer backoff
+    public synchronized void onReconnectFailed(long nowNanos, String reason) {
+        open(nowNanos, reason);
+    }
+
+    public synchronized void onReconnected() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+            log.info("RT {} reconnected, circuit half-open", name);
+        }
+    }
+
+    public synchronized boolean isReconnectDue(long nowNanos) {
+        return state == State.OPEN && nowNanos - retryAtNanos >= 0;
+    }
+
+    private void open(long nowNanos, String reason) {
+        if (state == State.CLOSED) {
+            openedNanos = nowNanos;
+            trips++;
+            backoffNanos = initialBackoffNanos;
+        } else {
+            backoffNanos = Math.min(maxBackoffNanos, backoffNanos * 2);
+        }
+        state = State.OPEN;
+        retryAtNanos = nowNanos + backoffNanos;
+        log.warn("RT {} unavailable ({}), circuit open, reconnecting in {} ms", name, reason,
+                TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getTrips() {
+        return trips;
+    }
+}
@@ -0,0 +1,170 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Gathers rows from many snapshots into one BulkLoader write. A flush happens when the pending
+ * batch reaches maxRows or maxBytes, or when its oldest row has waited maxLingerMicros. Linger is
+ * checked on every insert and by a timer running at the linger period, so an idle feed flushes
+ * within two linger periods. A flush writes while holding the lock, which is a ReentrantLock so a
+ * virtual thread blocked in that write does not pin its carrier. A flush that fails rejects the
+ * acknowledgements of every batch it gathered.
+ */
+@Slf4j
+public class CoalescingConnection implements Connection {
+    private static final long MIN_TIMER_PERIOD_MICROS = 100;
+
+    private final Connection delegate;
+    private final int maxRows;
+    private final long maxBytes;
+    private final long maxLingerNanos;
+    private final long statsIntervalMs;
+    private final ExecutionMode executionMode;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final MarketDataBatch pending = new MarketDataBatch(256);
+    private long pendingBytes;
+    private long oldestRowNanos;
+
+    private final BatchSizeHistogram histogram = new BatchSizeHistogram();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private ScheduledExecutorService timer;
+
+    public CoalescingConnection(Connection delegate, int maxRows, long maxBytes, long maxLingerMicros,
+                                long statsIntervalMs, ExecutionMode executionMode) {
+        this.delegate = delegate;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(maxLingerMicros);
+        this.statsIntervalMs = statsIntervalMs;
+        this.executionMode = executionMode;
+    }
+
+    @Override
+    public void openConnection() throws IOException {
+        lock.lock();
+        try {
+            if (timer == null) {
+                timer = Executors.newSingleThreadScheduledExecutor(executionMode.threadFactory("kdb-coalescer"));
+                long periodMicros = Math.max(MIN_TIMER_PERIOD_MICROS, TimeUnit.NANOSECONDS.toMicros(maxLingerNanos));
+                timer.scheduleAtFixedRate(this::flushIfLingered, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+                if (statsIntervalMs > 0) {
+                    timer.scheduleAtFixedRate(this::logStats, statsIntervalMs, statsIntervalMs, TimeUnit.MILLISECONDS);
+                }
+                log.info("Coalescing enabled: maxRows={} maxBytes={} maxLingerMicros={}",
+                        maxRows, maxBytes, TimeUnit.NANOSECONDS.toMicros(maxLingerNanos));
+            }
+        } finally {
+            lock.unlock();
+        }
+        delegate.openConnection();
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        lock.lock();
+        try {
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+            try {
+                flush();
+            } finally {
+                logStats();
+            }
+        } finally {
+            lock.unlock();
+        }
+        delegate.closeConnection();
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (pending.isEmpty()) {
+                oldestRowNanos = now;
+            }
+            pending.addAll(batch);
+            pendingBytes += batch.estimateBytes();
+
+            if (pending.getRowCount() >= maxRows || pendingBytes >= maxBytes
+                    || now - oldestRowNanos >= maxLingerNanos) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushIfLingered() {
+        lock.lock();
+        try {
+            if (!pending.isEmpty() && System.nanoTime() - oldestRowNanos >= maxLingerNanos) {
+                flush();
+            }
+        } catch (IOException e) {
+            log.error("Linger flush failed: {}", e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int rows = pending.getRowCount();
+        try {
+            delegate.insertBatch(pending);
+            histogram.record(rows);
+        } catch (IOException | RuntimeException e) {
+            // Its rows are gone with the clear below, so their sources must publish them again
+            failedBatches.incrementAndGet();
+            pending.reject();
+            throw e;
+        } finally {
+            pending.clear();
+            pendingBytes = 0;
+        }
+    }
+
+    private void logStats() {
+        log.info("Coalesced batch sizes: {} failed={}", histogram, failedBatches.get());
+    }
+
+    public BatchSizeHistogram getHistogram() {
+        return histogram;
+    }
+
+    public int getPendingRows() {
+        lock.lock();
+        try {
+            return pending.getRowCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+}
@@ -0,0 +1,246 @@
+package com.di.connection;
+
+import com.di.collections.LongIntHashMap;
+import com.di.concurrent.ExecutionMode;
+import com.di.tenor.Tenor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Publish buffer that keeps only the latest row per (symbol, tenorValue, side) while the RT
+ * writer is busy. The session thread writes into the pending batch, overwriting the row of a key
+ * that is already pending; the publisher thread swaps the pending batch out and writes it. Rows
+ * keep the order in which their key first arrived since the last flush. When the writer keeps up
+ * nothing is conflated; the buffer only collapses updates under backpressure.
+ */
+@Slf4j
+public class ConflatingConnection implements Connection {
+    private final Connection delegate;
+    private final Set<String> neverConflateSymbols;
+    private final Set<String> neverConflateTenors;
+    private final BitSet neverConflateTenorCodes = new BitSet();
+    private final long statsIntervalNanos;
+    private final long closeTimeoutMillis;
+    private final ExecutionMode executionMode;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Guarded by lock
+    private MarketDataBatch pending = new MarketDataBatch(256);
+    private MarketDataBatch publishing = new MarketDataBatch(256);
+    private final LongIntHashMap pendingRows = new LongIntHashMap(256);
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private String[] symbols = new String[64];
+    private boolean[] neverConflate = new boolean[64];
+    private long[] conflatedBySymbol = new long[64];
+
+    private final AtomicLong conflatedUpdates = new AtomicLong();
+    private final AtomicLong publishedRows = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread publisherThread;
+
+    public ConflatingConnection(Connection delegate, Set<String> neverConflateSymbols,
+                                Set<String> neverConflateTenors, long statsIntervalMs, long closeTimeoutMs,
+                                ExecutionMode executionMode) {
+        this.delegate = delegate;
+        this.neverConflateSymbols = neverConflateSymbols;
+        this.neverConflateTenors = neverConflateTenors;
+        for (String tenor : neverConflateTenors) {
+            neverConflateTenorCodes.set(Tenor.parse("SPOT".equals(tenor) ? "" : tenor).getCode());
+        }
+        this.statsIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statsIntervalMs);
+        this.closeTimeoutMillis = Math.max(1, closeTimeoutMs);
+        this.executionMode = executionMode;
+    }
+
+    @Override
+    public synchronized void openConnection() throws IOException {
+        if (publisherThread == null) {
+            running = true;
+            publisherThread = executionMode.newThread("kdb-conflating-publisher", this::runPublisher);
+            publisherThread.start();
+            log.info("Conflating publisher started: neverConflateSymbols={} neverConflateTenors={}",
+                    neverConflateSymbols, neverConflateTenors);
+        }
+        delegate.openConnection();
+    }
+
+    @Override
+    public synchronized void closeConnection() throws IOException {
+        if (publisherThread != null) {
+            running = false;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                publisherThread.join(closeTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            publisherThread = null;
+            logStats();
+        }
+        delegate.closeConnection();
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        lock.lock();
+        try {
+            boolean wasEmpty = pending.isEmpty();
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                int symbolId = symbolId(batch.getSymbol(row));
+                int tenor = batch.getTenor(row);
+                if (neverConflate[symbolId] || neverConflateTenorCodes.get(tenor)) {
+                    pending.addRow(batch, row);
+                    continue;
+                }
+                long key = ((long) symbolId << 32) | ((long) tenor << 1) | batch.getSide(row);
+                int pendingRow = pendingRows.get(key);
+                if (pendingRow == LongIntHashMap.MISSING) {
+                    pendingRows.put(key, pending.getRowCount());
+                    pending.addRow(batch, row);
+                } else {
+                    pending.setRow(pendingRow, batch, row);
+                    conflatedBySymbol[symbolId]++;
+                    conflatedUpdates.incrementAndGet();
+                }
+            }
+            pending.mergeAcknowledgements(batch);
+            pending.mergeDictionaryDelta(batch);
+            if (wasEmpty && !pending.isEmpty()) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        if (id != null) return id;
+        int newId = symbolIds.size();
+        if (newId == symbols.length) {
+            symbols = Arrays.copyOf(symbols, newId * 2);
+            neverConflate = Arrays.copyOf(neverConflate, newId * 2);
+            conflatedBySymbol = Arrays.copyOf(conflatedBySymbol, newId * 2);
+        }
+        symbols[newId] = symbol;
+        neverConflate[newId] = neverConflateSymbols.contains(symbol);
+        symbolIds.put(symbol, newId);
+        return newId;
+    }
+
+    private void runPublisher() {
+        long nextStats = System.nanoTime() + statsIntervalNanos;
+        while (true) {
+            MarketDataBatch batch = takePending();
+            if (batch != null) {
+                publish(batch);
+            } else if (!running) {
+                break;
+            }
+            if (statsIntervalNanos > 0 && System.nanoTime() - nextStats >= 0) {
+                logStats();
+                nextStats += statsIntervalNanos;
+            }
+        }
+    }
+
+    // Swaps the pending batch out so the session thread can keep writing while we publish
+    private MarketDataBatch takePending() {
+        lock.lock();
+        try {
+            if (pending.isEmpty() && running) {
+                notEmpty.await(100, TimeUnit.MILLISECONDS);
+            }
+            if (pending.isEmpty()) {
+                return null;
+            }
+            MarketDataBatch batch = pending;
+            pending = publishing;
+            publishing = batch;
+            pendingRows.clear();
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(MarketDataBatch batch) {
+        try {
+            delegate.insertBatch(batch);
+            publishedRows.addAndGet(batch.getRowCount());
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("Conflated publish of {} rows failed: {}", batch.getRowCount(), e.getMessage(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void logStats() {
+        log.info("Conflating publisher stats: published={} conflated={} failed={} bySymbol={}",
+                publishedRows.get(), conflatedUpdates.get(), failedBatches.get(), getConflatedBySymbol());
+    }
+
+    public Map<String, Long> getConflatedBySymbol() {
+        lock.lock();
+        try {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int id = 0; id < symbolIds.size(); id++) {
+                if (conflatedBySymbol[id] > 0) {
+                    result.put(symbols[id], conflatedBySymbol[id]);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getConflatedUpdates() {
+        return conflatedUpdates.get();
+    }
+
+    public long getPublishedRows() {
+        return publishedRows.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public int getPendingRows() {
+        lock.lock();
+        try {
+            return pending.getRowCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
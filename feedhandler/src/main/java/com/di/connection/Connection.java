@@ -0,0 +1,18 @@
+package com.di.connection;
+
+import java.io.IOException;
+
+public interface Connection {
+    void openConnection() throws IOException;
+
+    void closeConnection() throws IOException;
+
+    // The caller reuses the batch once this returns, so implementations must copy anything they keep
+    void insertBatch(MarketDataBatch batch) throws IOException;
+
+    // Backlog (e.g. journal replay) must not be shed, so stages that drop under load wait instead
+    default void insertBacklogBatch(MarketDataBatch batch) throws IOException {
+        insertBatch(batch);
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.di.connection;
+
+import com.di.concurrent.DestinationLimiter;
+import com.di.concurrent.ExecutionMode;
+import com.di.concurrent.WaitStrategy;
+import com.di.helper.FeedConfig;
+import com.di.metrics.FeedMetrics;
+import com.di.spill.SpillStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Builds the publish chain in front of KDB RT from feed.properties
+@Slf4j
+public class ConnectionFactory {
+
+    private ConnectionFactory() {
+    }
+
+    public static Connection create(FeedConfig config) {
+        return create(config, null);
+    }
+
+    // session labels the chain's gauges when each FIX session has its own chain (publish.rtWriter=perSession)
+    public static Connection create(FeedConfig config, String session) {
+        FeedMetrics metrics = FeedMetrics.get();
+        ExecutionMode executionMode = ExecutionMode.fromConfig(config);
+        List<String> destinations = config.getList("publish.rt.destinations");
+        Connection connection;
+        if (destinations.isEmpty()) {
+            connection = new AcknowledgingConnection(new KdbConnectionRT());
+            metrics.gauge("feed_rt_writes_in_flight", "RT writes in progress across every chain",
+                    DestinationLimiter.forDestination(KdbConnectionRT.DESTINATION)::getInFlight);
+            if (config.getBoolean("publish.spill.enabled", false)) {
+                connection = spilling(config, session, null, true, connection, executionMode);
+            }
+        } else {
+            connection = fanOut(config, session, destinations, executionMode);
+        }
+
+        if (config.getBoolean("publish.coalesce.enabled", false)) {
+            CoalescingConnection coalescing = new CoalescingConnection(connection,
+                    config.getInt("publish.coalesce.maxRows", 512),
+                    config.getLong("publish.coalesce.maxBytes", 256 * 1024),
+                    config.getLong("publish.coalesce.maxLingerMicros", 1000),
+                    config.getLong("publish.coalesce.statsIntervalMs", 60_000),
+                    executionMode);
+            metrics.gauge("feed_coalesce_pending_rows", "Rows waiting in the coalescing buffer", session,
+                    coalescing::getPendingRows);
+            connection = coalescing;
+        }
+
+        String mode = config.getString("publish.mode", "inline");
+        switch (mode) {
+            case "inline" -> log.info("Publish mode: inline");
+            case "async" -> {
+                WaitStrategy waitStrategy = waitStrategy(config);
+                AsyncConnection async = new AsyncConnection(connection,
+                        config.getInt("publish.async.capacity", 8192),
+                        waitStrategy,
+                        config.getBoolean("publish.async.blockWhenFull", false),
+                        config.getLong("publish.async.statsIntervalMs", 60_000),
+                        config.getLong("publish.async.closeTimeoutMs", 10_000),
+                        executionMode);
+                if (executionMode == ExecutionMode.VIRTUAL
+                        && waitStrategy instanceof WaitStrategy.BusySpinWaitStrategy) {
+                    log.warn("busyspin keeps a carrier thread busy for every virtual publisher, prefer park");
+                }
+                metrics.gauge("feed_publish_queue_depth", "Batches queued for the async publisher", session,
+                        async::getQueueDepth);
+                metrics.gauge("feed_publish_queue_capacity", "Capacity of the async publish ring", session,
+                        async::getQueueCapacity);
+                metrics.gauge("feed_publish_dropped_batches", "Batches dropped because the ring was full", session,
+                        async::getDroppedBatches);
+                connection = async;
+                log.info("Publish mode: async");
+            }
+            case "conflate" -> {
+                ConflatingConnection conflating = new ConflatingConnection(connection,
+                        config.getSet("publish.conflate.neverSymbols"),
+                        config.getSet("publish.conflate.neverTenors"),
+                        config.getLong("publish.conflate.statsIntervalMs", 60_000),
+                        config.getLong("publish.conflate.closeTimeoutMs", 10_000),
+                        executionMode);
+                metrics.gauge("feed_conflate_pending_rows", "Rows waiting for the conflating publisher", session,
+                        conflating::getPendingRows);
+                metrics.gauge("feed_conflated_updates", "Updates overwritten before they were published", session,
+                        conflating::getConflatedUpdates);
+                connection = conflating;
+                log.info("Publish mode: conflate");
+            }
+            default -> log.warn("Unknown publish.mode '{}', falling back to inline", mode);
+        }
+        return connection;
+    }
+
+    /*
+     * A queue, writer thread and chain per destination named in publish.rt.destinations. The first
+     * is the primary: it acknowledges the journal and counts towards published rows and latency.
+     */
+    private static Connection fanOut(FeedConfig config, String session, List<String> names,
+                                     ExecutionMode executionMode) {
+        FeedMetrics metrics = FeedMetrics.get();
+        WaitStrategy waitStrategy = waitStrategy(config);
+        List<FanOutConnection.Destination> destinations = new ArrayList<>();
+        for (String name : names) {
+            String prefix = "publish.rt.destination." + name + ".";
+            boolean primary = destinations.isEmpty();
+            Connection connection = new KdbConnectionRT(name,
+                    config.getString(prefix + "table", KdbConnectionRT.TABLE_NAME), primary,
+                    config.getString(prefix + "configUrl", null));
+            if (primary) {
+                connection = new AcknowledgingConnection(connection);
+            }
+            FanOutConnection.Tracking tracking = new FanOutConnection.Tracking(connection);
+            connection = tracking;
+            if (config.getBoolean("publish.spill.enabled", false)) {
+                connection = spilling(config, session, name, primary, connection, executionMode);
+            }
+            AsyncConnection queue = new AsyncConnection(connection,
+                    config.getInt(prefix + "capacity", config.getInt("publish.rt.destination.capacity", 8192)),
+                    waitStrategy,
+                    config.getBoolean(prefix + "blockWhenFull", false),
+                    config.getLong("publish.async.statsIntervalMs", 60_000),
+                    config.getLong("publish.async.closeTimeoutMs", 10_000),
+                    executionMode,
+                    "kdb-publisher-" + name);
+            FanOutConnection.Destination destination = new FanOutConnection.Destination(name, tracking, queue);
+            destinations.add(destination);
+
+            metrics.gauge("feed_rt_writes_in_flight", "RT writes in progress across every chain", null, name,
+                    DestinationLimiter.forDestination(name)::getInFlight);
+            metrics.gauge("feed_rt_destination_queue_depth", "Batches queued for an RT destination", session, name,
+                    queue::getQueueDepth);
+            metrics.gauge("feed_rt_destination_dropped_batches", "Batches dropped because a destination queue was full",
+                    session, name, queue::getDroppedBatches);
+            metrics.gauge("feed_rt_destination_failed_batches", "Batches an RT destination failed to write",
+                    session, name, queue::getFailedBatches);
+            metrics.gauge("feed_rt_destination_written_rows", "Rows written to an RT destination", session, name,
+                    destination::getWrittenRows);
+            metrics.gauge("feed_rt_destination_lag_ms",
+                    "Receive time of the newest queued row minus that of the newest row written", session, name,
+                    destination::getLagMillis);
+        }
+        log.info("Publishing to RT destinations {}, primary {}", names, names.get(0));
+        return new FanOutConnection(destinations);
+    }
+
+    private static WaitStrategy waitStrategy(FeedConfig config) {
+        return WaitStrategy.of(
+                config.getString("publish.async.waitStrategy", "yield"),
+                config.getLong("publish.async.parkNanos", 50_000));
+    }
+
+    // destination is null for the single RT stream; a secondary destination's backlog is always kept on disk
+    private static Connection spilling(FeedConfig config, String session, String destination, boolean primary,
+                                       Connection connection, ExecutionMode executionMode) {
+        FeedMetrics metrics = FeedMetrics.get();
+        String name = session == null ? "shared" : session.replaceAll("[^A-Za-z0-9._-]", "_");
+        Path directory = Path.of(config.getString("publish.spill.directory", "spill")).resolve(name);
+        if (destination != null) {
+            directory = directory.resolve(destination);
+            name = name + "/" + destination;
+        }
+        // With the journal on, the primary's un-acknowledged rows are replayed from it, so its spill files are not kept
+        boolean durable = !primary || !config.getBoolean("journal.enabled", false);
+        SpillStore store;
+        try {
+            store = new SpillStore(directory,
+                    config.getLong("publish.spill.memoryBytes", 64L * 1024 * 1024),
+                    config.getLong("publish.spill.segmentBytes", 64L * 1024 * 1024),
+                    config.getLong("publish.spill.maxDiskBytes", 0),
+                    durable);
+        } catch (IOException e) {
+            log.error("Cannot use spill directory {}, publishing without spilling: {}", directory, e.getMessage(), e);
+            return connection;
+        }
+        CircuitBreaker breaker = new CircuitBreaker(name,
+                config.getInt("publish.spill.failureThreshold", 3),
+                config.getLong("publish.spill.reconnect.initialMs", 500),
+                config.getLong("publish.spill.reconnect.maxMs", 30_000));
+        SpillingConnection spilling = new SpillingConnection(connection, store, breaker,
+                config.getLong("publish.spill.drainRowsPerSecond", 50_000), executionMode);
+        metrics.gauge("feed_spill_memory_bytes", "Estimated bytes of RT backlog held in memory", session,
+                destination, store::getMemoryBytes);
+        metrics.gauge("feed_spill_disk_bytes", "Bytes of RT backlog in spill segments", session, destination,
+                store::getDiskBytes);
+        metrics.gauge("feed_spill_drained_rows", "Backlog rows written to RT after an outage", session, destination,
+                spilling::getDrainedRows);
+        metrics.gauge("feed_spill_dropped_rows", "Backlog rows lost to a full spill directory or a failing batch",
+                session, destination, spilling::getDroppedRows);
+        metrics.gauge("feed_rt_circuit_state", "RT circuit breaker, 0 closed, 1 half-open, 2 open", session,
+                destination, () -> breaker.getState().ordinal());
+        metrics.gauge("feed_rt_circuit_trips", "Times the RT circuit breaker has opened", session, destination,
+                breaker::getTrips);
+        log.info("Spilling RT backlog to {} ({})", directory, durable ? "kept across restarts" : "journal replays");
+        return spilling;
+    }
+}
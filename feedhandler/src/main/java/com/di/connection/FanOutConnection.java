@@ -0,0 +1,166 @@
+package com.di.connection;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * Publishes every batch to several RT destinations (publish.rt.destinations). Each destination has
+ * its own chain behind an AsyncConnection, so its own queue, writer thread and health; a slow or
+ * failing destination only fills its own queue and never holds up the others. Acknowledgements
+ * and journal replays go to the primary (first) destination only, so the journal follows the
+ * primary; secondaries keep their own backlog in their spill stage. Like the rest of the chain it
+ * expects a single producer.
+ */
+@Slf4j
+public class FanOutConnection implements Connection {
+    private final List<Destination> destinations;
+    // Holds the batch's acknowledgements while it is queued to the secondary destinations
+    private final MarketDataBatch acknowledgements = new MarketDataBatch(1);
+
+    // One destination's queue in front of its chain, and how far behind the newest queued row it is
+    public static final class Destination {
+        private final String name;
+        private final AsyncConnection queue;
+        private final Tracking tracking;
+        private volatile long queuedRcvNanos;
+
+        // tracking sits inside queue, in front of the destination's RT stage
+        public Destination(String name, Tracking tracking, AsyncConnection queue) {
+            this.name = name;
+            this.tracking = tracking;
+            this.queue = queue;
+        }
+
+        private void queued(long rcvNanos) {
+            queuedRcvNanos = Math.max(queuedRcvNanos, rcvNanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public AsyncConnection getQueue() {
+            return queue;
+        }
+
+        // Receive time of the newest queued row minus that of the newest written row
+        public long getLagMillis() {
+            return Math.max(0, queuedRcvNanos - tracking.writtenRcvNanos) / 1_000_000;
+        }
+
+        public long getWrittenRows() {
+            return tracking.writtenRows;
+        }
+    }
+
+    // Notes what a destination has written; inside its spill stage, so drained backlog counts too
+    public static final class Tracking implements Connection {
+        private final Connection delegate;
+        private volatile long writtenRcvNanos;
+        private volatile long writtenRows;
+
+        public Tracking(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void openConnection() throws IOException {
+            delegate.openConnection();
+        }
+
+        @Override
+        public void closeConnection() throws IOException {
+            delegate.closeConnection();
+        }
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) throws IOException {
+            delegate.insertBatch(batch);
+            int rows = batch.getRowCount();
+            if (rows > 0) {
+                writtenRcvNanos = Math.max(writtenRcvNanos, batch.getRcvTime(rows - 1));
+                writtenRows += rows;
+            }
+        }
+    }
+
+    public FanOutConnection(List<Destination> destinations) {
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("No RT destinations");
+        }
+        this.destinations = List.copyOf(destinations);
+    }
+
+    // A secondary that cannot connect is logged and left to its chain; only the primary's failure throws
+    @Override
+    public void openConnection() throws IOException {
+        for (int i = destinations.size() - 1; i >= 0; i--) {
+            Destination destination = destinations.get(i);
+            try {
+                destination.queue.openConnection();
+            } catch (IOException e) {
+                if (i == 0) throw e;
+                log.error("Failed to open RT destination {}: {}", destination.name, e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        IOException failure = null;
+        for (Destination destination : destinations) {
+            try {
+                destination.queue.closeConnection();
+            } catch (IOException e) {
+                log.error("Failed to close RT destination {}: {}", destination.name, e.getMessage(), e);
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        publish(batch, false);
+    }
+
+    @Override
+    public void insertBacklogBatch(MarketDataBatch batch) throws IOException {
+        publish(batch, true);
+    }
+
+    private void publish(MarketDataBatch batch, boolean replay) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long rcvNanos = batch.getRcvTime(batch.getRowCount() - 1);
+        if (!replay && destinations.size() > 1) {
+            batch.moveAcknowledgementsTo(acknowledgements);
+            try {
+                for (int i = 1; i < destinations.size(); i++) {
+                    Destination destination = destinations.get(i);
+                    destination.queue.insertBatch(batch);
+                    destination.queued(rcvNanos);
+                }
+            } finally {
+                acknowledgements.moveAcknowledgementsTo(batch);
+            }
+        }
+        Destination primary = destinations.get(0);
+        if (replay) {
+            primary.queue.insertBacklogBatch(batch);
+        } else {
+            primary.queue.insertBatch(batch);
+        }
+        primary.queued(rcvNanos);
+    }
+
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+}
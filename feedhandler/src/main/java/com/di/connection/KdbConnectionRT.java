@@ -0,0 +1,176 @@
+package com.di.connection;
+
+import com.di.codec.EpochClock;
+import com.di.concurrent.DestinationLimiter;
+import com.di.latency.LatencyTracker;
+import com.di.metrics.FeedMetrics;
+import kx.insights.streaming.BulkLoader;
+import kx.insights.streaming.StreamingClient;
+import kx.insights.streaming.StreamingClientFactory;
+import kx.insights.streaming.rt.RtClient;
+import kx.insights.streaming.rt.RtClientException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Writes batches to a KDB RT stream through the kxi SDK's BulkLoader. BulkLoader.writeTable only
+ * takes rows, so this is where a columnar MarketDataBatch becomes rows (MarketDataBatch.toRows):
+ * boxed cells and a Timestamp or Date per time column, for every batch written. Decoding,
+ * coalescing, conflation, the journal and the spill store stay columnar up to this point; only the
+ * last step pays for the SDK's row API.
+ */
+@Slf4j
+public class KdbConnectionRT implements Connection {
+    private RtClient rtClient;
+    private TableWriter tableWriter;
+    private final LatencyTracker latency = LatencyTracker.get();
+    private final FeedMetrics metrics = FeedMetrics.get();
+    private final String destination;
+    private final String tableName;
+    // Only the primary destination's writes count towards published rows and publish latency
+    private final boolean primary;
+    // Shared with every other chain writing to the same destination
+    private final DestinationLimiter limiter;
+    // Config URL of the destination's RT stream, null for KXI_CONFIG_URL from the environment
+    private final String configUrl;
+
+    // RT stream named by KXI_CONFIG_URL, the only destination unless publish.rt.destinations lists others
+    public static final String DESTINATION = "rt";
+    public static final String TABLE_NAME = "t_kgsd_fx_fwd_realtime_digitec";
+    private static final String[] COLUMNS = {
+            "time", "rcvTime", "reqID", "sym", "symbolSfx", "noMDEntries", "side",
+            "price", "size", "entryDate", "quoteCondition", "settlDate", "forwardPoints",
+            "pip", "tenorValue", "spotVDate", "origin"
+    };
+
+    // Seam over BulkLoader.writeTable so the row path can run without an RT stream
+    public interface TableWriter {
+        void writeTable(Object[][] rows) throws Exception;
+    }
+
+    public KdbConnectionRT() {
+        this(DESTINATION, TABLE_NAME, true);
+    }
+
+    public KdbConnectionRT(String destination, String tableName, boolean primary) {
+        this(destination, tableName, primary, null);
+    }
+
+    public KdbConnectionRT(String destination, String tableName, boolean primary, String configUrl) {
+        this.destination = destination;
+        this.tableName = tableName;
+        this.primary = primary;
+        this.limiter = DestinationLimiter.forDestination(destination);
+        this.configUrl = configUrl;
+    }
+
+    public KdbConnectionRT(TableWriter tableWriter) {
+        this(DESTINATION, TABLE_NAME, true);
+        this.tableWriter = tableWriter;
+    }
+
+    @Override
+    public void openConnection() throws IOException {
+        try {
+            // Without a config URL of its own the factory uses KXI_CONFIG_URL from the environment
+            StreamingClientFactory factory = configUrl == null ? new StreamingClientFactory()
+                    : new StreamingClientFactory(new String[]{"--config-url", configUrl});
+            StreamingClient streamingClient = factory.getStreamingClient();
+            rtClient = (RtClient) streamingClient;
+            rtClient.start();
+            log.info("KDB RT client for {} initialized from {}: {}", destination,
+                    configUrl == null ? "KXI_CONFIG_URL" : configUrl, rtClient);
+            BulkLoader bulkLoader = new BulkLoader(tableName, rtClient, COLUMNS);
+            tableWriter = bulkLoader::writeTable;
+        } catch (Exception e) {
+            throw new IOException("Failed to open KDB RT connection for " + destination + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        if (rtClient != null) {
+            try {
+                rtClient.stop();
+            } catch (RtClientException e) {
+                throw new IOException("Failed to stop KDB RT client: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        // BulkLoader takes materialized rows (see above), so the dictionary delta is only reported here
+        if (log.isDebugEnabled() && batch.getDictionaryDeltaCount() > 0) {
+            log.debug("Batch of {} rows defines {} new string values", batch.getRowCount(),
+                    batch.getDictionaryDeltaCount());
+        }
+        insertBatch(batch.toRows());
+        if (primary) {
+            latency.recordPublished(batch, EpochClock.nowNanos());
+        }
+    }
+
+    public void insertBatch(Object[][] data) throws IOException {
+        try {
+            writeRows(data);
+        } catch (IOException e) {
+            metrics.onInsertFailure();
+            throw e;
+        }
+    }
+
+    private void writeRows(Object[][] data) throws IOException {
+        if (tableWriter == null) {
+            throw new IOException("KDB RT connection is not initialized");
+        }
+
+        if (data == null) {
+            throw new IOException("Data batch is null.");
+        }
+
+        if (data.length == 0) {
+            log.warn("insertBatch called with empty data array. Skipping insert.");
+            return;
+        }
+
+        for (int i = 0; i < data.length; i++) {
+            Object[] row = data[i];
+
+            if (row == null) {
+                throw new IOException("Row " + i + " is null in data batch.");
+            }
+
+            if (row.length != COLUMNS.length) {
+                throw new IOException(String.format(
+                        "Row %d has incorrect column count. Expected %d, got %d. Row: %s",
+                        i, COLUMNS.length, row.length, Arrays.toString(row)
+                ));
+            }
+
+            for (int j = 0; j < row.length; j++) {
+                if (row[j] == null) {
+                    log.warn("Row {} column {} ({}) is null", i, j, COLUMNS[j]);
+                }
+            }
+        }
+
+        limiter.acquire();
+        try {
+            tableWriter.writeTable(data);
+            if (primary) {
+                metrics.onPublished(data.length);
+            }
+            log.debug("Inserted {} rows into KDB RT {}.{}", data.length, destination, tableName);
+        } catch (Exception e) {
+            throw new IOException("Failed to insert data into KDB RT " + destination + ": " + e.getMessage(), e);
+        } finally {
+            limiter.release();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,457 @@
+package com.di.connection;
+
+import com.di.codec.StringDictionary;
+import com.di.tenor.Tenor;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/*
+ * Reusable columnar batch of market data rows. Columns are primitive arrays that only grow, so
+ * a batch that is cleared and refilled allocates nothing once it has reached its working size.
+ * String columns hold ids in the batch's StringDictionary; rows are only turned back into strings
+ * (the dictionary's shared instances) when materialized for the RT writer. The batch also carries
+ * the dictionary entries first defined while it was filled, as a delta for downstream consumers.
+ * MDReqID is the exception: it is held as a plain String, since the subscription engine mints new
+ * ids on every (re)subscribe and the dictionary lives as long as the process.
+ */
+public class MarketDataBatch {
+    public static final int SIDE_BID = 0;
+    public static final int SIDE_OFFER = 1;
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    // 2 timestamps, 3 doubles, side, noMDEntries, 2 dates, quoteCondition
+    private static final int FIXED_ROW_BYTES = 2 * 8 + 3 * 8 + 4 + 4 + 2 * 4 + 1;
+
+    private StringDictionary dictionary;
+    private int rowCount;
+
+    private long[] time;
+    private long[] rcvTime;
+    private String[] reqId;
+    private int[] symbol;
+    private int[] symbolSfx;
+    private int[] side;
+    private double[] price;
+    private double[] size;
+    private int[] entryDate;
+    private boolean[] quoteCondition;
+    private int[] settlDate;
+    private double[] forwardPoints;
+    private int[] pip;
+    private int[] tenor;
+    private int[] spotVDate;
+    private int[] origin;
+    // When each row was decoded (epoch nanos), for publish latency; not an RT column
+    private long[] builtTime;
+
+    // Source positions (e.g. journal records) covered by this batch, a range per acknowledger
+    private PublishAcknowledger[] acknowledgers = new PublishAcknowledger[1];
+    private long[] acknowledgedPositions = new long[1];
+    private long[] lowestPositions = new long[1];
+    private int acknowledgerCount;
+
+    // Dictionary ids added to the dictionary while this batch was being filled
+    private int[] deltaIds = new int[8];
+    private int deltaCount;
+
+    public MarketDataBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MarketDataBatch(int capacity) {
+        this(StringDictionary.shared(), capacity);
+    }
+
+    public MarketDataBatch(StringDictionary dictionary, int capacity) {
+        this.dictionary = dictionary;
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        time = new long[capacity];
+        rcvTime = new long[capacity];
+        reqId = new String[capacity];
+        symbol = new int[capacity];
+        symbolSfx = new int[capacity];
+        side = new int[capacity];
+        price = new double[capacity];
+        size = new double[capacity];
+        entryDate = new int[capacity];
+        quoteCondition = new boolean[capacity];
+        settlDate = new int[capacity];
+        forwardPoints = new double[capacity];
+        pip = new int[capacity];
+        tenor = new int[capacity];
+        spotVDate = new int[capacity];
+        origin = new int[capacity];
+        builtTime = new long[capacity];
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= time.length) return;
+        int capacity = Math.max(required, time.length * 2);
+        time = Arrays.copyOf(time, capacity);
+        rcvTime = Arrays.copyOf(rcvTime, capacity);
+        reqId = Arrays.copyOf(reqId, capacity);
+        symbol = Arrays.copyOf(symbol, capacity);
+        symbolSfx = Arrays.copyOf(symbolSfx, capacity);
+        side = Arrays.copyOf(side, capacity);
+        price = Arrays.copyOf(price, capacity);
+        size = Arrays.copyOf(size, capacity);
+        entryDate = Arrays.copyOf(entryDate, capacity);
+        quoteCondition = Arrays.copyOf(quoteCondition, capacity);
+        settlDate = Arrays.copyOf(settlDate, capacity);
+        forwardPoints = Arrays.copyOf(forwardPoints, capacity);
+        pip = Arrays.copyOf(pip, capacity);
+        tenor = Arrays.copyOf(tenor, capacity);
+        spotVDate = Arrays.copyOf(spotVDate, capacity);
+        origin = Arrays.copyOf(origin, capacity);
+        builtTime = Arrays.copyOf(builtTime, capacity);
+    }
+
+    // Dictionary id of value in this batch's dictionary, recording it in the delta when it is new
+    public int encode(String value) {
+        int before = dictionary.size();
+        int id = dictionary.idOf(value);
+        if (id >= before) addDelta(id);
+        return id;
+    }
+
+    public int encode(CharSequence value, int start, int end) {
+        int before = dictionary.size();
+        int id = dictionary.idOf(value, start, end);
+        if (id >= before) addDelta(id);
+        return id;
+    }
+
+    /*
+     * Times are epoch nanos, dates are epoch days (NO_DATE when absent), tenor is a Tenor code,
+     * reqId is the MDReqID (null when absent) and the other string columns are ids from encode().
+     */
+    public int add(long time, long rcvTime, String reqId, int symbol, int symbolSfx, int side,
+                   double price, double size, int entryDate, boolean quoteCondition, int settlDate,
+                   double forwardPoints, int pip, int tenor, int spotVDate, int origin) {
+        int row = rowCount;
+        ensureCapacity(row + 1);
+        this.time[row] = time;
+        this.rcvTime[row] = rcvTime;
+        this.reqId[row] = reqId;
+        this.symbol[row] = symbol;
+        this.symbolSfx[row] = symbolSfx;
+        this.side[row] = side;
+        this.price[row] = price;
+        this.size[row] = size;
+        this.entryDate[row] = entryDate;
+        this.quoteCondition[row] = quoteCondition;
+        this.settlDate[row] = settlDate;
+        this.forwardPoints[row] = forwardPoints;
+        this.pip[row] = pip;
+        this.tenor[row] = tenor;
+        this.spotVDate[row] = spotVDate;
+        this.origin[row] = origin;
+        this.builtTime[row] = rcvTime;
+        rowCount = row + 1;
+        return row;
+    }
+
+    // Sets the per-message string columns of rows fromRow onwards
+    public void setMessageIds(int fromRow, String reqId, int symbol, int symbolSfx, int origin) {
+        for (int row = fromRow; row < rowCount; row++) {
+            this.reqId[row] = reqId;
+            this.symbol[row] = symbol;
+            this.symbolSfx[row] = symbolSfx;
+            this.origin[row] = origin;
+        }
+    }
+
+    public void setBuiltTime(int fromRow, long builtNanos) {
+        for (int row = fromRow; row < rowCount; row++) {
+            builtTime[row] = builtNanos;
+        }
+    }
+
+    // Overwrites an existing row in place with a row from another batch
+    public void setRow(int row, MarketDataBatch source, int sourceRow) {
+        if (source.dictionary != dictionary) {
+            setRowRecoded(row, source, sourceRow);
+            return;
+        }
+        time[row] = source.time[sourceRow];
+        rcvTime[row] = source.rcvTime[sourceRow];
+        reqId[row] = source.reqId[sourceRow];
+        symbol[row] = source.symbol[sourceRow];
+        symbolSfx[row] = source.symbolSfx[sourceRow];
+        side[row] = source.side[sourceRow];
+        price[row] = source.price[sourceRow];
+        size[row] = source.size[sourceRow];
+        entryDate[row] = source.entryDate[sourceRow];
+        quoteCondition[row] = source.quoteCondition[sourceRow];
+        settlDate[row] = source.settlDate[sourceRow];
+        forwardPoints[row] = source.forwardPoints[sourceRow];
+        pip[row] = source.pip[sourceRow];
+        tenor[row] = source.tenor[sourceRow];
+        spotVDate[row] = source.spotVDate[sourceRow];
+        origin[row] = source.origin[sourceRow];
+        builtTime[row] = source.builtTime[sourceRow];
+    }
+
+    // Removes a row by moving the last row into its place; row order is not kept
+    public void removeRow(int row) {
+        int last = rowCount - 1;
+        if (row != last) {
+            setRow(row, this, last);
+        }
+        rowCount = last;
+    }
+
+    // Drops the rows from rowCount onwards
+    public void truncate(int rowCount) {
+        if (rowCount < this.rowCount) {
+            this.rowCount = Math.max(0, rowCount);
+        }
+    }
+
+    public void addRow(MarketDataBatch source, int row) {
+        adoptDictionary(source);
+        if (source.dictionary != dictionary) {
+            setRowRecoded(add(0, 0, null, 0, 0, 0, 0, 0, 0, false, 0, 0, 0, 0, 0, 0), source, row);
+            return;
+        }
+        int added = add(source.time[row], source.rcvTime[row], source.reqId[row], source.symbol[row],
+                source.symbolSfx[row], source.side[row], source.price[row], source.size[row],
+                source.entryDate[row], source.quoteCondition[row], source.settlDate[row],
+                source.forwardPoints[row], source.pip[row], source.tenor[row], source.spotVDate[row],
+                source.origin[row]);
+        builtTime[added] = source.builtTime[row];
+    }
+
+    public void addAll(MarketDataBatch source) {
+        adoptDictionary(source);
+        ensureCapacity(rowCount + source.rowCount);
+        for (int row = 0; row < source.rowCount; row++) {
+            addRow(source, row);
+        }
+        mergeAcknowledgements(source);
+        mergeDictionaryDelta(source);
+    }
+
+    // An empty batch switches to the source's dictionary so rows can be copied id for id
+    private void adoptDictionary(MarketDataBatch source) {
+        if (rowCount == 0 && deltaCount == 0 && source.dictionary != dictionary) {
+            dictionary = source.dictionary;
+        }
+    }
+
+    // Row copy between batches on different dictionaries goes through the string values
+    private void setRowRecoded(int row, MarketDataBatch source, int sourceRow) {
+        StringDictionary from = source.dictionary;
+        time[row] = source.time[sourceRow];
+        rcvTime[row] = source.rcvTime[sourceRow];
+        reqId[row] = source.reqId[sourceRow];
+        symbol[row] = encode(from.valueOf(source.symbol[sourceRow]));
+        symbolSfx[row] = encode(from.valueOf(source.symbolSfx[sourceRow]));
+        side[row] = source.side[sourceRow];
+        price[row] = source.price[sourceRow];
+        size[row] = source.size[sourceRow];
+        entryDate[row] = source.entryDate[sourceRow];
+        quoteCondition[row] = source.quoteCondition[sourceRow];
+        settlDate[row] = source.settlDate[sourceRow];
+        forwardPoints[row] = source.forwardPoints[sourceRow];
+        pip[row] = encode(from.valueOf(source.pip[sourceRow]));
+        tenor[row] = source.tenor[sourceRow];
+        spotVDate[row] = encode(from.valueOf(source.spotVDate[sourceRow]));
+        origin[row] = encode(from.valueOf(source.origin[sourceRow]));
+        builtTime[row] = source.builtTime[sourceRow];
+    }
+
+    private void addDelta(int id) {
+        if (deltaCount == deltaIds.length) {
+            deltaIds = Arrays.copyOf(deltaIds, deltaCount * 2);
+        }
+        deltaIds[deltaCount++] = id;
+    }
+
+    // Delta ids are only meaningful against the same dictionary; recoded rows record their own
+    public void mergeDictionaryDelta(MarketDataBatch source) {
+        if (source.dictionary != dictionary) return;
+        for (int i = 0; i < source.deltaCount; i++) {
+            addDelta(source.deltaIds[i]);
+        }
+    }
+
+    public void addAcknowledgement(PublishAcknowledger acknowledger, long position) {
+        addAcknowledgement(acknowledger, position, position);
+    }
+
+    private void addAcknowledgement(PublishAcknowledger acknowledger, long lowest, long highest) {
+        for (int i = 0; i < acknowledgerCount; i++) {
+            if (acknowledgers[i] == acknowledger) {
+                lowestPositions[i] = Math.min(lowestPositions[i], lowest);
+                acknowledgedPositions[i] = Math.max(acknowledgedPositions[i], highest);
+                return;
+            }
+        }
+        if (acknowledgerCount == acknowledgers.length) {
+            acknowledgers = Arrays.copyOf(acknowledgers, acknowledgerCount * 2);
+            acknowledgedPositions = Arrays.copyOf(acknowledgedPositions, acknowledgerCount * 2);
+            lowestPositions = Arrays.copyOf(lowestPositions, acknowledgerCount * 2);
+        }
+        acknowledgers[acknowledgerCount] = acknowledger;
+        lowestPositions[acknowledgerCount] = lowest;
+        acknowledgedPositions[acknowledgerCount] = highest;
+        acknowledgerCount++;
+    }
+
+    public void mergeAcknowledgements(MarketDataBatch source) {
+        for (int i = 0; i < source.acknowledgerCount; i++) {
+            addAcknowledgement(source.acknowledgers[i], source.lowestPositions[i], source.acknowledgedPositions[i]);
+        }
+    }
+
+    public void acknowledge() {
+        for (int i = 0; i < acknowledgerCount; i++) {
+            acknowledgers[i].acknowledge(acknowledgedPositions[i]);
+        }
+    }
+
+    // The batch will not be written: each acknowledger is told the lowest position it covered
+    public void reject() {
+        for (int i = 0; i < acknowledgerCount; i++) {
+            acknowledgers[i].reject(lowestPositions[i]);
+        }
+    }
+
+    // Hands the acknowledgements to another batch, which becomes responsible for acknowledging them
+    public void moveAcknowledgementsTo(MarketDataBatch target) {
+        target.mergeAcknowledgements(this);
+        for (int i = 0; i < acknowledgerCount; i++) {
+            acknowledgers[i] = null;
+        }
+        acknowledgerCount = 0;
+    }
+
+    public void copyFrom(MarketDataBatch source) {
+        clear();
+        addAll(source);
+    }
+
+    public void clear() {
+        rowCount = 0;
+        for (int i = 0; i < acknowledgerCount; i++) {
+            acknowledgers[i] = null;
+        }
+        acknowledgerCount = 0;
+        deltaCount = 0;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    // Rough wire size of a row: fixed-width columns plus string payloads
+    public int estimateRowBytes(int row) {
+        return FIXED_ROW_BYTES + length(reqId[row]) + length(symbol[row]) + length(symbolSfx[row])
+                + length(pip[row]) + Tenor.ofCode(tenor[row]).getValue().length() + length(spotVDate[row])
+                + length(origin[row]);
+    }
+
+    public long estimateBytes() {
+        long bytes = 0;
+        for (int row = 0; row < rowCount; row++) {
+            bytes += estimateRowBytes(row);
+        }
+        return bytes;
+    }
+
+    private int length(int id) {
+        return dictionary.valueOf(id).length();
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int getDictionaryDeltaCount() {
+        return deltaCount;
+    }
+
+    public int getDictionaryDeltaId(int index) {
+        return deltaIds[index];
+    }
+
+    public long getTime(int row) { return time[row]; }
+    public long getRcvTime(int row) { return rcvTime[row]; }
+    public long getBuiltTime(int row) { return builtTime[row]; }
+    public String getReqId(int row) { return reqId[row] == null ? "" : reqId[row]; }
+    public String getSymbol(int row) { return dictionary.valueOf(symbol[row]); }
+    public int getSymbolId(int row) { return symbol[row]; }
+    public String getSymbolSfx(int row) { return dictionary.valueOf(symbolSfx[row]); }
+    public int getSymbolSfxId(int row) { return symbolSfx[row]; }
+    public int getSide(int row) { return side[row]; }
+    public double getPrice(int row) { return price[row]; }
+    public double getSize(int row) { return size[row]; }
+    public int getEntryDate(int row) { return entryDate[row]; }
+    public boolean getQuoteCondition(int row) { return quoteCondition[row]; }
+    public int getSettlDate(int row) { return settlDate[row]; }
+    public double getForwardPoints(int row) { return forwardPoints[row]; }
+    public String getPip(int row) { return dictionary.valueOf(pip[row]); }
+    public int getPipId(int row) { return pip[row]; }
+    public int getTenor(int row) { return tenor[row]; }
+    public String getSpotVDate(int row) { return dictionary.valueOf(spotVDate[row]); }
+    public int getSpotVDateId(int row) { return spotVDate[row]; }
+    public String getOrigin(int row) { return dictionary.valueOf(origin[row]); }
+    public int getOriginId(int row) { return origin[row]; }
+
+    // Materializes rows in KdbConnectionRT column order for the row-oriented BulkLoader API
+    public Object[][] toRows() {
+        Object[][] rows = new Object[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+            rows[row] = new Object[]{
+                    toTimestamp(time[row]),
+                    toTimestamp(rcvTime[row]),
+                    getReqId(row),
+                    dictionary.valueOf(symbol[row]),
+                    dictionary.valueOf(symbolSfx[row]),
+                    1,
+                    side[row] == SIDE_BID ? "BID" : "OFFER",
+                    price[row],
+                    size[row],
+                    toDate(entryDate[row]),
+                    quoteCondition[row],
+                    toDate(settlDate[row]),
+                    forwardPoints[row],
+                    dictionary.valueOf(pip[row]),
+                    Tenor.ofCode(tenor[row]).getValue(),
+                    dictionary.valueOf(spotVDate[row]),
+                    dictionary.valueOf(origin[row])
+            };
+        }
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(toRows());
+    }
+
+    private static Timestamp toTimestamp(long epochNanos) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(epochNanos, 1_000_000L));
+        timestamp.setNanos((int) Math.floorMod(epochNanos, 1_000_000_000L));
+        return timestamp;
+    }
+
+    private static java.sql.Date toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+}
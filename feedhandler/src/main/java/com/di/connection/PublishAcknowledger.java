@@ -0,0 +1,8 @@
+package com.di.connection;
+
+// Told the highest source position whose rows have been written to KDB RT, or the lowest of rows that were not
+public interface PublishAcknowledger {
+    void acknowledge(long position);
+
+    void reject(long position);
+}
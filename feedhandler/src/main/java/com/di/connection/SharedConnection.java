@@ -0,0 +1,68 @@
+package com.di.connection;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Outermost stage when more than one thread publishes through a chain: every FIX session sharing
+ * one chain (publish.rtWriter=shared), or a session and its journal replay. Producers take turns
+ * here, so the stages behind still see a single producer: the async ring stays SPSC and the
+ * coalescing buffer is only filled by one thread at a time. The chain is opened by the first
+ * session to connect and closed when the last one closes it. A ReentrantLock rather than
+ * synchronized, so a session lane on a virtual thread waiting here, or writing inline behind the
+ * lock, does not pin its carrier.
+ */
+public class SharedConnection implements Connection {
+    private final Connection delegate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int openCount;
+
+    public SharedConnection(Connection delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void openConnection() throws IOException {
+        lock.lock();
+        try {
+            if (openCount == 0) {
+                delegate.openConnection();
+            }
+            openCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        lock.lock();
+        try {
+            if (openCount > 0 && --openCount == 0) {
+                delegate.closeConnection();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        lock.lock();
+        try {
+            delegate.insertBatch(batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void insertBacklogBatch(MarketDataBatch batch) throws IOException {
+        lock.lock();
+        try {
+            delegate.insertBacklogBatch(batch);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
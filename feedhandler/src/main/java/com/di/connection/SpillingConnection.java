@@ -0,0 +1,271 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.spill.SpillStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Keeps the rows RT cannot take. While the circuit breaker is open, and for any batch whose write
+ * fails, batches go to a SpillStore instead of being lost. A drain thread reconnects on the
+ * breaker's backoff and, once RT is back, writes the backlog oldest first at up to
+ * drainRowsPerSecond. Live batches keep going straight to RT meanwhile; drain and live writes take
+ * turns on a fair lock one batch at a time, so catching up holds a live batch back by at most one
+ * backlog write. A backlog batch that keeps failing although RT has taken other writes since is
+ * dropped after MAX_DRAIN_STRIKES attempts.
+ *
+ * Acknowledgements are high-water marks, so while there is a backlog those of live batches and of
+ * batches spilled to disk are held back, and released once the backlog is empty; a crash before
+ * then replays the journal from before the outage. Rows that are dropped (a failing backlog batch,
+ * a full or failing spill directory) are rejected, together with the held acknowledgements that
+ * may include theirs, so the journal replays them instead of being acknowledged past them. The
+ * delegate is the AcknowledgingConnection in front of KdbConnectionRT.
+ */
+@Slf4j
+public class SpillingConnection implements Connection {
+    private static final int MAX_DRAIN_STRIKES = 3;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Connection delegate;
+    private final SpillStore store;
+    private final CircuitBreaker breaker;
+    private final double drainRowsPerSecond;
+    private final ExecutionMode executionMode;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    // Guarded by lock
+    private final MarketDataBatch heldAcknowledgements = new MarketDataBatch(1);
+    private boolean writtenSinceDrainFailure;
+    private int drainStrikes;
+
+    private volatile boolean running;
+    private Thread drainer;
+    private volatile long drainedRows;
+    private volatile long droppedRows;
+
+    public SpillingConnection(Connection delegate, SpillStore store, CircuitBreaker breaker,
+                              double drainRowsPerSecond, ExecutionMode executionMode) {
+        this.delegate = delegate;
+        this.store = store;
+        this.breaker = breaker;
+        this.drainRowsPerSecond = drainRowsPerSecond;
+        this.executionMode = executionMode;
+    }
+
+    // A failed connect does not throw: batches spill and the drain thread keeps reconnecting
+    @Override
+    public void openConnection() throws IOException {
+        lock.lock();
+        try {
+            if (drainer == null) {
+                running = true;
+                drainer = executionMode.newThread("kdb-spill-drain", this::runDrainer);
+                drainer.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            delegate.openConnection();
+        } catch (IOException e) {
+            breaker.onReconnectFailed(System.nanoTime(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void closeConnection() throws IOException {
+        Thread thread;
+        lock.lock();
+        try {
+            thread = drainer;
+            drainer = null;
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            if (!store.isEmpty()) {
+                log.warn("Closing with an RT backlog of {} bytes in memory and {} on disk in {}",
+                        store.getMemoryBytes(), store.getDiskBytes(), store.getDirectory());
+            }
+            store.close();
+        } finally {
+            lock.unlock();
+        }
+        delegate.closeConnection();
+    }
+
+    @Override
+    public void insertBatch(MarketDataBatch batch) throws IOException {
+        if (batch == null) {
+            throw new IOException("Data batch is null.");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!breaker.allowsWrites()) {
+                spill(batch);
+                return;
+            }
+            if (!store.isEmpty()) {
+                batch.moveAcknowledgementsTo(heldAcknowledgements);
+            }
+            try {
+                delegate.insertBatch(batch);
+                breaker.onSuccess();
+                writtenSinceDrainFailure = true;
+            } catch (IOException e) {
+                breaker.onFailure(System.nanoTime(), e.getMessage());
+                spill(batch);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(MarketDataBatch batch) {
+        try {
+            switch (store.append(batch)) {
+                case MEMORY -> {
+                }
+                case DISK -> batch.moveAcknowledgementsTo(heldAcknowledgements);
+                case DROPPED -> reject(batch);
+            }
+        } catch (IOException e) {
+            droppedRows += batch.getRowCount();
+            reject(batch);
+            log.error("Failed to spill {} rows to {}, dropped: {}", batch.getRowCount(), store.getDirectory(),
+                    e.getMessage(), e);
+        }
+    }
+
+    // A dropped batch's acknowledgements may already be held, so the held ones are rejected as well
+    private void reject(MarketDataBatch batch) {
+        batch.reject();
+        heldAcknowledgements.reject();
+    }
+
+    private void runDrainer() {
+        double budget = drainRowsPerSecond;
+        long lastRefill = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (breaker.isReconnectDue(now)) {
+                reconnect(now);
+            }
+            if (drainRowsPerSecond > 0) {
+                budget = Math.min(drainRowsPerSecond, budget + (now - lastRefill) / 1e9 * drainRowsPerSecond);
+            }
+            lastRefill = now;
+            int written = breaker.allowsWrites() ? drainOne(drainRowsPerSecond > 0 ? budget : Double.MAX_VALUE) : 0;
+            if (written > 0) {
+                budget -= written;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Writes the oldest backlog batch if the budget covers it; rows written, 0 when nothing was
+    private int drainOne(double budget) {
+        lock.lock();
+        try {
+            MarketDataBatch next = store.peek();
+            if (next == null) {
+                releaseHeldAcknowledgements();
+                return 0;
+            }
+            int rows = next.getRowCount();
+            // A batch larger than a second's budget goes once the budget is full
+            if (rows > budget && budget < drainRowsPerSecond) {
+                return 0;
+            }
+            try {
+                delegate.insertBatch(next);
+                breaker.onSuccess();
+                store.remove();
+                drainStrikes = 0;
+                drainedRows += rows;
+                if (store.peek() == null) {
+                    releaseHeldAcknowledgements();
+                    log.info("RT backlog drained, {} rows caught up so far", drainedRows);
+                }
+                return rows;
+            } catch (IOException e) {
+                if (writtenSinceDrainFailure && ++drainStrikes >= MAX_DRAIN_STRIKES) {
+                    log.error("Dropping a backlog batch of {} rows that failed {} times while RT took other writes: {}",
+                            rows, drainStrikes, e.getMessage());
+                    reject(next);
+                    store.remove();
+                    droppedRows += rows;
+                    drainStrikes = 0;
+                } else {
+                    breaker.onFailure(System.nanoTime(), e.getMessage());
+                }
+                writtenSinceDrainFailure = false;
+                return 0;
+            }
+        } catch (IOException e) {
+            log.error("Failed to read the RT backlog from {}: {}", store.getDirectory(), e.getMessage(), e);
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs without the lock: while the breaker is open nothing else touches the delegate
+    private void reconnect(long now) {
+        try {
+            try {
+                delegate.closeConnection();
+            } catch (IOException e) {
+                log.debug("Closing the failed RT connection: {}", e.getMessage());
+            }
+            delegate.openConnection();
+            breaker.onReconnected();
+            lock.lock();
+            try {
+                writtenSinceDrainFailure = true;
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            breaker.onReconnectFailed(now, e.getMessage());
+        }
+    }
+
+    private void releaseHeldAcknowledgements() {
+        heldAcknowledgements.acknowledge();
+        heldAcknowledgements.clear();
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public SpillStore getStore() {
+        return store;
+    }
+
+    public long getDrainedRows() {
+        return drainedRows;
+    }
+
+    public long getDroppedRows() {
+        return droppedRows + store.getDroppedRows();
+    }
+}
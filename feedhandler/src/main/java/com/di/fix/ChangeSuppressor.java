@@ -0,0 +1,191 @@
+package com.di.fix;
+
+import com.di.collections.LongIntHashMap;
+import com.di.connection.MarketDataBatch;
+import com.di.connection.PublishAcknowledger;
+import com.di.helper.FeedConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Drops snapshot rows that repeat what was last published for their (symbol, tenorValue, side):
+ * same price, size, forward points and quote condition. The last published values live in
+ * primitive arrays, one slot per key found through a LongIntHashMap, so a lookup allocates nothing.
+ *
+ * An unchanged row is still published once heartbeatMs has passed since its key was last published
+ * (0 = never), so RT keeps a fresh row per key. Suppression runs before the publish chain fans out,
+ * so the heartbeat is the same for every RT destination. Only the session thread calls filter().
+ *
+ * A row counts as published once filter() keeps it, before it is written. Each filtered batch
+ * carries an acknowledgement back to the suppressor; when a batch is rejected (dropped or failed
+ * downstream), the next filter() forgets every key so their next rows are published again.
+ */
+@Slf4j
+public class ChangeSuppressor {
+    private final long heartbeatNanos;
+    private final LongIntHashMap slots = new LongIntHashMap(1024);
+    private double[] price = new double[1024];
+    private double[] size = new double[1024];
+    private double[] forwardPoints = new double[1024];
+    private boolean[] quoteCondition = new boolean[1024];
+    private long[] publishedNanos = new long[1024];
+    private int slotCount;
+
+    // Filtered batches handed to the publish chain, and the rejections seen by the next filter()
+    private long batches;
+    private final AtomicLong rejections = new AtomicLong();
+    private long seenRejections;
+    private final PublishAcknowledger acknowledger = new PublishAcknowledger() {
+        @Override
+        public void acknowledge(long position) {
+        }
+
+        @Override
+        public void reject(long position) {
+            rejections.incrementAndGet();
+        }
+    };
+    // Null without stats logging
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long rows;
+    private volatile long suppressed;
+    private volatile long heartbeats;
+    private long lastRows;
+    private long lastSuppressed;
+
+    public ChangeSuppressor(long heartbeatMs, long statsIntervalMs) {
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        if (statsIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "suppress-stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::logStats, statsIntervalMs, statsIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    // Null when publish.suppress.enabled is off
+    public static ChangeSuppressor fromConfig(FeedConfig config) {
+        if (!config.getBoolean("publish.suppress.enabled", false)) return null;
+        long heartbeatMs = config.getLong("publish.suppress.heartbeatMs", 60_000);
+        log.info("Change suppression on, heartbeat every {} ms", heartbeatMs);
+        return new ChangeSuppressor(heartbeatMs, config.getLong("publish.suppress.statsIntervalMs", 60_000));
+    }
+
+    /*
+     * Removes the unchanged rows in place, keeping row order; returns how many were removed. A batch
+     * with rows left is given an acknowledgement, so the rows must be published or rejected.
+     */
+    public int filter(MarketDataBatch batch) {
+        long rejected = rejections.get();
+        if (rejected != seenRejections) {
+            seenRejections = rejected;
+            forget();
+        }
+        int rowCount = batch.getRowCount();
+        int kept = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (isChanged(batch, row)) {
+                if (kept != row) {
+                    batch.setRow(kept, batch, row);
+                }
+                kept++;
+            }
+        }
+        batch.truncate(kept);
+        if (kept > 0) {
+            batch.addAcknowledgement(acknowledger, ++batches);
+        }
+        int removed = rowCount - kept;
+        rows += rowCount;
+        if (removed > 0) {
+            suppressed += removed;
+        }
+        return removed;
+    }
+
+    // Records the row as published when it is changed or due a heartbeat
+    private boolean isChanged(MarketDataBatch batch, int row) {
+        long key = ((long) batch.getSymbolId(row) << 32) | ((long) batch.getTenor(row) << 1) | batch.getSide(row);
+        long now = batch.getRcvTime(row);
+        int slot = slots.get(key);
+        if (slot == LongIntHashMap.MISSING) {
+            slot = newSlot(key);
+        } else if (Double.doubleToLongBits(price[slot]) == Double.doubleToLongBits(batch.getPrice(row))
+                && Double.doubleToLongBits(size[slot]) == Double.doubleToLongBits(batch.getSize(row))
+                && Double.doubleToLongBits(forwardPoints[slot]) == Double.doubleToLongBits(batch.getForwardPoints(row))
+                && quoteCondition[slot] == batch.getQuoteCondition(row)) {
+            if (heartbeatNanos <= 0 || now - publishedNanos[slot] < heartbeatNanos) {
+                return false;
+            }
+            heartbeats++;
+        }
+        price[slot] = batch.getPrice(row);
+        size[slot] = batch.getSize(row);
+        forwardPoints[slot] = batch.getForwardPoints(row);
+        quoteCondition[slot] = batch.getQuoteCondition(row);
+        publishedNanos[slot] = now;
+        return true;
+    }
+
+    private void forget() {
+        log.info("A batch of filtered rows was not published, publishing the next row of all {} keys", slotCount);
+        slots.clear();
+        slotCount = 0;
+    }
+
+    private int newSlot(long key) {
+        int slot = slotCount++;
+        if (slot == price.length) {
+            int capacity = slot * 2;
+            price = Arrays.copyOf(price, capacity);
+            size = Arrays.copyOf(size, capacity);
+            forwardPoints = Arrays.copyOf(forwardPoints, capacity);
+            quoteCondition = Arrays.copyOf(quoteCondition, capacity);
+            publishedNanos = Arrays.copyOf(publishedNanos, capacity);
+        }
+        slots.put(key, slot);
+        return slot;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getSuppressedRows() {
+        return suppressed;
+    }
+
+    public long getHeartbeatRows() {
+        return heartbeats;
+    }
+
+    // Stops the stats logging
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void logStats() {
+        long rowsNow = rows;
+        long suppressedNow = suppressed;
+        long intervalRows = rowsNow - lastRows;
+        long intervalSuppressed = suppressedNow - lastSuppressed;
+        lastRows = rowsNow;
+        lastSuppressed = suppressedNow;
+        if (intervalRows == 0) return;
+        log.info("Suppressed {} of {} snapshot rows ({}%), {} published, {} keys, {} heartbeats in total",
+                intervalSuppressed, intervalRows, String.format("%.1f", 100.0 * intervalSuppressed / intervalRows),
+                intervalRows - intervalSuppressed, slotCount, heartbeats);
+    }
+}
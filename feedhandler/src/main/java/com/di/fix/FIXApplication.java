@@ -0,0 +1,466 @@
+package com.di.fix;
+
+import com.di.audit.AuditCategory;
+import com.di.audit.PayloadAudit;
+import com.di.codec.EpochClock;
+import com.di.codec.FixCodec;
+import com.di.codec.StringDictionary;
+import com.di.concurrent.ExecutionMode;
+import com.di.connection.Connection;
+import com.di.connection.ConnectionFactory;
+import com.di.connection.MarketDataBatch;
+import com.di.connection.SharedConnection;
+import com.di.helper.FeedConfig;
+import com.di.journal.JournalManager;
+import com.di.journal.MarketDataJournal;
+import com.di.latency.LatencyTracker;
+import com.di.latency.ReceiveTimes;
+import com.di.metrics.FeedMetrics;
+import com.di.subscription.Subscription;
+import com.di.subscription.SubscriptionEngine;
+import com.di.subscription.SubscriptionPlan;
+import com.di.subscription.SwapPointsLoader;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.*;
+import quickfix.Message;
+import quickfix.field.*;
+import quickfix.fix44.*;
+import quickfix.fix44.MessageCracker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class FIXApplication extends MessageCracker implements Application {
+    private static final String CONFIG_FILE = "symbols.properties";
+
+    private final FeedConfig config;
+    // Null when publish.rtWriter=perSession and every session builds its own chain
+    private final Connection sharedConnection;
+    private final ConcurrentHashMap<SessionID, SessionContext> sessions = new ConcurrentHashMap<>();
+    private final ExecutionMode executionMode;
+    // Queue capacity of each session lane, 0 when market data is handled on the QuickFIX/J thread
+    private final int laneCapacity;
+
+    // String values of every row published, shared by the decoders of all sessions and replays
+    private final StringDictionary dictionary = new StringDictionary();
+
+    private final PayloadAudit payloadAudit = PayloadAudit.get();
+    private final LatencyTracker latency = LatencyTracker.get();
+    private final FeedMetrics metrics = FeedMetrics.get();
+
+    // Null when journal.enabled=false
+    private final JournalManager journals;
+    // Replays journals one at a time, off the QuickFIX/J and publisher threads; null without journals
+    private final ExecutorService replayExecutor;
+
+    // Decode 35=W from the message text QuickFIX/J kept instead of reading its parsed fields back
+    private final boolean rawSnapshots;
+
+    private final SubscriptionPlan subscriptionPlan;
+
+    public FIXApplication() {
+        this(sharedConnection(FeedConfig.get()));
+    }
+
+    // Every session publishes through kdbConnection; null gives each session its own chain
+    public FIXApplication(Connection kdbConnection) {
+        FeedConfig config = FeedConfig.get();
+        this.config = config;
+        this.sharedConnection = kdbConnection != null ? new SharedConnection(kdbConnection) : null;
+        this.executionMode = ExecutionMode.fromConfig(config);
+        this.laneCapacity = "lanes".equals(config.getString("fix.threadModel", "single"))
+                ? Math.max(1, config.getInt("fix.lane.capacity", 4096)) : 0;
+        this.journals = config.getBoolean("journal.enabled", false) ? new JournalManager(config) : null;
+        this.replayExecutor = journals != null
+                ? Executors.newSingleThreadExecutor(executionMode.threadFactory("journal-replay")) : null;
+        this.rawSnapshots = config.getBoolean("decode.rawSnapshots", false);
+        this.subscriptionPlan = SwapPointsLoader.load(config);
+    }
+
+    // The chain every session shares, or null when publish.rtWriter=perSession
+    private static Connection sharedConnection(FeedConfig config) {
+        String writer = config.getString("publish.rtWriter", "shared");
+        switch (writer) {
+            case "perSession" -> {
+                log.info("RT writer: one publish chain per session");
+                return null;
+            }
+            case "shared" -> log.info("RT writer: one publish chain shared by every session");
+            default -> log.warn("Unknown publish.rtWriter '{}', falling back to shared", writer);
+        }
+        return ConnectionFactory.create(config);
+    }
+
+    private SessionContext session(SessionID sessionId) {
+        SessionContext session = sessions.get(sessionId);
+        return session != null ? session : sessions.computeIfAbsent(sessionId, this::createSession);
+    }
+
+    private SessionContext createSession(SessionID sessionId) {
+        String label = sessionId.toString();
+        SubscriptionEngine subscriptions = new SubscriptionEngine(config, label, Session::sendToTarget);
+        MarketDataBook book = null;
+        if (subscriptions.isIncremental()) {
+            book = new MarketDataBook(dictionary, subscriptions::requestSnapshot);
+            metrics.gauge("feed_book_instruments", "Instruments held in the incremental book", label,
+                    book::getInstrumentCount);
+            metrics.gauge("feed_book_gaps", "Times an instrument book lost sync and asked for a snapshot", label,
+                    book::getGaps);
+        }
+        Connection connection = sharedConnection;
+        if (connection == null) {
+            connection = ConnectionFactory.create(config, label);
+            // Journal replay publishes from its own thread, so the session's chain has two producers
+            if (journals != null) {
+                connection = new SharedConnection(connection);
+            }
+        }
+        SessionLane lane = null;
+        if (laneCapacity > 0) {
+            lane = new SessionLane(label, laneCapacity, executionMode);
+            metrics.gauge("feed_session_lane_depth", "Messages queued for the session lane", label,
+                    lane::getQueueDepth);
+        }
+        return new SessionContext(sessionId, new MarketDataDecoder(dictionary), subscriptions, book,
+                ChangeSuppressor.fromConfig(config), connection, lane);
+    }
+
+    private List<String> loadCurrencyPairs() {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input == null) {
+                log.error("Unable to find {}", CONFIG_FILE);
+                return List.of();
+            }
+            props.load(input);
+            String pairs = props.getProperty("currency.pairs");
+            if (pairs == null || pairs.isEmpty()) {
+                log.error("No currency pairs found in configuration");
+                return List.of();
+            }
+            return Arrays.asList(pairs.split(","));
+        } catch (IOException e) {
+            log.error("Error loading currency pairs configuration: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    @Override
+    public void onCreate(SessionID sessionId) {
+        log.info("onCreate method called! Session: {}", sessionId);
+        log.info("Env KXI_CONFIG_URL = {}", System.getenv("KXI_CONFIG_URL"));
+        SessionContext session = session(sessionId);
+        if (journals != null) {
+            try {
+                // RT took a write again after rejecting some: replay what it missed
+                journals.open(sessionId).setReplayListener(() -> requestReplay(session));
+            } catch (IOException e) {
+                log.error("Failed to open market data journal for session {}", sessionId, e);
+            }
+        }
+        connectAndReplay(session);
+    }
+
+    // Opens the session's RT connection if it is not up yet and replays what the journal holds beyond the last ack
+    private void connectAndReplay(SessionContext session) {
+        if (session.rtConnected) return;
+        try {
+            session.connection.openConnection();
+            session.rtConnected = true;
+        } catch (IOException e) {
+            log.error("Failed to open KDB connection for session {}", session.label, e);
+            return;
+        }
+        requestReplay(session);
+    }
+
+    private void requestReplay(SessionContext session) {
+        if (journals == null || journals.get(session.sessionId) == null) return;
+        try {
+            replayExecutor.execute(() -> replayJournal(session));
+        } catch (RejectedExecutionException e) {
+            log.debug("Not replaying the journal of session {} during shutdown", session.label);
+        }
+    }
+
+    // Replay thread only
+    private void replayJournal(SessionContext session) {
+        SessionID sessionId = session.sessionId;
+        MarketDataJournal journal = journals.get(sessionId);
+        log.info("Replaying journal for session {} from position {}", sessionId,
+                MarketDataJournal.describe(journal.getAcknowledgedPosition()));
+        MarketDataDecoder replayDecoder = new MarketDataDecoder(dictionary);
+        try {
+            // The session layer accepted every journaled message, so its text is decoded without parsing it again
+            int replayed = journal.replay((raw, rcvNanos, acknowledger, position) -> {
+                MarketDataBatch batch = replayDecoder.decodeRaw(raw, rcvNanos);
+                if (batch.isEmpty()) return false;
+                batch.addAcknowledgement(acknowledger, position);
+                session.connection.insertBacklogBatch(batch);
+                return true;
+            });
+            log.info("Replayed {} journaled snapshots for session {}", replayed, sessionId);
+        } catch (Exception e) {
+            log.error("Journal replay for session {} stopped: {}", sessionId, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onLogon(SessionID sessionId) {
+        log.info("Logon: Start Time: {}", LocalDateTime.now());
+        log.info("Logon Session: {}", sessionId);
+
+        SessionContext session = session(sessionId);
+        connectAndReplay(session);
+
+        session.subscriptions.start(sessionId, subscriptionPlan.subscriptions(loadCurrencyPairs()));
+    }
+
+    // Queues a subscription on a logged-on session, paced with the rest
+    public boolean subscribe(SessionID sessionId, Subscription subscription) {
+        return session(sessionId).subscriptions.add(subscription);
+    }
+
+    @Override
+    public void onMessage(MarketDataSnapshotFullRefresh message, SessionID sessionID) {
+        publishSnapshot(message, null, session(sessionID), EpochClock.nowNanos());
+    }
+
+    // raw is the message text when 35=W takes the raw decode path, null to decode the Message.
+    // rcvNanos is the receive time shared by every row of the snapshot.
+    private void publishSnapshot(Message message, String raw, SessionContext session, long rcvNanos) {
+        SessionID sessionID = session.sessionId;
+        MarketDataDecoder decoder = session.decoder;
+        try {
+            MarketDataJournal journal = journals != null ? journals.get(sessionID) : null;
+            long journalPosition = MarketDataJournal.NO_POSITION;
+            String text = raw != null ? raw : message.toRawString();
+            if (journal != null && text != null) {
+                journalPosition = journal.append(text, rcvNanos);
+            }
+
+            MarketDataBatch batch = raw != null
+                    ? decoder.decodeRaw(raw, rcvNanos)
+                    : decoder.decode(message, rcvNanos);
+            if (journalPosition != MarketDataJournal.NO_POSITION) {
+                batch.addAcknowledgement(journal, journalPosition);
+            }
+            if (!batch.isEmpty()) {
+                onSnapshotDecoded(session, batch);
+                if (session.book != null) {
+                    session.book.onSnapshot(batch, decoder);
+                }
+                if (latency.isEnabled()) {
+                    recordLatency(message, sessionID, batch, rcvNanos);
+                }
+            }
+            if (payloadAudit.shouldAudit(AuditCategory.SNAPSHOT) || isTraced(message)) {
+                payloadAudit.write(AuditCategory.SNAPSHOT, message.getString(Symbol.FIELD), batch);
+            }
+            if (session.suppressor != null && !batch.isEmpty()) {
+                String symbol = batch.getSymbol(0);
+                int suppressed = session.suppressor.filter(batch);
+                if (suppressed > 0) {
+                    metrics.onSuppressed(symbol, suppressed);
+                }
+                // A fully suppressed snapshot is not published; the next published batch acknowledges
+                // past its journal position, and a replay would only publish it again
+                if (batch.isEmpty()) return;
+            }
+            session.connection.insertBatch(batch);
+            if (log.isDebugEnabled()) {
+                log.debug("Published {} rows for symbol {}", batch.getRowCount(), message.getString(Symbol.FIELD));
+            }
+
+        } catch (Exception e) {
+            log.error("Unexpected error processing MarketDataSnapshotFullRefresh: {}", e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Incremental refreshes only update the book, and only the entries they touch are published.
+     * They are not journaled: after a restart the books are rebuilt from the snapshots sent on logon.
+     */
+    private void publishIncremental(Message message, SessionContext session, long rcvNanos) {
+        MarketDataBook book = session.book;
+        if (book == null) {
+            log.warn("MarketDataIncrementalRefresh received but subscription.incremental is off, ignoring");
+            return;
+        }
+        try {
+            MarketDataDecoder decoder = session.decoder;
+            MarketDataBatch changes = book.apply(decoder.decodeIncremental(message, rcvNanos), decoder);
+            if (changes.isEmpty()) return;
+            metrics.onIncremental(changes.getRowCount());
+            if (payloadAudit.shouldAudit(AuditCategory.SNAPSHOT) || isTraced(message)) {
+                payloadAudit.write(AuditCategory.SNAPSHOT, changes.getSymbol(0), changes);
+            }
+            session.connection.insertBatch(changes);
+        } catch (Exception e) {
+            log.error("Unexpected error processing MarketDataIncrementalRefresh: {}", e.getMessage(), e);
+        }
+    }
+
+    private void onSnapshotDecoded(SessionContext session, MarketDataBatch batch) {
+        metrics.onSnapshot(batch.getSymbol(0), batch.getRowCount());
+        session.subscriptions.onSnapshot(batch.getReqId(0), batch.getSymbol(0));
+    }
+
+    // SendingTime and the IO thread's receive stamp are only read when latency tracking is on
+    private void recordLatency(Message message, SessionID sessionID, MarketDataBatch batch, long rcvNanos)
+            throws FieldNotFound {
+        Message.Header header = message.getHeader();
+        long sendingNanos = header.isSetField(SendingTime.FIELD)
+                ? FixCodec.parseUtcTimestamp(header.getString(SendingTime.FIELD)) : FixCodec.INVALID_TIME;
+        long socketNanos = header.isSetField(MsgSeqNum.FIELD)
+                ? ReceiveTimes.forSession(sessionID).get(header.getInt(MsgSeqNum.FIELD)) : ReceiveTimes.UNKNOWN;
+        latency.recordSnapshot(batch, sendingNanos == FixCodec.INVALID_TIME ? ReceiveTimes.UNKNOWN : sendingNanos,
+                socketNanos, rcvNanos, batch.getBuiltTime(0));
+    }
+
+    public void shutdown() {
+        for (SessionContext session : sessions.values()) {
+            session.subscriptions.stop();
+            if (session.lane != null) {
+                session.lane.close();
+            }
+            if (session.suppressor != null) {
+                session.suppressor.close();
+            }
+        }
+        if (replayExecutor != null) {
+            replayExecutor.shutdownNow();
+            try {
+                if (!replayExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("Journal replay still running at shutdown");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        latency.dump();
+        // Per-session chains flush and close in parallel; close() of the executor waits for all of them
+        try (ExecutorService closers = executionMode.newTaskExecutor("rt-close")) {
+            for (SessionContext session : sessions.values()) {
+                if (!session.rtConnected) continue;
+                closers.submit(() -> {
+                    try {
+                        session.connection.closeConnection();
+                        session.rtConnected = false;
+                    } catch (IOException e) {
+                        log.error("Failed to close KDB connection for session {}", session.label, e);
+                    }
+                });
+            }
+        }
+        if (journals != null) {
+            journals.close();
+        }
+    }
+
+    @Override
+    public void onLogout(SessionID sessionId) {
+        log.info("Logout Session: {}", sessionId);
+        session(sessionId).subscriptions.stop();
+    }
+
+    @Override
+    public void toAdmin(Message message, SessionID sessionId) {
+        try {
+            String msgType = message.getHeader().getString(MsgType.FIELD);
+            if (MsgType.LOGON.equals(msgType)) {
+                message.setInt(6300, 1);  // Set custom tag 6300=1
+                log.info("Added tag 6300=1 to Logon message for session: {}", sessionId);
+            }
+        } catch (FieldNotFound e) {
+            log.warn("MsgType not found in toAdmin for session: {}", sessionId, e);
+        }
+    }
+    @Override
+    public void fromAdmin(Message message, SessionID sessionId) {
+        auditPayload(AuditCategory.ADMIN_IN, message);
+    }
+
+    @Override
+    public void toApp(Message message, SessionID sessionId) {
+        auditPayload(AuditCategory.APP_OUT, message);
+    }
+
+    @Override
+    public void fromApp(Message message, SessionID sessionId)
+            throws UnsupportedMessageType, IncorrectTagValue, FieldNotFound {
+        // Taken before auditing and decoding so rcvTime is as close to the wire as the session allows
+        long rcvNanos = EpochClock.nowNanos();
+        auditPayload(AuditCategory.APP_IN, message);
+
+        String msgType = message.getHeader().getString(MsgType.FIELD);
+
+        if (MsgType.MARKET_DATA_REQUEST_REJECT.equals(msgType)) {
+            handleMarketDataRequestReject(message, sessionId);
+        } else if (MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH.equals(msgType)) {
+            SessionContext session = session(sessionId);
+            // The text QuickFIX/J parsed the message from; decodeRaw scans it instead of reading the fields back
+            String raw = rawSnapshots ? message.toRawString() : null;
+            if (session.lane != null) {
+                session.lane.submit(() -> publishSnapshot(message, raw, session, rcvNanos));
+            } else {
+                publishSnapshot(message, raw, session, rcvNanos);
+            }
+        } else if (MsgType.MARKET_DATA_INCREMENTAL_REFRESH.equals(msgType)) {
+            SessionContext session = session(sessionId);
+            if (session.lane != null) {
+                session.lane.submit(() -> publishIncremental(message, session, rcvNanos));
+            } else {
+                publishIncremental(message, session, rcvNanos);
+            }
+        } else {
+            crack(message, sessionId);
+        }
+    }
+
+    private void auditPayload(AuditCategory category, Message message) {
+        if (payloadAudit.shouldAudit(category)) {
+            payloadAudit.write(category, message);
+        } else if (isTraced(message)) {
+            payloadAudit.write(category, "TRACE", message);
+        }
+    }
+
+    // Only looks at the message when a symbol or MDReqID trace is active
+    private boolean isTraced(Message message) {
+        if (!payloadAudit.isTracing()) return false;
+        try {
+            String symbol = message.isSetField(Symbol.FIELD) ? message.getString(Symbol.FIELD) : null;
+            String mdReqId = message.isSetField(MDReqID.FIELD) ? message.getString(MDReqID.FIELD) : null;
+            return payloadAudit.isTraced(symbol, mdReqId);
+        } catch (FieldNotFound e) {
+            return false;
+        }
+    }
+
+    private void handleMarketDataRequestReject(Message message, SessionID sessionId) {
+        try {
+            String mdReqID = message.isSetField(MDReqID.FIELD) ? message.getString(MDReqID.FIELD) : "UNKNOWN";
+            String reason = message.isSetField(Text.FIELD) ? message.getString(Text.FIELD) : "No reason provided";
+
+            metrics.onRequestReject();
+            log.error("Market Data Request Rejected. MDReqID: {}, Reason: {}", mdReqID, reason);
+            session(sessionId).subscriptions.onReject(mdReqID, reason);
+        } catch (FieldNotFound e) {
+            log.error("Error handling Market Data Request Reject: {}", e.getMessage(), e);
+        }
+    }
+
+    public static Instant getCurrentTime() {
+        return Instant.now();
+    }
+}
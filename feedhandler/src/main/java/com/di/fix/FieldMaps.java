@@ -0,0 +1,80 @@
+package com.di.fix;
+
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.Group;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.TreeMap;
+
+/*
+ * Allocation-free access to the fields and groups of a QuickFIX/J FieldMap. Its getters box the tag
+ * (the default Integer cache stops at 127, below most market data tags) and its iterator is an
+ * object per call, so the decoder reads the underlying maps instead: fields are walked with
+ * firstKey/higherKey, which return the map's own Integer keys, and groups are looked up with a key
+ * the caller boxed once.
+ *
+ * Those maps are FieldMap internals (protected fields in QuickFIX/J 2.3.1). When they cannot be
+ * read, because a newer QuickFIX/J renamed or retyped them or the quickfixj module does not open
+ * quickfix to this one, this falls back to the public iterator and getGroups, which allocate per
+ * message, and says so once when the class loads. FieldMapsTest pins the direct path to the
+ * QuickFIX/J version in the pom.
+ */
+@Slf4j
+final class FieldMaps {
+    // Both null when the maps cannot be read
+    private static final VarHandle FIELDS;
+    private static final VarHandle GROUPS;
+
+    static {
+        VarHandle fields = null;
+        VarHandle groups = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(FieldMap.class, MethodHandles.lookup());
+            fields = lookup.findVarHandle(FieldMap.class, "fields", TreeMap.class);
+            groups = lookup.findVarHandle(FieldMap.class, "groups", TreeMap.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            fields = null;
+            groups = null;
+            log.warn("Cannot read the fields of QuickFIX/J's FieldMap ({}), decoding FIX messages through its "
+                    + "public API instead, which allocates per message. Raw decoding is unaffected.", e.toString());
+        }
+        FIELDS = fields;
+        GROUPS = groups;
+    }
+
+    private FieldMaps() {
+    }
+
+    // False when decoding goes through the public FieldMap API
+    static boolean isDirect() {
+        return FIELDS != null;
+    }
+
+    // By tag; parsed messages hold every value as a StringField
+    @SuppressWarnings("unchecked")
+    static TreeMap<Integer, Field<?>> fields(FieldMap map) {
+        return FIELDS != null ? (TreeMap<Integer, Field<?>>) FIELDS.get(map) : copyFields(map);
+    }
+
+    // The groups counted by tag, empty when there are none
+    @SuppressWarnings("unchecked")
+    static List<Group> groups(FieldMap map, Integer tag) {
+        if (GROUPS == null) {
+            // getGroups would add an empty list for a missing tag
+            return map.hasGroup(tag) ? map.getGroups(tag) : List.of();
+        }
+        List<Group> groups = ((TreeMap<Integer, List<Group>>) GROUPS.get(map)).get(tag);
+        return groups != null ? groups : List.of();
+    }
+
+    // The public API's view of the fields, as fields() returns them
+    static TreeMap<Integer, Field<?>> copyFields(FieldMap map) {
+        TreeMap<Integer, Field<?>> fields = new TreeMap<>();
+        map.iterator().forEachRemaining(field -> fields.put(field.getTag(), field));
+        return fields;
+    }
+}
@@ -0,0 +1,210 @@
+package com.di.fix;
+
+import com.di.codec.StringDictionary;
+import com.di.collections.LongIntHashMap;
+import com.di.connection.MarketDataBatch;
+import com.di.tenor.Tenor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ * Current entries of every (symbol, tenor) for MarketDataIncrementalRefresh. A snapshot replaces
+ * an instrument's entries; an incremental refresh applies New/Change/Delete to them and only the
+ * touched entries are published. An entry is keyed by its MDEntryID, or by side and
+ * MDEntryPositionNo when the venue sends no ids; an instrument holds the ids of its current entries
+ * only, so they go with the entries on a Delete or a snapshot. A Delete is published as the entry with zero
+ * price and size and quoteCondition false.
+ *
+ * RptSeq is checked per instrument. A gap, or a Change for an entry the book does not hold, marks
+ * the instrument out of sync: its updates are dropped and the snapshot requester is called with
+ * the subscription key ("EUR/USD::1M", "EUR/USD::SPOT") until a snapshot resets it.
+ *
+ * Only the session thread touches a book, so there is no locking.
+ */
+@Slf4j
+public class MarketDataBook {
+    private final StringDictionary dictionary;
+    private final Consumer<String> snapshotRequester;
+    private final LongIntHashMap index = new LongIntHashMap(1024);
+    private final List<InstrumentBook> books = new ArrayList<>();
+    // Rows published for the last incremental refresh
+    private final MarketDataBatch changes;
+    private int snapshotCount;
+    private volatile long gaps;
+
+    private static final class InstrumentBook {
+        final MarketDataBatch entries;
+        final String subscriptionKey;
+        // Per entry: its MDEntryID, or null and its side and position key
+        String[] ids = new String[4];
+        int[] keys = new int[4];
+        int lastRptSeq;
+        boolean inSync;
+        boolean snapshotRequested;
+        int snapshot = -1;
+
+        InstrumentBook(StringDictionary dictionary, String subscriptionKey) {
+            this.entries = new MarketDataBatch(dictionary, 4);
+            this.subscriptionKey = subscriptionKey;
+        }
+
+        int find(MarketDataDecoder decoder, MarketDataBatch source, int row) {
+            if (decoder.hasEntryId(row)) {
+                for (int i = 0; i < entries.getRowCount(); i++) {
+                    if (ids[i] != null && decoder.entryIdEquals(row, ids[i])) return i;
+                }
+            } else {
+                int key = positionKey(decoder, source, row);
+                for (int i = 0; i < entries.getRowCount(); i++) {
+                    if (ids[i] == null && keys[i] == key) return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(MarketDataDecoder decoder, MarketDataBatch source, int row) {
+            int added = entries.getRowCount();
+            entries.addRow(source, row);
+            if (added == keys.length) {
+                ids = Arrays.copyOf(ids, added * 2);
+                keys = Arrays.copyOf(keys, added * 2);
+            }
+            ids[added] = decoder.getEntryId(row);
+            keys[added] = ids[added] == null ? positionKey(decoder, source, row) : 0;
+        }
+
+        void remove(int i) {
+            int last = entries.getRowCount() - 1;
+            entries.removeRow(i);
+            ids[i] = ids[last];
+            keys[i] = keys[last];
+            ids[last] = null;
+        }
+
+        void clear() {
+            Arrays.fill(ids, 0, entries.getRowCount(), null);
+            entries.clear();
+        }
+    }
+
+    public MarketDataBook(StringDictionary dictionary, Consumer<String> snapshotRequester) {
+        this.dictionary = dictionary;
+        this.snapshotRequester = snapshotRequester;
+        this.changes = new MarketDataBatch(dictionary, 16);
+    }
+
+    // Replaces the entries of every instrument in the snapshot
+    public void onSnapshot(MarketDataBatch snapshot, MarketDataDecoder decoder) {
+        int stamp = ++snapshotCount;
+        for (int row = 0; row < snapshot.getRowCount(); row++) {
+            InstrumentBook book = book(snapshot.getSymbolId(row), snapshot.getTenor(row));
+            if (book.snapshot != stamp) {
+                book.snapshot = stamp;
+                book.clear();
+                book.lastRptSeq = decoder.getSnapshotRptSeq();
+                if (book.snapshotRequested) {
+                    log.info("Book for {} resynchronized from snapshot", book.subscriptionKey);
+                }
+                book.inSync = true;
+                book.snapshotRequested = false;
+            }
+            book.add(decoder, snapshot, row);
+        }
+    }
+
+    /*
+     * Applies the rows of decoder.decodeIncremental() and returns the rows to publish. The returned
+     * batch is reused by the next call.
+     */
+    public MarketDataBatch apply(MarketDataBatch updates, MarketDataDecoder decoder) {
+        changes.clear();
+        for (int row = 0; row < updates.getRowCount(); row++) {
+            InstrumentBook book = book(updates.getSymbolId(row), updates.getTenor(row));
+            if (!book.inSync) {
+                if (!book.snapshotRequested) outOfSync(book, "no snapshot yet");
+                continue;
+            }
+
+            int rptSeq = decoder.getRptSeq(row);
+            if (rptSeq > 0 && book.lastRptSeq > 0) {
+                if (rptSeq <= book.lastRptSeq) continue;  // already applied
+                if (rptSeq != book.lastRptSeq + 1) {
+                    outOfSync(book, "RptSeq " + rptSeq + " after " + book.lastRptSeq);
+                    continue;
+                }
+            }
+            if (rptSeq > 0) {
+                book.lastRptSeq = rptSeq;
+            }
+
+            int entry = book.find(decoder, updates, row);
+            switch (decoder.getUpdateAction(row)) {
+                case MarketDataDecoder.ACTION_NEW -> {
+                    if (entry >= 0) {
+                        book.entries.setRow(entry, updates, row);
+                    } else {
+                        book.add(decoder, updates, row);
+                    }
+                    changes.addRow(updates, row);
+                }
+                case MarketDataDecoder.ACTION_CHANGE -> {
+                    if (entry < 0) {
+                        outOfSync(book, "Change for an unknown entry");
+                        continue;
+                    }
+                    book.entries.setRow(entry, updates, row);
+                    changes.addRow(updates, row);
+                }
+                case MarketDataDecoder.ACTION_DELETE -> {
+                    if (entry < 0) continue;
+                    MarketDataBatch entries = book.entries;
+                    changes.add(updates.getTime(row), updates.getRcvTime(row), updates.getReqId(row),
+                            entries.getSymbolId(entry), entries.getSymbolSfxId(entry), entries.getSide(entry),
+                            0.0, 0.0, updates.getEntryDate(row), false, entries.getSettlDate(entry),
+                            entries.getForwardPoints(entry), entries.getPipId(entry), entries.getTenor(entry),
+                            entries.getSpotVDateId(entry), entries.getOriginId(entry));
+                    book.remove(entry);
+                }
+                default -> log.warn("Unknown MDUpdateAction '{}' for {}", decoder.getUpdateAction(row),
+                        book.subscriptionKey);
+            }
+        }
+        return changes;
+    }
+
+    public int getInstrumentCount() {
+        return books.size();
+    }
+
+    public long getGaps() {
+        return gaps;
+    }
+
+    private void outOfSync(InstrumentBook book, String reason) {
+        book.inSync = false;
+        book.snapshotRequested = true;
+        book.clear();
+        gaps++;
+        log.warn("Book for {} out of sync ({}), requesting a snapshot", book.subscriptionKey, reason);
+        snapshotRequester.accept(book.subscriptionKey);
+    }
+
+    private InstrumentBook book(int symbol, int tenor) {
+        long key = ((long) symbol << 32) | tenor;
+        int i = index.get(key);
+        if (i != LongIntHashMap.MISSING) return books.get(i);
+        String subscriptionKey = dictionary.valueOf(symbol) + "::" + (tenor == 0 ? "SPOT" : Tenor.ofCode(tenor).getValue());
+        InstrumentBook book = new InstrumentBook(dictionary, subscriptionKey);
+        index.put(key, books.size());
+        books.add(book);
+        return book;
+    }
+
+    private static int positionKey(MarketDataDecoder decoder, MarketDataBatch batch, int row) {
+        return decoder.getPosition(row) * 2 + batch.getSide(row);
+    }
+}
@@ -0,0 +1,502 @@
+package com.di.fix;
+
+import com.di.codec.EpochClock;
+import com.di.codec.FixCodec;
+import com.di.codec.RawFixFields;
+import com.di.codec.StringDictionary;
+import com.di.codec.TradingDay;
+import com.di.connection.MarketDataBatch;
+import com.di.helper.FeedConfig;
+import com.di.tenor.Tenor;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Field;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.field.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/*
+ * Decodes MarketDataSnapshotFullRefresh and MarketDataIncrementalRefresh entries into a reusable
+ * MarketDataBatch. The batch is overwritten by the next decode call, so callers must publish (or
+ * copy) it first. Once the batch has grown to the largest snapshot seen, decoding allocates nothing.
+ *
+ * Per-row book keys that are not RT columns (MDEntryID, position within the side, and for 35=X the
+ * MDUpdateAction and RptSeq) are kept next to the batch and read through the getters below.
+ * MDEntryIDs are copied into a buffer reused per message rather than encoded against the
+ * dictionary, which lives as long as the process while a venue may send a new id for every quote.
+ * MDReqIDs stay out of it for the same reason, as the subscription engine mints new ones on every
+ * resubscribe; decodeRaw takes their Strings from a small cache that is dropped when it fills up.
+ */
+@Slf4j
+public class MarketDataDecoder {
+    private static final int TENOR_VALUE = 6215;
+    private static final int FORWARD_POINTS = 5675;
+    private static final int PIP = 5678;
+    private static final int ORIGIN = 6313;
+    private static final int SPOT_VALUE_DATE = 6314;
+    private static final int HOL_WARN = 5679;
+    private static final int MD_ENTRY_ID = 278;
+    private static final int MD_ENTRY_POSITION_NO = 290;
+    private static final int MD_UPDATE_ACTION = 279;
+    private static final int RPT_SEQ = 83;
+    // Distinct MDReqIDs decodeRaw keeps before starting a new cache
+    private static final int REQ_ID_CACHE_SIZE = 1024;
+
+    // Boxed once: 268 is above the default Integer cache (see FieldMaps)
+    private static final Integer NO_MD_ENTRIES = NoMDEntries.FIELD;
+
+    public static final char ACTION_NEW = '0';
+    public static final char ACTION_CHANGE = '1';
+    public static final char ACTION_DELETE = '2';
+
+    private final MarketDataBatch batch;
+
+    // Per row of the batch: MDEntryID as a range of entryIdChars (empty when absent), 1-based
+    // position within the instrument's side, and for 35=X the MDUpdateAction and RptSeq (0 when absent)
+    private int[] entryIdStarts = new int[16];
+    private int[] entryIdEnds = new int[16];
+    private int[] positions = new int[16];
+    private char[] actions = new char[16];
+    private int[] rptSeqs = new int[16];
+    private char[] entryIdChars = new char[256];
+    private int entryIdLength;
+    // RptSeq of the snapshot message, 0 when absent
+    private int snapshotRptSeq;
+
+    // MDReqID Strings seen by decodeRaw, so a repeated id is not copied out of every message
+    private StringDictionary reqIds = new StringDictionary();
+
+    // Tenor code by dictionary id of the raw tag 6215 text, -1 until resolved (raw path)
+    private int[] tenorCodes = new int[0];
+
+    // NoMDEntries entry being read by decodeRaw
+    private int entrySide;
+    private double entryPrice;
+    private double entrySize;
+    private double entryForwardPoints;
+    private int entryPip;
+    private int entryTenor;
+    private int entrySettlDate;
+    private int entrySpotVDate;
+    private long entryTime;
+    private boolean entryQuoteCondition;
+    private int entryIdStart;
+    private int entryIdEnd;
+    // MDEntryPositionNo, 0 when absent
+    private int entryPosition;
+    // FieldMap path only: the entry's Symbol/SymbolSfx (-1 when absent), MDUpdateAction (0 when
+    // absent) and RptSeq (0 when absent)
+    private int entrySymbol;
+    private int entrySymbolSfx;
+    private char entryAction;
+    private int entryRptSeq;
+
+    // entryDate and the day MDEntryTime is placed on, rolled at the session boundary
+    private final TradingDay tradingDay;
+
+    public MarketDataDecoder() {
+        this(StringDictionary.shared());
+    }
+
+    // Repeated string values are encoded against the dictionary of the connection being fed
+    public MarketDataDecoder(StringDictionary dictionary) {
+        this(dictionary, TradingDay.fromConfig(FeedConfig.get()));
+    }
+
+    public MarketDataDecoder(StringDictionary dictionary, TradingDay tradingDay) {
+        this.batch = new MarketDataBatch(dictionary, 16);
+        this.tradingDay = tradingDay;
+    }
+
+    public MarketDataBatch decode(Message message) throws FieldNotFound {
+        return decode(message, EpochClock.nowNanos());
+    }
+
+    // rcvNanos is the receive time of the whole message, used for every entry's rcvTime
+    public MarketDataBatch decode(Message message, long rcvNanos) throws FieldNotFound {
+        start(rcvNanos);
+        int symbol = -1;
+        String reqID = null;
+        int symbolSfx = StringDictionary.EMPTY;
+        int origin = -1;
+        TreeMap<Integer, Field<?>> fields = FieldMaps.fields(message);
+        for (Integer tag = fields.isEmpty() ? null : fields.firstKey(); tag != null; tag = fields.higherKey(tag)) {
+            Field<?> field = fields.get(tag);
+            switch (tag) {
+                case Symbol.FIELD -> symbol = batch.encode(value(field));
+                case MDReqID.FIELD -> reqID = value(field);
+                case SymbolSfx.FIELD -> symbolSfx = batch.encode(value(field));
+                case ORIGIN -> origin = batch.encode(value(field));
+                case RPT_SEQ -> snapshotRptSeq = parseInt(value(field));
+                default -> {
+                }
+            }
+        }
+        if (symbol < 0) {
+            throw new FieldNotFound(Symbol.FIELD);
+        }
+        if (origin < 0) {
+            origin = batch.encode("FIX");
+        }
+
+        List<Group> groups = FieldMaps.groups(message, NO_MD_ENTRIES);
+        for (int i = 0; i < groups.size(); i++) {
+            readEntry(groups.get(i), rcvNanos);
+            addEntry(rcvNanos, reqID, symbol, symbolSfx, origin);
+        }
+        batch.setBuiltTime(0, EpochClock.nowNanos());
+        return batch;
+    }
+
+    /*
+     * One row per MarketDataIncrementalRefresh entry. The instrument is read from each entry; an
+     * entry without Symbol belongs to the previous entry's symbol. A Change carries the whole entry,
+     * as in a snapshot. MDUpdateAction and RptSeq of each row are read with getUpdateAction/getRptSeq.
+     * An entry without MDEntryPositionNo is the top of its side, position 1.
+     */
+    public MarketDataBatch decodeIncremental(Message message, long rcvNanos) throws FieldNotFound {
+        start(rcvNanos);
+        String reqID = null;
+        int origin = -1;
+        TreeMap<Integer, Field<?>> fields = FieldMaps.fields(message);
+        for (Integer tag = fields.isEmpty() ? null : fields.firstKey(); tag != null; tag = fields.higherKey(tag)) {
+            Field<?> field = fields.get(tag);
+            switch (tag) {
+                case MDReqID.FIELD -> reqID = value(field);
+                case ORIGIN -> origin = batch.encode(value(field));
+                default -> {
+                }
+            }
+        }
+        if (origin < 0) {
+            origin = batch.encode("FIX");
+        }
+        int symbol = -1;
+        int symbolSfx = StringDictionary.EMPTY;
+
+        List<Group> groups = FieldMaps.groups(message, NO_MD_ENTRIES);
+        for (int i = 0; i < groups.size(); i++) {
+            readEntry(groups.get(i), rcvNanos);
+            if (entrySymbol >= 0) {
+                symbol = entrySymbol;
+                symbolSfx = entrySymbolSfx;
+            } else if (symbol < 0) {
+                throw new FieldNotFound(Symbol.FIELD);
+            }
+            if (entryAction == 0) {
+                throw new FieldNotFound(MD_UPDATE_ACTION);
+            }
+            int row = addEntry(rcvNanos, reqID, symbol, symbolSfx, origin);
+            actions[row] = entryAction;
+            rptSeqs[row] = entryRptSeq;
+            positions[row] = entryPosition > 0 ? entryPosition : 1;
+        }
+        batch.setBuiltTime(0, EpochClock.nowNanos());
+        return batch;
+    }
+
+    // Parsed messages hold every value as a StringField, whose object is the String itself
+    private static String value(Field<?> field) {
+        return field.getObject().toString();
+    }
+
+    private static int parseInt(String value) {
+        return FixCodec.parseInt(value, 0, value.length());
+    }
+
+    private void start(long rcvNanos) {
+        batch.clear();
+        entryIdLength = 0;
+        snapshotRptSeq = 0;
+        tradingDay.refresh(rcvNanos);
+    }
+
+    // One NoMDEntries entry of a FieldMap message into the entry fields, read in a single pass
+    private void readEntry(Group group, long rcvNanos) {
+        resetEntry(MarketDataBatch.SIDE_BID, rcvNanos);  // An incremental Delete may carry MDEntryID alone
+        entrySymbol = -1;
+        entrySymbolSfx = StringDictionary.EMPTY;
+        entryAction = 0;
+        entryRptSeq = 0;
+        TreeMap<Integer, Field<?>> fields = FieldMaps.fields(group);
+        for (Integer tag = fields.isEmpty() ? null : fields.firstKey(); tag != null; tag = fields.higherKey(tag)) {
+            String value = value(fields.get(tag));
+            switch (tag) {
+                case MDEntryType.FIELD -> entrySide = side(value, 0, value.length());
+                case Symbol.FIELD -> entrySymbol = batch.encode(value);
+                case SymbolSfx.FIELD -> entrySymbolSfx = batch.encode(value);
+                case MD_UPDATE_ACTION -> entryAction = value.isEmpty() ? 0 : value.charAt(0);
+                case RPT_SEQ -> entryRptSeq = parseInt(value);
+                default -> readEntryField(tag, value, 0, value.length(), rcvNanos);
+            }
+        }
+    }
+
+    /*
+     * Snapshot rows without MDEntryPositionNo are numbered in order within their (tenor, side), the
+     * symbol being the message's, so the top of each instrument's side is 1 as in an incremental
+     * refresh without positions.
+     */
+    private void setEntryKey(int row) {
+        if (row >= positions.length) {
+            int capacity = Math.max(row + 1, positions.length * 2);
+            entryIdStarts = Arrays.copyOf(entryIdStarts, capacity);
+            entryIdEnds = Arrays.copyOf(entryIdEnds, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+            rptSeqs = Arrays.copyOf(rptSeqs, capacity);
+        }
+        entryIdStarts[row] = entryIdStart;
+        entryIdEnds[row] = entryIdEnd;
+        positions[row] = entryPosition > 0 ? entryPosition : previousPosition(row) + 1;
+        actions[row] = ACTION_NEW;
+        rptSeqs[row] = 0;
+    }
+
+    private int previousPosition(int row) {
+        for (int r = row - 1; r >= 0; r--) {
+            if (batch.getTenor(r) == entryTenor && batch.getSide(r) == entrySide) return positions[r];
+        }
+        return 0;
+    }
+
+    private void setEntryId(CharSequence raw, int start, int end) {
+        int length = end - start;
+        if (entryIdLength + length > entryIdChars.length) {
+            entryIdChars = Arrays.copyOf(entryIdChars, Math.max(entryIdLength + length, entryIdChars.length * 2));
+        }
+        entryIdStart = entryIdLength;
+        for (int i = start; i < end; i++) {
+            entryIdChars[entryIdLength++] = raw.charAt(i);
+        }
+        entryIdEnd = entryIdLength;
+    }
+
+    public boolean hasEntryId(int row) {
+        return entryIdEnds[row] > entryIdStarts[row];
+    }
+
+    // Compares without copying the id out of the buffer
+    public boolean entryIdEquals(int row, String entryId) {
+        int start = entryIdStarts[row];
+        int length = entryIdEnds[row] - start;
+        if (entryId.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (entryIdChars[start + i] != entryId.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // A new String per call; null when the row has no MDEntryID
+    public String getEntryId(int row) {
+        return hasEntryId(row) ? new String(entryIdChars, entryIdStarts[row], entryIdEnds[row] - entryIdStarts[row])
+                : null;
+    }
+
+    public int getPosition(int row) {
+        return positions[row];
+    }
+
+    public char getUpdateAction(int row) {
+        return actions[row];
+    }
+
+    public int getRptSeq(int row) {
+        return rptSeqs[row];
+    }
+
+    public int getSnapshotRptSeq() {
+        return snapshotRptSeq;
+    }
+
+    /*
+     * Same rows as decode(Message), read from the raw tag=value text in one scan instead of through
+     * FieldMap lookups. Group membership follows FIX44-aquaq.xml: after 268 every NoMDEntries field
+     * belongs to the group, 269 starts a new entry, and the first other tag ends the group.
+     */
+    public MarketDataBatch decodeRaw(CharSequence raw, long rcvNanos) throws FieldNotFound {
+        start(rcvNanos);
+
+        int symbol = -1;
+        String reqID = null;
+        int symbolSfx = StringDictionary.EMPTY;
+        int origin = -1;
+        boolean inGroup = false;
+        boolean inEntry = false;
+
+        int length = raw.length();
+        int fieldStart = 0;
+        while (fieldStart < length) {
+            int tag = 0;
+            int i = fieldStart;
+            char c;
+            while (i < length && (c = raw.charAt(i)) >= '0' && c <= '9') {
+                tag = tag * 10 + (c - '0');
+                i++;
+            }
+            if (i == fieldStart || i == length || raw.charAt(i) != '=') {
+                throw new IllegalArgumentException("Malformed FIX field at offset " + fieldStart);
+            }
+            int start = i + 1;
+            int end = start;
+            while (end < length && raw.charAt(end) != RawFixFields.SOH) {
+                end++;
+            }
+            fieldStart = end + 1;
+
+            if (inGroup && isEntryField(tag)) {
+                if (tag == MDEntryType.FIELD) {
+                    if (inEntry) addRawEntry(rcvNanos);
+                    resetEntry(side(raw, start, end), rcvNanos);
+                    inEntry = true;
+                } else if (inEntry) {
+                    readEntryField(tag, raw, start, end, rcvNanos);
+                }
+                continue;
+            }
+            inGroup = false;
+            switch (tag) {
+                case Symbol.FIELD -> symbol = batch.encode(raw, start, end);
+                case MDReqID.FIELD -> reqID = reqId(raw, start, end);
+                case SymbolSfx.FIELD -> symbolSfx = batch.encode(raw, start, end);
+                case ORIGIN -> origin = batch.encode(raw, start, end);
+                case RPT_SEQ -> snapshotRptSeq = FixCodec.parseInt(raw, start, end);
+                case NoMDEntries.FIELD -> inGroup = true;
+                default -> {
+                }
+            }
+        }
+        if (inEntry) addRawEntry(rcvNanos);
+
+        if (symbol < 0) {
+            throw new FieldNotFound(Symbol.FIELD);
+        }
+        if (origin < 0) {
+            origin = batch.encode("FIX");
+        }
+        // Message-level fields may follow the group, so they are filled in once the scan is done
+        batch.setMessageIds(0, reqID, symbol, symbolSfx, origin);
+        batch.setBuiltTime(0, EpochClock.nowNanos());
+        return batch;
+    }
+
+    private static boolean isEntryField(int tag) {
+        return switch (tag) {
+            case MDEntryType.FIELD, MDEntryPx.FIELD, MDEntrySize.FIELD, MDEntryDate.FIELD, MDEntryTime.FIELD,
+                 QuoteCondition.FIELD, SettlDate.FIELD, FORWARD_POINTS, PIP, HOL_WARN, TENOR_VALUE,
+                 SPOT_VALUE_DATE, ORIGIN, MD_ENTRY_ID, MD_ENTRY_POSITION_NO -> true;
+            default -> false;
+        };
+    }
+
+    private static int side(CharSequence raw, int start, int end) {
+        return end > start && raw.charAt(start) == MDEntryType.BID
+                ? MarketDataBatch.SIDE_BID : MarketDataBatch.SIDE_OFFER;
+    }
+
+    private void resetEntry(int side, long rcvNanos) {
+        entrySide = side;
+        entryPrice = 0.0;
+        entrySize = 0.0;
+        entryForwardPoints = 0.0;
+        entryPip = StringDictionary.EMPTY;
+        entryTenor = 0;
+        entrySettlDate = MarketDataBatch.NO_DATE;
+        entrySpotVDate = StringDictionary.EMPTY;
+        entryTime = rcvNanos;
+        entryQuoteCondition = false;
+        entryIdStart = 0;
+        entryIdEnd = 0;
+        entryPosition = 0;
+    }
+
+    private void readEntryField(int tag, CharSequence raw, int start, int end, long rcvNanos) {
+        switch (tag) {
+            case MDEntryPx.FIELD -> entryPrice = FixCodec.parseDouble(raw, start, end);
+            case MDEntrySize.FIELD -> entrySize = FixCodec.parseDouble(raw, start, end);
+            case FORWARD_POINTS -> {
+                try {
+                    entryForwardPoints = FixCodec.parseDouble(raw, start, end);
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid forwardPoints value '{}'", raw.subSequence(start, end));
+                }
+            }
+            case PIP -> entryPip = batch.encode(raw, start, end);
+            case TENOR_VALUE -> entryTenor = tenorCode(raw, start, end);
+            case SettlDate.FIELD -> {
+                int day = end - start == 8 ? FixCodec.parseEpochDay(raw, start) : FixCodec.INVALID_DATE;
+                if (day == FixCodec.INVALID_DATE) {
+                    log.warn("Failed to parse FIX date string '{}'", raw.subSequence(start, end));
+                    day = MarketDataBatch.NO_DATE;
+                }
+                entrySettlDate = day;
+            }
+            case SPOT_VALUE_DATE -> entrySpotVDate = batch.encode(raw, start, end);
+            case MDEntryTime.FIELD -> entryTime = parseFixTime(raw, start, end, rcvNanos);
+            case QuoteCondition.FIELD -> entryQuoteCondition = end > start && raw.charAt(start) == 'A';
+            case MD_ENTRY_ID -> setEntryId(raw, start, end);
+            case MD_ENTRY_POSITION_NO -> entryPosition = FixCodec.parseInt(raw, start, end);
+            default -> {
+            }
+        }
+    }
+
+    // The message-level ids of raw rows are filled in once the whole message is scanned
+    private void addRawEntry(long rcvNanos) {
+        addEntry(rcvNanos, null, StringDictionary.EMPTY, StringDictionary.EMPTY, StringDictionary.EMPTY);
+    }
+
+    private int addEntry(long rcvNanos, String reqID, int symbol, int symbolSfx, int origin) {
+        int row = batch.add(entryTime, rcvNanos, reqID, symbol, symbolSfx, entrySide, entryPrice, entrySize,
+                tradingDay.getEpochDay(), entryQuoteCondition, entrySettlDate, entryForwardPoints, entryPip,
+                entryTenor, entrySpotVDate, origin);
+        setEntryKey(row);
+        return row;
+    }
+
+    private String reqId(CharSequence raw, int start, int end) {
+        if (reqIds.size() >= REQ_ID_CACHE_SIZE) {
+            reqIds = new StringDictionary();
+        }
+        return reqIds.valueOf(reqIds.idOf(raw, start, end));
+    }
+
+    // Distinct MDReqIDs in the decodeRaw cache
+    int getCachedReqIds() {
+        return reqIds.size() - 1;
+    }
+
+    private int tenorCode(CharSequence raw, int start, int end) {
+        StringDictionary dictionary = batch.getDictionary();
+        int id = dictionary.idOf(raw, start, end);
+        if (id >= tenorCodes.length) {
+            int old = tenorCodes.length;
+            tenorCodes = Arrays.copyOf(tenorCodes, Math.max(id + 1, old * 2));
+            Arrays.fill(tenorCodes, old, tenorCodes.length, -1);
+        }
+        int code = tenorCodes[id];
+        if (code < 0) {
+            code = Tenor.parse(dictionary.valueOf(id)).getCode();
+            tenorCodes[id] = code;
+        }
+        return code;
+    }
+
+    private long parseFixTime(CharSequence raw, int start, int end, long fallbackNanos) {
+        boolean hasColon = false;
+        for (int i = start; i < end && !hasColon; i++) {
+            hasColon = raw.charAt(i) == ':';
+        }
+        if (!hasColon) return fallbackNanos;
+        long nanosOfDay = FixCodec.parseNanosOfDay(raw, start, end);
+        if (nanosOfDay == FixCodec.INVALID_TIME) {
+            log.warn("Failed to parse FIX time '{}'", raw.subSequence(start, end));
+            return fallbackNanos;
+        }
+        return tradingDay.entryTimeNanos(nanosOfDay, fallbackNanos);
+    }
+}
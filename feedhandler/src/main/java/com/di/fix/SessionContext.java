@@ -0,0 +1,39 @@
+package com.di.fix;
+
+import com.di.connection.Connection;
+import com.di.subscription.SubscriptionEngine;
+import quickfix.SessionID;
+
+/*
+ * What FIXApplication keeps per FIX session. With a threaded connector every session's messages
+ * arrive on that session's own thread, so the decoder, book and suppressor, which are not
+ * thread-safe, are never shared between sessions. connection is the session's own publish chain
+ * or the SharedConnection in front of the one chain all sessions use.
+ */
+final class SessionContext {
+    final SessionID sessionId;
+    final String label;
+    final MarketDataDecoder decoder;
+    final SubscriptionEngine subscriptions;
+    // Null unless subscription.incremental=true
+    final MarketDataBook book;
+    // Null unless publish.suppress.enabled=true
+    final ChangeSuppressor suppressor;
+    final Connection connection;
+    // Null unless fix.threadModel=lanes, in which case market data is handled on the lane
+    final SessionLane lane;
+
+    volatile boolean rtConnected;
+
+    SessionContext(SessionID sessionId, MarketDataDecoder decoder, SubscriptionEngine subscriptions,
+                   MarketDataBook book, ChangeSuppressor suppressor, Connection connection, SessionLane lane) {
+        this.sessionId = sessionId;
+        this.label = sessionId.toString();
+        this.decoder = decoder;
+        this.subscriptions = subscriptions;
+        this.book = book;
+        this.suppressor = suppressor;
+        this.connection = connection;
+        this.lane = lane;
+    }
+}
@@ -0,0 +1,73 @@
+package com.di.fix;
+
+import com.di.concurrent.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Market data handling of one session on its own thread (fix.threadModel=lanes). The QuickFIX/J
+ * thread stamps the receive time and queues the work; the lane decodes and publishes it in arrival
+ * order, so an inline RT write blocks the lane rather than the sockets of every session. A full
+ * queue blocks the QuickFIX/J thread, which stops reading until the lane catches up. With
+ * execution.mode=virtual each lane is a virtual thread.
+ */
+@Slf4j
+final class SessionLane {
+    private final String label;
+    private final BlockingQueue<Runnable> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    SessionLane(String label, int capacity, ExecutionMode executionMode) {
+        this.label = label;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = executionMode.newThread("session-lane-" + label, this::run);
+        thread.start();
+    }
+
+    void submit(Runnable task) {
+        if (!running) {
+            log.warn("Session lane {} is closed, dropping a message", label);
+            return;
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted queueing a message for session lane {}", label);
+        }
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Handles what is already queued, then stops the lane
+    void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Runnable task = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Session lane {} task failed: {}", label, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -13,54 +13,37 @@ import java.io.*;
 public class GenericFixAdapter extends MessageCracker implements Application {
     private static final Logger logger = LoggerFactory.getLogger(GenericFixAdapter.class);
 
-    private final Map<String, MessageMapping> mappings;
+    // Compiled once from the mapping file, keyed by msgType
+    private final Map<String, MappingPlan> plans;
     private final com.di.kdbpublisher.KdbPublisher publisher;
 
     public GenericFixAdapter(String mappingConfig, com.di.kdbpublisher.KdbPublisher publisher) throws Exception {
-        this.mappings = loadMappings(mappingConfig);
+        this.plans = loadMappings(mappingConfig);
         this.publisher = publisher;
     }
 
-    private Map<String, MessageMapping> loadMappings(String mappingConfig) throws IOException {
+    private Map<String, MappingPlan> loadMappings(String mappingConfig) throws IOException {
         var mapper = new ObjectMapper(new YAMLFactory());
         var config = mapper.readValue(new File(mappingConfig), MappingConfig.class);
-        return config.getMessageMappings().stream().collect(Collectors.toMap(m -> m.getMsgType(), m -> m));      
+        Map<String, FixFieldParser> parsers = new HashMap<>();
+        return config.getMessageMappings().stream()
+                .map(m -> MappingPlan.compile(m, parsers))
+                .collect(Collectors.toUnmodifiableMap(MappingPlan::getMsgType, p -> p));
     }
 
     @Override
     public void fromApp(Message message, SessionID sessionId) {
         try {
             String msgType = message.getHeader().getString(MsgType.FIELD);
-            MessageMapping mapping = mappings.get(msgType);
-            if (mapping != null) {
-                var row = new LinkedHashMap<String, Object>();
-                for (ColumnMapping col : mapping.getColumns()) {
-                    String val = message.getString(col.getTag());
-                    Object parsed;
-                    if (col.getParserClass() != null && !col.getParserClass().isEmpty()) {
-                        FixFieldParser parser = (FixFieldParser) Class.forName(col.getParserClass()).getDeclaredConstructor().newInstance();
-                        parsed = parser.parse(message, col.getTag(), val);
-                    } else {
-                        parsed = castValue(val, col.getType());
-                    }
-                    row.put(col.getName(), parsed);
-                }
-                publisher.publishRow(mapping.getTable(), row);
+            MappingPlan plan = plans.get(msgType);
+            if (plan != null) {
+                publisher.publishRow(plan.getTable(), plan.map(message));
             }
         } catch (Exception e) {
             logger.error("Error processing FIX message", e);
         }
     }
 
-    private Object castValue(String val, String type) {
-        return switch (type) {
-            case "int" -> Integer.parseInt(val);
-            case "long" -> Long.parseLong(val);
-            case "double" -> Double.parseDouble(val);
-            default -> val;
-        };
-    }
-
     
     @Override public void onCreate(SessionID sessionId) {}
     @Override public void onLogon(SessionID sessionId) {}
@@ -0,0 +1,140 @@
+package com.di.fixadapter;
+
+import com.di.codec.FixCodec;
+import com.di.kdbpublisher.KdbRow;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.FieldNotFound;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+ * A MessageMapping compiled once at load time: the column of each mapped tag, a converter per column
+ * picked from its type, and one instance per parser class (parsers are shared, so they must be
+ * stateless). map() fills a KdbRow, reused per thread, in one pass over the message's fields.
+ */
+final class MappingPlan {
+    private static final int UNMAPPED = -1;
+
+    // The converter of a column; parsed columns go through the column's FixFieldParser
+    private enum Converter { INT, LONG, DOUBLE, STRING, PARSED }
+
+    private final String msgType;
+    private final String table;
+    private final String[] names;
+    private final int[] tags;
+    private final Converter[] converters;
+    private final FixFieldParser[] parsers;
+    // Indexed by tag: its first column, and per column the next one mapping the same tag
+    private final int[] columnOfTag;
+    private final int[] nextWithTag;
+    private final ThreadLocal<KdbRow> rows;
+
+    private MappingPlan(MessageMapping mapping, Map<String, FixFieldParser> parserInstances) {
+        this.msgType = mapping.getMsgType();
+        this.table = mapping.getTable();
+        int columns = mapping.getColumns().size();
+        this.names = new String[columns];
+        this.tags = new int[columns];
+        this.converters = new Converter[columns];
+        this.parsers = new FixFieldParser[columns];
+        this.nextWithTag = new int[columns];
+        KdbRow.Type[] types = new KdbRow.Type[columns];
+        int maxTag = 0;
+        for (int c = 0; c < columns; c++) {
+            ColumnMapping column = mapping.getColumns().get(c);
+            if (column.getTag() <= 0) {
+                throw new IllegalArgumentException("Column " + column.getName() + " of msgType " + msgType
+                        + " has no tag");
+            }
+            names[c] = column.getName();
+            tags[c] = column.getTag();
+            maxTag = Math.max(maxTag, tags[c]);
+            if (column.getParserClass() != null && !column.getParserClass().isEmpty()) {
+                converters[c] = Converter.PARSED;
+                parsers[c] = parserInstances.computeIfAbsent(column.getParserClass(), MappingPlan::newParser);
+            } else {
+                converters[c] = switch (column.getType() == null ? "" : column.getType()) {
+                    case "int" -> Converter.INT;
+                    case "long" -> Converter.LONG;
+                    case "double" -> Converter.DOUBLE;
+                    default -> Converter.STRING;
+                };
+            }
+            types[c] = switch (converters[c]) {
+                case INT -> KdbRow.Type.INT;
+                case LONG -> KdbRow.Type.LONG;
+                case DOUBLE -> KdbRow.Type.DOUBLE;
+                case STRING -> KdbRow.Type.SYMBOL;
+                case PARSED -> KdbRow.Type.OBJECT;
+            };
+        }
+        this.columnOfTag = new int[maxTag + 1];
+        Arrays.fill(columnOfTag, UNMAPPED);
+        for (int c = columns - 1; c >= 0; c--) {
+            nextWithTag[c] = columnOfTag[tags[c]];
+            columnOfTag[tags[c]] = c;
+        }
+        this.rows = ThreadLocal.withInitial(() -> new KdbRow(names, types));
+    }
+
+    // parserInstances is shared by the plans of one mapping file, so each parser class is created once
+    static MappingPlan compile(MessageMapping mapping, Map<String, FixFieldParser> parserInstances) {
+        return new MappingPlan(mapping, parserInstances);
+    }
+
+    // The calling thread's row, valid until its next call; FieldNotFound when a mapped tag is missing
+    KdbRow map(FieldMap message) throws FieldNotFound {
+        KdbRow row = rows.get();
+        int filled = 0;
+        Iterator<Field<?>> fields = message.iterator();
+        while (fields.hasNext()) {
+            Field<?> field = fields.next();
+            int tag = field.getTag();
+            if (tag >= columnOfTag.length) continue;
+            for (int c = columnOfTag[tag]; c != UNMAPPED; c = nextWithTag[c]) {
+                set(row, c, message, field.getObject().toString());
+                filled++;
+            }
+        }
+        if (filled < tags.length) {
+            throw new FieldNotFound(firstMissingTag(message));
+        }
+        return row;
+    }
+
+    private void set(KdbRow row, int c, FieldMap message, String value) {
+        switch (converters[c]) {
+            case INT -> row.setInt(c, Integer.parseInt(value));
+            case LONG -> row.setLong(c, Long.parseLong(value));
+            case DOUBLE -> row.setDouble(c, FixCodec.parseDouble(value));
+            case STRING -> row.setSymbol(c, value);
+            case PARSED -> row.setObject(c, parsers[c].parse(message, tags[c], value));
+        }
+    }
+
+    private int firstMissingTag(FieldMap message) {
+        for (int tag : tags) {
+            if (!message.isSetField(tag)) return tag;
+        }
+        return tags[0];
+    }
+
+    private static FixFieldParser newParser(String className) {
+        try {
+            return (FixFieldParser) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create FixFieldParser " + className + ": " + e, e);
+        }
+    }
+
+    String getMsgType() {
+        return msgType;
+    }
+
+    String getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,26 @@
+package com.di.fixadapter.parsers;
+
+import com.di.fixadapter.FixFieldParser;
+import quickfix.FieldMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Currency pairs are a small set, so results are cached rather than built per message
+public class RemoveSlashParser implements FixFieldParser {
+    private static final int MAX_CACHED = 4096;
+
+    private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public Object parse(FieldMap message, int tag, String rawValue) {
+        if (rawValue.indexOf('/') < 0) return rawValue;
+        String parsed = cache.get(rawValue);
+        if (parsed == null) {
+            parsed = rawValue.replace("/", "");
+            if (cache.size() < MAX_CACHED) {
+                cache.putIfAbsent(rawValue, parsed);
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,94 @@
+package com.di.helper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class FeedConfig {
+    private static final String CONFIG_FILE = "feed.properties";
+    private static final FeedConfig INSTANCE = new FeedConfig(loadClasspathProperties(CONFIG_FILE));
+
+    private final Properties properties;
+
+    public FeedConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static FeedConfig get() {
+        return INSTANCE;
+    }
+
+    private static Properties loadClasspathProperties(String name) {
+        Properties props = new Properties();
+        try (InputStream input = FeedConfig.class.getClassLoader().getResourceAsStream(name)) {
+            if (input == null) {
+                log.warn("Unable to find {}, using defaults", name);
+                return props;
+            }
+            props.load(input);
+        } catch (IOException e) {
+            log.error("Error loading {}: {}", name, e.getMessage());
+        }
+        return props;
+    }
+
+    // System properties win over the file so a single run can be switched without editing resources
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid int value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid long value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    // Comma-separated values in the order given
+    public List<String> getList(String key) {
+        String value = getString(key, null);
+        if (value == null) return List.of();
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    public Set<String> getSet(String key) {
+        String value = getString(key, null);
+        if (value == null) return Set.of();
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
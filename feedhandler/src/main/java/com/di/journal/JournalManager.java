@@ -0,0 +1,72 @@
+package com.di.journal;
+
+import com.di.helper.FeedConfig;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.SessionID;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Owns one journal per FIX session and the schedule that forces, rolls and prunes them
+@Slf4j
+public class JournalManager {
+    private final Path baseDirectory;
+    private final int segmentBytes;
+    private final int indexCapacity;
+    private final long retentionMillis;
+    private final Map<SessionID, MarketDataJournal> journals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public JournalManager(FeedConfig config) {
+        this.baseDirectory = Path.of(config.getString("journal.directory", "journal"));
+        this.segmentBytes = config.getInt("journal.segmentBytes", 64 * 1024 * 1024);
+        this.indexCapacity = config.getInt("journal.indexEntries", 262_144);
+        this.retentionMillis = TimeUnit.HOURS.toMillis(config.getLong("journal.retentionHours", 24));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long forceMs = config.getLong("journal.forceIntervalMs", 1000);
+        long rollMinutes = config.getLong("journal.rollIntervalMinutes", 60);
+        long pruneMinutes = config.getLong("journal.pruneIntervalMinutes", 10);
+        if (forceMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> journals.values().forEach(MarketDataJournal::force),
+                    forceMs, forceMs, TimeUnit.MILLISECONDS);
+        }
+        if (rollMinutes > 0) {
+            scheduler.scheduleAtFixedRate(() -> journals.values().forEach(MarketDataJournal::requestRoll),
+                    rollMinutes, rollMinutes, TimeUnit.MINUTES);
+        }
+        scheduler.scheduleWithFixedDelay(() -> journals.values().forEach(j -> j.prune(retentionMillis)),
+                pruneMinutes, pruneMinutes, TimeUnit.MINUTES);
+    }
+
+    public MarketDataJournal open(SessionID sessionId) throws IOException {
+        MarketDataJournal journal = journals.get(sessionId);
+        if (journal == null) {
+            journal = new MarketDataJournal(baseDirectory.resolve(directoryName(sessionId)), segmentBytes, indexCapacity);
+            journals.put(sessionId, journal);
+        }
+        return journal;
+    }
+
+    public MarketDataJournal get(SessionID sessionId) {
+        return journals.get(sessionId);
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+        journals.values().forEach(MarketDataJournal::force);
+    }
+
+    private static String directoryName(SessionID sessionId) {
+        return sessionId.toString().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
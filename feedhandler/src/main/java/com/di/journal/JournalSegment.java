@@ -0,0 +1,132 @@
+package com.di.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * One memory-mapped journal file:
+ *   header (64 bytes)  magic, version, segment sequence, creation time, index capacity,
+ *                      record count, next data offset
+ *   index              indexCapacity x int, file offset of each record
+ *   data               records of [rcvNanos:long][length:int][ISO-8859-1 bytes]
+ * The record count is written last, so a record becomes visible only once it is complete.
+ */
+class JournalSegment {
+    static final int MAGIC = 0x46495857;  // "FIXW"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_HEADER_BYTES = 8 + 4;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int CREATED_OFFSET = 16;
+    private static final int INDEX_CAPACITY_OFFSET = 24;
+    private static final int RECORD_COUNT_OFFSET = 28;
+    private static final int DATA_POSITION_OFFSET = 32;
+
+    private final Path path;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private final int indexCapacity;
+    private int recordCount;
+    private int dataPosition;
+
+    private JournalSegment(Path path, long sequence, MappedByteBuffer buffer, int indexCapacity,
+                           int recordCount, int dataPosition) {
+        this.path = path;
+        this.sequence = sequence;
+        this.buffer = buffer;
+        this.indexCapacity = indexCapacity;
+        this.recordCount = recordCount;
+        this.dataPosition = dataPosition;
+    }
+
+    static JournalSegment create(Path path, long sequence, int segmentBytes, int indexCapacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            int dataStart = HEADER_BYTES + indexCapacity * 4;
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putLong(SEQUENCE_OFFSET, sequence);
+            buffer.putLong(CREATED_OFFSET, System.currentTimeMillis());
+            buffer.putInt(INDEX_CAPACITY_OFFSET, indexCapacity);
+            buffer.putInt(RECORD_COUNT_OFFSET, 0);
+            buffer.putInt(DATA_POSITION_OFFSET, dataStart);
+            return new JournalSegment(path, sequence, buffer, indexCapacity, 0, dataStart);
+        }
+    }
+
+    static JournalSegment openReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a journal segment: " + path);
+            }
+            return new JournalSegment(path, buffer.getLong(SEQUENCE_OFFSET), buffer,
+                    buffer.getInt(INDEX_CAPACITY_OFFSET), buffer.getInt(RECORD_COUNT_OFFSET),
+                    buffer.getInt(DATA_POSITION_OFFSET));
+        }
+    }
+
+    boolean hasRoom(int messageLength) {
+        return recordCount < indexCapacity
+                && (long) dataPosition + RECORD_HEADER_BYTES + messageLength <= buffer.capacity();
+    }
+
+    // Returns the record index; the caller has checked hasRoom
+    int append(CharSequence message, long rcvNanos) {
+        int offset = dataPosition;
+        int length = message.length();
+        buffer.putLong(offset, rcvNanos);
+        buffer.putInt(offset + 8, length);
+        int position = offset + RECORD_HEADER_BYTES;
+        for (int i = 0; i < length; i++) {
+            buffer.put(position + i, (byte) message.charAt(i));
+        }
+        int index = recordCount;
+        buffer.putInt(HEADER_BYTES + index * 4, offset);
+        dataPosition = position + length;
+        buffer.putInt(DATA_POSITION_OFFSET, dataPosition);
+        recordCount = index + 1;
+        buffer.putInt(RECORD_COUNT_OFFSET, recordCount);
+        return index;
+    }
+
+    long rcvNanos(int index) {
+        return buffer.getLong(recordOffset(index));
+    }
+
+    String message(int index) {
+        int offset = recordOffset(index);
+        int length = buffer.getInt(offset + 8);
+        byte[] bytes = new byte[length];
+        buffer.get(offset + RECORD_HEADER_BYTES, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private int recordOffset(int index) {
+        return buffer.getInt(HEADER_BYTES + index * 4);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+}
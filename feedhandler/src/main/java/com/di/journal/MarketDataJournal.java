@@ -0,0 +1,387 @@
+package com.di.journal;
+
+import com.di.connection.PublishAcknowledger;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Append-only journal of raw inbound market data for one FIX session. Appends go straight into a
+ * memory-mapped segment from the session thread with no system call; the OS writes pages back and
+ * a scheduler forces them periodically. Positions are (segment sequence << 32 | record index).
+ * The highest position written to KDB RT is kept in a small mapped ack file so a restart or RT
+ * reconnect can replay everything after it.
+ *
+ * Acknowledgements are high-water marks, so the ack only moves while nothing below it is missing.
+ * Once a write is rejected, later acknowledgements are held below it. The first write after that
+ * tells the replay listener that RT takes writes again. Replay then publishes everything after the
+ * ack from its own thread. While it runs, only its own acknowledgements move the ack. A record that
+ * still fails after MAX_REPLAY_ATTEMPTS replays is logged and skipped.
+ */
+@Slf4j
+public class MarketDataJournal implements PublishAcknowledger {
+    public static final long NO_POSITION = -1L;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String ACK_FILE = "ack.dat";
+    private static final int MAX_REPLAY_ATTEMPTS = 3;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexCapacity;
+
+    // Written by the session thread only
+    private volatile JournalSegment current;
+    private volatile boolean rollRequested;
+    // Position of the newest complete record, read by replay
+    private volatile long lastAppended;
+
+    private final MappedByteBuffer ackBuffer;
+    private volatile long acknowledged;
+    // Guarded by this: the lowest position rejected since the last replay, the replay in progress,
+    // whether the listener is due on the next acknowledgement, and the record that failed the last replays
+    private long unwritten = NO_POSITION;
+    private ReplayAcknowledger replay;
+    private boolean replayDue;
+    private long failedRecord = NO_POSITION;
+    private int failedReplays;
+    private volatile Runnable replayListener;
+
+    public interface ReplayHandler {
+        // Publishes a record acknowledged to acknowledger at position; false when it had no rows to publish
+        boolean onRecord(String message, long rcvNanos, PublishAcknowledger acknowledger, long position)
+                throws Exception;
+    }
+
+    public MarketDataJournal(Path directory, int segmentBytes, int indexCapacity) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexCapacity = indexCapacity;
+        Files.createDirectories(directory);
+
+        Path ackPath = directory.resolve(ACK_FILE);
+        boolean newAckFile = !Files.exists(ackPath);
+        try (FileChannel channel = FileChannel.open(ackPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ackBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        }
+        if (newAckFile) {
+            ackBuffer.putLong(0, NO_POSITION);
+        }
+        acknowledged = ackBuffer.getLong(0);
+
+        // Always start a fresh segment; older ones stay readable for replay
+        List<Long> sequences = segmentSequences();
+        lastAppended = lastRecord(sequences);
+        long nextSequence = sequences.isEmpty() ? 1 : sequences.get(sequences.size() - 1) + 1;
+        current = JournalSegment.create(segmentPath(nextSequence), nextSequence, segmentBytes, indexCapacity);
+        log.info("Journal opened in {} at segment {}, acknowledged position {}",
+                directory, nextSequence, describe(acknowledged));
+    }
+
+    private long lastRecord(List<Long> sequences) throws IOException {
+        for (int i = sequences.size() - 1; i >= 0; i--) {
+            long sequence = sequences.get(i);
+            int count = JournalSegment.openReadOnly(segmentPath(sequence)).getRecordCount();
+            if (count > 0) {
+                return position(sequence, count - 1);
+            }
+        }
+        return NO_POSITION;
+    }
+
+    public static long position(long sequence, int index) {
+        return (sequence << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    public static long sequenceOf(long position) {
+        return position >>> 32;
+    }
+
+    public static int indexOf(long position) {
+        return (int) position;
+    }
+
+    public static String describe(long position) {
+        return position == NO_POSITION ? "none" : sequenceOf(position) + ":" + indexOf(position);
+    }
+
+    // Session thread only
+    public long append(CharSequence message, long rcvNanos) {
+        int length = message.length();
+        try {
+            if (rollRequested || !current.hasRoom(length)) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.error("Failed to roll journal segment in {}: {}", directory, e.getMessage(), e);
+            return NO_POSITION;
+        }
+        if (!current.hasRoom(length)) {
+            log.warn("Message of {} bytes does not fit in a journal segment, not journaled", length);
+            return NO_POSITION;
+        }
+        long position = position(current.getSequence(), current.append(message, rcvNanos));
+        lastAppended = position;
+        return position;
+    }
+
+    private void roll() throws IOException {
+        rollRequested = false;
+        if (current.getRecordCount() == 0) {
+            return;
+        }
+        current.force();
+        long nextSequence = current.getSequence() + 1;
+        current = JournalSegment.create(segmentPath(nextSequence), nextSequence, segmentBytes, indexCapacity);
+        log.info("Journal rolled to segment {} in {}", nextSequence, directory);
+    }
+
+    public void requestRoll() {
+        rollRequested = true;
+    }
+
+    // Run from the publishing thread, so it should only hand the replay to another thread
+    public void setReplayListener(Runnable listener) {
+        this.replayListener = listener;
+    }
+
+    @Override
+    public void acknowledge(long position) {
+        boolean notify = false;
+        synchronized (this) {
+            if (replay != null) return;
+            if (unwritten == NO_POSITION || position < unwritten) {
+                advance(position);
+            } else if (replayDue) {
+                replayDue = false;
+                notify = true;
+            }
+        }
+        Runnable listener = replayListener;
+        if (notify && listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public synchronized void reject(long position) {
+        if (replay != null && position <= replay.to) return;  // The replay in progress publishes it again
+        if (unwritten == NO_POSITION || position < unwritten) {
+            unwritten = position;
+        }
+        replayDue = true;
+    }
+
+    // Caller holds this
+    private void advance(long position) {
+        if (position <= acknowledged) return;
+        acknowledged = position;
+        ackBuffer.putLong(0, position);
+        ackBuffer.putLong(8, System.currentTimeMillis());
+    }
+
+    public long getAcknowledgedPosition() {
+        return acknowledged;
+    }
+
+    /*
+     * Publishes every record after the acknowledged position, oldest first, up to the newest one
+     * appended when it starts; newer records are published by the session as they arrive. Runs on
+     * any thread, one replay at a time. Stops at the first handler failure and returns the number of
+     * records handed over.
+     */
+    public int replay(ReplayHandler handler) throws Exception {
+        ReplayAcknowledger acknowledger;
+        long from;
+        synchronized (this) {
+            from = acknowledged;
+            long to = lastAppended;
+            unwritten = NO_POSITION;
+            replayDue = false;
+            if (to == NO_POSITION || (from != NO_POSITION && to <= from)) {
+                return 0;
+            }
+            acknowledger = new ReplayAcknowledger(to);
+            replay = acknowledger;
+        }
+        long fromSequence = from == NO_POSITION ? 0 : sequenceOf(from);
+        long toSequence = sequenceOf(acknowledger.to);
+        JournalSegment active = current;
+        long published = NO_POSITION;
+        long position = from == NO_POSITION ? 0 : from + 1;
+        int replayed = 0;
+        try {
+            for (long sequence : segmentSequences()) {
+                if (sequence < fromSequence) continue;
+                if (sequence > toSequence) break;
+                JournalSegment segment = sequence == active.getSequence()
+                        ? active : JournalSegment.openReadOnly(segmentPath(sequence));
+                int start = sequence == fromSequence && from != NO_POSITION ? indexOf(from) + 1 : 0;
+                int end = sequence == toSequence ? indexOf(acknowledger.to) + 1 : segment.getRecordCount();
+                for (int index = start; index < end; index++) {
+                    position = position(sequence, index);
+                    boolean handedOver;
+                    try {
+                        handedOver = handler.onRecord(segment.message(index), segment.rcvNanos(index),
+                                acknowledger, position);
+                    } catch (Exception e) {
+                        onReplayRejected(acknowledger, position);
+                        throw e;
+                    }
+                    if (handedOver) {
+                        published = position;
+                    }
+                    replayed++;
+                }
+            }
+        } catch (IOException e) {
+            abandonReplay(acknowledger, position);
+            throw e;
+        }
+        onReplayHandedOver(acknowledger, published);
+        return replayed;
+    }
+
+    // The journal could not be read: replay again from the same place next time
+    private synchronized void abandonReplay(ReplayAcknowledger acknowledger, long position) {
+        if (acknowledger != replay) return;
+        replay = null;
+        unwritten = position;
+        replayDue = true;
+    }
+
+    private synchronized void onReplayHandedOver(ReplayAcknowledger acknowledger, long last) {
+        acknowledger.last = last;
+        acknowledger.handedOver = true;
+        if (last == NO_POSITION || acknowledger.acknowledged >= last) {
+            completeReplay(acknowledger);
+        }
+    }
+
+    private synchronized void onReplayAcknowledged(ReplayAcknowledger acknowledger, long position) {
+        if (acknowledger != replay) return;
+        advance(position);
+        acknowledger.acknowledged = Math.max(acknowledger.acknowledged, position);
+        if (acknowledger.handedOver && position >= acknowledger.last) {
+            completeReplay(acknowledger);
+        }
+    }
+
+    // Records after the last one handed over had no rows, so the ack moves to the end of the replay
+    private void completeReplay(ReplayAcknowledger acknowledger) {
+        if (acknowledger != replay) return;
+        replay = null;
+        advance(acknowledger.to);
+        failedRecord = NO_POSITION;
+        failedReplays = 0;
+    }
+
+    private synchronized void onReplayRejected(ReplayAcknowledger acknowledger, long position) {
+        if (acknowledger != replay) return;
+        replay = null;
+        if (position == failedRecord) {
+            failedReplays++;
+        } else {
+            failedRecord = position;
+            failedReplays = 1;
+        }
+        if (failedReplays < MAX_REPLAY_ATTEMPTS) {
+            unwritten = position;
+        } else {
+            log.error("Journal record {} in {} failed {} replays, skipping it", describe(position), directory,
+                    failedReplays);
+            advance(position);
+            unwritten = position + 1;
+            failedRecord = NO_POSITION;
+            failedReplays = 0;
+        }
+        replayDue = true;
+    }
+
+    // Acknowledges the batches of one replay; those of a replay that has since failed are ignored
+    private final class ReplayAcknowledger implements PublishAcknowledger {
+        private final long to;
+        // Guarded by the journal
+        private long acknowledged = NO_POSITION;
+        private long last = NO_POSITION;
+        private boolean handedOver;
+
+        ReplayAcknowledger(long to) {
+            this.to = to;
+        }
+
+        @Override
+        public void acknowledge(long position) {
+            onReplayAcknowledged(this, position);
+        }
+
+        @Override
+        public void reject(long position) {
+            onReplayRejected(this, position);
+        }
+    }
+
+    public void force() {
+        current.force();
+    }
+
+    // Deletes closed segments that are fully acknowledged and older than the retention period
+    public int prune(long retentionMillis) {
+        long ackedPosition = acknowledged;
+        if (ackedPosition == NO_POSITION) return 0;
+        long ackedSequence = sequenceOf(ackedPosition);
+        long currentSequence = current.getSequence();
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        int pruned = 0;
+        try {
+            for (long sequence : segmentSequences()) {
+                if (sequence >= currentSequence || sequence > ackedSequence) break;
+                Path path = segmentPath(sequence);
+                if (sequence == ackedSequence
+                        && indexOf(ackedPosition) + 1 < JournalSegment.openReadOnly(path).getRecordCount()) {
+                    break;
+                }
+                if (Files.getLastModifiedTime(path).toMillis() < cutoff) {
+                    Files.deleteIfExists(path);
+                    pruned++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Journal prune in {} failed: {}", directory, e.getMessage());
+        }
+        if (pruned > 0) {
+            log.info("Pruned {} journal segments from {}", pruned, directory);
+        }
+        return pruned;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> segmentSequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> sequences.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,118 @@
+package com.di.kdbpublisher;
+
+import com.di.codec.FixCodec;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+
+/*
+ * kdb+ IPC publisher: every insert is one async .u.upd[table; columns] message. Connects on the
+ * first insert and again on the next one after a failed write. compressMinBytes (0 = never) is the
+ * size from which messages are sent compressed. Inserts are synchronized, so one connection can be
+ * shared by several publishing threads.
+ */
+@Data
+public class KdbConnection implements Closeable {
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private String host;
+    private int port;
+    private String user;
+    private String password;
+    private boolean ssl;
+    private int compressMinBytes;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final KdbIpcEncoder encoder = new KdbIpcEncoder(INITIAL_BUFFER_BYTES);
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private KdbIpcClient client;
+
+    // A timestamp column, nanoseconds since 2000.01.01 (FixCodec.toKdbTimestamp)
+    public record Timestamps(long[] values) {
+    }
+
+    public KdbConnection(String host, int port, String user, String password, boolean ssl) {
+        this(host, port, user, password, ssl, 0);
+    }
+
+    public KdbConnection(String host, int port, String user, String password, boolean ssl, int compressMinBytes) {
+        this.host = host;
+        this.port = port;
+        this.user = user;
+        this.password = password;
+        this.ssl = ssl;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    public synchronized void open() throws IOException {
+        if (client != null && client.isConnected()) return;
+        KdbIpcClient connecting = new KdbIpcClient(host, port, user, password, ssl, compressMinBytes);
+        connecting.connect();
+        client = connecting;
+    }
+
+    // One row; each value goes as a one-element column of its type, null as the empty symbol
+    public void insert(String table, Map<String, Object> row) throws IOException {
+        Object[] columns = new Object[row.size()];
+        int i = 0;
+        for (Object value : row.values()) {
+            columns[i++] = column(value);
+        }
+        insert(table, columns, 1);
+    }
+
+    // The first rows values of each column, see KdbIpcEncoder for the column types
+    public synchronized void insert(String table, Object[] columns, int rows) throws IOException {
+        open();
+        ByteBuffer message = encoder.encodeUpdate(table, columns, rows);
+        try {
+            client.send(message);
+        } catch (IOException e) {
+            client.close();
+            throw new IOException("Failed to publish " + rows + " rows to " + table + " on " + host + ":" + port
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
+    private static Object column(Object value) {
+        return switch (value) {
+            case null -> new String[]{null};
+            case String s -> new String[]{s};
+            case Integer v -> new int[]{v};
+            case Long v -> new long[]{v};
+            case Double v -> new double[]{v};
+            case Float v -> new float[]{v};
+            case Short v -> new short[]{v};
+            case Byte v -> new byte[]{v};
+            case Boolean v -> new boolean[]{v};
+            case Character v -> new char[]{v};
+            case Instant v -> new Timestamps(new long[]{
+                    FixCodec.toKdbTimestamp(v.getEpochSecond() * FixCodec.NANOS_PER_SECOND + v.getNano())});
+            default -> new String[]{value.toString()};
+        };
+    }
+}
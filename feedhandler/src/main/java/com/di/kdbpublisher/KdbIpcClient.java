@@ -0,0 +1,133 @@
+package com.di.kdbpublisher;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * One kdb+ IPC connection: the handshake, then async messages only, so nothing is ever read back.
+ * Plain connections write the encoder's direct buffer straight to a SocketChannel; TLS goes through
+ * an SSLSocket, copying the buffer out in chunks. Messages of at least compressMinBytes are sent
+ * compressed when the server supports it and that makes them less than half the size.
+ */
+@Slf4j
+final class KdbIpcClient implements Closeable {
+    // Highest capability we ask for; 1 and above support compression
+    private static final byte CAPABILITY = 3;
+
+    private final String host;
+    private final int port;
+    private final String credentials;
+    private final boolean ssl;
+    private final int compressMinBytes;
+    private final KdbIpcCompressor compressor = new KdbIpcCompressor();
+
+    private SocketChannel channel;
+    private SSLSocket sslSocket;
+    private OutputStream sslOut;
+    private byte[] sslChunk;
+    private int capability;
+
+    KdbIpcClient(String host, int port, String user, String password, boolean ssl, int compressMinBytes) {
+        this.host = host;
+        this.port = port;
+        this.credentials = (user == null ? "" : user) + (password == null || password.isEmpty() ? "" : ":" + password);
+        this.ssl = ssl;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    void connect() throws IOException {
+        byte[] login = credentials.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer handshake = ByteBuffer.allocate(login.length + 2).put(login).put(CAPABILITY).put((byte) 0).flip();
+        int response;
+        try {
+            if (ssl) {
+                sslSocket = (SSLSocket) SSLSocketFactory.getDefault().createSocket(host, port);
+                sslSocket.setTcpNoDelay(true);
+                sslSocket.startHandshake();
+                sslOut = sslSocket.getOutputStream();
+                sslChunk = new byte[64 * 1024];
+                sslOut.write(handshake.array(), 0, handshake.limit());
+                sslOut.flush();
+                InputStream in = sslSocket.getInputStream();
+                response = in.read();
+            } else {
+                channel = SocketChannel.open(new InetSocketAddress(host, port));
+                channel.socket().setTcpNoDelay(true);
+                write(handshake);
+                ByteBuffer reply = ByteBuffer.allocate(1);
+                response = channel.read(reply) == 1 ? reply.get(0) & 0xff : -1;
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        if (response < 0) {
+            close();
+            throw new IOException("kdb+ at " + host + ":" + port + " closed the connection during the handshake"
+                    + " (wrong credentials?)");
+        }
+        capability = response;
+        log.info("Connected to kdb+ at {}:{} (capability {}, tls {})", host, port, capability, ssl);
+    }
+
+    boolean isConnected() {
+        return channel != null || sslSocket != null;
+    }
+
+    // Sends the message from position 0 to its limit
+    void send(ByteBuffer message) throws IOException {
+        if (!isConnected()) {
+            throw new IOException("Not connected to kdb+ at " + host + ":" + port);
+        }
+        if (compressMinBytes > 0 && capability >= 1 && message.limit() >= compressMinBytes) {
+            ByteBuffer compressed = compressor.compress(message);
+            if (compressed != null) {
+                message = compressed;
+            }
+        }
+        write(message);
+    }
+
+    private void write(ByteBuffer message) throws IOException {
+        if (channel != null) {
+            while (message.hasRemaining()) {
+                channel.write(message);
+            }
+            return;
+        }
+        while (message.hasRemaining()) {
+            int length = Math.min(sslChunk.length, message.remaining());
+            message.get(sslChunk, 0, length);
+            sslOut.write(sslChunk, 0, length);
+        }
+        sslOut.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (channel != null) channel.close();
+            if (sslSocket != null) sslSocket.close();
+        } catch (IOException e) {
+            log.debug("Closing kdb+ connection to {}:{}: {}", host, port, e.getMessage());
+        } finally {
+            channel = null;
+            sslSocket = null;
+            sslOut = null;
+        }
+    }
+
+    int getCapability() {
+        return capability;
+    }
+}
@@ -0,0 +1,84 @@
+package com.di.kdbpublisher;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/*
+ * kdb+ IPC compression, the inverse of the decompressor in kx's c.java. After the header the
+ * message is a series of groups: a flag byte, then eight items, each a literal byte (flag bit
+ * clear) or a back reference (bit set): the index of a 256-slot table of the last position where
+ * each xor of two adjacent bytes was seen, and how many bytes beyond the first two match. Compressed
+ * messages carry the uncompressed length after the header.
+ */
+final class KdbIpcCompressor {
+    private final int[] positions = new int[256];
+    private ByteBuffer out;
+
+    // The compressed message, or null when it would not come out below half the original size
+    ByteBuffer compress(ByteBuffer message) {
+        int total = message.limit();
+        int max = total / 2;
+        if (out == null || out.capacity() < max) {
+            out = ByteBuffer.allocateDirect(Math.max(max, 1024)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        out.clear();
+        Arrays.fill(positions, 0);
+        for (int i = 0; i < KdbIpcEncoder.HEADER_BYTES; i++) {
+            out.put(i, message.get(i));
+        }
+        out.put(2, (byte) 1);
+        out.putInt(KdbIpcEncoder.HEADER_BYTES, total);
+
+        int d = KdbIpcEncoder.HEADER_BYTES + 4;
+        int s = KdbIpcEncoder.HEADER_BYTES;
+        int p = s;
+        int flagAt = 0;
+        int flags = 0;
+        int bit = 0;
+        while (s < total) {
+            if (d > max - 3) return null;
+            if (bit == 0) {
+                flagAt = d++;
+                flags = 0;
+                bit = 1;
+            }
+            int hash = 0;
+            int extra = -1;
+            if (s + 1 < total) {
+                byte first = message.get(s);
+                byte second = message.get(s + 1);
+                hash = (first ^ second) & 0xff;
+                int r = positions[hash];
+                if (r != 0 && message.get(r) == first && message.get(r + 1) == second) {
+                    int limit = Math.min(255, total - s - 2);
+                    extra = 0;
+                    while (extra < limit && message.get(r + 2 + extra) == message.get(s + 2 + extra)) {
+                        extra++;
+                    }
+                }
+            }
+            if (extra >= 0) {
+                flags |= bit;
+                out.put(d++, (byte) hash);
+                out.put(d++, (byte) extra);
+                s += 2;
+            } else {
+                out.put(d++, message.get(s++));
+            }
+            // Same table updates as the decompressor: not inside the extended part of a match
+            while (p < s - 1) {
+                positions[(message.get(p) ^ message.get(p + 1)) & 0xff] = p;
+                p++;
+            }
+            if (extra >= 0) {
+                s += extra;
+                p = s;
+            }
+            out.put(flagAt, (byte) flags);
+            bit = (bit << 1) & 0xff;
+        }
+        out.putInt(4, d);
+        return out.limit(d).position(0);
+    }
+}
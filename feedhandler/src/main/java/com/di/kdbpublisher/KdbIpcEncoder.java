@@ -0,0 +1,161 @@
+package com.di.kdbpublisher;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Serializes async .u.upd[table; columns] messages in the kdb+ IPC format into one reusable
+ * little-endian direct buffer, which grows by doubling and is never shrunk. Columns go as typed
+ * vectors of their first rows values: boolean, byte, short, int, long, float, double and char
+ * arrays, String[] as symbols (null as the empty symbol) and KdbConnection.Timestamps.
+ */
+final class KdbIpcEncoder {
+    static final int HEADER_BYTES = 8;
+    private static final byte ASYNC = 0;
+    private static final byte[] UPD = ".u.upd".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte MIXED_LIST = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 4;
+    private static final byte SHORT = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte REAL = 8;
+    private static final byte FLOAT = 9;
+    private static final byte CHAR = 10;
+    private static final byte SYMBOL = 11;
+    private static final byte TIMESTAMP = 12;
+
+    private ByteBuffer buffer;
+
+    KdbIpcEncoder(int initialCapacity) {
+        buffer = ByteBuffer.allocateDirect(Math.max(64, initialCapacity)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // The whole message, header included, from position 0 to the limit
+    ByteBuffer encodeUpdate(String table, Object[] columns, int rows) {
+        buffer.clear();
+        ensure(HEADER_BYTES + 6 + 6 + UPD.length + 1);
+        buffer.put((byte) 1).put(ASYNC).put((byte) 0).put((byte) 0).putInt(0);
+        listHeader(MIXED_LIST, 3);
+        listHeader(CHAR, UPD.length);
+        buffer.put(UPD);
+        buffer.put((byte) -SYMBOL);
+        putSymbol(table);
+        ensure(6);
+        listHeader(MIXED_LIST, columns.length);
+        for (Object column : columns) {
+            putColumn(column, rows);
+        }
+        buffer.putInt(4, buffer.position());
+        return buffer.flip();
+    }
+
+    private void putColumn(Object column, int rows) {
+        ensure(6);
+        switch (column) {
+            case long[] values -> {
+                listHeader(LONG, rows);
+                ensure(rows * 8);
+                buffer.asLongBuffer().put(values, 0, rows);
+                skip(rows * 8);
+            }
+            case double[] values -> {
+                listHeader(FLOAT, rows);
+                ensure(rows * 8);
+                buffer.asDoubleBuffer().put(values, 0, rows);
+                skip(rows * 8);
+            }
+            case int[] values -> {
+                listHeader(INT, rows);
+                ensure(rows * 4);
+                buffer.asIntBuffer().put(values, 0, rows);
+                skip(rows * 4);
+            }
+            case String[] values -> {
+                listHeader(SYMBOL, rows);
+                for (int i = 0; i < rows; i++) {
+                    putSymbol(values[i]);
+                }
+            }
+            case KdbConnection.Timestamps timestamps -> {
+                listHeader(TIMESTAMP, rows);
+                ensure(rows * 8);
+                buffer.asLongBuffer().put(timestamps.values(), 0, rows);
+                skip(rows * 8);
+            }
+            case boolean[] values -> {
+                listHeader(BOOLEAN, rows);
+                ensure(rows);
+                for (int i = 0; i < rows; i++) {
+                    buffer.put(values[i] ? (byte) 1 : (byte) 0);
+                }
+            }
+            case byte[] values -> {
+                listHeader(BYTE, rows);
+                ensure(rows);
+                buffer.put(values, 0, rows);
+            }
+            case short[] values -> {
+                listHeader(SHORT, rows);
+                ensure(rows * 2);
+                buffer.asShortBuffer().put(values, 0, rows);
+                skip(rows * 2);
+            }
+            case float[] values -> {
+                listHeader(REAL, rows);
+                ensure(rows * 4);
+                buffer.asFloatBuffer().put(values, 0, rows);
+                skip(rows * 4);
+            }
+            case char[] values -> {
+                listHeader(CHAR, rows);
+                ensure(rows);
+                for (int i = 0; i < rows; i++) {
+                    buffer.put((byte) values[i]);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported kdb+ column " + column.getClass().getName());
+        }
+    }
+
+    private void listHeader(byte type, int length) {
+        buffer.put(type).put((byte) 0).putInt(length);
+    }
+
+    // ASCII is written a char at a time, anything else falls back to the UTF-8 encoder
+    private void putSymbol(String value) {
+        if (value == null) {
+            ensure(1);
+            buffer.put((byte) 0);
+            return;
+        }
+        int length = value.length();
+        ensure(length * 3 + 1);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                buffer.put(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            buffer.put((byte) c);
+        }
+        buffer.put((byte) 0);
+    }
+
+    private void skip(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        grown.put(buffer.flip());
+        buffer = grown;
+    }
+}
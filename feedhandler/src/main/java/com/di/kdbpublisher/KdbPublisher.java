@@ -0,0 +1,328 @@
+package com.di.kdbpublisher;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.helper.FeedConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Collects rows per table into typed columns (TableAccumulator) and writes a table's rows as one
+ * KdbConnection.insert once batchSize rows are waiting or the oldest has waited lingerMillis.
+ * Synchronous: the publishing thread writes full batches itself, a flusher thread only writes
+ * lingering ones. Async: full batches go to a queue of queueCapacity batches (publishers block
+ * while it is full) that the flusher thread writes. start() starts the flusher and registers the
+ * shutdown hook; close(), also run by that hook, writes everything still queued or collected. A batch
+ * the flusher fails to write is dropped and counted, and the next publish call throws for it.
+ */
+public class KdbPublisher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(KdbPublisher.class);
+
+    private final KdbConnection connection;
+    private final int batchSize;
+    private final boolean async;
+    private final long lingerNanos;
+    private final ExecutionMode executionMode;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Map<String, TableAccumulator> tables = new HashMap<>();
+    private final ArrayBlockingQueue<TableAccumulator> queue;
+    // Cleared accumulators the flusher hands back for reuse, one per table
+    private final ConcurrentHashMap<String, TableAccumulator> spares = new ConcurrentHashMap<>();
+    private volatile Thread flusher;
+    private volatile Thread shutdownHook;
+    private volatile boolean running;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // The first flusher write failure not yet reported to a publisher
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicLong droppedRows = new AtomicLong();
+
+    public KdbPublisher(KdbConnection connection, int batchSize, boolean async) {
+        this(connection, batchSize, async,
+                FeedConfig.get().getLong("kdb.publisher.lingerMs", 50),
+                FeedConfig.get().getInt("kdb.publisher.queueCapacity", 64),
+                ExecutionMode.fromConfig(FeedConfig.get()));
+    }
+
+    public KdbPublisher(KdbConnection connection, int batchSize, boolean async, long lingerMillis,
+                        int queueCapacity, ExecutionMode executionMode) {
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+        this.async = async;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, lingerMillis));
+        this.queue = async ? new ArrayBlockingQueue<>(Math.max(1, queueCapacity)) : null;
+        this.executionMode = executionMode;
+    }
+
+    public void start() {
+        if (closed.get()) {
+            throw new IllegalStateException("KdbPublisher is closed");
+        }
+        if (!started.compareAndSet(false, true)) return;
+        running = true;
+        flusher = executionMode.newThread("kdb-flusher", this::runFlusher);
+        flusher.start();
+        shutdownHook = new Thread(this::close, "kdb-publisher-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void publishRow(String table, Map<String, Object> row) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Publishing row to {}: {}", table, row);
+        }
+        lock.lock();
+        try {
+            checkFailure();
+            add(table, row);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The row is copied, so it can be refilled once this returns
+    public void publishRow(String table, KdbRow row) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Publishing row to {}: {}", table, row);
+        }
+        lock.lock();
+        try {
+            checkFailure();
+            add(table, row);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void publishBatch(String table, List<Map<String, Object>> rows) throws IOException {
+        logger.debug("Publishing batch of {} rows to {}", rows.size(), table);
+        lock.lock();
+        try {
+            checkFailure();
+            for (Map<String, Object> row : rows) {
+                add(table, row);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(String table, Map<String, Object> row) throws IOException {
+        if (!running) {
+            throw new IOException(closed.get() ? "KdbPublisher is closed" : "KdbPublisher is not started");
+        }
+        TableAccumulator accumulator = tables.get(table);
+        if (accumulator == null || !accumulator.accepts(row)) {
+            accumulator = replace(table, accumulator);
+            if (accumulator == null || !accumulator.accepts(row)) {
+                accumulator = new TableAccumulator(table, row, batchSize);
+            }
+            tables.put(table, accumulator);
+        }
+        accumulator.add(row);
+        if (accumulator.getRows() >= batchSize) {
+            flush(accumulator);
+        }
+    }
+
+    private void add(String table, KdbRow row) throws IOException {
+        if (!running) {
+            throw new IOException(closed.get() ? "KdbPublisher is closed" : "KdbPublisher is not started");
+        }
+        TableAccumulator accumulator = tables.get(table);
+        if (accumulator == null || !accumulator.accepts(row)) {
+            accumulator = replace(table, accumulator);
+            if (accumulator == null || !accumulator.accepts(row)) {
+                accumulator = new TableAccumulator(table, row, batchSize);
+            }
+            tables.put(table, accumulator);
+        }
+        accumulator.add(row);
+        if (accumulator.getRows() >= batchSize) {
+            flush(accumulator);
+        }
+    }
+
+    // Reports a batch the flusher dropped since the last call; the rows given to this one are not taken
+    private void checkFailure() throws IOException {
+        IOException dropped = failure.getAndSet(null);
+        if (dropped != null) {
+            throw new IOException("Not published, an earlier batch was dropped: " + dropped.getMessage(), dropped);
+        }
+    }
+
+    // Returns the table's spare accumulator, if any, in place of current, whose columns differ from
+    // the next row's: what current collected goes out on its own first
+    private TableAccumulator replace(String table, TableAccumulator current) throws IOException {
+        if (current != null) {
+            flush(current);
+            tables.remove(table);
+        }
+        return spares.remove(table);
+    }
+
+    // Under the lock: writes the accumulator now (sync) or queues it and starts a new one (async)
+    private void flush(TableAccumulator accumulator) throws IOException {
+        if (accumulator.getRows() == 0) return;
+        if (!async) {
+            try {
+                write(accumulator);
+            } finally {
+                accumulator.clear();
+            }
+            return;
+        }
+        tables.remove(accumulator.getTable());
+        try {
+            queue.put(accumulator);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted queueing " + accumulator.getRows() + " rows for "
+                    + accumulator.getTable(), e);
+        }
+    }
+
+    private void write(TableAccumulator accumulator) throws IOException {
+        connection.insert(accumulator.getTable(), accumulator.columns(), accumulator.getRows());
+    }
+
+    private boolean tryLock() {
+        try {
+            return lock.tryLock(10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lock.lock();
+            return true;
+        }
+    }
+
+    private void runFlusher() {
+        long pollNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), lingerNanos / 2);
+        while (running) {
+            try {
+                TableAccumulator next = async ? queue.poll(pollNanos, TimeUnit.NANOSECONDS) : null;
+                if (next != null) {
+                    writeQueued(next);
+                } else if (!async) {
+                    TimeUnit.NANOSECONDS.sleep(pollNanos);
+                }
+                flushLingering(System.nanoTime());
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void flushLingering(long now) {
+        List<TableAccumulator> batches = new ArrayList<>();
+        // Busy publishers flush by size anyway, and one blocked on the full queue waits for this thread
+        if (!lock.tryLock()) return;
+        try {
+            for (TableAccumulator accumulator : new ArrayList<>(tables.values())) {
+                if (accumulator.getRows() > 0 && now - accumulator.getFirstRowNanos() >= lingerNanos) {
+                    if (async) {
+                        // Behind whatever is already queued for the table
+                        queue.drainTo(batches);
+                        tables.remove(accumulator.getTable());
+                        batches.add(accumulator);
+                    } else {
+                        int rows = accumulator.getRows();
+                        try {
+                            flush(accumulator);
+                        } catch (IOException e) {
+                            dropped(accumulator.getTable(), rows, e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (TableAccumulator batch : batches) {
+            writeQueued(batch);
+        }
+    }
+
+    // Flusher thread: writes a queued batch, then keeps it for reuse by its table
+    private void writeQueued(TableAccumulator accumulator) {
+        try {
+            write(accumulator);
+        } catch (IOException e) {
+            dropped(accumulator.getTable(), accumulator.getRows(), e);
+        } finally {
+            accumulator.clear();
+            spares.putIfAbsent(accumulator.getTable(), accumulator);
+        }
+    }
+
+    private void dropped(String table, int rows, IOException e) {
+        failure.compareAndSet(null, new IOException(rows + " rows for " + table + " dropped: " + e.getMessage(), e));
+        droppedRows.addAndGet(rows);
+        logger.error("Failed to publish {} rows to {}, dropped: {}", rows, table, e.getMessage(), e);
+    }
+
+    // Rows the flusher failed to write, including those written by close()
+    public long getDroppedRows() {
+        return droppedRows.get();
+    }
+
+    // Writes everything queued and collected; the connection stays open
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        running = false;
+        if (flusher != null) {
+            try {
+                // Not interrupted: that would close the connection's channel under a write
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<TableAccumulator> remaining = new ArrayList<>();
+        // A publisher blocked on the full queue holds the lock until there is room
+        while (!tryLock()) {
+            if (async) {
+                queue.drainTo(remaining);
+            }
+        }
+        try {
+            if (async) {
+                queue.drainTo(remaining);
+            }
+            remaining.addAll(tables.values());
+            tables.clear();
+        } finally {
+            lock.unlock();
+        }
+        int rows = 0;
+        for (TableAccumulator accumulator : remaining) {
+            rows += accumulator.getRows();
+            if (accumulator.getRows() > 0) {
+                writeQueued(accumulator);
+            }
+        }
+        logger.info("KdbPublisher closed, flushed {} rows", rows);
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.di.kdbpublisher;
+
+/*
+ * A reusable row of typed cells for KdbPublisher.publishRow, so a row reaches the table's columns
+ * without boxing or a Map per row. Names and types are fixed at construction; the publisher copies
+ * the cells, so the row can be refilled as soon as publishRow returns. OBJECT cells are converted
+ * like Map values (see TableAccumulator), the type of the first one fixing the column's. Not
+ * thread-safe: one row per publishing thread.
+ */
+public final class KdbRow {
+    public enum Type { INT, LONG, DOUBLE, SYMBOL, OBJECT }
+
+    private final String[] names;
+    private final Type[] types;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Object[] objects;
+
+    // names is kept as given: rows sharing the array share the publisher's column layout
+    public KdbRow(String[] names, Type[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException(names.length + " column names for " + types.length + " types");
+        }
+        this.names = names;
+        this.types = types.clone();
+        this.longs = new long[names.length];
+        this.doubles = new double[names.length];
+        this.objects = new Object[names.length];
+    }
+
+    public void setInt(int column, int value) {
+        longs[column] = value;
+    }
+
+    public void setLong(int column, long value) {
+        longs[column] = value;
+    }
+
+    public void setDouble(int column, double value) {
+        doubles[column] = value;
+    }
+
+    public void setSymbol(int column, String value) {
+        objects[column] = value;
+    }
+
+    public void setObject(int column, Object value) {
+        objects[column] = value;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    String[] names() {
+        return names;
+    }
+
+    Type type(int column) {
+        return types[column];
+    }
+
+    long getLong(int column) {
+        return longs[column];
+    }
+
+    double getDouble(int column) {
+        return doubles[column];
+    }
+
+    Object getObject(int column) {
+        return objects[column];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int c = 0; c < names.length; c++) {
+            if (c > 0) sb.append(", ");
+            sb.append(names[c]).append('=').append(switch (types[c]) {
+                case INT, LONG -> String.valueOf(longs[c]);
+                case DOUBLE -> String.valueOf(doubles[c]);
+                case SYMBOL, OBJECT -> String.valueOf(objects[c]);
+            });
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,213 @@
+package com.di.kdbpublisher;
+
+import com.di.codec.FixCodec;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Rows of one table collected column by column for KdbConnection.insert. The first row fixes the
+ * column names and types: Integer, Long, Double, Float, Short, Byte, Boolean and Character values go
+ * into primitive arrays, Instants into a timestamp column, anything else (or null) into a symbol
+ * column. Later values are converted to the column's type, and nulls or values that do not convert
+ * become the kdb+ null of it. Rows given as a KdbRow keep its types instead and are copied cell by
+ * cell. Not thread-safe, KdbPublisher calls it under its lock.
+ */
+final class TableAccumulator {
+    private enum Kind {
+        INT, LONG, DOUBLE, FLOAT, SHORT, BYTE, BOOLEAN, CHAR, TIMESTAMP, SYMBOL;
+
+        static Kind of(Object value) {
+            return switch (value) {
+                case Integer ignored -> INT;
+                case Long ignored -> LONG;
+                case Double ignored -> DOUBLE;
+                case Float ignored -> FLOAT;
+                case Short ignored -> SHORT;
+                case Byte ignored -> BYTE;
+                case Boolean ignored -> BOOLEAN;
+                case Character ignored -> CHAR;
+                case Instant ignored -> TIMESTAMP;
+                case null, default -> SYMBOL;
+            };
+        }
+    }
+
+    private final String table;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final Object[] data;
+    // Set when the first row was a KdbRow: its cell types
+    private final KdbRow.Type[] rowTypes;
+    private int capacity;
+    private int rows;
+    private long firstRowNanos;
+
+    TableAccumulator(String table, Map<String, Object> firstRow, int capacity) {
+        this.table = table;
+        this.names = new String[firstRow.size()];
+        this.kinds = new Kind[names.length];
+        this.data = new Object[names.length];
+        this.capacity = Math.max(1, capacity);
+        int c = 0;
+        for (Map.Entry<String, Object> entry : firstRow.entrySet()) {
+            names[c] = entry.getKey();
+            kinds[c] = Kind.of(entry.getValue());
+            data[c] = allocate(kinds[c], this.capacity);
+            c++;
+        }
+        this.rowTypes = null;
+    }
+
+    TableAccumulator(String table, KdbRow firstRow, int capacity) {
+        this.table = table;
+        this.names = firstRow.names();
+        this.kinds = new Kind[names.length];
+        this.data = new Object[names.length];
+        this.rowTypes = new KdbRow.Type[names.length];
+        this.capacity = Math.max(1, capacity);
+        for (int c = 0; c < names.length; c++) {
+            rowTypes[c] = firstRow.type(c);
+            kinds[c] = switch (rowTypes[c]) {
+                case INT -> Kind.INT;
+                case LONG -> Kind.LONG;
+                case DOUBLE -> Kind.DOUBLE;
+                case SYMBOL -> Kind.SYMBOL;
+                case OBJECT -> Kind.of(firstRow.getObject(c));
+            };
+            data[c] = allocate(kinds[c], this.capacity);
+        }
+    }
+
+    // Same columns in the same order
+    boolean accepts(Map<String, Object> row) {
+        if (rowTypes != null || row.size() != names.length) return false;
+        int c = 0;
+        for (String name : row.keySet()) {
+            if (!names[c++].equals(name)) return false;
+        }
+        return true;
+    }
+
+    // Rows sharing the first one's names array, so the same layout
+    boolean accepts(KdbRow row) {
+        return row.names() == names;
+    }
+
+    void add(Map<String, Object> row) {
+        start();
+        int c = 0;
+        for (Object value : row.values()) {
+            set(c, value);
+            c++;
+        }
+        rows++;
+    }
+
+    void add(KdbRow row) {
+        start();
+        for (int c = 0; c < data.length; c++) {
+            Object column = data[c];
+            switch (rowTypes[c]) {
+                case INT -> ((int[]) column)[rows] = (int) row.getLong(c);
+                case LONG -> ((long[]) column)[rows] = row.getLong(c);
+                case DOUBLE -> ((double[]) column)[rows] = row.getDouble(c);
+                case SYMBOL -> ((String[]) column)[rows] = (String) row.getObject(c);
+                case OBJECT -> set(c, row.getObject(c));
+            }
+        }
+        rows++;
+    }
+
+    // Only the first row of a batch is timed, for KdbPublisher's linger
+    private void start() {
+        if (rows == capacity) {
+            grow();
+        }
+        if (rows == 0) {
+            firstRowNanos = System.nanoTime();
+        }
+    }
+
+    private void set(int c, Object value) {
+        Object column = data[c];
+        switch (kinds[c]) {
+            case INT -> ((int[]) column)[rows] = value instanceof Number n ? n.intValue() : Integer.MIN_VALUE;
+            case LONG -> ((long[]) column)[rows] = value instanceof Number n ? n.longValue() : Long.MIN_VALUE;
+            case DOUBLE -> ((double[]) column)[rows] = value instanceof Number n ? n.doubleValue() : Double.NaN;
+            case FLOAT -> ((float[]) column)[rows] = value instanceof Number n ? n.floatValue() : Float.NaN;
+            case SHORT -> ((short[]) column)[rows] = value instanceof Number n ? n.shortValue() : Short.MIN_VALUE;
+            case BYTE -> ((byte[]) column)[rows] = value instanceof Number n ? n.byteValue() : 0;
+            case BOOLEAN -> ((boolean[]) column)[rows] = value instanceof Boolean b && b;
+            case CHAR -> ((char[]) column)[rows] = value instanceof Character ch ? ch : ' ';
+            case TIMESTAMP -> ((long[]) column)[rows] = value instanceof Instant t
+                    ? FixCodec.toKdbTimestamp(t.getEpochSecond() * FixCodec.NANOS_PER_SECOND + t.getNano())
+                    : Long.MIN_VALUE;
+            case SYMBOL -> ((String[]) column)[rows] = value == null ? null : value.toString();
+        }
+    }
+
+    // The columns as KdbConnection.insert takes them; only the first getRows() values are set
+    Object[] columns() {
+        Object[] columns = new Object[data.length];
+        for (int c = 0; c < data.length; c++) {
+            columns[c] = kinds[c] == Kind.TIMESTAMP ? new KdbConnection.Timestamps((long[]) data[c]) : data[c];
+        }
+        return columns;
+    }
+
+    // Symbol cells are cleared so the strings of a flushed batch can be collected
+    void clear() {
+        for (int c = 0; c < data.length; c++) {
+            if (kinds[c] == Kind.SYMBOL) {
+                Arrays.fill((String[]) data[c], 0, rows, null);
+            }
+        }
+        rows = 0;
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    long getFirstRowNanos() {
+        return firstRowNanos;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        for (int c = 0; c < data.length; c++) {
+            Object column = data[c];
+            data[c] = switch (kinds[c]) {
+                case INT -> Arrays.copyOf((int[]) column, capacity);
+                case LONG, TIMESTAMP -> Arrays.copyOf((long[]) column, capacity);
+                case DOUBLE -> Arrays.copyOf((double[]) column, capacity);
+                case FLOAT -> Arrays.copyOf((float[]) column, capacity);
+                case SHORT -> Arrays.copyOf((short[]) column, capacity);
+                case BYTE -> Arrays.copyOf((byte[]) column, capacity);
+                case BOOLEAN -> Arrays.copyOf((boolean[]) column, capacity);
+                case CHAR -> Arrays.copyOf((char[]) column, capacity);
+                case SYMBOL -> Arrays.copyOf((String[]) column, capacity);
+            };
+        }
+    }
+
+    private static Object allocate(Kind kind, int capacity) {
+        return switch (kind) {
+            case INT -> new int[capacity];
+            case LONG, TIMESTAMP -> new long[capacity];
+            case DOUBLE -> new double[capacity];
+            case FLOAT -> new float[capacity];
+            case SHORT -> new short[capacity];
+            case BYTE -> new byte[capacity];
+            case BOOLEAN -> new boolean[capacity];
+            case CHAR -> new char[capacity];
+            case SYMBOL -> new String[capacity];
+        };
+    }
+}
@@ -0,0 +1,148 @@
+package com.di.latency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Fixed-memory log-linear latency histogram in nanoseconds, in the style of HdrHistogram.
+ * Values below 64ns get a bucket each; above that, every power of two is split into 32
+ * sub-buckets, so a bucket is within ~3% of the value. Values are capped at 2^36ns (~69s).
+ * Recording is a single atomic add, so any number of threads can record without locks.
+ *
+ * Interval views come from snapshot(): the counts since the previous snapshot are returned and
+ * the cumulative counts are left untouched.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    // Cumulative counts at the previous snapshot, only touched by the snapshotting thread
+    private final long[] lastSnapshot = new long[BUCKETS];
+
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    public void record(long nanos, int count) {
+        if (count > 0) {
+            counts.getAndAdd(bucket(nanos), count);
+        }
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < LINEAR_BUCKETS) return nanos <= 0 ? 0 : (int) nanos;
+        long value = Math.min(nanos, MAX_VALUE);
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Smallest value that lands in the bucket
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) return bucket;
+        int offset = bucket - LINEAR_BUCKETS;
+        int exponent = offset / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        return (long) (SUB_BUCKETS + offset % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? MAX_VALUE : lowerBound(bucket + 1) - 1;
+    }
+
+    public Snapshot cumulative() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    // Counts recorded since the previous call; callers serialize snapshots (one stats thread)
+    public synchronized Snapshot snapshot() {
+        long[] interval = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            long current = counts.get(i);
+            interval[i] = current - lastSnapshot[i];
+            lastSnapshot[i] = current;
+        }
+        return new Snapshot(interval);
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKETS]);
+        }
+
+        public long getCount() {
+            return total;
+        }
+
+        public Snapshot add(Snapshot other) {
+            long[] sum = counts.clone();
+            for (int i = 0; i < BUCKETS; i++) {
+                sum[i] += other.counts[i];
+            }
+            return new Snapshot(sum);
+        }
+
+        // Upper bound of the bucket holding the percentile (0-100), 0 when empty
+        public long getPercentile(double percentile) {
+            if (total == 0) return 0;
+            long threshold = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= threshold) return upperBound(i);
+            }
+            return MAX_VALUE;
+        }
+
+        public long getMax() {
+            for (int i = BUCKETS - 1; i >= 0; i--) {
+                if (counts[i] != 0) return upperBound(i);
+            }
+            return 0;
+        }
+
+        public double getMean() {
+            if (total == 0) return 0.0;
+            double sum = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (counts[i] != 0) sum += counts[i] * (double) (lowerBound(i) + upperBound(i)) / 2;
+            }
+            return sum / total;
+        }
+
+        // count=N p50=... p99=... p99.9=... max=... in microseconds
+        public String summary() {
+            return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    total, getMean() / 1e3, getPercentile(50) / 1e3, getPercentile(90) / 1e3,
+                    getPercentile(99) / 1e3, getPercentile(99.9) / 1e3, getMax() / 1e3);
+        }
+
+        // Non-empty buckets as "lower-upper(ns):count" lines, for the shutdown dump
+        public void appendBuckets(StringBuilder sb, String indent) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (counts[i] == 0) continue;
+                sb.append(indent).append(lowerBound(i)).append('-').append(upperBound(i))
+                        .append(": ").append(counts[i]).append('\n');
+            }
+        }
+    }
+}
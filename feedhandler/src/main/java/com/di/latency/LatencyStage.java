@@ -0,0 +1,9 @@
+package com.di.latency;
+
+// Consecutive stages of a snapshot row on its way from the counterparty into RT
+public enum LatencyStage {
+    WIRE,       // SendingTime(52) -> socket receive
+    SESSION,    // socket receive -> fromApp
+    DECODE,     // fromApp -> rows built
+    PUBLISH     // rows built -> BulkLoader.writeTable returned
+}
@@ -0,0 +1,230 @@
+package com.di.latency;
+
+import com.di.codec.StringDictionary;
+import com.di.connection.MarketDataBatch;
+import com.di.helper.FeedConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Latency histograms per LatencyStage, per currency pair and per spot (no tenorValue) vs forward
+ * row. Recording looks up the pair's histograms in a ConcurrentHashMap (no lock on a hit) and does
+ * one atomic add per stage. A stats thread logs interval percentiles for each stage. The histograms
+ * are readable through the com.di:type=Latency MBean and written to latency.dumpFile on shutdown.
+ */
+@Slf4j
+public class LatencyTracker implements LatencyTrackerMXBean {
+    private static final LatencyTracker INSTANCE = new LatencyTracker(FeedConfig.get());
+    private static final LatencyStage[] STAGES = LatencyStage.values();
+
+    private final boolean enabled;
+    private final String dumpFile;
+    private final ConcurrentHashMap<String, SymbolLatency> symbols = new ConcurrentHashMap<>();
+    private volatile String lastInterval = "";
+
+    // Histograms of one pair, indexed by stage ordinal
+    private static final class SymbolLatency {
+        final LatencyHistogram[] spot = histograms();
+        final LatencyHistogram[] forward = histograms();
+
+        private static LatencyHistogram[] histograms() {
+            LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            return histograms;
+        }
+    }
+
+    // Package-private for tests; the feed uses the shared instance
+    LatencyTracker(FeedConfig config) {
+        this.enabled = config.getBoolean("latency.enabled", false);
+        this.dumpFile = config.getString("latency.dumpFile", "logs/latency-histograms.txt");
+        if (!enabled) return;
+
+        long intervalSeconds = config.getLong("latency.intervalSeconds", 60);
+        if (intervalSeconds > 0) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "latency-stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::logInterval, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.di:type=Latency"));
+        } catch (Exception e) {
+            log.warn("Could not register Latency MBean: {}", e.getMessage());
+        }
+    }
+
+    public static LatencyTracker get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Receive-side stages of one decoded snapshot, all times in epoch nanos. Every row counts as
+     * one tick. socketNanos is ReceiveTimes.UNKNOWN when the IO thread did not stamp the message,
+     * and sendingNanos is ReceiveTimes.UNKNOWN when SendingTime could not be read.
+     */
+    public void recordSnapshot(MarketDataBatch batch, long sendingNanos, long socketNanos,
+                               long rcvNanos, long builtNanos) {
+        if (!enabled || batch.isEmpty()) return;
+        SymbolLatency latency = forSymbol(batch.getSymbol(0));
+        int spotRows = 0;
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (batch.getTenor(row) == 0) spotRows++;
+        }
+        int forwardRows = batch.getRowCount() - spotRows;
+        if (socketNanos != ReceiveTimes.UNKNOWN) {
+            if (sendingNanos != ReceiveTimes.UNKNOWN) {
+                record(latency, LatencyStage.WIRE, socketNanos - sendingNanos, spotRows, forwardRows);
+            }
+            record(latency, LatencyStage.SESSION, rcvNanos - socketNanos, spotRows, forwardRows);
+        }
+        record(latency, LatencyStage.DECODE, builtNanos - rcvNanos, spotRows, forwardRows);
+    }
+
+    // Rows of a batch that has just been written to RT; batches may mix pairs after coalescing
+    public void recordPublished(MarketDataBatch batch, long writtenNanos) {
+        if (!enabled) return;
+        StringDictionary dictionary = batch.getDictionary();
+        int lastSymbol = -1;
+        SymbolLatency latency = null;
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            int symbol = batch.getSymbolId(row);
+            if (symbol != lastSymbol) {
+                latency = forSymbol(dictionary.valueOf(symbol));
+                lastSymbol = symbol;
+            }
+            LatencyHistogram[] histograms = batch.getTenor(row) == 0 ? latency.spot : latency.forward;
+            histograms[LatencyStage.PUBLISH.ordinal()].record(writtenNanos - batch.getBuiltTime(row));
+        }
+    }
+
+    private static void record(SymbolLatency latency, LatencyStage stage, long nanos, int spotRows, int forwardRows) {
+        latency.spot[stage.ordinal()].record(nanos, spotRows);
+        latency.forward[stage.ordinal()].record(nanos, forwardRows);
+    }
+
+    private SymbolLatency forSymbol(String symbol) {
+        SymbolLatency latency = symbols.get(symbol);
+        return latency != null ? latency : symbols.computeIfAbsent(symbol, s -> new SymbolLatency());
+    }
+
+    private void logInterval() {
+        try {
+            LatencyHistogram.Snapshot[] totals = new LatencyHistogram.Snapshot[STAGES.length];
+            for (int i = 0; i < STAGES.length; i++) {
+                totals[i] = LatencyHistogram.Snapshot.empty();
+            }
+            for (SymbolLatency latency : symbols.values()) {
+                for (int i = 0; i < STAGES.length; i++) {
+                    totals[i] = totals[i].add(latency.spot[i].snapshot()).add(latency.forward[i].snapshot());
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < STAGES.length; i++) {
+                if (totals[i].getCount() == 0) continue;
+                log.info("Latency {} {}", STAGES[i], totals[i].summary());
+                sb.append(STAGES[i]).append(' ').append(totals[i].summary()).append('\n');
+            }
+            lastInterval = sb.toString();
+        } catch (Exception e) {
+            log.warn("Latency stats failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Set<String> getSymbols() {
+        return new TreeSet<>(symbols.keySet());
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyStage stage : STAGES) {
+            LatencyHistogram.Snapshot total = LatencyHistogram.Snapshot.empty();
+            for (SymbolLatency latency : symbols.values()) {
+                total = total.add(latency.spot[stage.ordinal()].cumulative())
+                        .add(latency.forward[stage.ordinal()].cumulative());
+            }
+            sb.append(stage).append(' ').append(total.summary()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String getSymbolSummary(String symbol) {
+        SymbolLatency latency = symbols.get(symbol);
+        if (latency == null) return "";
+        StringBuilder sb = new StringBuilder();
+        for (LatencyStage stage : STAGES) {
+            sb.append(stage).append(" spot ").append(latency.spot[stage.ordinal()].cumulative().summary()).append('\n');
+            sb.append(stage).append(" forward ").append(latency.forward[stage.ordinal()].cumulative().summary()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String getLastIntervalSummary() {
+        return lastInterval;
+    }
+
+    // Cumulative summaries and non-empty buckets of every histogram
+    @Override
+    public void dump(String path) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Latency histograms at ").append(Instant.now()).append(", bucket bounds in nanoseconds\n");
+        sb.append(getSummary());
+        for (String symbol : getSymbols()) {
+            SymbolLatency latency = symbols.get(symbol);
+            for (LatencyStage stage : STAGES) {
+                dump(sb, symbol, "spot", stage, latency.spot[stage.ordinal()].cumulative());
+                dump(sb, symbol, "forward", stage, latency.forward[stage.ordinal()].cumulative());
+            }
+        }
+        try {
+            Path file = Paths.get(path);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+            log.info("Latency histograms written to {}", file.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("Could not write latency histograms to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static void dump(StringBuilder sb, String symbol, String kind, LatencyStage stage,
+                             LatencyHistogram.Snapshot snapshot) {
+        if (snapshot.getCount() == 0) return;
+        sb.append('\n').append(symbol).append(' ').append(kind).append(' ').append(stage)
+                .append(' ').append(snapshot.summary()).append('\n');
+        snapshot.appendBuckets(sb, "  ");
+    }
+
+    public void dump() {
+        if (enabled && !dumpFile.isEmpty()) {
+            dump(dumpFile);
+        }
+    }
+}
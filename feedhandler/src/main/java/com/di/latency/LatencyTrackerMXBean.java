@@ -0,0 +1,19 @@
+package com.di.latency;
+
+import java.util.Set;
+
+// Runtime view of the latency histograms, registered as com.di:type=Latency
+public interface LatencyTrackerMXBean {
+    Set<String> getSymbols();
+
+    // Cumulative percentiles per stage, all symbols
+    String getSummary();
+
+    // Cumulative percentiles per stage for spot and forward rows of one symbol
+    String getSymbolSummary(String symbol);
+
+    // Percentiles per stage over the last completed interval
+    String getLastIntervalSummary();
+
+    void dump(String path);
+}
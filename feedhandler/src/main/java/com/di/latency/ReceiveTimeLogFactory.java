@@ -0,0 +1,79 @@
+package com.di.latency;
+
+import com.di.codec.EpochClock;
+import com.di.codec.RawFixFields;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+
+/*
+ * Wraps the session LogFactory to stamp inbound messages with their socket receive time.
+ * QuickFIX/J calls Log.onIncoming on the IO thread as soon as a message is framed, before
+ * parsing and before it is queued for the session thread, which is the earliest hook it offers.
+ */
+public class ReceiveTimeLogFactory implements LogFactory {
+    private static final int MSG_SEQ_NUM = 34;
+
+    private final LogFactory delegate;
+
+    public ReceiveTimeLogFactory(LogFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Log create(SessionID sessionID) {
+        return new ReceiveTimeLog(delegate.create(sessionID), ReceiveTimes.forSession(sessionID));
+    }
+
+    private static final class ReceiveTimeLog implements Log {
+        private final Log delegate;
+        private final ReceiveTimes receiveTimes;
+
+        ReceiveTimeLog(Log delegate, ReceiveTimes receiveTimes) {
+            this.delegate = delegate;
+            this.receiveTimes = receiveTimes;
+        }
+
+        @Override
+        public void onIncoming(String message) {
+            long receivedNanos = EpochClock.nowNanos();
+            int seqNum = seqNum(message);
+            if (seqNum > 0) {
+                receiveTimes.stamp(seqNum, receivedNanos);
+            }
+            delegate.onIncoming(message);
+        }
+
+        private static int seqNum(String message) {
+            int start = RawFixFields.valueStart(message, MSG_SEQ_NUM);
+            if (start == RawFixFields.NOT_FOUND) return 0;
+            int value = 0;
+            for (int i = start; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        @Override
+        public void onOutgoing(String message) {
+            delegate.onOutgoing(message);
+        }
+
+        @Override
+        public void onEvent(String text) {
+            delegate.onEvent(text);
+        }
+
+        @Override
+        public void onErrorEvent(String text) {
+            delegate.onErrorEvent(text);
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+}
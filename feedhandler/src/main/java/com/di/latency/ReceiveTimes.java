@@ -0,0 +1,36 @@
+package com.di.latency;
+
+import quickfix.SessionID;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Socket receive times of inbound messages, by MsgSeqNum, one table per session. The IO thread
+ * stamps a message (ReceiveTimeLogFactory) before handing it to the session thread through
+ * QuickFIX/J's event queue, and that hand-off publishes the stamp. A slot is reused after SLOTS
+ * messages, so a message that waited longer than that, e.g. behind a resend, has no receive time.
+ */
+public class ReceiveTimes {
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final int SLOTS = 4096;
+    private static final ConcurrentHashMap<SessionID, ReceiveTimes> SESSIONS = new ConcurrentHashMap<>();
+
+    private final int[] seqNums = new int[SLOTS];
+    private final long[] nanos = new long[SLOTS];
+
+    public static ReceiveTimes forSession(SessionID sessionID) {
+        return SESSIONS.computeIfAbsent(sessionID, id -> new ReceiveTimes());
+    }
+
+    void stamp(int seqNum, long receivedNanos) {
+        int slot = seqNum & (SLOTS - 1);
+        nanos[slot] = receivedNanos;
+        seqNums[slot] = seqNum;
+    }
+
+    public long get(int seqNum) {
+        int slot = seqNum & (SLOTS - 1);
+        return seqNum > 0 && seqNums[slot] == seqNum ? nanos[slot] : UNKNOWN;
+    }
+}
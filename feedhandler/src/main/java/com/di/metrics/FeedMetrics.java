@@ -0,0 +1,266 @@
+package com.di.metrics;
+
+import com.di.helper.FeedConfig;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Feed health counters and gauges rendered in the Prometheus text format. Counters are LongAdders,
+ * so the session and publisher threads increment their own cells and a scrape only sums them.
+ * Per-second rates are derived from the counter deltas between two scrapes, so they are only
+ * meaningful with a single scraper; Prometheus can also apply rate() to the _total counters.
+ */
+public class FeedMetrics {
+    private static final FeedMetrics INSTANCE = new FeedMetrics(FeedConfig.get().getBoolean("metrics.enabled", false));
+
+    // With metrics.enabled=false nothing is counted and no gauge is kept
+    private final boolean enabled;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder publishedRows = new LongAdder();
+    private final LongAdder insertFailures = new LongAdder();
+    private final LongAdder requestRejects = new LongAdder();
+    private final LongAdder suppressedRows = new LongAdder();
+    private final ConcurrentHashMap<String, SymbolCounters> symbols = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Counter values at the previous scrape, for the per-second gauges
+    private long lastScrapeNanos;
+    private long lastMessages;
+    private long lastRows;
+    private long lastAllocatedBytes;
+    private final Map<String, long[]> lastSymbolCounts = new TreeMap<>();
+
+    private static final class SymbolCounters {
+        final LongAdder messages = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder suppressedRows = new LongAdder();
+    }
+
+    // session is null for process-wide gauges, destination null unless it is per RT destination
+    private record Gauge(String name, String help, String session, String destination, LongSupplier value) {
+    }
+
+    // Package-private for tests; the feed uses the shared instance
+    FeedMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static FeedMetrics get() {
+        return INSTANCE;
+    }
+
+    // One decoded MarketDataSnapshotFullRefresh
+    public void onSnapshot(String symbol, int rowCount) {
+        if (!enabled) return;
+        messages.increment();
+        rows.add(rowCount);
+        SymbolCounters counters = symbols.get(symbol);
+        if (counters == null) {
+            counters = symbols.computeIfAbsent(symbol, s -> new SymbolCounters());
+        }
+        counters.messages.increment();
+        counters.rows.add(rowCount);
+    }
+
+    // One MarketDataIncrementalRefresh that changed rowCount book entries
+    public void onIncremental(int rowCount) {
+        if (!enabled) return;
+        messages.increment();
+        rows.add(rowCount);
+    }
+
+    // Snapshot rows of symbol dropped by change suppression
+    public void onSuppressed(String symbol, int rowCount) {
+        if (!enabled) return;
+        suppressedRows.add(rowCount);
+        SymbolCounters counters = symbols.get(symbol);
+        if (counters != null) {
+            counters.suppressedRows.add(rowCount);
+        }
+    }
+
+    public void onPublished(int rowCount) {
+        if (!enabled) return;
+        publishedRows.add(rowCount);
+    }
+
+    public void onInsertFailure() {
+        if (!enabled) return;
+        insertFailures.increment();
+    }
+
+    public void onRequestReject() {
+        if (!enabled) return;
+        requestRejects.increment();
+    }
+
+    // Gauges are sampled on every scrape; name must be a valid Prometheus metric name
+    public void gauge(String name, String help, LongSupplier value) {
+        gauge(name, help, null, value);
+    }
+
+    // A gauge per FIX session, rendered as name{session="..."}; null session is the unlabelled gauge
+    public void gauge(String name, String help, String session, LongSupplier value) {
+        gauge(name, help, session, null, value);
+    }
+
+    // A gauge per RT destination of a session's chain, rendered as name{session="...",destination="..."}
+    public void gauge(String name, String help, String session, String destination, LongSupplier value) {
+        if (!enabled) return;
+        gauges.removeIf(gauge -> gauge.name().equals(name) && Objects.equals(gauge.session(), session)
+                && Objects.equals(gauge.destination(), destination));
+        gauges.add(new Gauge(name, help, session, destination, value));
+    }
+
+    public synchronized String scrape() {
+        long now = System.nanoTime();
+        double seconds = lastScrapeNanos == 0 ? 0.0 : (now - lastScrapeNanos) / 1e9;
+        lastScrapeNanos = now;
+
+        StringBuilder sb = new StringBuilder(4096);
+        long messageCount = messages.sum();
+        long rowCount = rows.sum();
+        counter(sb, "feed_messages_total", "MarketDataSnapshotFullRefresh and IncrementalRefresh messages decoded", messageCount);
+        counter(sb, "feed_rows_total", "Rows decoded from snapshots and changed by incremental refreshes", rowCount);
+        gauge(sb, "feed_messages_per_second", "Snapshot rate since the previous scrape",
+                rate(messageCount - lastMessages, seconds));
+        gauge(sb, "feed_rows_per_second", "Row rate since the previous scrape", rate(rowCount - lastRows, seconds));
+        lastMessages = messageCount;
+        lastRows = rowCount;
+
+        counter(sb, "feed_rows_suppressed_total", "Unchanged snapshot rows not published", suppressedRows.sum());
+        counter(sb, "feed_rows_published_total", "Rows written to KDB RT", publishedRows.sum());
+        counter(sb, "feed_insert_failures_total", "Failed insertBatch calls on the RT connection", insertFailures.sum());
+        counter(sb, "feed_market_data_request_rejects_total", "MarketDataRequestReject messages received",
+                requestRejects.sum());
+
+        appendSymbols(sb, seconds);
+
+        appendGauges(sb);
+
+        if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            long allocated = threads.getTotalThreadAllocatedBytes();
+            if (allocated >= 0) {
+                counter(sb, "jvm_allocated_bytes_total", "Bytes allocated by all JVM threads", allocated);
+                gauge(sb, "jvm_allocation_rate_bytes_per_second", "Allocation rate since the previous scrape",
+                        rate(allocated - lastAllocatedBytes, seconds));
+                lastAllocatedBytes = allocated;
+            }
+        }
+        return sb.toString();
+    }
+
+    private void appendSymbols(StringBuilder sb, double seconds) {
+        Map<String, SymbolCounters> sorted = new TreeMap<>(symbols);
+        header(sb, "feed_symbol_messages_total", "Snapshots decoded per symbol", "counter");
+        sorted.forEach((symbol, counters) -> sample(sb, "feed_symbol_messages_total", symbol, counters.messages.sum()));
+        header(sb, "feed_symbol_rows_total", "Rows decoded per symbol", "counter");
+        sorted.forEach((symbol, counters) -> sample(sb, "feed_symbol_rows_total", symbol, counters.rows.sum()));
+        header(sb, "feed_symbol_rows_suppressed_total", "Unchanged snapshot rows not published per symbol", "counter");
+        sorted.forEach((symbol, counters) ->
+                sample(sb, "feed_symbol_rows_suppressed_total", symbol, counters.suppressedRows.sum()));
+
+        header(sb, "feed_symbol_messages_per_second", "Snapshot rate per symbol since the previous scrape", "gauge");
+        StringBuilder rowRates = new StringBuilder();
+        header(rowRates, "feed_symbol_rows_per_second", "Row rate per symbol since the previous scrape", "gauge");
+        sorted.forEach((symbol, counters) -> {
+            long[] last = lastSymbolCounts.computeIfAbsent(symbol, s -> new long[2]);
+            long messageCount = counters.messages.sum();
+            long rowCount = counters.rows.sum();
+            sample(sb, "feed_symbol_messages_per_second", symbol, rate(messageCount - last[0], seconds));
+            sample(rowRates, "feed_symbol_rows_per_second", symbol, rate(rowCount - last[1], seconds));
+            last[0] = messageCount;
+            last[1] = rowCount;
+        });
+        sb.append(rowRates);
+    }
+
+    // Samples of one name go under a single HELP/TYPE header, whichever session registered them first
+    private void appendGauges(StringBuilder sb) {
+        Map<String, List<Gauge>> byName = new LinkedHashMap<>();
+        for (Gauge gauge : gauges) {
+            byName.computeIfAbsent(gauge.name(), name -> new ArrayList<>()).add(gauge);
+        }
+        byName.forEach((name, samples) -> {
+            header(sb, name, samples.get(0).help(), "gauge");
+            for (Gauge gauge : samples) {
+                long value = gauge.value().getAsLong();
+                sb.append(name);
+                char separator = '{';
+                if (gauge.session() != null) {
+                    label(sb, separator, "session", gauge.session());
+                    separator = ',';
+                }
+                if (gauge.destination() != null) {
+                    label(sb, separator, "destination", gauge.destination());
+                    separator = ',';
+                }
+                sb.append(separator == '{' ? " " : "} ").append(value).append('\n');
+            }
+        });
+    }
+
+    private static double rate(long delta, double seconds) {
+        return seconds <= 0 ? 0.0 : delta / seconds;
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        header(sb, name, help, "counter");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        header(sb, name, help, "gauge");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String symbol, double value) {
+        sample(sb, name, "symbol", symbol, value);
+    }
+
+    private static void label(StringBuilder sb, char separator, String label, String labelValue) {
+        sb.append(separator).append(label).append("=\"");
+        for (int i = 0; i < labelValue.length(); i++) {
+            char c = labelValue.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void sample(StringBuilder sb, String name, String label, String labelValue, double value) {
+        sb.append(name);
+        label(sb, '{', label, labelValue);
+        sb.append("} ");
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,75 @@
+package com.di.metrics;
+
+import com.di.helper.FeedConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/*
+ * Serves FeedMetrics on GET /metrics from the JDK's built-in HTTP server on one daemon thread.
+ * It binds to loopback by default, so only local agents can scrape it.
+ */
+@Slf4j
+public class MetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    // Null when metrics.enabled=false or the port cannot be bound; the feed runs either way
+    public static MetricsServer start(FeedConfig config) {
+        if (!config.getBoolean("metrics.enabled", false)) return null;
+        String host = config.getString("metrics.bindAddress", "127.0.0.1");
+        int port = config.getInt("metrics.port", 9464);
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.createContext("/metrics", MetricsServer::handle);
+            server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.start();
+            log.info("Metrics endpoint listening on http://{}:{}/metrics", host, server.getAddress().getPort());
+            return new MetricsServer(server);
+        } catch (IOException e) {
+            log.warn("Could not start metrics endpoint on {}:{}: {}", host, port, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body;
+            try {
+                body = FeedMetrics.get().scrape().getBytes(StandardCharsets.UTF_8);
+            } catch (RuntimeException e) {
+                log.warn("Metrics scrape failed: {}", e.getMessage(), e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,203 @@
+package com.di.spill;
+
+import com.di.connection.MarketDataBatch;
+import com.di.tenor.Tenor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One spill file: a header, then 'S' records defining a segment-local string id and 'B' records
+ * holding a batch, fixed-width columns with strings as those ids. Tenors are written as their
+ * value, since tenor codes are only stable within one process. Every batch is flushed to the OS
+ * before it counts as written, so the reader of the same file never sees half a record; a file
+ * recovered after a crash is read up to its first incomplete record.
+ */
+final class SpillSegment {
+    private static final int MAGIC = 0x5350494C;  // "SPIL"
+    private static final int VERSION = 1;
+    private static final byte STRING = 'S';
+    private static final byte BATCH = 'B';
+
+    private final Path path;
+
+    private DataOutputStream out;
+    private final Map<String, Integer> writeIds = new HashMap<>();
+    // Batches written, -1 for a segment recovered from a previous run
+    private int written;
+
+    private DataInputStream in;
+    private final List<String> readStrings = new ArrayList<>();
+    private int read;
+    private boolean exhausted;
+
+    private SpillSegment(Path path, int written) {
+        this.path = path;
+        this.written = written;
+    }
+
+    static SpillSegment create(Path path) throws IOException {
+        SpillSegment segment = new SpillSegment(path, 0);
+        segment.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+        segment.out.writeInt(MAGIC);
+        segment.out.writeInt(VERSION);
+        segment.out.flush();
+        return segment;
+    }
+
+    static SpillSegment recover(Path path) {
+        return new SpillSegment(path, -1);
+    }
+
+    void write(MarketDataBatch batch) throws IOException {
+        int rows = batch.getRowCount();
+        int[] ids = new int[rows * 7];
+        for (int row = 0; row < rows; row++) {
+            int i = row * 7;
+            ids[i] = id(batch.getReqId(row));
+            ids[i + 1] = id(batch.getSymbol(row));
+            ids[i + 2] = id(batch.getSymbolSfx(row));
+            ids[i + 3] = id(batch.getPip(row));
+            ids[i + 4] = id(Tenor.ofCode(batch.getTenor(row)).getValue());
+            ids[i + 5] = id(batch.getSpotVDate(row));
+            ids[i + 6] = id(batch.getOrigin(row));
+        }
+        out.writeByte(BATCH);
+        out.writeInt(rows);
+        for (int row = 0; row < rows; row++) {
+            int i = row * 7;
+            out.writeLong(batch.getTime(row));
+            out.writeLong(batch.getRcvTime(row));
+            out.writeInt(ids[i]);
+            out.writeInt(ids[i + 1]);
+            out.writeInt(ids[i + 2]);
+            out.writeByte(batch.getSide(row));
+            out.writeDouble(batch.getPrice(row));
+            out.writeDouble(batch.getSize(row));
+            out.writeInt(batch.getEntryDate(row));
+            out.writeBoolean(batch.getQuoteCondition(row));
+            out.writeInt(batch.getSettlDate(row));
+            out.writeDouble(batch.getForwardPoints(row));
+            out.writeInt(ids[i + 3]);
+            out.writeInt(ids[i + 4]);
+            out.writeInt(ids[i + 5]);
+            out.writeInt(ids[i + 6]);
+        }
+        out.flush();
+        written++;
+    }
+
+    // Defines the string in the file the first time it is used
+    private int id(String value) throws IOException {
+        Integer id = writeIds.get(value);
+        if (id != null) return id;
+        int newId = writeIds.size();
+        writeIds.put(value, newId);
+        out.writeByte(STRING);
+        out.writeInt(newId);
+        out.writeUTF(value);
+        return newId;
+    }
+
+    // Reads the next batch into the given one; false when there is none yet (or none left)
+    boolean read(MarketDataBatch into) throws IOException {
+        if (exhausted || (written >= 0 && read >= written)) return false;
+        if (in == null) {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a spill segment: " + path);
+            }
+        }
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == STRING) {
+                    int id = in.readInt();
+                    String value = in.readUTF();
+                    while (readStrings.size() <= id) {
+                        readStrings.add("");
+                    }
+                    readStrings.set(id, value);
+                } else if (type == BATCH) {
+                    readBatch(into);
+                    read++;
+                    return true;
+                } else {
+                    throw new IOException("Corrupt spill segment " + path + " after batch " + read);
+                }
+            }
+        } catch (EOFException e) {
+            // Only a recovered segment can end mid-record
+            exhausted = true;
+            return false;
+        }
+    }
+
+    private void readBatch(MarketDataBatch into) throws IOException {
+        into.clear();
+        int rows = in.readInt();
+        for (int row = 0; row < rows; row++) {
+            long time = in.readLong();
+            long rcvTime = in.readLong();
+            String reqId = readStrings.get(in.readInt());
+            int symbol = into.encode(readStrings.get(in.readInt()));
+            int symbolSfx = into.encode(readStrings.get(in.readInt()));
+            int side = in.readByte();
+            double price = in.readDouble();
+            double size = in.readDouble();
+            int entryDate = in.readInt();
+            boolean quoteCondition = in.readBoolean();
+            int settlDate = in.readInt();
+            double forwardPoints = in.readDouble();
+            int pip = into.encode(readStrings.get(in.readInt()));
+            int tenor = Tenor.parse(readStrings.get(in.readInt())).getCode();
+            int spotVDate = into.encode(readStrings.get(in.readInt()));
+            int origin = into.encode(readStrings.get(in.readInt()));
+            into.add(time, rcvTime, reqId, symbol, symbolSfx, side, price, size, entryDate, quoteCondition,
+                    settlDate, forwardPoints, pip, tenor, spotVDate, origin);
+        }
+    }
+
+    boolean isWritable() {
+        return out != null;
+    }
+
+    long size() throws IOException {
+        return out != null ? out.size() : Files.size(path);
+    }
+
+    // Stops writing; the segment can still be read to its end
+    void seal() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    void close() throws IOException {
+        seal();
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+}
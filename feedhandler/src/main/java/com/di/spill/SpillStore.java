@@ -0,0 +1,214 @@
+package com.di.spill;
+
+import com.di.codec.StringDictionary;
+import com.di.connection.MarketDataBatch;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * FIFO backlog of batches that could not be written to RT. Batches are copied into memory until
+ * memoryBytes (estimated) is used; after that they go to spill segment files of up to segmentBytes
+ * in the store's directory, and keep going there until the disk backlog has drained, so the
+ * backlog is always read back oldest first. Memory copies keep their acknowledgements, spilled
+ * ones do not, and past maxDiskBytes batches are dropped (append() says which). A durable store
+ * reads back the segments left by a previous run, and on close() writes its memory backlog to a
+ * segment ahead of them; otherwise leftover segments are deleted. Batches already drained from a
+ * segment that was only partly read are written again after a restart.
+ *
+ * Not thread-safe: SpillingConnection calls it under its write lock. The counters are volatile for
+ * the gauges.
+ */
+@Slf4j
+public class SpillStore {
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    // Where append() put a batch
+    public enum Placement { MEMORY, DISK, DROPPED }
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final long segmentBytes;
+    private final long maxDiskBytes;
+    private final boolean durable;
+
+    private final ArrayDeque<MarketDataBatch> memory = new ArrayDeque<>();
+    private final ArrayDeque<Long> memorySizes = new ArrayDeque<>();
+    // Oldest first; the last one may still be written to
+    private final ArrayDeque<SpillSegment> segments = new ArrayDeque<>();
+    private final MarketDataBatch diskHead = new MarketDataBatch(StringDictionary.shared(), 64);
+    // Next batch to drain, null until peek() finds one
+    private MarketDataBatch head;
+    private long nextSequence = 1;
+
+    private volatile long memoryBytes;
+    private volatile long diskBytes;
+    private volatile long spilledBatches;
+    private volatile long droppedRows;
+
+    public SpillStore(Path directory, long memoryBudget, long segmentBytes, long maxDiskBytes, boolean durable)
+            throws IOException {
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+        this.segmentBytes = segmentBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.durable = durable;
+        Files.createDirectories(directory);
+
+        for (Path path : existingSegments()) {
+            long sequence = sequenceOf(path);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (durable) {
+                segments.add(SpillSegment.recover(path));
+                diskBytes += Files.size(path);
+            } else {
+                Files.delete(path);
+            }
+        }
+        if (!segments.isEmpty()) {
+            log.info("Recovered {} spill segments ({} bytes) from {}", segments.size(), diskBytes, directory);
+        }
+    }
+
+    // Queues a copy of the batch; only a MEMORY copy keeps its acknowledgements
+    public Placement append(MarketDataBatch batch) throws IOException {
+        long bytes = batch.estimateBytes();
+        if (segments.isEmpty() && memoryBytes + bytes <= memoryBudget) {
+            MarketDataBatch copy = new MarketDataBatch(batch.getDictionary(), batch.getRowCount());
+            copy.copyFrom(batch);
+            memory.add(copy);
+            memorySizes.add(bytes);
+            memoryBytes += bytes;
+            return Placement.MEMORY;
+        }
+        if (maxDiskBytes > 0 && diskBytes >= maxDiskBytes) {
+            long dropped = droppedRows;
+            droppedRows = dropped + batch.getRowCount();
+            if (dropped == 0) {
+                log.error("Spill directory {} is over {} bytes, dropping batches until the backlog drains",
+                        directory, maxDiskBytes);
+            }
+            return Placement.DROPPED;
+        }
+        SpillSegment writer = segments.peekLast();
+        if (writer == null || !writer.isWritable() || writer.size() >= segmentBytes) {
+            if (writer != null) {
+                writer.seal();
+            }
+            writer = SpillSegment.create(directory.resolve(SEGMENT_PREFIX + nextSequence++ + SEGMENT_SUFFIX));
+            segments.add(writer);
+            if (segments.size() == 1) {
+                log.warn("In-memory backlog is full ({} bytes), spilling to {}", memoryBytes, directory);
+            }
+        }
+        long before = writer.size();
+        writer.write(batch);
+        diskBytes += writer.size() - before;
+        spilledBatches++;
+        return Placement.DISK;
+    }
+
+    // Oldest batch of the backlog without removing it, null when the backlog is empty
+    public MarketDataBatch peek() throws IOException {
+        if (head != null) return head;
+        if (!memory.isEmpty()) {
+            head = memory.peekFirst();
+            return head;
+        }
+        while (!segments.isEmpty()) {
+            SpillSegment segment = segments.peekFirst();
+            if (segment.read(diskHead)) {
+                head = diskHead;
+                return head;
+            }
+            // Drained; only the newest segment can still be open for writing
+            segment.seal();
+            diskBytes = Math.max(0, diskBytes - Files.size(segment.getPath()));
+            segment.delete();
+            segments.pollFirst();
+        }
+        return null;
+    }
+
+    // Removes the batch last returned by peek()
+    public void remove() {
+        if (head == null) return;
+        if (head != diskHead) {
+            memory.pollFirst();
+            memoryBytes -= memorySizes.pollFirst();
+        }
+        head = null;
+    }
+
+    public void close() throws IOException {
+        for (SpillSegment segment : segments) {
+            if (durable) {
+                segment.close();
+            } else {
+                segment.delete();
+            }
+        }
+        if (durable && !memory.isEmpty()) {
+            long sequence = segments.isEmpty() ? nextSequence++ : sequenceOf(segments.peekFirst().getPath()) - 1;
+            SpillSegment segment = SpillSegment.create(directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX));
+            for (MarketDataBatch batch : memory) {
+                segment.write(batch);
+            }
+            segment.seal();
+            log.info("Wrote {} in-memory backlog batches to {}", memory.size(), segment.getPath());
+        }
+        segments.clear();
+        memory.clear();
+        memorySizes.clear();
+        memoryBytes = 0;
+        head = null;
+    }
+
+    public boolean isEmpty() {
+        return head == null && memory.isEmpty() && segments.isEmpty();
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public long getSpilledBatches() {
+        return spilledBatches;
+    }
+
+    public long getDroppedRows() {
+        return droppedRows;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private List<Path> existingSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).forEach(paths::add);
+        }
+        paths.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return paths;
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
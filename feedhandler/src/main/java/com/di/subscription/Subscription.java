@@ -0,0 +1,81 @@
+package com.di.subscription;
+
+import com.di.tenor.Tenor;
+import lombok.Getter;
+import quickfix.StringField;
+import quickfix.field.SettlDate;
+import quickfix.field.SettlType;
+import quickfix.field.Symbol;
+import quickfix.field.SymbolSfx;
+import quickfix.fix44.MarketDataRequest;
+
+/*
+ * One pair/tenor the feed subscribes to, keyed "<symbol>::<tenor>" ("<symbol>::SPOT" for spot).
+ * The state fields are owned by SubscriptionEngine and only touched under its lock.
+ */
+@Getter
+public class Subscription {
+    private final String key;
+    private final String symbol;
+    private final Tenor tenor;
+    // Tenor goes out as SettlDate instead of TenorValue(6215)
+    private final boolean settlDate;
+    private final boolean ndf;
+
+    SubscriptionState state = SubscriptionState.QUEUED;
+    String mdReqId;
+    long sentNanos;
+    long retryAtNanos;
+    int attempts;
+    // Sent on its own after a reject, in case the venue refused the multi-entry request
+    boolean single;
+    boolean snapshotQueued;
+
+    private Subscription(String symbol, Tenor tenor, boolean settlDate, boolean ndf) {
+        this.symbol = symbol;
+        this.tenor = tenor;
+        this.settlDate = settlDate;
+        this.ndf = ndf;
+        this.key = symbol + "::" + (tenor == Tenor.NONE ? "SPOT" : tenor.getValue());
+    }
+
+    public static Subscription spot(String symbol) {
+        return new Subscription(symbol, Tenor.NONE, false, false);
+    }
+
+    // toMaturity goes in 6215; without one a date fromMaturity is sent as SettlDate
+    public static Subscription forward(String symbol, String fromMaturity, String toMaturity, boolean ndf) {
+        Tenor tenor = Tenor.parse(toMaturity != null ? toMaturity : fromMaturity);
+        boolean settlDate = (toMaturity == null || toMaturity.isEmpty()) && tenor.isDate();
+        return new Subscription(symbol, tenor, settlDate, ndf);
+    }
+
+    public SubscriptionState getState() {
+        return state;
+    }
+
+    public boolean isSpot() {
+        return tenor == Tenor.NONE;
+    }
+
+    MarketDataRequest.NoRelatedSym toGroup() {
+        MarketDataRequest.NoRelatedSym group = new MarketDataRequest.NoRelatedSym();
+        group.setField(new Symbol(symbol));
+        group.setField(new SymbolSfx("KX"));
+        if (settlDate) {
+            group.setField(new SettlDate(tenor.getValue()));
+        } else if (!isSpot()) {
+            group.setField(new StringField(6215, tenor.getValue()));
+        }
+        if (ndf) {
+            group.setField(new StringField(9001, "NDF"));
+            group.setField(new SettlType("6"));
+        }
+        return group;
+    }
+
+    @Override
+    public String toString() {
+        return ndf ? key + " (NDF)" : key;
+    }
+}
@@ -0,0 +1,455 @@
+package com.di.subscription;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.helper.FeedConfig;
+import com.di.metrics.FeedMetrics;
+import lombok.extern.slf4j.Slf4j;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.MDReqID;
+import quickfix.field.MDUpdateType;
+import quickfix.field.NoRelatedSym;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.fix44.MarketDataRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Sends the MarketDataRequests of a session and follows each one through QUEUED -> PENDING ->
+ * ACTIVE, or REJECTED / STALE and back into the queue.
+ *
+ * A pacer thread wakes every tickMillis, and each MarketDataRequest it sends takes a token from a
+ * bucket refilled at requestsPerSecond (up to burst), so a logon with thousands of tenors goes out
+ * at a rate the venue accepts instead of all at once. Up to maxSymbolsPerRequest queued
+ * subscriptions share one request as NoRelatedSym entries, at most one per symbol, so
+ * (MDReqID, Symbol) of a snapshot names exactly one subscription.
+ *
+ * A reject puts every subscription of the request into REJECTED and retries it alone after
+ * retry.initialMs, doubling up to retry.maxMs, until retry.maxAttempts sends have been made.
+ * A request without a snapshot after staleAfterMs is cancelled (263=2 on its MDReqID, ahead of
+ * anything else queued) and sent again under a new MDReqID, within the same retry.maxAttempts.
+ * Once nothing is queued, pending or waiting for a retry, the time since logon is logged and kept
+ * for the feed_subscription_seconds_to_subscribed gauge.
+ *
+ * With subscription.incremental the requests ask for MDUpdateType=1 (35=X updates), and
+ * requestSnapshot() sends a paced snapshot-only request (263=0) for a book that lost sync.
+ *
+ * The pacer thread runs from start() to stop(); the owner stops the engine on logout and shutdown.
+ */
+@Slf4j
+public class SubscriptionEngine {
+
+    // Seam over Session.sendToTarget
+    public interface Sender {
+        boolean send(Message message, SessionID sessionId) throws Exception;
+    }
+
+    // Subscriptions sent together under one MDReqID; type is the SubscriptionRequestType (263)
+    private static final class Request {
+        final String mdReqId;
+        final Subscription[] subscriptions;
+        final char type;
+        // Subscriptions still without a snapshot; the snapshot path returns at once when 0
+        volatile int pending;
+
+        Request(String mdReqId, Subscription[] subscriptions, char type) {
+            this.mdReqId = mdReqId;
+            this.subscriptions = subscriptions;
+            this.type = type;
+            this.pending = subscriptions.length;
+        }
+    }
+
+    private final Sender sender;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxSymbolsPerRequest;
+    private final long staleAfterNanos;
+    private final long retryInitialNanos;
+    private final long retryMaxNanos;
+    private final int maxAttempts;
+    private final boolean incremental;
+    private final long tickMillis;
+    private final ExecutionMode executionMode;
+    private final String pacerName;
+    private final String session;
+
+    private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    private final ArrayDeque<Subscription> queue = new ArrayDeque<>();
+    private final ArrayDeque<Subscription> snapshotQueue = new ArrayDeque<>();
+    private final ArrayDeque<Request> cancelQueue = new ArrayDeque<>();
+    private final ConcurrentHashMap<String, Request> requests = new ConcurrentHashMap<>();
+    private final EnumMap<SubscriptionState, Integer> counts = new EnumMap<>(SubscriptionState.class);
+
+    private SessionID sessionId;
+    private ScheduledExecutorService pacer;
+    private TokenBucket bucket;
+    private String idPrefix = "MDReq-";
+    private long nextId;
+    private long logonNanos;
+    private boolean reported;
+    private volatile long nanosToSubscribed = -1;
+
+    public SubscriptionEngine(FeedConfig config) {
+        this(config, null, Session::sendToTarget);
+    }
+
+    public SubscriptionEngine(FeedConfig config, Sender sender) {
+        this(config, null, sender);
+    }
+
+    // session labels the pacer thread and the gauges when several sessions run side by side
+    public SubscriptionEngine(FeedConfig config, String session, Sender sender) {
+        this.sender = sender;
+        this.requestsPerSecond = Math.max(0.1, config.getInt("subscription.requestsPerSecond", 50));
+        this.burst = config.getInt("subscription.burst", 50);
+        this.maxSymbolsPerRequest = Math.max(1, config.getInt("subscription.maxSymbolsPerRequest", 1));
+        this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("subscription.staleAfterMs", 30_000));
+        this.retryInitialNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("subscription.retry.initialMs", 1_000));
+        this.retryMaxNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("subscription.retry.maxMs", 60_000));
+        this.maxAttempts = config.getInt("subscription.retry.maxAttempts", 10);
+        this.incremental = config.getBoolean("subscription.incremental", false);
+        for (SubscriptionState state : SubscriptionState.values()) {
+            counts.put(state, 0);
+        }
+        this.tickMillis = Math.max(1, config.getLong("subscription.tickMillis", 20));
+        this.executionMode = ExecutionMode.fromConfig(config);
+        this.pacerName = session == null ? "subscription-pacer" : "subscription-pacer-" + session;
+        this.session = session;
+    }
+
+    // Registered on start rather than in the constructor, so the gauges never see a partly built engine;
+    // a later start replaces them
+    private void registerGauges() {
+        FeedMetrics metrics = FeedMetrics.get();
+        metrics.gauge("feed_subscriptions_queued", "Subscriptions waiting for a send token", session,
+                () -> count(SubscriptionState.QUEUED));
+        metrics.gauge("feed_subscriptions_pending", "Subscriptions sent without a snapshot yet", session,
+                () -> count(SubscriptionState.PENDING));
+        metrics.gauge("feed_subscriptions_active", "Subscriptions that have received a snapshot", session,
+                () -> count(SubscriptionState.ACTIVE));
+        metrics.gauge("feed_subscriptions_rejected", "Subscriptions rejected and not active since", session,
+                () -> count(SubscriptionState.REJECTED));
+        metrics.gauge("feed_subscriptions_stale", "Subscriptions without a snapshot within staleAfterMs", session,
+                () -> count(SubscriptionState.STALE));
+        metrics.gauge("feed_subscription_seconds_to_subscribed",
+                "Seconds from logon until every subscription was active or out of retries, -1 until then", session,
+                () -> nanosToSubscribed < 0 ? -1 : TimeUnit.NANOSECONDS.toSeconds(nanosToSubscribed));
+    }
+
+    // Replaces the subscriptions with the given ones (duplicate keys dropped) and queues them all
+    public synchronized void start(SessionID sessionId, Collection<Subscription> toSubscribe) {
+        long now = System.nanoTime();
+        this.sessionId = sessionId;
+        this.bucket = new TokenBucket(requestsPerSecond, burst, now);
+        this.idPrefix = "MDReq-" + Long.toString(System.currentTimeMillis() / 1000, 36) + "-";
+        this.nextId = 0;
+        this.logonNanos = now;
+        this.reported = false;
+        this.nanosToSubscribed = -1;
+        registerGauges();
+        subscriptions.clear();
+        queue.clear();
+        snapshotQueue.clear();
+        cancelQueue.clear();
+        requests.clear();
+        counts.replaceAll((state, count) -> 0);
+        for (Subscription subscription : toSubscribe) {
+            if (subscriptions.putIfAbsent(subscription.getKey(), subscription) != null) {
+                log.info("Duplicate subscription for {} skipped", subscription);
+                continue;
+            }
+            register(subscription);
+        }
+        log.info("Queued {} subscriptions for session {} at {}/s (burst {}, {} per request)",
+                subscriptions.size(), sessionId, requestsPerSecond, burst, maxSymbolsPerRequest);
+        if (pacer == null) {
+            pacer = Executors.newSingleThreadScheduledExecutor(executionMode.threadFactory(pacerName));
+            pacer.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Adds one subscription to the running session; false when the key is already subscribed
+    public synchronized boolean add(Subscription subscription) {
+        if (subscriptions.putIfAbsent(subscription.getKey(), subscription) != null) {
+            log.info("Duplicate subscription for {} skipped", subscription);
+            return false;
+        }
+        register(subscription);
+        return true;
+    }
+
+    // Stops the pacer; nothing is sent until the next start and the states stay readable
+    public synchronized void stop() {
+        sessionId = null;
+        queue.clear();
+        snapshotQueue.clear();
+        cancelQueue.clear();
+        requests.clear();
+        if (pacer != null) {
+            pacer.shutdownNow();
+            pacer = null;
+        }
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    // Queues a snapshot-only request for the subscription, once until it has been sent
+    public synchronized void requestSnapshot(String key) {
+        Subscription subscription = subscriptions.get(key);
+        if (subscription == null) {
+            log.warn("Snapshot requested for unknown subscription {}", key);
+            return;
+        }
+        if (!subscription.snapshotQueued) {
+            subscription.snapshotQueued = true;
+            snapshotQueue.add(subscription);
+        }
+    }
+
+    // Called for every decoded snapshot on the session thread
+    public void onSnapshot(String mdReqId, String symbol) {
+        Request request = requests.get(mdReqId);
+        if (request == null || request.pending == 0) return;
+        synchronized (this) {
+            for (Subscription subscription : request.subscriptions) {
+                if (subscription.getSymbol().equals(symbol) && mdReqId.equals(subscription.mdReqId)
+                        && subscription.state == SubscriptionState.PENDING) {
+                    setState(subscription, SubscriptionState.ACTIVE);
+                    request.pending--;
+                }
+            }
+        }
+    }
+
+    public synchronized void onReject(String mdReqId, String reason) {
+        Request request = requests.remove(mdReqId);
+        if (request == null) {
+            log.warn("Reject for unknown MDReqID {}: {}", mdReqId, reason);
+            return;
+        }
+        long now = System.nanoTime();
+        for (Subscription subscription : request.subscriptions) {
+            if (!mdReqId.equals(subscription.mdReqId)) continue;
+            subscription.single = true;
+            setState(subscription, SubscriptionState.REJECTED);
+            if (maxAttempts > 0 && subscription.attempts >= maxAttempts) {
+                subscription.retryAtNanos = Long.MAX_VALUE;
+                log.error("Subscription {} rejected after {} attempts, giving up: {}",
+                        subscription, subscription.attempts, reason);
+            } else {
+                long backoff = Math.min(retryMaxNanos, retryInitialNanos << Math.min(20, subscription.attempts - 1));
+                subscription.retryAtNanos = now + backoff;
+                log.warn("Subscription {} rejected (MDReqID {}, attempt {}), retrying in {} ms: {}", subscription,
+                        mdReqId, subscription.attempts, TimeUnit.NANOSECONDS.toMillis(backoff), reason);
+            }
+        }
+    }
+
+    public synchronized int count(SubscriptionState state) {
+        return counts.get(state);
+    }
+
+    public synchronized Subscription getSubscription(String key) {
+        return subscriptions.get(key);
+    }
+
+    // -1 until every subscription of the current logon is active or out of retries
+    public long getMillisToSubscribed() {
+        long nanos = nanosToSubscribed;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private void tick() {
+        try {
+            SessionID session;
+            List<Request> toSend;
+            synchronized (this) {
+                if (sessionId == null) return;
+                long now = System.nanoTime();
+                checkTimers(now);
+                toSend = takeRequests(now);
+                reportSubscribed(now);
+                session = sessionId;
+            }
+            for (Request request : toSend) {
+                send(session, request);
+            }
+        } catch (Exception e) {
+            log.error("Subscription pacer failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Requeues rejects whose backoff has run out and cancels and requeues requests without a snapshot
+    private void checkTimers(long now) {
+        if (count(SubscriptionState.REJECTED) == 0 && count(SubscriptionState.PENDING) == 0) return;
+        Map<String, List<Subscription>> stale = null;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.state == SubscriptionState.REJECTED && now >= subscription.retryAtNanos) {
+                enqueue(subscription, SubscriptionState.QUEUED);
+            } else if (subscription.state == SubscriptionState.PENDING && staleAfterNanos > 0
+                    && now - subscription.sentNanos >= staleAfterNanos) {
+                Request request = requests.get(subscription.mdReqId);
+                if (request != null) {
+                    request.pending--;
+                    if (request.pending == 0) requests.remove(request.mdReqId);
+                }
+                if (stale == null) stale = new LinkedHashMap<>();
+                stale.computeIfAbsent(subscription.mdReqId, id -> new ArrayList<>()).add(subscription);
+                if (maxAttempts > 0 && subscription.attempts >= maxAttempts) {
+                    log.error("No snapshot for {} after {} attempts, giving up", subscription, subscription.attempts);
+                    setState(subscription, SubscriptionState.STALE);
+                    subscription.mdReqId = null;
+                } else {
+                    log.warn("No snapshot for {} (MDReqID {}) within {} ms, sending again", subscription,
+                            subscription.mdReqId, TimeUnit.NANOSECONDS.toMillis(staleAfterNanos));
+                    enqueue(subscription, SubscriptionState.STALE);
+                }
+            }
+        }
+        if (stale == null) return;
+        // A snapshot may still come for the old MDReqID, so it is cancelled before the new one goes out
+        for (Map.Entry<String, List<Subscription>> entry : stale.entrySet()) {
+            cancelQueue.add(new Request(entry.getKey(), entry.getValue().toArray(new Subscription[0]),
+                    SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST));
+        }
+    }
+
+    private List<Request> takeRequests(long now) {
+        List<Request> toSend = new ArrayList<>();
+        // Cancels go first, so a resend never goes out while its old MDReqID is still subscribed
+        while (!cancelQueue.isEmpty() && bucket.tryAcquire(now)) {
+            toSend.add(cancelQueue.poll());
+        }
+        if (!cancelQueue.isEmpty()) return toSend;
+        // Resyncs go next, alone and untracked; the snapshot resets the book whatever its MDReqID
+        while (!snapshotQueue.isEmpty() && bucket.tryAcquire(now)) {
+            Subscription subscription = snapshotQueue.poll();
+            subscription.snapshotQueued = false;
+            toSend.add(new Request(idPrefix + nextId++, new Subscription[]{subscription},
+                    SubscriptionRequestType.SNAPSHOT));
+        }
+        List<Subscription> entries = new ArrayList<>(maxSymbolsPerRequest);
+        while (!queue.isEmpty() && bucket.tryAcquire(now)) {
+            entries.clear();
+            Subscription first = queue.poll();
+            entries.add(first);
+            if (!first.single) {
+                for (Iterator<Subscription> it = queue.iterator(); it.hasNext() && entries.size() < maxSymbolsPerRequest; ) {
+                    Subscription next = it.next();
+                    if (!next.single && !hasSymbol(entries, next.getSymbol())) {
+                        entries.add(next);
+                        it.remove();
+                    }
+                }
+            }
+            Request request = new Request(idPrefix + nextId++, entries.toArray(new Subscription[0]),
+                    SubscriptionRequestType.SNAPSHOT_UPDATES);
+            for (Subscription subscription : request.subscriptions) {
+                subscription.mdReqId = request.mdReqId;
+                subscription.sentNanos = now;
+                subscription.attempts++;
+                setState(subscription, SubscriptionState.PENDING);
+            }
+            requests.put(request.mdReqId, request);
+            toSend.add(request);
+        }
+        return toSend;
+    }
+
+    private static boolean hasSymbol(List<Subscription> entries, String symbol) {
+        for (Subscription entry : entries) {
+            if (entry.getSymbol().equals(symbol)) return true;
+        }
+        return false;
+    }
+
+    private void send(SessionID session, Request request) {
+        MarketDataRequest message = new MarketDataRequest();
+        message.setField(new MDReqID(request.mdReqId));
+        message.setField(new SubscriptionRequestType(request.type));
+        if (incremental && request.type == SubscriptionRequestType.SNAPSHOT_UPDATES) {
+            message.setField(new MDUpdateType(MDUpdateType.INCREMENTAL_REFRESH));
+        }
+        message.setField(new NoRelatedSym(request.subscriptions.length));
+        for (Subscription subscription : request.subscriptions) {
+            message.addGroup(subscription.toGroup());
+        }
+        boolean sent;
+        try {
+            sent = sender.send(message, session);
+        } catch (Exception e) {
+            log.error("Error sending market data request {}: {}", request.mdReqId, e.getMessage(), e);
+            sent = false;
+        }
+        if (sent) {
+            if (log.isDebugEnabled()) {
+                log.debug("Sent market data request {} for {}", request.mdReqId, List.of(request.subscriptions));
+            }
+            return;
+        }
+        // Not sent (session down or send failed): back into the queue under a new MDReqID
+        synchronized (this) {
+            requests.remove(request.mdReqId);
+            if (sessionId == null) return;
+            if (request.type == SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST) {
+                cancelQueue.addFirst(request);
+                return;
+            }
+            if (request.type == SubscriptionRequestType.SNAPSHOT) {
+                requestSnapshot(request.subscriptions[0].getKey());
+                return;
+            }
+            for (Subscription subscription : request.subscriptions) {
+                if (request.mdReqId.equals(subscription.mdReqId) && subscription.state == SubscriptionState.PENDING) {
+                    subscription.attempts--;
+                    queue.addFirst(subscription);
+                    setState(subscription, SubscriptionState.QUEUED);
+                }
+            }
+        }
+    }
+
+    private void reportSubscribed(long now) {
+        if (reported || subscriptions.isEmpty() || !queue.isEmpty() || count(SubscriptionState.PENDING) > 0) return;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.state == SubscriptionState.REJECTED && subscription.retryAtNanos != Long.MAX_VALUE) return;
+        }
+        reported = true;
+        nanosToSubscribed = now - logonNanos;
+        log.info("Fully subscribed {} ms after logon: {} active, {} rejected, {} stale, {} requests sent",
+                TimeUnit.NANOSECONDS.toMillis(nanosToSubscribed), count(SubscriptionState.ACTIVE),
+                count(SubscriptionState.REJECTED), count(SubscriptionState.STALE), nextId);
+    }
+
+    private void register(Subscription subscription) {
+        counts.merge(subscription.state, 1, Integer::sum);
+        queue.add(subscription);
+    }
+
+    private void enqueue(Subscription subscription, SubscriptionState state) {
+        setState(subscription, state);
+        subscription.mdReqId = null;
+        queue.add(subscription);
+    }
+
+    private void setState(Subscription subscription, SubscriptionState state) {
+        counts.merge(subscription.state, -1, Integer::sum);
+        counts.merge(state, 1, Integer::sum);
+        subscription.state = state;
+    }
+}
@@ -0,0 +1,127 @@
+package com.di.subscription;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable forward universe from the swap points file: per pair, its distinct tenors (normalized
+ * toMaturity, first row wins) with the fromMaturity of that row, and the NDF flag. Built by
+ * SwapPointsLoader, which also keeps a binary copy of it next to the CSV checksum.
+ */
+public final class SubscriptionPlan {
+    public static final SubscriptionPlan EMPTY = new SubscriptionPlan(Map.of(), 0);
+
+    public static final class PairPlan {
+        private final String pair;
+        private final boolean ndf;
+        private final String[] fromMaturities;
+        private final String[] toMaturities;
+
+        PairPlan(String pair, String[] fromMaturities, String[] toMaturities) {
+            this.pair = pair;
+            this.ndf = pair.contains("NDF") || pair.contains("NDS");
+            this.fromMaturities = fromMaturities;
+            this.toMaturities = toMaturities;
+        }
+
+        public String getPair() {
+            return pair;
+        }
+
+        public boolean isNdf() {
+            return ndf;
+        }
+
+        public int getTenorCount() {
+            return toMaturities.length;
+        }
+
+        public String getToMaturity(int i) {
+            return toMaturities[i];
+        }
+
+        public String getFromMaturity(int i) {
+            return fromMaturities[i];
+        }
+    }
+
+    private final Map<String, PairPlan> pairs;
+    private final int skippedTenors;
+
+    SubscriptionPlan(Map<String, PairPlan> pairs, int skippedTenors) {
+        this.pairs = Collections.unmodifiableMap(pairs);
+        this.skippedTenors = skippedTenors;
+    }
+
+    public PairPlan get(String pair) {
+        return pairs.get(pair);
+    }
+
+    public int getPairCount() {
+        return pairs.size();
+    }
+
+    public int getTenorCount() {
+        int count = 0;
+        for (PairPlan plan : pairs.values()) {
+            count += plan.getTenorCount();
+        }
+        return count;
+    }
+
+    // Rows dropped because toMaturity normalized to nothing
+    public int getSkippedTenors() {
+        return skippedTenors;
+    }
+
+    // Spot for every pair plus a forward per planned tenor
+    public List<Subscription> subscriptions(List<String> currencyPairs) {
+        List<Subscription> result = new ArrayList<>(currencyPairs.size() + getTenorCount());
+        for (String pair : currencyPairs) {
+            result.add(Subscription.spot(pair));
+            PairPlan plan = pairs.get(pair);
+            if (plan == null) continue;
+            for (int i = 0; i < plan.getTenorCount(); i++) {
+                result.add(Subscription.forward(pair, plan.fromMaturities[i], plan.toMaturities[i], plan.ndf));
+            }
+        }
+        return result;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(skippedTenors);
+        out.writeInt(pairs.size());
+        for (PairPlan plan : pairs.values()) {
+            out.writeUTF(plan.pair);
+            out.writeInt(plan.toMaturities.length);
+            for (int i = 0; i < plan.toMaturities.length; i++) {
+                out.writeUTF(plan.fromMaturities[i]);
+                out.writeUTF(plan.toMaturities[i]);
+            }
+        }
+    }
+
+    static SubscriptionPlan read(DataInputStream in) throws IOException {
+        int skippedTenors = in.readInt();
+        int pairCount = in.readInt();
+        Map<String, PairPlan> pairs = new LinkedHashMap<>(pairCount * 2);
+        for (int p = 0; p < pairCount; p++) {
+            String pair = in.readUTF();
+            int tenorCount = in.readInt();
+            String[] from = new String[tenorCount];
+            String[] to = new String[tenorCount];
+            for (int i = 0; i < tenorCount; i++) {
+                from[i] = in.readUTF();
+                to[i] = in.readUTF();
+            }
+            pairs.put(pair, new PairPlan(pair, from, to));
+        }
+        return new SubscriptionPlan(pairs, skippedTenors);
+    }
+}
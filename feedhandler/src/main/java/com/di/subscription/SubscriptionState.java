@@ -0,0 +1,9 @@
+package com.di.subscription;
+
+public enum SubscriptionState {
+    QUEUED,     // waiting for a send token
+    PENDING,    // sent, no snapshot yet
+    ACTIVE,     // at least one snapshot received
+    REJECTED,   // 35=Y received; retried after a backoff unless the attempts are used up
+    STALE       // no snapshot within staleAfterMs of the send; sent again unless the attempts are used up
+}
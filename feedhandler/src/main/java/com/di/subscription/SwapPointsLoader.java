@@ -0,0 +1,202 @@
+package com.di.subscription;
+
+import com.di.helper.FeedConfig;
+import com.di.tenor.Tenor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/*
+ * Builds the SubscriptionPlan from the swap points CSV (ccy1,ccy2,from_maturity,to_maturity).
+ *
+ * The CSV is read line by line; rows keep only indexes into a table of distinct raw maturities,
+ * and the distinct values are normalized in parallel once the file is read. The compiled plan is
+ * written to subscription.planCache with the CRC32 of the CSV, and a restart whose CSV has the
+ * same checksum reads the plan back instead of parsing. Any problem with the cache falls back to
+ * the CSV.
+ */
+@Slf4j
+public final class SwapPointsLoader {
+    private static final int CACHE_MAGIC = 0x53505043; // "SPPC"
+    // Bump when the plan layout or tenor normalization changes so old caches are ignored
+    private static final int CACHE_VERSION = 1;
+
+    private SwapPointsLoader() {
+    }
+
+    public static SubscriptionPlan load(FeedConfig config) {
+        String file = config.getString("subscription.swapPointsFile", "KX Swap Pts.csv");
+        String cache = config.getString("subscription.planCache", "cache/subscription-plan.bin");
+        long start = System.nanoTime();
+        try {
+            long checksum = checksum(file);
+            if (checksum < 0) {
+                log.error("Swap points file {} not found in resources!", file);
+                return SubscriptionPlan.EMPTY;
+            }
+            Path cacheFile = cache.isEmpty() ? null : Path.of(cache);
+            SubscriptionPlan plan = cacheFile != null ? readCache(cacheFile, checksum) : null;
+            boolean cached = plan != null;
+            if (plan == null) {
+                try (InputStream is = open(file)) {
+                    plan = compile(is);
+                }
+                if (cacheFile != null) {
+                    writeCache(cacheFile, checksum, plan);
+                }
+            }
+            log.info("Loaded swap points for {} currency pairs, {} tenors, {} tenors skipped in {} ms ({})",
+                    plan.getPairCount(), plan.getTenorCount(), plan.getSkippedTenors(),
+                    (System.nanoTime() - start) / 1_000_000, cached ? "cached plan" : "parsed");
+            return plan;
+        } catch (Exception e) {
+            log.error("Error loading swap points: {}", e.getMessage(), e);
+            return SubscriptionPlan.EMPTY;
+        }
+    }
+
+    public static SubscriptionPlan compile(InputStream csv) throws IOException {
+        // Distinct raw maturities, and per row the pair and the indexes of its two maturities
+        Map<String, Integer> rawIndex = new HashMap<>();
+        List<String> raws = new ArrayList<>();
+        List<String> rowPairs = new ArrayList<>();
+        int[] rowMaturities = new int[1024];
+        int rows = 0;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        String line = reader.readLine(); // header
+        Map<String, String> pairNames = new HashMap<>();
+        while (line != null && (line = reader.readLine()) != null) {
+            int c1 = line.indexOf(',');
+            int c2 = c1 < 0 ? -1 : line.indexOf(',', c1 + 1);
+            int c3 = c2 < 0 ? -1 : line.indexOf(',', c2 + 1);
+            if (c3 < 0) continue;
+            int c4 = line.indexOf(',', c3 + 1);
+            String pair = line.substring(0, c1).trim() + "/" + line.substring(c1 + 1, c2).trim();
+            String from = line.substring(c2 + 1, c3).trim();
+            String to = line.substring(c3 + 1, c4 < 0 ? line.length() : c4).trim();
+
+            if (2 * rows + 2 > rowMaturities.length) {
+                rowMaturities = Arrays.copyOf(rowMaturities, rowMaturities.length * 2);
+            }
+            rowPairs.add(pairNames.computeIfAbsent(pair, p -> p));
+            rowMaturities[2 * rows] = rawIndex.computeIfAbsent(from, r -> { raws.add(r); return raws.size() - 1; });
+            rowMaturities[2 * rows + 1] = rawIndex.computeIfAbsent(to, r -> { raws.add(r); return raws.size() - 1; });
+            rows++;
+        }
+
+        String[] normalized = new String[raws.size()];
+        IntStream.range(0, normalized.length).parallel()
+                .forEach(i -> normalized[i] = Tenor.parse(raws.get(i)).getValue());
+
+        Map<String, List<String[]>> byPair = new LinkedHashMap<>();
+        Map<String, Set<String>> seen = new HashMap<>();
+        int skipped = 0;
+        int duplicates = 0;
+        for (int row = 0; row < rows; row++) {
+            String from = normalized[rowMaturities[2 * row]];
+            String to = normalized[rowMaturities[2 * row + 1]];
+            if (to.isEmpty()) {
+                skipped++;
+                continue;
+            }
+            String pair = rowPairs.get(row);
+            if (!seen.computeIfAbsent(pair, p -> new HashSet<>()).add(to)) {
+                duplicates++;
+                continue;
+            }
+            byPair.computeIfAbsent(pair, p -> new ArrayList<>()).add(new String[]{from, to});
+        }
+
+        Map<String, SubscriptionPlan.PairPlan> pairs = new LinkedHashMap<>(byPair.size() * 2);
+        for (Map.Entry<String, List<String[]>> entry : byPair.entrySet()) {
+            List<String[]> tenors = entry.getValue();
+            String[] from = new String[tenors.size()];
+            String[] to = new String[tenors.size()];
+            for (int i = 0; i < from.length; i++) {
+                from[i] = tenors.get(i)[0];
+                to[i] = tenors.get(i)[1];
+            }
+            pairs.put(entry.getKey(), new SubscriptionPlan.PairPlan(entry.getKey(), from, to));
+        }
+        if (duplicates > 0) {
+            log.info("Skipped {} duplicate pair/tenor rows", duplicates);
+        }
+        return new SubscriptionPlan(pairs, skipped);
+    }
+
+    private static InputStream open(String file) throws IOException {
+        InputStream is = SwapPointsLoader.class.getClassLoader().getResourceAsStream(file);
+        if (is == null) throw new IOException(file + " not found in resources");
+        return is;
+    }
+
+    // CRC32 of the CSV bytes, -1 when it is missing
+    private static long checksum(String file) throws IOException {
+        InputStream is = SwapPointsLoader.class.getClassLoader().getResourceAsStream(file);
+        if (is == null) return -1;
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream in = new CheckedInputStream(is, crc)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) >= 0) {
+                // checksum only
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static SubscriptionPlan readCache(Path file, long checksum) {
+        if (!Files.isRegularFile(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readLong() != checksum) {
+                log.info("Subscription plan cache {} is out of date, parsing the swap points file", file);
+                return null;
+            }
+            return SubscriptionPlan.read(in);
+        } catch (IOException e) {
+            log.warn("Could not read subscription plan cache {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    // Written to a temporary file and moved into place so a crash never leaves half a cache
+    private static void writeCache(Path file, long checksum, SubscriptionPlan plan) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeLong(checksum);
+                plan.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write subscription plan cache {}: {}", file, e.getMessage());
+        }
+    }
+}
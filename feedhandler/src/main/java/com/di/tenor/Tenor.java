@@ -0,0 +1,183 @@
+package com.di.tenor;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Interned tenor value. Every distinct canonical tenor gets one instance and a small int code
+ * (code 0 is the empty tenor), so batches can carry the code and callers can compare by identity.
+ *
+ * parse() lexes a raw tenor in one pass with the same rules as the old regex normalizeTenor:
+ * an "SP-"/"SP:" prefix is dropped, the known families are kept as-is, anything containing
+ * BOMn/EOMn becomes "<first digits>M", and unrecognised text is kept as-is with a warning.
+ * Raw strings are cached, so a repeated tenor costs one hash lookup.
+ */
+@Slf4j
+@Getter
+public final class Tenor {
+    public enum Kind {
+        NONE,           // empty / spot
+        CENTRAL_BANK,   // FED_Jan_25, ECB_Mar_25
+        IMM,            // IMM1
+        QUARTER,        // EOQ5, BOQ6
+        FUTURE,         // F1, M2, T1
+        SHORT_DATE,     // ON, TN, SN, ON+1
+        PERIOD,         // 1W, 3M, 30D, 2Y and BOM/EOM rolled to months
+        DATE,           // YYYYMMDD
+        UNKNOWN
+    }
+
+    public static final Tenor NONE = new Tenor(0, "", Kind.NONE);
+
+    private static final ConcurrentHashMap<String, Tenor> BY_RAW = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Tenor> BY_VALUE = new ConcurrentHashMap<>();
+    private static volatile Tenor[] byCode = {NONE};
+
+    static {
+        BY_RAW.put("", NONE);
+        BY_VALUE.put("", NONE);
+    }
+
+    private final int code;
+    private final String value;
+    private final Kind kind;
+
+    private Tenor(int code, String value, Kind kind) {
+        this.code = code;
+        this.value = value;
+        this.kind = kind;
+    }
+
+    public static Tenor parse(String raw) {
+        if (raw == null) return NONE;
+        Tenor tenor = BY_RAW.get(raw);
+        return tenor != null ? tenor : lex(raw);
+    }
+
+    public static Tenor ofCode(int code) {
+        return byCode[code];
+    }
+
+    public boolean isDate() {
+        return kind == Kind.DATE;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    private static Tenor lex(String raw) {
+        String text = raw.startsWith("SP-") || raw.startsWith("SP:") ? raw.substring(3) : raw;
+        Kind kind = classify(text);
+        String value = text;
+        if (kind == Kind.UNKNOWN) {
+            int digits = monthEndDigits(text);
+            if (digits >= 0) {
+                value = text.substring(digits, digitsEnd(text, digits)) + "M";
+                kind = Kind.PERIOD;
+            } else {
+                log.warn("Unrecognized tenor format: {} (original: {}) - returning as-is", text, raw);
+            }
+        }
+        Tenor tenor = intern(value, value.isEmpty() ? Kind.NONE : kind);
+        BY_RAW.putIfAbsent(raw, tenor);
+        return tenor;
+    }
+
+    // Families that are kept verbatim, checked in the same order as the old patterns
+    private static Kind classify(String s) {
+        int len = s.length();
+        if (len == 0) return Kind.UNKNOWN;
+
+        if (len == 10 && isCentralBank(s) && s.charAt(3) == '_' && isWord(s.charAt(4))
+                && isWord(s.charAt(5)) && isWord(s.charAt(6)) && s.charAt(7) == '_'
+                && isDigit(s.charAt(8)) && isDigit(s.charAt(9))) {
+            return Kind.CENTRAL_BANK;
+        }
+        if (s.startsWith("IMM") && digitsFrom(s, 3)) return Kind.IMM;
+        if ((s.startsWith("EOQ") || s.startsWith("BOQ")) && digitsFrom(s, 3)) return Kind.QUARTER;
+
+        char first = s.charAt(0);
+        if ((first == 'F' || first == 'M' || first == 'T') && digitsFrom(s, 1)) return Kind.FUTURE;
+
+        if (len >= 2 && s.charAt(1) == 'N' && (first == 'O' || first == 'T' || first == 'S')) {
+            if (len == 2 || (s.charAt(2) == '+' && digitsFrom(s, 3))) return Kind.SHORT_DATE;
+        }
+
+        // BOM/EOM is handled by the caller since it rewrites the value
+        if (monthEndDigits(s) >= 0) return Kind.UNKNOWN;
+
+        char last = s.charAt(len - 1);
+        if ((last == 'D' || last == 'W' || last == 'M' || last == 'Y') && len >= 2 && digitsBetween(s, 0, len - 1)) {
+            return Kind.PERIOD;
+        }
+        if (len == 8 && digitsBetween(s, 0, 8)) return Kind.DATE;
+        return Kind.UNKNOWN;
+    }
+
+    // Index of the first digit in s if it contains BOMn or EOMn anywhere, otherwise -1
+    private static int monthEndDigits(String s) {
+        for (int i = 0; i + 3 < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c == 'B' || c == 'E') && s.charAt(i + 1) == 'O' && s.charAt(i + 2) == 'M' && isDigit(s.charAt(i + 3))) {
+                int j = 0;
+                while (!isDigit(s.charAt(j))) j++;
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    private static int digitsEnd(String s, int from) {
+        int i = from;
+        while (i < s.length() && isDigit(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isCentralBank(String s) {
+        return s.startsWith("FED") || s.startsWith("RBA") || s.startsWith("ECB")
+                || s.startsWith("BOE") || s.startsWith("BOC") || s.startsWith("SNB");
+    }
+
+    // One or more digits from index to the end
+    private static boolean digitsFrom(String s, int from) {
+        return s.length() > from && digitsBetween(s, from, s.length());
+    }
+
+    private static boolean digitsBetween(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Regex \w
+    private static boolean isWord(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static Tenor intern(String value, Kind kind) {
+        Tenor existing = BY_VALUE.get(value);
+        return existing != null ? existing : register(value, kind);
+    }
+
+    private static synchronized Tenor register(String value, Kind kind) {
+        Tenor existing = BY_VALUE.get(value);
+        if (existing != null) return existing;
+        Tenor[] current = byCode;
+        Tenor tenor = new Tenor(current.length, value, kind);
+        Tenor[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = tenor;
+        byCode = next;  // Publish the tenor before its code becomes visible
+        BY_VALUE.put(value, tenor);
+        return tenor;
+    }
+}
@@ -0,0 +1,100 @@
+package com.di.audit;
+
+import com.di.helper.FeedConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadAuditTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void auditsNothingByDefault() {
+        PayloadAudit audit = audit(new Properties());
+        for (int i = 0; i < 100; i++) {
+            assertFalse(audit.shouldAudit(AuditCategory.APP_IN, NOW));
+        }
+        assertFalse(audit.isTracing());
+        assertFalse(audit.isTraced("EUR/USD", "MDReq-1"));
+        assertTrue(audit.getStats().contains("APP_IN: sampleEvery=0 maxPerSecond=100 seen=0 written=0"),
+                audit.getStats());
+    }
+
+    @Test
+    void samplesOneInNPerCategory() {
+        Properties properties = new Properties();
+        properties.setProperty("audit.sampleEvery.APP_IN", "3");
+        properties.setProperty("audit.sampleEvery.SNAPSHOT", "1");
+        PayloadAudit audit = audit(properties);
+
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            if (audit.shouldAudit(AuditCategory.APP_IN, NOW)) sampled++;
+        }
+        assertEquals(3, sampled);
+        assertTrue(audit.shouldAudit(AuditCategory.SNAPSHOT, NOW));
+        assertFalse(audit.shouldAudit(AuditCategory.ADMIN_IN, NOW));
+
+        audit.setSampleEvery("APP_IN", 0);
+        assertFalse(audit.shouldAudit(AuditCategory.APP_IN, NOW));
+    }
+
+    @Test
+    void rateLimitsEachSecond() {
+        Properties properties = new Properties();
+        properties.setProperty("audit.sampleEvery.APP_OUT", "1");
+        properties.setProperty("audit.maxPerSecond", "2");
+        PayloadAudit audit = audit(properties);
+
+        assertTrue(audit.shouldAudit(AuditCategory.APP_OUT, NOW));
+        assertTrue(audit.shouldAudit(AuditCategory.APP_OUT, NOW + 10));
+        assertFalse(audit.shouldAudit(AuditCategory.APP_OUT, NOW + 20));
+        assertTrue(audit.shouldAudit(AuditCategory.APP_OUT, NOW + 1_000), "a new second");
+        assertTrue(audit.getStats().contains("APP_OUT: sampleEvery=1 maxPerSecond=2 seen=4 written=3 rateLimited=1"),
+                audit.getStats());
+
+        audit.setMaxPerSecond("APP_OUT", 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(audit.shouldAudit(AuditCategory.APP_OUT, NOW + 1_000), "0 is unlimited");
+        }
+    }
+
+    @Test
+    void tracesSymbolsAndMdReqIdsUntilCleared() {
+        Properties properties = new Properties();
+        properties.setProperty("audit.trace.symbols", "EUR/USD");
+        PayloadAudit audit = audit(properties);
+        assertTrue(audit.isTraced("EUR/USD", null));
+        assertFalse(audit.isTraced("GBP/USD", null));
+
+        audit.traceMdReqId("MDReq-7");
+        assertTrue(audit.isTraced("GBP/USD", "MDReq-7"));
+        assertEquals(Set.of("MDReq-7"), audit.getTracedMdReqIds());
+
+        audit.untraceSymbol("EUR/USD");
+        assertFalse(audit.isTraced("EUR/USD", null));
+        assertTrue(audit.isTracing());
+        audit.clearTraces();
+        assertFalse(audit.isTracing());
+        assertFalse(audit.isTraced("GBP/USD", "MDReq-7"));
+    }
+
+    @Test
+    void formatsNothingThatIsNotSampled() {
+        PayloadAudit audit = audit(new Properties());
+        Object payload = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("formatted");
+            }
+        };
+        audit.audit(AuditCategory.APP_IN, payload);
+    }
+
+    private static PayloadAudit audit(Properties properties) {
+        return new PayloadAudit(new FeedConfig(properties));
+    }
+}
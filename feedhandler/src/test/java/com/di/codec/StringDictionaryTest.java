@@ -0,0 +1,42 @@
+package com.di.codec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+    @Test
+    void encodesNullAndEmptyAsTheEmptyId() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(StringDictionary.EMPTY, dictionary.idOf(null));
+        assertEquals(StringDictionary.EMPTY, dictionary.idOf(""));
+        assertEquals(StringDictionary.EMPTY, dictionary.idOf("abc", 1, 1));
+        assertEquals("", dictionary.valueOf(StringDictionary.EMPTY));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void givesStringsAndRangesOfTheSameTextOneId() {
+        StringDictionary dictionary = new StringDictionary();
+        int id = dictionary.idOf("EUR/USD");
+        assertEquals(1, id);
+        assertEquals(id, dictionary.idOf("55=EUR/USD\001", 3, 10));
+        assertEquals(id, dictionary.idOf(new StringBuilder("EUR/USD"), 0, 7));
+        assertSame(dictionary.valueOf(id), dictionary.valueOf(dictionary.idOf(new String("EUR/USD"))));
+        assertEquals(2, dictionary.idOf("55=EUR/USD\001", 3, 6));
+        assertEquals("EUR", dictionary.valueOf(2));
+    }
+
+    @Test
+    void keepsIdsDenseAndStableWhileGrowing() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 1; i <= 1_000; i++) {
+            assertEquals(i, dictionary.idOf("S" + i));
+        }
+        assertEquals(1_001, dictionary.size());
+        for (int i = 1; i <= 1_000; i++) {
+            assertEquals(i, dictionary.idOf("x S" + i + " x", 2, 3 + Integer.toString(i).length()));
+            assertEquals("S" + i, dictionary.valueOf(i));
+        }
+    }
+}
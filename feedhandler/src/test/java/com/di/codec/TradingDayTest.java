@@ -0,0 +1,84 @@
+package com.di.codec;
+
+import com.di.helper.FeedConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradingDayTest {
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    @Test
+    void rollsToTheNextDayAtAnEveningSessionStart() {
+        TradingDay day = new TradingDay(LocalTime.of(23, 0), NEW_YORK, ZoneOffset.UTC);
+        // 22:59:59.999 and 23:00 New York on 2025-01-02 (EST, UTC-5)
+        assertEquals(LocalDate.of(2025, 1, 2), tradingDay(day, "2025-01-03T03:59:59.999Z"));
+        assertEquals(LocalDate.of(2025, 1, 3), tradingDay(day, "2025-01-03T04:00:00Z"));
+        assertEquals(LocalDate.of(2025, 1, 3), tradingDay(day, "2025-01-03T21:00:00Z"));
+        assertEquals(LocalDate.of(2025, 1, 4), tradingDay(day, "2025-01-04T04:00:00Z"));
+        assertEquals(LocalDate.of(2025, 1, 2), tradingDay(day, "2025-01-02T12:00:00Z"), "back in time recomputes");
+    }
+
+    @Test
+    void keepsTheCalendarDayForAMorningSessionStart() {
+        TradingDay day = new TradingDay(LocalTime.of(5, 0), ZoneOffset.UTC, ZoneOffset.UTC);
+        assertEquals(LocalDate.of(2025, 1, 2), tradingDay(day, "2025-01-03T04:59:59Z"));
+        assertEquals(LocalDate.of(2025, 1, 3), tradingDay(day, "2025-01-03T05:00:00Z"));
+    }
+
+    @Test
+    void followsTheSessionZoneAcrossDaylightSaving() {
+        TradingDay day = new TradingDay(LocalTime.of(17, 0), NEW_YORK, ZoneOffset.UTC);
+        // 17:00 New York is 22:00 UTC before 2025-03-09 and 21:00 UTC after
+        assertEquals(LocalDate.of(2025, 3, 7), tradingDay(day, "2025-03-06T22:00:00Z"));
+        assertEquals(LocalDate.of(2025, 3, 10), tradingDay(day, "2025-03-09T21:00:00Z"));
+        assertEquals(LocalDate.of(2025, 3, 9), tradingDay(day, "2025-03-09T20:59:59Z"));
+    }
+
+    @Test
+    void placesEntryTimesOnTheNearestDay() {
+        TradingDay day = new TradingDay(LocalTime.MIDNIGHT, ZoneOffset.UTC, ZoneOffset.UTC);
+        long rcvNanos = nanos("2025-01-03T00:00:01Z");
+        day.refresh(rcvNanos);
+        assertEquals(nanos("2025-01-02T23:59:59.5Z"), day.entryTimeNanos(nanosOfDay(23, 59, 59, 500), rcvNanos),
+                "an entry stamped before midnight belongs to the previous day");
+        assertEquals(nanos("2025-01-03T00:00:00.5Z"), day.entryTimeNanos(nanosOfDay(0, 0, 0, 500), rcvNanos));
+
+        rcvNanos = nanos("2025-01-03T23:59:59Z");
+        day.refresh(rcvNanos);
+        assertEquals(nanos("2025-01-04T00:00:00.2Z"), day.entryTimeNanos(nanosOfDay(0, 0, 0, 200), rcvNanos),
+                "a receive clock behind the venue's");
+    }
+
+    @Test
+    void readsTheSessionStartAndEntryZoneFromConfig() {
+        Properties properties = new Properties();
+        properties.setProperty("session.startTime", " 23:00:00 America/New_York ");
+        properties.setProperty("decode.entryTimeZone", "UTC");
+        TradingDay day = TradingDay.fromConfig(new FeedConfig(properties));
+        assertEquals(LocalDate.of(2025, 1, 3), tradingDay(day, "2025-01-03T04:00:00Z"));
+        long rcvNanos = nanos("2025-01-03T04:00:00Z");
+        assertEquals(nanos("2025-01-03T03:59:00Z"), day.entryTimeNanos(nanosOfDay(3, 59, 0, 0), rcvNanos));
+    }
+
+    private static LocalDate tradingDay(TradingDay day, String rcvTime) {
+        day.refresh(nanos(rcvTime));
+        return LocalDate.ofEpochDay(day.getEpochDay());
+    }
+
+    private static long nanos(String instant) {
+        Instant time = Instant.parse(instant);
+        return time.getEpochSecond() * FixCodec.NANOS_PER_SECOND + time.getNano();
+    }
+
+    private static long nanosOfDay(int hour, int minute, int second, int millis) {
+        return LocalTime.of(hour, minute, second, millis * 1_000_000).toNanoOfDay();
+    }
+}
@@ -0,0 +1,74 @@
+package com.di.concurrent;
+
+import com.di.helper.FeedConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionModeTest {
+    @Test
+    void readsTheModeFromConfigDefaultingToPlatform() {
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.of("Virtual"));
+        assertEquals(ExecutionMode.PLATFORM, ExecutionMode.of("platform"));
+        assertEquals(ExecutionMode.PLATFORM, ExecutionMode.of("carrier"));
+        assertEquals(ExecutionMode.PLATFORM, ExecutionMode.of(null));
+
+        Properties properties = new Properties();
+        assertEquals(ExecutionMode.PLATFORM, ExecutionMode.fromConfig(new FeedConfig(properties)));
+        properties.setProperty("execution.mode", "virtual");
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.fromConfig(new FeedConfig(properties)));
+    }
+
+    @Test
+    void createsNamedUnstartedThreadsOfTheMode() {
+        Thread platform = ExecutionMode.PLATFORM.newThread("rt-publisher", () -> { });
+        assertEquals("rt-publisher", platform.getName());
+        assertFalse(platform.isVirtual());
+        assertTrue(platform.isDaemon(), "does not hold the JVM open");
+        assertEquals(Thread.State.NEW, platform.getState());
+
+        Thread virtual = ExecutionMode.VIRTUAL.newThread("rt-publisher", () -> { });
+        assertEquals("rt-publisher", virtual.getName());
+        assertTrue(virtual.isVirtual());
+        assertEquals(Thread.State.NEW, virtual.getState());
+
+        Thread pacer = ExecutionMode.VIRTUAL.threadFactory("subscription-pacer").newThread(() -> { });
+        assertEquals("subscription-pacer", pacer.getName());
+        assertTrue(pacer.isVirtual());
+    }
+
+    @Test
+    void taskExecutorRunsEachTaskOnItsOwnThreadAndCloseWaitsForThem() throws Exception {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            AtomicInteger done = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(3);
+            try (ExecutorService executor = mode.newTaskExecutor("rt-close")) {
+                for (int i = 0; i < 3; i++) {
+                    executor.submit(() -> {
+                        threads.add(Thread.currentThread());
+                        started.countDown();
+                        // Only returns once all three run at the same time
+                        started.await(5, TimeUnit.SECONDS);
+                        done.incrementAndGet();
+                        return null;
+                    });
+                }
+            }
+            assertEquals(3, done.get(), mode + " close waits for every task");
+            assertEquals(3, threads.size(), mode.toString());
+            for (Thread thread : threads) {
+                assertEquals("rt-close", thread.getName());
+                assertEquals(mode == ExecutionMode.VIRTUAL, thread.isVirtual());
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.di.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpscRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertEquals(2, new SpscRingBuffer<>(2).capacity());
+        assertEquals(8, new SpscRingBuffer<>(5).capacity());
+        assertEquals(1024, new SpscRingBuffer<>(1024).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(1));
+    }
+
+    @Test
+    void isFifoAndRejectsOffersWhenFull() {
+        SpscRingBuffer<Integer> ring = new SpscRingBuffer<>(4);
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void handsElementsOverInOrderBetweenTwoThreads() throws Exception {
+        int count = 200_000;
+        SpscRingBuffer<Integer> ring = new SpscRingBuffer<>(64);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            int expected = 0;
+            while (expected < count) {
+                Integer value = ring.poll();
+                if (value == null) {
+                    Thread.yield();
+                } else if (value != expected++) {
+                    failure.set("expected " + (expected - 1) + " but got " + value);
+                    return;
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            while (!ring.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumer.join(30_000);
+        assertFalse(consumer.isAlive(), "consumer did not finish");
+        assertNull(failure.get());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void padsHeadAndTailThroughTheClassHierarchy() throws Exception {
+        // A superclass's fields are laid out before its subclass's, so the hierarchy fixes the order
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> type = SpscRingBuffer.class; type != Object.class; type = type.getSuperclass()) {
+            hierarchy.add(0, type);
+        }
+        assertEquals(List.of("SpscPadding0", "SpscHead", "SpscPadding1", "SpscTail", "SpscPadding2", "SpscRingBuffer"),
+                hierarchy.stream().map(Class::getSimpleName).toList());
+
+        Class<?> head = hierarchy.get(1);
+        Class<?> tail = hierarchy.get(3);
+        assertEquals(List.of("head", "tailCache"), instanceFields(head));
+        assertEquals(List.of("tail", "headCache"), instanceFields(tail));
+        assertTrue(Modifier.isVolatile(head.getDeclaredField("head").getModifiers()));
+        assertTrue(Modifier.isVolatile(tail.getDeclaredField("tail").getModifiers()));
+        for (Class<?> padding : List.of(hierarchy.get(0), hierarchy.get(2), hierarchy.get(4))) {
+            assertTrue(paddingBytes(padding) >= 64, padding.getSimpleName() + " pads " + paddingBytes(padding));
+        }
+    }
+
+    private static List<String> instanceFields(Class<?> type) {
+        List<String> names = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                names.add(field.getName());
+            }
+        }
+        return names;
+    }
+
+    // Only longs, so the padding is the same size whatever order the JVM packs them in
+    private static int paddingBytes(Class<?> type) {
+        int bytes = 0;
+        for (Field field : type.getDeclaredFields()) {
+            assertEquals(long.class, field.getType(), field.getName());
+            bytes += Long.BYTES;
+        }
+        return bytes;
+    }
+}
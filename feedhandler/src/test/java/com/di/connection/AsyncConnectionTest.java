@@ -0,0 +1,162 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.concurrent.WaitStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncConnectionTest {
+    private static final long CLOSE_TIMEOUT_MS = 200;
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void publishesEverythingQueuedBeforeClose(ExecutionMode mode) throws Exception {
+        AtomicInteger rows = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean virtual = new AtomicBoolean();
+        Connection delegate = new Connection() {
+            @Override public void openConnection() {}
+            @Override public void closeConnection() { closed.set(true); }
+
+            @Override
+            public void insertBatch(MarketDataBatch batch) {
+                virtual.set(Thread.currentThread().isVirtual());
+                rows.addAndGet(batch.getRowCount());
+            }
+        };
+        AsyncConnection async = new AsyncConnection(delegate, 16, WaitStrategy.of("yielding", 0), true, 0,
+                CLOSE_TIMEOUT_MS, mode);
+        async.openConnection();
+        MarketDataBatch batch = batch(3);
+        for (int i = 0; i < 100; i++) {
+            async.insertBatch(batch);
+        }
+        async.closeConnection();
+
+        assertEquals(300, rows.get());
+        assertTrue(closed.get());
+        assertEquals(100, async.getPublishedBatches());
+        assertEquals(mode == ExecutionMode.VIRTUAL, virtual.get(), "written from the mode's publisher thread");
+    }
+
+    @Test
+    void leavesTheDelegateOpenWhileAWriteIsInFlight() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicBoolean closedDuringWrite = new AtomicBoolean();
+        AtomicBoolean inWrite = new AtomicBoolean();
+        Connection delegate = new Connection() {
+            @Override public void openConnection() {}
+
+            @Override
+            public void closeConnection() {
+                closedDuringWrite.set(inWrite.get());
+                closed.countDown();
+            }
+
+            @Override
+            public void insertBatch(MarketDataBatch batch) throws IOException {
+                inWrite.set(true);
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    inWrite.set(false);
+                }
+            }
+        };
+        AsyncConnection async = new AsyncConnection(delegate, 4, WaitStrategy.of("yielding", 0), true, 0,
+                CLOSE_TIMEOUT_MS, ExecutionMode.PLATFORM);
+        async.openConnection();
+        async.insertBatch(batch(1));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        async.closeConnection();  // Gives up waiting after its timeout
+        assertEquals(1, closed.getCount(), "delegate closed under a write");
+        assertThrows(IOException.class, async::openConnection);
+
+        release.countDown();
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "publisher did not close the delegate when done");
+        assertFalse(closedDuringWrite.get());
+    }
+
+    @Test
+    void rejectsABatchFromASecondProducerWhileTheFirstIsEnqueueing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Connection delegate = new Connection() {
+            @Override public void openConnection() {}
+            @Override public void closeConnection() {}
+
+            @Override
+            public void insertBatch(MarketDataBatch batch) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        AsyncConnection async = new AsyncConnection(delegate, 2, WaitStrategy.of("yielding", 0), true, 0,
+                CLOSE_TIMEOUT_MS, ExecutionMode.PLATFORM);
+        async.openConnection();
+        // One batch held by the blocked write and one in the ring: the next enqueue waits for a slot
+        async.insertBatch(batch(1));
+        async.insertBatch(batch(1));
+
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong rejected = new AtomicLong(-1);
+        Thread[] producers = new Thread[2];
+        for (int p = 0; p < producers.length; p++) {
+            long position = p;
+            producers[p] = new Thread(() -> {
+                MarketDataBatch batch = batch(1);
+                batch.addAcknowledgement(new PublishAcknowledger() {
+                    @Override public void acknowledge(long acknowledged) {}
+                    @Override public void reject(long lowest) { rejected.set(lowest); }
+                }, position);
+                try {
+                    async.insertBatch(batch);
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            producers[p].start();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (failures.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread producer : producers) {
+            producer.join(5_000);
+        }
+        async.closeConnection();
+
+        assertEquals(1, failures.get());
+        assertNotEquals(-1, rejected.get(), "the second producer's batch was not rejected");
+        assertEquals(3, async.getPublishedBatches());
+    }
+
+    static MarketDataBatch batch(int rows) {
+        MarketDataBatch batch = new MarketDataBatch();
+        int symbol = batch.encode("EUR/USD");
+        for (int i = 0; i < rows; i++) {
+            batch.add(i, i, null, symbol, 0, MarketDataBatch.SIDE_BID, 1.08 + i, 1e6, MarketDataBatch.NO_DATE,
+                    false, MarketDataBatch.NO_DATE, 0, 0, 0, MarketDataBatch.NO_DATE, 0);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,111 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingConnectionTest {
+    private static final long NEVER = TimeUnit.MINUTES.toMicros(10);
+
+    // Rows per write reaching the delegate
+    private final BlockingQueue<Integer> writes = new LinkedBlockingQueue<>();
+    private volatile boolean failing;
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    private final List<Long> rejected = new CopyOnWriteArrayList<>();
+    private final PublishAcknowledger acknowledger = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { rejected.add(position); }
+    };
+    private final Connection delegate = new Connection() {
+        @Override public void openConnection() {}
+        @Override public void closeConnection() {}
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) throws IOException {
+            if (failing) {
+                throw new IOException("RT refused the batch");
+            }
+            // Acknowledged first, so a test that has seen the write also sees the acknowledgement
+            batch.acknowledge();
+            writes.add(batch.getRowCount());
+        }
+    };
+
+    @Test
+    void flushesOnceMaxRowsArePending() throws Exception {
+        CoalescingConnection coalescing = coalescing(3, Long.MAX_VALUE, NEVER);
+        coalescing.insertBatch(batch(1, 1));
+        coalescing.insertBatch(batch(1, 2));
+        assertNull(writes.poll());
+        assertEquals(2, coalescing.getPendingRows());
+
+        coalescing.insertBatch(batch(1, 3));
+        assertEquals(3, writes.poll());
+        assertEquals(0, coalescing.getPendingRows());
+        assertEquals(List.of(3L), acknowledged, "one acknowledgement up to the highest position");
+        assertEquals(1, coalescing.getHistogram().getBatchCount());
+    }
+
+    @Test
+    void flushesOnceMaxBytesArePending() throws Exception {
+        CoalescingConnection coalescing = coalescing(Integer.MAX_VALUE, batch(2, 0).estimateBytes() + 1, NEVER);
+        coalescing.insertBatch(batch(2, 1));
+        assertNull(writes.poll());
+        coalescing.insertBatch(batch(1, 2));
+        assertEquals(3, writes.poll());
+    }
+
+    @Test
+    void flushesALingeringBatchFromTheTimer() throws Exception {
+        CoalescingConnection coalescing = coalescing(Integer.MAX_VALUE, Long.MAX_VALUE, 5_000);
+        coalescing.openConnection();
+        try {
+            coalescing.insertBatch(batch(2, 1));
+            assertEquals(2, writes.poll(5, TimeUnit.SECONDS), "no flush after the linger period");
+            assertEquals(List.of(1L), acknowledged);
+        } finally {
+            coalescing.closeConnection();
+        }
+    }
+
+    @Test
+    void rejectsEveryBatchAFailedFlushGathered() throws Exception {
+        CoalescingConnection coalescing = coalescing(3, Long.MAX_VALUE, NEVER);
+        coalescing.insertBatch(batch(1, 5));
+        coalescing.insertBatch(batch(1, 6));
+        failing = true;
+
+        assertThrows(IOException.class, () -> coalescing.insertBatch(batch(1, 7)));
+        assertEquals(List.of(5L), rejected, "rejected from the lowest position gathered");
+        assertEquals(List.of(), acknowledged);
+        assertEquals(1, coalescing.getFailedBatches());
+        assertEquals(0, coalescing.getPendingRows());
+
+        failing = false;
+        coalescing.closeConnection();
+        assertNull(writes.poll(), "the failed rows are not written again by close");
+    }
+
+    private CoalescingConnection coalescing(int maxRows, long maxBytes, long maxLingerMicros) {
+        return new CoalescingConnection(delegate, maxRows, maxBytes, maxLingerMicros, 0, ExecutionMode.PLATFORM);
+    }
+
+    private MarketDataBatch batch(int rows, long position) {
+        MarketDataBatch batch = new MarketDataBatch();
+        int symbol = batch.encode("EUR/USD");
+        for (int i = 0; i < rows; i++) {
+            batch.add(i, i, null, symbol, 0, MarketDataBatch.SIDE_BID, 1.08 + i, 1e6, MarketDataBatch.NO_DATE,
+                    false, MarketDataBatch.NO_DATE, 0, 0, 0, 0, 0);
+        }
+        batch.addAcknowledgement(acknowledger, position);
+        return batch;
+    }
+}
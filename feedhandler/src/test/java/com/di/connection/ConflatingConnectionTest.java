@@ -0,0 +1,125 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConflatingConnectionTest {
+    // Each write as "symbol tenor side price" per row
+    private final BlockingQueue<List<String>> writes = new LinkedBlockingQueue<>();
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    private final PublishAcknowledger acknowledger = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { fail("rejected " + position); }
+    };
+    private final Connection delegate = new Connection() {
+        @Override public void openConnection() {}
+        @Override public void closeConnection() {}
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) {
+            List<String> rows = new ArrayList<>();
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                rows.add(batch.getSymbol(row) + " " + Tenor.ofCode(batch.getTenor(row)).getValue() + " "
+                        + (batch.getSide(row) == MarketDataBatch.SIDE_BID ? "BID" : "OFFER") + " "
+                        + batch.getPrice(row));
+            }
+            writes.add(rows);
+            batch.acknowledge();
+        }
+    };
+
+    @Test
+    void keepsTheLatestRowPerKeyInFirstArrivalOrder() throws Exception {
+        ConflatingConnection conflating = conflating();
+        // Queued before the publisher starts, as while the writer is busy
+        conflating.insertBatch(batch(1, row("EUR/GBP", "1M", MarketDataBatch.SIDE_BID, 1.0),
+                row("EUR/GBP", "1M", MarketDataBatch.SIDE_OFFER, 1.1),
+                row("EUR/GBP", "2M", MarketDataBatch.SIDE_BID, 2.0)));
+        conflating.insertBatch(batch(2, row("EUR/GBP", "1M", MarketDataBatch.SIDE_BID, 1.01),
+                row("EUR/GBP", "2M", MarketDataBatch.SIDE_BID, 2.01),
+                row("GBP/JPY", "1M", MarketDataBatch.SIDE_BID, 180.0)));
+        assertEquals(4, conflating.getPendingRows());
+
+        conflating.openConnection();
+        try {
+            assertEquals(List.of("EUR/GBP 1M BID 1.01", "EUR/GBP 1M OFFER 1.1", "EUR/GBP 2M BID 2.01",
+                    "GBP/JPY 1M BID 180.0"), writes.poll(5, TimeUnit.SECONDS));
+        } finally {
+            conflating.closeConnection();
+        }
+        assertEquals(2, conflating.getConflatedUpdates());
+        assertEquals(Map.of("EUR/GBP", 2L), conflating.getConflatedBySymbol());
+        assertEquals(List.of(2L), acknowledged, "the conflated batch acknowledges every batch it took");
+    }
+
+    @Test
+    void neverConflatesTheConfiguredSymbolsAndTenors() throws Exception {
+        ConflatingConnection conflating = conflating();
+        conflating.insertBatch(batch(1, row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08),
+                row("EUR/GBP", "ON", MarketDataBatch.SIDE_BID, 0.85),
+                row("EUR/GBP", "", MarketDataBatch.SIDE_BID, 0.86)));
+        conflating.insertBatch(batch(2, row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.09),
+                row("EUR/GBP", "ON", MarketDataBatch.SIDE_BID, 0.851),
+                row("EUR/GBP", "", MarketDataBatch.SIDE_BID, 0.861)));
+
+        conflating.openConnection();
+        try {
+            assertEquals(List.of("EUR/USD 1M BID 1.08", "EUR/GBP ON BID 0.85", "EUR/GBP  BID 0.86",
+                    "EUR/USD 1M BID 1.09", "EUR/GBP ON BID 0.851", "EUR/GBP  BID 0.861"),
+                    writes.poll(5, TimeUnit.SECONDS));
+        } finally {
+            conflating.closeConnection();
+        }
+        assertEquals(0, conflating.getConflatedUpdates());
+    }
+
+    @Test
+    void publishesEachUpdateWhenTheWriterKeepsUp() throws Exception {
+        ConflatingConnection conflating = conflating();
+        conflating.openConnection();
+        try {
+            for (int i = 0; i < 3; i++) {
+                conflating.insertBatch(batch(i, row("EUR/GBP", "1M", MarketDataBatch.SIDE_BID, 1.0 + i)));
+                assertEquals(List.of("EUR/GBP 1M BID " + (1.0 + i)), writes.poll(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            conflating.closeConnection();
+        }
+        assertEquals(0, conflating.getConflatedUpdates());
+        assertEquals(3, conflating.getPublishedRows());
+    }
+
+    private ConflatingConnection conflating() {
+        return new ConflatingConnection(delegate, Set.of("EUR/USD"), Set.of("ON", "SPOT"), 0, 1_000,
+                ExecutionMode.PLATFORM);
+    }
+
+    private record Row(String symbol, String tenor, int side, double price) {
+    }
+
+    private static Row row(String symbol, String tenor, int side, double price) {
+        return new Row(symbol, tenor, side, price);
+    }
+
+    private MarketDataBatch batch(long position, Row... rows) {
+        MarketDataBatch batch = new MarketDataBatch();
+        for (Row row : rows) {
+            batch.add(0, 0, null, batch.encode(row.symbol()), 0, row.side(), row.price(), 1e6, MarketDataBatch.NO_DATE,
+                    false, MarketDataBatch.NO_DATE, 0, 0, Tenor.parse(row.tenor()).getCode(), 0, 0);
+        }
+        batch.addAcknowledgement(acknowledger, position);
+        return batch;
+    }
+}
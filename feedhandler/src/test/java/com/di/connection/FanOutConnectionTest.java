@@ -0,0 +1,177 @@
+package com.di.connection;
+
+import com.di.codec.StringDictionary;
+import com.di.concurrent.ExecutionMode;
+import com.di.concurrent.WaitStrategy;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutConnectionTest {
+    private static final long CLOSE_TIMEOUT_MS = 200;
+
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    private final List<Long> rejected = new CopyOnWriteArrayList<>();
+    private final PublishAcknowledger journal = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { rejected.add(position); }
+    };
+    private final CountDownLatch release = new CountDownLatch(1);
+    private FanOutConnection fanOut;
+
+    @AfterEach
+    void close() throws Exception {
+        release.countDown();
+        if (fanOut != null) fanOut.closeConnection();
+    }
+
+    @Test
+    void acknowledgesOnlyThroughThePrimary() throws Exception {
+        Recording primary = new Recording();
+        Recording secondary = new Recording();
+        // A secondary with its own acknowledging stage must still not acknowledge the journal
+        fanOut = new FanOutConnection(List.of(destination("rt1", new AcknowledgingConnection(primary), 16),
+                destination("rt2", new AcknowledgingConnection(secondary), 16)));
+        fanOut.openConnection();
+
+        for (int i = 1; i <= 3; i++) {
+            fanOut.insertBatch(batch(i, i));
+        }
+        fanOut.closeConnection();
+        fanOut = null;
+
+        assertEquals(3, primary.rows.get());
+        assertEquals(3, secondary.rows.get());
+        assertEquals(List.of(1L, 2L, 3L), acknowledged);
+        assertEquals(List.of(), rejected);
+    }
+
+    @Test
+    void aSlowSecondaryDropsItsOwnBatchesWithoutHoldingUpThePrimary() throws Exception {
+        Recording primary = new Recording();
+        Recording secondary = new Recording() {
+            @Override
+            public void insertBatch(MarketDataBatch batch) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.insertBatch(batch);
+            }
+        };
+        fanOut = new FanOutConnection(List.of(destination("rt1", new AcknowledgingConnection(primary), 256),
+                destination("rt2", secondary, 4)));
+        fanOut.openConnection();
+
+        for (int i = 1; i <= 100; i++) {
+            fanOut.insertBatch(batch(i, i * 1_000_000L));
+        }
+        awaitRows(primary, 100);
+        assertEquals(100, acknowledged.size());
+        assertEquals(List.of(), rejected, "a drop on the secondary does not reject the journal");
+
+        FanOutConnection.Destination slow = fanOut.getDestinations().get(1);
+        assertTrue(slow.getQueue().getDroppedBatches() > 0);
+        assertEquals(0, slow.getWrittenRows());
+        assertEquals(100, slow.getLagMillis(), "newest queued row against nothing written");
+        assertEquals(100, fanOut.getDestinations().get(0).getWrittenRows());
+    }
+
+    @Test
+    void aFailingSecondaryOnlyCountsItsOwnFailures() throws Exception {
+        Recording primary = new Recording();
+        Connection failing = new Connection() {
+            @Override public void openConnection() throws IOException { throw new IOException("rt2 is down"); }
+            @Override public void closeConnection() {}
+            @Override public void insertBatch(MarketDataBatch batch) throws IOException {
+                throw new IOException("rt2 is down");
+            }
+        };
+        fanOut = new FanOutConnection(List.of(destination("rt1", new AcknowledgingConnection(primary), 16),
+                destination("rt2", failing, 16)));
+        fanOut.openConnection();
+
+        for (int i = 1; i <= 5; i++) {
+            fanOut.insertBatch(batch(i, i));
+        }
+        awaitRows(primary, 5);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), acknowledged);
+        assertEquals(List.of(), rejected);
+    }
+
+    @Test
+    void failsToOpenOnlyWhenThePrimaryDoes() {
+        Connection down = new Connection() {
+            @Override public void openConnection() throws IOException { throw new IOException("rt1 is down"); }
+            @Override public void closeConnection() {}
+            @Override public void insertBatch(MarketDataBatch batch) {}
+        };
+        FanOutConnection connection = new FanOutConnection(List.of(destination("rt1", down, 4),
+                destination("rt2", new Recording(), 4)));
+        IOException e = assertThrows(IOException.class, connection::openConnection);
+        assertEquals("rt1 is down", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new FanOutConnection(List.of()));
+    }
+
+    @Test
+    void replaysBacklogToThePrimaryOnly() throws Exception {
+        Recording primary = new Recording();
+        Recording secondary = new Recording();
+        fanOut = new FanOutConnection(List.of(destination("rt1", new AcknowledgingConnection(primary), 16),
+                destination("rt2", secondary, 16)));
+        fanOut.openConnection();
+        fanOut.insertBacklogBatch(batch(9, 9));
+        fanOut.closeConnection();
+        fanOut = null;
+
+        assertEquals(1, primary.rows.get());
+        assertEquals(0, secondary.rows.get());
+        assertEquals(List.of(9L), acknowledged);
+    }
+
+    private static class Recording implements Connection {
+        final AtomicInteger rows = new AtomicInteger();
+
+        @Override public void openConnection() {}
+        @Override public void closeConnection() {}
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) throws IOException {
+            rows.addAndGet(batch.getRowCount());
+        }
+    }
+
+    private static FanOutConnection.Destination destination(String name, Connection connection, int capacity) {
+        FanOutConnection.Tracking tracking = new FanOutConnection.Tracking(connection);
+        AsyncConnection queue = new AsyncConnection(tracking, capacity, WaitStrategy.of("yielding", 0), false, 0,
+                CLOSE_TIMEOUT_MS, ExecutionMode.PLATFORM, "kdb-publisher-" + name);
+        return new FanOutConnection.Destination(name, tracking, queue);
+    }
+
+    private MarketDataBatch batch(long position, long rcvNanos) {
+        MarketDataBatch batch = new MarketDataBatch();
+        batch.add(rcvNanos, rcvNanos, null, batch.encode("EUR/USD"), StringDictionary.EMPTY, MarketDataBatch.SIDE_BID,
+                1.08, 1e6, MarketDataBatch.NO_DATE, false, MarketDataBatch.NO_DATE, 0, StringDictionary.EMPTY,
+                Tenor.parse("1M").getCode(), StringDictionary.EMPTY, StringDictionary.EMPTY);
+        batch.addAcknowledgement(journal, position);
+        return batch;
+    }
+
+    private static void awaitRows(Recording connection, int rows) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connection.rows.get() < rows && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(rows, connection.rows.get());
+    }
+}
@@ -0,0 +1,81 @@
+package com.di.connection;
+
+import com.di.codec.StringDictionary;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataBatchTest {
+    @Test
+    void recordsTheIdsFirstDefinedWhileFilled() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.idOf("EUR/USD");
+        MarketDataBatch batch = new MarketDataBatch(dictionary, 4);
+        add(batch, "MDReq-1", "EUR/USD");
+        add(batch, "MDReq-1", "GBP/USD");
+        add(batch, "MDReq-2", "GBP/USD");
+
+        assertEquals(2, batch.getDictionaryDeltaCount(), "the FIX origin and GBP/USD");
+        assertEquals("FIX", dictionary.valueOf(batch.getDictionaryDeltaId(0)));
+        assertEquals("GBP/USD", dictionary.valueOf(batch.getDictionaryDeltaId(1)));
+        assertEquals("MDReq-2", batch.getReqId(2));
+        assertEquals(4, dictionary.size(), "MDReqIDs are not encoded");
+
+        batch.clear();
+        add(batch, "MDReq-3", "GBP/USD");
+        assertEquals(0, batch.getDictionaryDeltaCount());
+    }
+
+    @Test
+    void mergesRowsAndDeltasFromBatchesOnTheSameDictionary() {
+        StringDictionary dictionary = new StringDictionary();
+        MarketDataBatch first = new MarketDataBatch(dictionary, 4);
+        add(first, "MDReq-1", "EUR/USD");
+        MarketDataBatch second = new MarketDataBatch(dictionary, 4);
+        add(second, "MDReq-2", "USD/JPY");
+        add(second, null, "EUR/USD");
+
+        MarketDataBatch merged = new MarketDataBatch(new StringDictionary(), 1);
+        merged.addAll(first);
+        merged.addAll(second);
+        assertSame(dictionary, merged.getDictionary(), "an empty batch adopts the source dictionary");
+        assertEquals(3, merged.getRowCount());
+        assertEquals(first.getSymbolId(0), merged.getSymbolId(0));
+        assertEquals("", merged.getReqId(2));
+        assertEquals(3, merged.getDictionaryDeltaCount(), "EUR/USD, FIX and USD/JPY");
+        assertArrayEquals(concat(first.toRows(), second.toRows()), merged.toRows());
+    }
+
+    @Test
+    void recodesRowsFromAnotherDictionary() {
+        MarketDataBatch source = new MarketDataBatch(new StringDictionary(), 4);
+        add(source, "MDReq-1", "AUD/USD");
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.idOf("NZD/USD");
+        MarketDataBatch target = new MarketDataBatch(dictionary, 4);
+        add(target, "MDReq-0", "NZD/USD");
+        int delta = target.getDictionaryDeltaCount();
+
+        target.addAll(source);
+        assertEquals(2, target.getRowCount());
+        assertEquals("AUD/USD", target.getSymbol(1));
+        assertEquals("MDReq-1", target.getReqId(1));
+        assertEquals(dictionary.idOf("AUD/USD"), target.getSymbolId(1));
+        assertEquals(delta + 1, target.getDictionaryDeltaCount(), "the recoded symbol, not the source's delta");
+        assertArrayEquals(source.toRows()[0], target.toRows()[1]);
+    }
+
+    private static void add(MarketDataBatch batch, String reqId, String symbol) {
+        batch.add(1, 1, reqId, batch.encode(symbol), StringDictionary.EMPTY, MarketDataBatch.SIDE_BID, 1.08, 1e6,
+                MarketDataBatch.NO_DATE, false, MarketDataBatch.NO_DATE, 0, StringDictionary.EMPTY,
+                Tenor.parse("1M").getCode(), StringDictionary.EMPTY, batch.encode("FIX"));
+    }
+
+    private static Object[][] concat(Object[][] a, Object[][] b) {
+        Object[][] rows = new Object[a.length + b.length][];
+        System.arraycopy(a, 0, rows, 0, a.length);
+        System.arraycopy(b, 0, rows, a.length, b.length);
+        return rows;
+    }
+}
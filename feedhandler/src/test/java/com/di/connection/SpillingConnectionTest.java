@@ -0,0 +1,89 @@
+package com.di.connection;
+
+import com.di.concurrent.ExecutionMode;
+import com.di.spill.SpillStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingConnectionTest {
+    private static final double POISON = -1;
+
+    @TempDir
+    Path directory;
+
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+    private final List<Long> rejected = new CopyOnWriteArrayList<>();
+    private final PublishAcknowledger acknowledger = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { rejected.add(position); }
+    };
+
+    @Test
+    void rejectsWhatAFullSpillDirectoryDrops() throws Exception {
+        SpillingConnection spilling = new SpillingConnection(failing(), new SpillStore(directory, 0, 1024 * 1024, 1,
+                false), new CircuitBreaker("test", 10, 1000, 1000), 0, ExecutionMode.PLATFORM);
+
+        spilling.insertBatch(batch(1.0, 1));  // Spilled to disk, its acknowledgement held
+        spilling.insertBatch(batch(1.0, 2));  // Dropped
+
+        assertEquals(1, spilling.getDroppedRows());
+        assertEquals(List.of(1L), rejected, "held acknowledgements rejected from the lowest");
+        assertEquals(List.of(), acknowledged);
+    }
+
+    @Test
+    void rejectsABacklogBatchItGivesUpOn() throws Exception {
+        SpillingConnection spilling = new SpillingConnection(failing(), new SpillStore(directory, 1024 * 1024,
+                1024 * 1024, 0, false), new CircuitBreaker("test", 100, 1000, 1000), 0, ExecutionMode.PLATFORM);
+        spilling.openConnection();
+        try {
+            spilling.insertBatch(batch(POISON, 1));
+            long position = 2;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            // Live writes keep succeeding, so the drain thread counts strikes against the poison batch
+            while (rejected.isEmpty() && System.nanoTime() < deadline) {
+                spilling.insertBatch(batch(1.0, position++));
+                Thread.sleep(5);
+            }
+            assertFalse(rejected.isEmpty(), "the dropped batch was not rejected");
+            assertEquals(1L, rejected.get(0));
+            assertEquals(1, spilling.getDroppedRows());
+        } finally {
+            spilling.closeConnection();
+        }
+    }
+
+    // Fails every batch, or only poison batches once opened
+    private static Connection failing() {
+        return new Connection() {
+            private volatile boolean open;
+
+            @Override public void openConnection() { open = true; }
+            @Override public void closeConnection() { open = false; }
+
+            @Override
+            public void insertBatch(MarketDataBatch batch) throws IOException {
+                if (!open || batch.getPrice(0) == POISON) {
+                    throw new IOException("RT refused the batch");
+                }
+                batch.acknowledge();
+            }
+        };
+    }
+
+    private MarketDataBatch batch(double price, long position) {
+        MarketDataBatch batch = new MarketDataBatch();
+        batch.add(1, 1, null, batch.encode("EUR/USD"), 0, MarketDataBatch.SIDE_BID, price, 1e6,
+                MarketDataBatch.NO_DATE, false, MarketDataBatch.NO_DATE, 0, 0, 0, 0, 0);
+        batch.addAcknowledgement(acknowledger, position);
+        return batch;
+    }
+}
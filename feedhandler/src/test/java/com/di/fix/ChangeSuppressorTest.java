@@ -0,0 +1,155 @@
+package com.di.fix;
+
+import com.di.codec.StringDictionary;
+import com.di.connection.MarketDataBatch;
+import com.di.connection.PublishAcknowledger;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSuppressorTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ChangeSuppressor suppressor = new ChangeSuppressor(60_000, 0);
+    private final List<Long> acknowledged = new ArrayList<>();
+    private final PublishAcknowledger journal = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { }
+    };
+
+    @Test
+    void dropsUnchangedRowsAndKeepsTheOrderOfTheRest() {
+        assertEquals(0, suppressor.filter(snapshot(0, 1.0801, 1.0803, 1.0810, 1.0812)));
+
+        MarketDataBatch batch = snapshot(SECOND, 1.0801, 1.0804, 1.0810, 1.0813);
+        assertEquals(2, suppressor.filter(batch));
+        assertEquals(List.of("1M OFFER 1.0804", "2M OFFER 1.0813"), rows(batch));
+
+        batch = snapshot(2 * SECOND, 1.0802, 1.0804, 1.0811, 1.0813);
+        assertEquals(2, suppressor.filter(batch));
+        assertEquals(List.of("1M BID 1.0802", "2M BID 1.0811"), rows(batch));
+        assertEquals(12, suppressor.getRows());
+        assertEquals(4, suppressor.getSuppressedRows());
+    }
+
+    @Test
+    void comparesSizeForwardPointsAndQuoteConditionToo() {
+        suppressor.filter(batch(row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 1e6, 12.5, false, 0)));
+        MarketDataBatch batch = batch(
+                row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 2e6, 12.5, false, SECOND),
+                row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 2e6, 12.6, false, SECOND),
+                row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 2e6, 12.6, true, SECOND),
+                row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 2e6, 12.6, true, SECOND),
+                row("GBP/USD", "1M", MarketDataBatch.SIDE_BID, 1.08, 2e6, 12.6, true, SECOND));
+        assertEquals(1, suppressor.filter(batch), "only the repeat of the row before it");
+        assertEquals(4, batch.getRowCount());
+        assertEquals("GBP/USD", batch.getSymbol(3));
+    }
+
+    @Test
+    void republishesAnUnchangedRowAfterTheHeartbeat() {
+        suppressor.filter(snapshot(0, 1.0801, 1.0803, 1.0810, 1.0812));
+        assertEquals(4, suppressor.filter(snapshot(59 * SECOND, 1.0801, 1.0803, 1.0810, 1.0812)));
+
+        MarketDataBatch batch = snapshot(60 * SECOND, 1.0801, 1.0803, 1.0810, 1.0812);
+        assertEquals(0, suppressor.filter(batch));
+        assertEquals(4, suppressor.getHeartbeatRows());
+        assertEquals(4, suppressor.filter(snapshot(61 * SECOND, 1.0801, 1.0803, 1.0810, 1.0812)),
+                "the heartbeat restarts the interval");
+
+        ChangeSuppressor never = new ChangeSuppressor(0, 0);
+        never.filter(snapshot(0, 1.0801, 1.0803, 1.0810, 1.0812));
+        assertEquals(4, never.filter(snapshot(3_600 * SECOND, 1.0801, 1.0803, 1.0810, 1.0812)));
+    }
+
+    @Test
+    void publishesTheKeysOfARejectedBatchAgain() {
+        MarketDataBatch first = snapshot(0, 1.0801, 1.0803, 1.0810, 1.0812);
+        first.addAcknowledgement(journal, 7);
+        suppressor.filter(first);
+        first.acknowledge();
+        assertEquals(List.of(7L), acknowledged, "the journal is still acknowledged");
+        assertEquals(4, suppressor.filter(snapshot(SECOND, 1.0801, 1.0803, 1.0810, 1.0812)));
+
+        MarketDataBatch dropped = snapshot(2 * SECOND, 1.0802, 1.0803, 1.0810, 1.0812);
+        assertEquals(3, suppressor.filter(dropped));
+        dropped.reject();
+
+        MarketDataBatch batch = snapshot(3 * SECOND, 1.0802, 1.0803, 1.0810, 1.0812);
+        assertEquals(0, suppressor.filter(batch), "nothing is known to have reached RT");
+        batch.acknowledge();
+        assertEquals(4, suppressor.filter(snapshot(4 * SECOND, 1.0802, 1.0803, 1.0810, 1.0812)));
+    }
+
+    @Test
+    void givesNoAcknowledgementToAFullySuppressedBatch() {
+        suppressor.filter(snapshot(0, 1.0801, 1.0803, 1.0810, 1.0812));
+        MarketDataBatch batch = snapshot(SECOND, 1.0801, 1.0803, 1.0810, 1.0812);
+        batch.addAcknowledgement(journal, 8);
+        assertEquals(4, suppressor.filter(batch));
+        assertTrue(batch.isEmpty());
+        batch.reject();
+        assertEquals(3, suppressor.filter(snapshot(2 * SECOND, 1.0801, 1.0803, 1.0811, 1.0812)),
+                "a rejected batch without filtered rows forgets nothing");
+    }
+
+    @Test
+    void stopsTheStatsThreadOnClose() throws Exception {
+        ChangeSuppressor logging = new ChangeSuppressor(60_000, 10);
+        assertTrue(statsThreadRunning());
+        logging.close();
+        suppressor.close();
+        long deadline = System.nanoTime() + 5 * SECOND;
+        while (statsThreadRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(statsThreadRunning());
+    }
+
+    private static boolean statsThreadRunning() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("suppress-stats") && thread.isAlive());
+    }
+
+    // EUR/USD bid and offer for 1M and 2M
+    private static MarketDataBatch snapshot(long rcvNanos, double bid1M, double offer1M, double bid2M, double offer2M) {
+        return batch(row("EUR/USD", "1M", MarketDataBatch.SIDE_BID, bid1M, 1e6, 0, false, rcvNanos),
+                row("EUR/USD", "1M", MarketDataBatch.SIDE_OFFER, offer1M, 1e6, 0, false, rcvNanos),
+                row("EUR/USD", "2M", MarketDataBatch.SIDE_BID, bid2M, 1e6, 0, false, rcvNanos),
+                row("EUR/USD", "2M", MarketDataBatch.SIDE_OFFER, offer2M, 1e6, 0, false, rcvNanos));
+    }
+
+    private record Row(String symbol, String tenor, int side, double price, double size, double forwardPoints,
+                       boolean quoteCondition, long rcvNanos) {
+    }
+
+    private static Row row(String symbol, String tenor, int side, double price, double size, double forwardPoints,
+                           boolean quoteCondition, long rcvNanos) {
+        return new Row(symbol, tenor, side, price, size, forwardPoints, quoteCondition, rcvNanos);
+    }
+
+    private static MarketDataBatch batch(Row... rows) {
+        MarketDataBatch batch = new MarketDataBatch();
+        for (Row row : rows) {
+            batch.add(row.rcvNanos(), row.rcvNanos(), null, batch.encode(row.symbol()), StringDictionary.EMPTY,
+                    row.side(), row.price(), row.size(), MarketDataBatch.NO_DATE, row.quoteCondition(),
+                    MarketDataBatch.NO_DATE, row.forwardPoints(), StringDictionary.EMPTY,
+                    Tenor.parse(row.tenor()).getCode(), StringDictionary.EMPTY, StringDictionary.EMPTY);
+        }
+        return batch;
+    }
+
+    private static List<String> rows(MarketDataBatch batch) {
+        List<String> rows = new ArrayList<>();
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            rows.add(Tenor.ofCode(batch.getTenor(row)) + " "
+                    + (batch.getSide(row) == MarketDataBatch.SIDE_BID ? "BID" : "OFFER") + " " + batch.getPrice(row));
+        }
+        return rows;
+    }
+}
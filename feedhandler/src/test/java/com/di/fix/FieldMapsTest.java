@@ -0,0 +1,34 @@
+package com.di.fix;
+
+import org.junit.jupiter.api.Test;
+import quickfix.Group;
+import quickfix.Message;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldMapsTest {
+
+    @Test
+    void readsQuickFixInternalsDirectly() {
+        // Fails on a QuickFIX/J upgrade that moves FieldMap's maps: decoding would silently start allocating
+        assertTrue(FieldMaps.isDirect(), "FieldMap internals not readable, see the log for why");
+    }
+
+    @Test
+    void seesTheSameFieldsAndGroupsAsThePublicApi() throws Exception {
+        Message message = FixMessages.parse(FixMessages.snapshot("EUR/USD", 3));
+
+        assertEquals(FieldMaps.copyFields(message), FieldMaps.fields(message));
+        List<Group> groups = FieldMaps.groups(message, 268);
+        assertEquals(message.getGroups(268), groups);
+        assertEquals(3, groups.size());
+        for (Group group : groups) {
+            assertEquals(FieldMaps.copyFields(group), FieldMaps.fields(group));
+            assertTrue(FieldMaps.fields(group).containsKey(270));
+        }
+        assertEquals(List.of(), FieldMaps.groups(message, 9999));
+        assertFalse(message.hasGroup(9999));
+    }
+}
@@ -0,0 +1,79 @@
+package com.di.fix;
+
+import quickfix.DataDictionary;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.fix44.MessageFactory;
+
+// Raw FIX text for tests, and parsing it the way the session does with the venue's dictionary
+final class FixMessages {
+    static final char SOH = '\001';
+
+    private static DataDictionary dictionary;
+
+    private FixMessages() {
+    }
+
+    static synchronized Message parse(String raw) throws Exception {
+        if (dictionary == null) {
+            dictionary = new DataDictionary("FIX44-aquaq.xml");
+        }
+        return MessageUtils.parse(new MessageFactory(), dictionary, raw);
+    }
+
+    // A 35=W from the forward feed: entries alternate bid/offer, two per tenor
+    static String snapshot(String symbol, int entries) {
+        return snapshot(symbol, entries, symbol + "_FWD");
+    }
+
+    static String snapshot(String symbol, int entries, String mdReqId) {
+        StringBuilder body = header("W", 1042);
+        field(body, 262, mdReqId);
+        field(body, 55, symbol);
+        field(body, 268, Integer.toString(entries));
+        for (int i = 0; i < entries; i++) {
+            boolean bid = (i & 1) == 0;
+            int tenor = i / 2;
+            field(body, 269, bid ? "0" : "1");
+            field(body, 270, String.format("1.%05d", 8450 + tenor * 7 + (bid ? 0 : 2)));
+            field(body, 271, "1000000");
+            field(body, 272, "20250102");
+            field(body, 273, "10:15:30.123");
+            field(body, 276, "A");
+            field(body, 64, String.format("2025%02d%02d", 1 + tenor % 12, 1 + tenor % 28));
+            field(body, 5675, String.format("%.4f", 1.25 * (tenor + 1) + (bid ? 0.0 : 0.35)));
+            field(body, 5678, "4");
+            field(body, 6215, (tenor + 1) + "M");
+            field(body, 6314, "20250106");
+        }
+        return finish(body);
+    }
+
+    static StringBuilder header(String msgType, int seqNum) {
+        StringBuilder body = new StringBuilder(256);
+        field(body, 35, msgType);
+        field(body, 34, Integer.toString(seqNum));
+        field(body, 49, "FEED");
+        field(body, 52, "20250102-10:15:30.123");
+        field(body, 56, "CLIENT");
+        return body;
+    }
+
+    static StringBuilder field(StringBuilder sb, int tag, String value) {
+        return sb.append(tag).append('=').append(value).append(SOH);
+    }
+
+    // BeginString, BodyLength and CheckSum around body
+    static String finish(StringBuilder body) {
+        StringBuilder message = new StringBuilder(body.length() + 32);
+        field(message, 8, "FIX.4.4");
+        field(message, 9, Integer.toString(body.length()));
+        message.append(body);
+        int checksum = 0;
+        for (int i = 0; i < message.length(); i++) {
+            checksum += message.charAt(i);
+        }
+        field(message, 10, String.format("%03d", checksum & 0xFF));
+        return message.toString();
+    }
+}
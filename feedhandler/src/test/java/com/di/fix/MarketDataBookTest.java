@@ -0,0 +1,121 @@
+package com.di.fix;
+
+import com.di.codec.StringDictionary;
+import com.di.codec.TradingDay;
+import com.di.connection.MarketDataBatch;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataBookTest {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final MarketDataDecoder decoder = new MarketDataDecoder(dictionary,
+            new TradingDay(LocalTime.MIDNIGHT, ZoneOffset.UTC, ZoneOffset.UTC));
+    private final List<String> snapshotRequests = new ArrayList<>();
+    private final MarketDataBook book = new MarketDataBook(dictionary, snapshotRequests::add);
+
+    @Test
+    void changesTheTopOfEachTenorWithoutIdsOrPositions() throws Exception {
+        // Bid and offer for 1M and 2M, numbered within each tenor's side
+        book.onSnapshot(decoder.decode(FixMessages.parse(FixMessages.snapshot("EUR/USD", 4)), 0L), decoder);
+        assertEquals(2, book.getInstrumentCount());
+
+        MarketDataBatch changes = apply(entry('1', '0', null, "2M", "1.08601", 1),
+                entry('1', '1', null, "1M", "1.08462", 2));
+
+        assertEquals(2, changes.getRowCount());
+        assertEquals(Tenor.parse("2M").getCode(), changes.getTenor(0));
+        assertEquals(MarketDataBatch.SIDE_BID, changes.getSide(0));
+        assertEquals(1.08601, changes.getPrice(0));
+        assertEquals(MarketDataBatch.SIDE_OFFER, changes.getSide(1));
+        assertEquals(List.of(), snapshotRequests);
+        assertEquals(0, book.getGaps());
+    }
+
+    @Test
+    void appliesNewChangeAndDeleteByEntryId() throws Exception {
+        book.onSnapshot(decoder.decode(FixMessages.parse(snapshotWithIds("A", "B")), 0L), decoder);
+
+        MarketDataBatch changes = apply(entry('2', '0', "A", "1M", null, 11),
+                entry('0', '0', "C", "1M", "1.08455", 12),
+                entry('1', '1', "B", "1M", "1.08470", 13));
+        assertEquals(3, changes.getRowCount());
+        assertEquals(0.0, changes.getPrice(0), "a Delete goes out with zero price");
+        assertEquals(0.0, changes.getSize(0));
+        assertEquals(1.08455, changes.getPrice(1));
+        assertEquals(1.08470, changes.getPrice(2));
+
+        // A is gone, so changing it is a gap; C is held
+        assertEquals(1, apply(entry('1', '0', "C", "1M", "1.08456", 14)).getRowCount());
+        assertEquals(0, apply(entry('1', '0', "A", "1M", "1.08457", 15)).getRowCount());
+        assertEquals(List.of("EUR/USD::1M"), snapshotRequests);
+        assertEquals(1, book.getGaps());
+    }
+
+    @Test
+    void dropsUpdatesAfterAnRptSeqGapUntilTheNextSnapshot() throws Exception {
+        book.onSnapshot(decoder.decode(FixMessages.parse(snapshotWithIds("A", "B")), 0L), decoder);
+        assertEquals(1, apply(entry('1', '0', "A", "1M", "1.08451", 11)).getRowCount());
+
+        assertEquals(0, apply(entry('1', '0', "A", "1M", "1.08452", 13)).getRowCount());
+        assertEquals(0, apply(entry('1', '1', "B", "1M", "1.08472", 14)).getRowCount());
+        assertEquals(List.of("EUR/USD::1M"), snapshotRequests);
+
+        book.onSnapshot(decoder.decode(FixMessages.parse(snapshotWithIds("A", "B")), 0L), decoder);
+        assertEquals(0, apply(entry('1', '0', "A", "1M", "1.08453", 10)).getRowCount(), "already applied");
+        assertEquals(1, apply(entry('1', '0', "A", "1M", "1.08454", 11)).getRowCount());
+        assertEquals(1, snapshotRequests.size());
+    }
+
+    private MarketDataBatch apply(String... entries) throws Exception {
+        StringBuilder body = FixMessages.header("X", 2);
+        FixMessages.field(body, 262, "EUR/USD_FWD");
+        FixMessages.field(body, 268, Integer.toString(entries.length));
+        for (String entry : entries) {
+            body.append(entry);
+        }
+        return book.apply(decoder.decodeIncremental(FixMessages.parse(FixMessages.finish(body)), 0L), decoder);
+    }
+
+    // One 35=X entry; id and price are left out when null
+    private static String entry(char action, char type, String id, String tenor, String price, int rptSeq) {
+        StringBuilder entry = new StringBuilder();
+        FixMessages.field(entry, 279, String.valueOf(action));
+        FixMessages.field(entry, 269, String.valueOf(type));
+        if (id != null) FixMessages.field(entry, 278, id);
+        FixMessages.field(entry, 55, "EUR/USD");
+        if (price != null) {
+            FixMessages.field(entry, 270, price);
+            FixMessages.field(entry, 271, "1000000");
+        }
+        FixMessages.field(entry, 6215, tenor);
+        FixMessages.field(entry, 83, Integer.toString(rptSeq));
+        return entry.toString();
+    }
+
+    // A 1M bid and offer with the given MDEntryIDs, at RptSeq 10
+    private static String snapshotWithIds(String bid, String offer) {
+        StringBuilder body = FixMessages.header("W", 1);
+        FixMessages.field(body, 262, "EUR/USD_FWD");
+        FixMessages.field(body, 55, "EUR/USD");
+        FixMessages.field(body, 83, "10");
+        FixMessages.field(body, 268, "2");
+        String[] ids = {bid, offer};
+        for (int i = 0; i < 2; i++) {
+            FixMessages.field(body, 269, Integer.toString(i));
+            FixMessages.field(body, 278, ids[i]);
+            FixMessages.field(body, 270, i == 0 ? "1.08450" : "1.08465");
+            FixMessages.field(body, 271, "1000000");
+            FixMessages.field(body, 272, "20250102");
+            FixMessages.field(body, 273, "10:15:30.123");
+            FixMessages.field(body, 6215, "1M");
+        }
+        return FixMessages.finish(body);
+    }
+}
@@ -0,0 +1,118 @@
+package com.di.fix;
+
+import com.di.codec.StringDictionary;
+import com.di.codec.TradingDay;
+import com.di.connection.Connection;
+import com.di.connection.MarketDataBatch;
+import org.junit.jupiter.api.Test;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Steady-state decoding and publishing allocate nothing, on a JVM started without
+ * -XX:AutoBoxCacheMax. Each path is warmed up until the JIT has compiled it, then measured with the
+ * thread's allocated-bytes counter.
+ */
+class MarketDataDecoderAllocationTest {
+    private static final int WARMUP = 100_000;
+    private static final int MEASURED = 20_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    interface Op {
+        void run() throws Exception;
+    }
+
+    @Test
+    void decodingASnapshotAllocatesNothing() throws Exception {
+        Message message = FixMessages.parse(FixMessages.snapshot("EUR/USD", 10));
+        MarketDataDecoder decoder = decoder();
+        assertEquals(10, decoder.decode(message, 0L).getRowCount());
+        assertAllocationFree(() -> decoder.decode(message, 0L));
+    }
+
+    @Test
+    void decodingARawSnapshotAllocatesNothing() throws Exception {
+        String raw = FixMessages.snapshot("EUR/USD", 10);
+        MarketDataDecoder decoder = decoder();
+        assertEquals(10, decoder.decodeRaw(raw, 0L).getRowCount());
+        assertAllocationFree(() -> decoder.decodeRaw(raw, 0L));
+    }
+
+    @Test
+    void decodingAnIncrementalRefreshAllocatesNothing() throws Exception {
+        StringBuilder body = FixMessages.header("X", 7);
+        FixMessages.field(body, 262, "EUR/USD_FWD");
+        FixMessages.field(body, 268, "2");
+        for (int i = 0; i < 2; i++) {
+            FixMessages.field(body, 279, "1");
+            FixMessages.field(body, 269, Integer.toString(i));
+            FixMessages.field(body, 278, "E" + i);
+            FixMessages.field(body, 55, "EUR/USD");
+            FixMessages.field(body, 270, "1.0845" + i);
+            FixMessages.field(body, 271, "1000000");
+            FixMessages.field(body, 290, "1");
+            FixMessages.field(body, 6215, "1M");
+            FixMessages.field(body, 83, Integer.toString(100 + i));
+        }
+        Message message = FixMessages.parse(FixMessages.finish(body));
+        MarketDataDecoder decoder = decoder();
+        assertEquals(2, decoder.decodeIncremental(message, 0L).getRowCount());
+        assertAllocationFree(() -> decoder.decodeIncremental(message, 0L));
+    }
+
+    @Test
+    void publishingASnapshotAllocatesNothing() throws Exception {
+        MarketDataSnapshotFullRefresh message =
+                (MarketDataSnapshotFullRefresh) FixMessages.parse(FixMessages.snapshot("EUR/USD", 10));
+        CountingConnection connection = new CountingConnection();
+        FIXApplication application = new FIXApplication(connection);
+        SessionID sessionID = new SessionID("FIX.4.4", "CLIENT", "FEED");
+        application.onMessage(message, sessionID);
+        assertEquals(10, connection.rows);
+        assertAllocationFree(() -> application.onMessage(message, sessionID));
+    }
+
+    private static MarketDataDecoder decoder() {
+        return new MarketDataDecoder(new StringDictionary(),
+                new TradingDay(LocalTime.MIDNIGHT, ZoneOffset.UTC, ZoneOffset.UTC));
+    }
+
+    private void assertAllocationFree(Op op) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        for (int i = 0; i < MEASURED; i++) {
+            op.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().threadId()) - before;
+        // The counter is read in TLAB-sized steps, so allow a little less than one byte per call
+        assertTrue(allocated < MEASURED, allocated + " bytes over " + MEASURED + " calls");
+    }
+
+    static final class CountingConnection implements Connection {
+        long rows;
+
+        @Override
+        public void openConnection() {
+        }
+
+        @Override
+        public void closeConnection() {
+        }
+
+        @Override
+        public void insertBatch(MarketDataBatch batch) {
+            rows += batch.getRowCount();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.di.fix;
+
+import com.di.codec.FixCodec;
+import com.di.codec.StringDictionary;
+import com.di.codec.TradingDay;
+import com.di.connection.MarketDataBatch;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataDecoderTest {
+    // A session FileLog of 35=W snapshots: "<receive time>: <message>" per line
+    private static final String SNAPSHOTS = "fix/snapshots.log";
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    @Test
+    void rawDecoderMatchesTheMessageDecoderOnRecordedSnapshots() throws Exception {
+        MarketDataDecoder decoder = newDecoder();
+        MarketDataDecoder rawDecoder = newDecoder();
+        int rows = 0;
+        for (String line : lines(SNAPSHOTS)) {
+            int separator = line.indexOf(": 8=");
+            String raw = line.substring(separator + 2);
+            long rcvNanos = FixCodec.parseUtcTimestamp(line, 0, separator);
+
+            MarketDataBatch expected = decoder.decode(FixMessages.parse(raw), rcvNanos);
+            MarketDataBatch actual = rawDecoder.decodeRaw(raw, rcvNanos);
+
+            String received = line.substring(0, separator);
+            assertEquals(expected.getRowCount(), actual.getRowCount(), received);
+            assertArrayEquals(expected.toRows(), actual.toRows(), received);
+            for (int row = 0; row < expected.getRowCount(); row++) {
+                assertEquals(decoder.getEntryId(row), rawDecoder.getEntryId(row), received + " row " + row);
+                assertEquals(decoder.getPosition(row), rawDecoder.getPosition(row), received + " row " + row);
+            }
+            assertEquals(decoder.getSnapshotRptSeq(), rawDecoder.getSnapshotRptSeq(), received);
+            rows += expected.getRowCount();
+        }
+        assertEquals(23, rows);
+    }
+
+    @Test
+    void keepsMdReqIdsOutOfTheDictionaryAcrossResubscribes() throws Exception {
+        MarketDataDecoder decoder = newDecoder();
+        MarketDataDecoder rawDecoder = newDecoder();
+        decoder.decode(FixMessages.parse(FixMessages.snapshot("EUR/USD", 2, "MDReq-warmup")), 0L);
+        rawDecoder.decodeRaw(FixMessages.snapshot("EUR/USD", 2, "MDReq-warmup"), 0L);
+        int size = dictionary.size();
+
+        // Every start, logon, reject retry and stale resend mints a new MDReqID
+        for (int i = 0; i < 3_000; i++) {
+            String mdReqId = "MDReq-" + Long.toString(1_700_000_000_000L + i, 36) + "-" + i;
+            String raw = FixMessages.snapshot("EUR/USD", 2, mdReqId);
+            MarketDataBatch batch = decoder.decode(FixMessages.parse(raw), 0L);
+            assertEquals(mdReqId, batch.getReqId(1));
+            assertEquals(0, batch.getDictionaryDeltaCount());
+            batch = rawDecoder.decodeRaw(raw, 0L);
+            assertEquals(mdReqId, batch.getReqId(1));
+            assertEquals(mdReqId, batch.toRows()[0][2]);
+        }
+        assertEquals(size, dictionary.size());
+        assertTrue(rawDecoder.getCachedReqIds() <= 1024, "cached MDReqIDs " + rawDecoder.getCachedReqIds());
+
+        String raw = FixMessages.snapshot("EUR/USD", 2, "MDReq-repeated");
+        String first = rawDecoder.decodeRaw(raw, 0L).getReqId(0);
+        assertSame(first, rawDecoder.decodeRaw(raw, 0L).getReqId(0), "a repeated MDReqID is not copied again");
+    }
+
+    private MarketDataDecoder newDecoder() {
+        return new MarketDataDecoder(dictionary,
+                new TradingDay(LocalTime.of(23, 0), ZoneId.of("America/New_York"), ZoneOffset.UTC));
+    }
+
+    private static List<String> lines(String resource) throws IOException {
+        try (InputStream input = MarketDataDecoderTest.class.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(input, resource);
+            return new String(input.readAllBytes(), StandardCharsets.ISO_8859_1).lines().toList();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.di.fixadapter;
+
+import com.di.fixadapter.parsers.RemoveSlashParser;
+import com.di.kdbpublisher.KdbRow;
+import org.junit.jupiter.api.Test;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingPlanTest {
+    private static final String REMOVE_SLASH = RemoveSlashParser.class.getName();
+
+    private final Map<String, FixFieldParser> parsers = new HashMap<>();
+
+    @Test
+    void convertsEachColumnByItsTypeOrParser() throws Exception {
+        MappingPlan plan = MappingPlan.compile(mapping(
+                column("qty", 38, "int", null),
+                column("cum", 14, "long", null),
+                column("px", 44, "double", null),
+                column("sym", 55, "symbol", null),
+                column("pair", 55, null, REMOVE_SLASH),
+                column("side", 54, null, null)), parsers);
+        assertEquals("F", plan.getMsgType());
+        assertEquals("cancels", plan.getTable());
+
+        Message message = message();
+        message.setString(9999, "unmapped");
+        KdbRow row = plan.map(message);
+
+        assertEquals("{qty=1000000, cum=42, px=1.0845, sym=EUR/USD, pair=EURUSD, side=1}", row.toString());
+    }
+
+    @Test
+    void refillsTheSameRowPerThread() throws Exception {
+        MappingPlan plan = MappingPlan.compile(mapping(column("px", 44, "double", null)), parsers);
+        Message message = message();
+        KdbRow first = plan.map(message);
+
+        message.setString(44, "1.5");
+        KdbRow second = plan.map(message);
+        assertSame(first, second);
+        assertEquals("{px=1.5}", second.toString());
+
+        KdbRow[] other = new KdbRow[1];
+        Thread thread = new Thread(() -> {
+            try {
+                other[0] = plan.map(message);
+            } catch (FieldNotFound e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(first, other[0]);
+    }
+
+    @Test
+    void reportsTheFirstMissingTag() {
+        MappingPlan plan = MappingPlan.compile(mapping(
+                column("px", 44, "double", null),
+                column("account", 1, null, null),
+                column("text", 58, null, null)), parsers);
+
+        FieldNotFound e = assertThrows(FieldNotFound.class, () -> plan.map(message()));
+        assertEquals(1, e.field);
+    }
+
+    @Test
+    void sharesParsersAcrossPlansAndRejectsBadColumns() {
+        MappingPlan first = MappingPlan.compile(mapping(column("pair", 55, null, REMOVE_SLASH)), parsers);
+        MappingPlan second = MappingPlan.compile(mapping(column("pair", 55, null, REMOVE_SLASH)), parsers);
+        assertNotSame(first, second);
+        assertEquals(1, parsers.size(), "one instance per parser class");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MappingPlan.compile(mapping(column("px", 0, "double", null)), parsers));
+        assertEquals("Column px of msgType F has no tag", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class,
+                () -> MappingPlan.compile(mapping(column("px", 44, null, "com.di.NoSuchParser")), parsers));
+        assertTrue(e.getMessage().startsWith("Cannot create FixFieldParser com.di.NoSuchParser"), e.getMessage());
+    }
+
+    private static Message message() {
+        Message message = new Message();
+        message.getHeader().setString(35, "F");
+        message.setInt(38, 1_000_000);
+        message.setInt(14, 42);
+        message.setString(44, "1.0845");
+        message.setString(55, "EUR/USD");
+        message.setChar(54, '1');
+        return message;
+    }
+
+    private static MessageMapping mapping(ColumnMapping... columns) {
+        MessageMapping mapping = new MessageMapping();
+        mapping.setMsgType("F");
+        mapping.setTable("cancels");
+        mapping.setColumns(List.of(columns));
+        return mapping;
+    }
+
+    private static ColumnMapping column(String name, int tag, String type, String parserClass) {
+        ColumnMapping column = new ColumnMapping();
+        column.setName(name);
+        column.setTag(tag);
+        column.setType(type);
+        column.setParserClass(parserClass);
+        return column;
+    }
+}
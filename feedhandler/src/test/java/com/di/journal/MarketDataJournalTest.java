@@ -0,0 +1,222 @@
+package com.di.journal;
+
+import com.di.connection.AcknowledgingConnection;
+import com.di.connection.Connection;
+import com.di.connection.MarketDataBatch;
+import com.di.connection.PublishAcknowledger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.di.journal.MarketDataJournal.NO_POSITION;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataJournalTest {
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final int INDEX_ENTRIES = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEverythingAfterTheAcknowledgedPositionInOrder() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 5);
+        journal.acknowledge(positions[1]);
+
+        Recorder recorder = new Recorder();
+        assertEquals(3, journal.replay(recorder));
+        assertEquals(List.of("msg-2", "msg-3", "msg-4"), recorder.messages);
+        assertEquals(positions[1], journal.getAcknowledgedPosition(), "moved before the replay was written");
+
+        recorder.acknowledgeAll();
+        assertEquals(positions[4], journal.getAcknowledgedPosition());
+        assertEquals(0, journal.replay(new Recorder()));
+    }
+
+    @Test
+    void holdsAcknowledgementsBelowARejectedWriteAndAsksForAReplay() throws Exception {
+        MarketDataJournal journal = open();
+        AtomicInteger replayRequests = new AtomicInteger();
+        journal.setReplayListener(replayRequests::incrementAndGet);
+        long[] positions = append(journal, 4);
+
+        journal.acknowledge(positions[0]);
+        journal.reject(positions[1]);
+        journal.acknowledge(positions[2]);
+        journal.acknowledge(positions[3]);
+
+        assertEquals(positions[0], journal.getAcknowledgedPosition());
+        assertEquals(1, replayRequests.get());
+
+        Recorder recorder = new Recorder();
+        journal.replay(recorder);
+        assertEquals(List.of("msg-1", "msg-2", "msg-3"), recorder.messages);
+        recorder.acknowledgeAll();
+        assertEquals(positions[3], journal.getAcknowledgedPosition());
+
+        long next = journal.append("msg-4", 4);
+        journal.acknowledge(next);
+        assertEquals(next, journal.getAcknowledgedPosition());
+    }
+
+    @Test
+    void liveAcknowledgementsDoNotMovePastAReplayInProgress() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 3);
+        Recorder recorder = new Recorder();
+        journal.replay(recorder);
+
+        long live = journal.append("live", 3);
+        journal.acknowledge(live);
+        assertEquals(NO_POSITION, journal.getAcknowledgedPosition());
+
+        recorder.acknowledge(0);
+        assertEquals(positions[0], journal.getAcknowledgedPosition());
+        recorder.acknowledge(1);
+        recorder.acknowledge(2);
+        assertEquals(positions[2], journal.getAcknowledgedPosition());
+
+        journal.acknowledge(live);
+        assertEquals(live, journal.getAcknowledgedPosition());
+    }
+
+    @Test
+    void recordsWithoutRowsDoNotHoldTheReplayOpen() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 3);
+        List<PublishAcknowledger> acknowledgers = new ArrayList<>();
+
+        journal.replay((message, rcvNanos, acknowledger, position) -> {
+            if (position != positions[0]) return false;
+            acknowledgers.add(acknowledger);
+            return true;
+        });
+        acknowledgers.get(0).acknowledge(positions[0]);
+        assertEquals(positions[2], journal.getAcknowledgedPosition());
+    }
+
+    @Test
+    void rejectedReplayIsIgnoredOnceANewReplayHasStarted() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 3);
+        Recorder first = new Recorder();
+        journal.replay(first);
+        first.reject(1);
+        first.acknowledge(2);  // Written after the failure, so it must not move the ack past it
+        assertEquals(NO_POSITION, journal.getAcknowledgedPosition());
+
+        Recorder second = new Recorder();
+        journal.replay(second);
+        assertEquals(List.of("msg-0", "msg-1", "msg-2"), second.messages);
+        first.acknowledge(2);
+        assertEquals(NO_POSITION, journal.getAcknowledgedPosition());
+        second.acknowledgeAll();
+        assertEquals(positions[2], journal.getAcknowledgedPosition());
+    }
+
+    @Test
+    void skipsARecordThatFailsEveryReplay() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 3);
+        journal.acknowledge(positions[0]);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertThrows(IOException.class, () -> journal.replay((message, rcvNanos, acknowledger, position) -> {
+                throw new IOException("cannot parse " + message);
+            }));
+        }
+        assertEquals(positions[1], journal.getAcknowledgedPosition());
+
+        Recorder recorder = new Recorder();
+        journal.replay(recorder);
+        assertEquals(List.of("msg-2"), recorder.messages);
+    }
+
+    @Test
+    void aFailedWriteRejectsTheLowestPositionOfACoalescedBatch() throws Exception {
+        MarketDataJournal journal = open();
+        long[] positions = append(journal, 4);
+        journal.acknowledge(positions[0]);
+        Connection failing = new AcknowledgingConnection(new Connection() {
+            @Override public void openConnection() {}
+            @Override public void closeConnection() {}
+            @Override public void insertBatch(MarketDataBatch batch) throws IOException {
+                throw new IOException("RT down");
+            }
+        });
+        MarketDataBatch coalesced = new MarketDataBatch();
+        for (int i = 1; i < 4; i++) {
+            MarketDataBatch batch = new MarketDataBatch();
+            batch.addAcknowledgement(journal, positions[i]);
+            coalesced.addAll(batch);
+        }
+
+        assertThrows(IOException.class, () -> failing.insertBatch(coalesced));
+        journal.acknowledge(positions[3]);
+        assertEquals(positions[0], journal.getAcknowledgedPosition());
+    }
+
+    @Test
+    void replaysSegmentsLeftByAPreviousRun() throws Exception {
+        MarketDataJournal first = open();
+        long[] positions = append(first, 2);
+        first.acknowledge(positions[0]);
+        first.force();
+
+        MarketDataJournal reopened = open();
+        assertEquals(positions[0], reopened.getAcknowledgedPosition());
+        Recorder recorder = new Recorder();
+        assertEquals(1, reopened.replay(recorder));
+        assertEquals(List.of("msg-1"), recorder.messages);
+        assertEquals(1L, recorder.rcvNanos.get(0));
+    }
+
+    private MarketDataJournal open() throws IOException {
+        return new MarketDataJournal(directory, SEGMENT_BYTES, INDEX_ENTRIES);
+    }
+
+    private static long[] append(MarketDataJournal journal, int count) {
+        long[] positions = new long[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = journal.append("msg-" + i, i);
+        }
+        return positions;
+    }
+
+    // Records what a replay hands over and acknowledges it later, as the publish chain would
+    private static final class Recorder implements MarketDataJournal.ReplayHandler {
+        final List<String> messages = new ArrayList<>();
+        final List<Long> rcvNanos = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        PublishAcknowledger acknowledger;
+
+        @Override
+        public boolean onRecord(String message, long rcvNanos, PublishAcknowledger acknowledger, long position) {
+            messages.add(message);
+            this.rcvNanos.add(rcvNanos);
+            positions.add(position);
+            this.acknowledger = acknowledger;
+            return true;
+        }
+
+        void acknowledge(int record) {
+            acknowledger.acknowledge(positions.get(record));
+        }
+
+        void reject(int record) {
+            acknowledger.reject(positions.get(record));
+        }
+
+        void acknowledgeAll() {
+            for (int i = 0; i < positions.size(); i++) {
+                acknowledge(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.di.kdbpublisher;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Against a ServerSocket standing in for kdb+: it reads what the client sends and answers the handshake
+class KdbIpcClientTest {
+    private final ServerSocket server = new ServerSocket(0, 4, InetAddress.getLoopbackAddress());
+
+    KdbIpcClientTest() throws IOException {
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void sendsCredentialsAndCapabilityAndKeepsTheServersAnswer() throws Exception {
+        CompletableFuture<byte[]> handshake = serve(socket -> {
+            byte[] login = readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(1);
+            return login;
+        });
+        KdbIpcClient client = client("feed", "secret", 0);
+        client.connect();
+
+        assertArrayEquals("feed:secret\3".getBytes(StandardCharsets.US_ASCII), handshake.get(5, TimeUnit.SECONDS));
+        assertEquals(1, client.getCapability());
+        assertTrue(client.isConnected());
+        client.close();
+        assertFalse(client.isConnected());
+    }
+
+    @Test
+    void reportsAHandshakeTheServerRefuses() {
+        serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.close();  // What kdb+ does with wrong credentials
+            return null;
+        });
+        KdbIpcClient client = client("feed", "wrong", 0);
+
+        IOException e = assertThrows(IOException.class, client::connect);
+        assertTrue(e.getMessage().contains("closed the connection during the handshake"), e.getMessage());
+        assertFalse(client.isConnected());
+    }
+
+    @Test
+    void encodesAnAsyncUpdOfTypedColumns() throws Exception {
+        CompletableFuture<byte[]> received = serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(3);
+            return readMessage(socket.getInputStream());
+        });
+        KdbConnection connection = new KdbConnection(host(), server.getLocalPort(), null, null, false);
+        connection.insert("quote", new Object[]{new String[]{"EUR/USD", null, "x"}, new long[]{7, -1, 0},
+                new double[]{1.5, 0, 0}, new KdbConnection.Timestamps(new long[]{42, 0, 0})}, 2);
+
+        ByteBuffer expected = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        expected.put(new byte[]{1, 0, 0, 0}).putInt(0);                   // async, length below
+        expected.put(new byte[]{0, 0}).putInt(3);                          // (`.u.upd; `quote; columns)
+        expected.put(new byte[]{10, 0}).putInt(6).put(ascii(".u.upd"));
+        expected.put((byte) -11).put(ascii("quote\0"));
+        expected.put(new byte[]{0, 0}).putInt(4);                          // first 2 rows of 4 columns
+        expected.put(new byte[]{11, 0}).putInt(2).put(ascii("EUR/USD\0\0"));
+        expected.put(new byte[]{7, 0}).putInt(2).putLong(7).putLong(-1);
+        expected.put(new byte[]{9, 0}).putInt(2).putDouble(1.5).putDouble(0);
+        expected.put(new byte[]{12, 0}).putInt(2).putLong(42).putLong(0);
+        expected.putInt(4, expected.position());
+
+        assertArrayEquals(Arrays.copyOf(expected.array(), expected.position()), received.get(5, TimeUnit.SECONDS));
+        connection.close();
+    }
+
+    @Test
+    void compressesLargeMessagesWhenTheServerSupportsIt() throws Exception {
+        long[] values = new long[4096];
+        Arrays.fill(values, 1_000_000L);
+        Object[] columns = {values};
+        byte[] plain = bytes(new KdbIpcEncoder(64).encodeUpdate("quote", columns, values.length));
+
+        CompletableFuture<byte[]> received = serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(3);
+            return readMessage(socket.getInputStream());
+        });
+        KdbIpcClient client = client(null, null, 1024);
+        client.connect();
+        client.send(new KdbIpcEncoder(64).encodeUpdate("quote", columns, values.length));
+        byte[] compressed = received.get(5, TimeUnit.SECONDS);
+        client.close();
+
+        assertEquals(1, compressed[2], "compressed flag");
+        assertTrue(compressed.length < plain.length / 2, compressed.length + " of " + plain.length + " bytes");
+        assertArrayEquals(Arrays.copyOfRange(plain, 8, plain.length), decompress(compressed));
+    }
+
+    @Test
+    void sendsUncompressedToAServerWithoutCompression() throws Exception {
+        long[] values = new long[4096];
+        CompletableFuture<byte[]> received = serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(0);
+            return readMessage(socket.getInputStream());
+        });
+        KdbIpcClient client = client(null, null, 1024);
+        client.connect();
+        client.send(new KdbIpcEncoder(64).encodeUpdate("quote", new Object[]{values}, values.length));
+        byte[] message = received.get(5, TimeUnit.SECONDS);
+        client.close();
+
+        assertEquals(0, message[2]);
+        assertEquals(8 + 6 + 12 + 7 + 6 + 6 + values.length * 8, message.length);
+    }
+
+    @Test
+    void failsTheWriteAfterTheServerHasGoneAndReconnectsOnTheNextInsert() throws Exception {
+        CompletableFuture<byte[]> dropped = serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(3);
+            socket.close();
+            return null;
+        });
+        KdbConnection connection = new KdbConnection(host(), server.getLocalPort(), null, null, false);
+        connection.open();
+        dropped.get(5, TimeUnit.SECONDS);
+
+        // The first writes after the close may still be buffered by the OS; the failure surfaces soon after
+        Object[] columns = {new long[64 * 1024]};
+        IOException failure = null;
+        for (int attempt = 0; attempt < 50 && failure == null; attempt++) {
+            try {
+                connection.insert("quote", columns, 64 * 1024);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        assertNotNull(failure, "writes to a closed connection kept succeeding");
+        assertTrue(failure.getMessage().startsWith("Failed to publish"), failure.getMessage());
+
+        CompletableFuture<byte[]> received = serve(socket -> {
+            readHandshake(socket.getInputStream());
+            socket.getOutputStream().write(3);
+            return readMessage(socket.getInputStream());
+        });
+        connection.insert("quote", new Object[]{new long[]{5}}, 1);
+        assertEquals(8 + 6 + 12 + 7 + 6 + 6 + 8, received.get(5, TimeUnit.SECONDS).length);
+        connection.close();
+    }
+
+    private interface Handler {
+        byte[] handle(Socket socket) throws IOException;
+    }
+
+    // Serves one connection on a background thread
+    private CompletableFuture<byte[]> serve(Handler handler) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Socket socket = server.accept()) {
+                socket.setSoTimeout(5_000);
+                return handler.handle(socket);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private KdbIpcClient client(String user, String password, int compressMinBytes) {
+        return new KdbIpcClient(host(), server.getLocalPort(), user, password, false, compressMinBytes);
+    }
+
+    private static String host() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    // Login and capability, without the terminating zero
+    private static byte[] readHandshake(InputStream in) throws IOException {
+        ByteArrayOutputStream login = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) > 0) {
+            login.write(b);
+        }
+        return login.toByteArray();
+    }
+
+    private static byte[] readMessage(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[8];
+        data.readFully(header);
+        int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(4);
+        byte[] message = Arrays.copyOf(header, length);
+        data.readFully(message, 8, length - 8);
+        return message;
+    }
+
+    // The body after the header, as kx's c.java decompresses it
+    private static byte[] decompress(byte[] message) {
+        int total = ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN).getInt(8);
+        byte[] out = new byte[total];
+        int[] positions = new int[256];
+        int s = 8;
+        int p = s;
+        int d = 12;
+        int flags = 0;
+        int bit = 0;
+        while (s < total) {
+            if (bit == 0) {
+                flags = message[d++] & 0xff;
+                bit = 1;
+            }
+            int extra = 0;
+            if ((flags & bit) != 0) {
+                int r = positions[message[d++] & 0xff];
+                out[s++] = out[r++];
+                out[s++] = out[r++];
+                extra = message[d++] & 0xff;
+                for (int m = 0; m < extra; m++) {
+                    out[s + m] = out[r + m];
+                }
+            } else {
+                out[s++] = message[d++];
+            }
+            while (p < s - 1) {
+                positions[(out[p] & 0xff) ^ (out[p + 1] & 0xff)] = p++;
+            }
+            if ((flags & bit) != 0) {
+                p = s += extra;
+            }
+            bit = (bit << 1) & 0xff;
+        }
+        return Arrays.copyOfRange(out, 8, total);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
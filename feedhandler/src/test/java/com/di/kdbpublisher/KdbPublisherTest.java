@@ -0,0 +1,78 @@
+package com.di.kdbpublisher;
+
+import com.di.concurrent.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdbPublisherTest {
+    // Rows per insert call
+    private final BlockingQueue<Integer> inserts = new LinkedBlockingQueue<>();
+    private volatile boolean failing;
+    private final KdbConnection connection = new KdbConnection("localhost", 5010, null, null, false) {
+        @Override
+        public void insert(String table, Object[] columns, int rows) throws IOException {
+            if (failing) {
+                throw new IOException("kdb+ went away");
+            }
+            inserts.add(rows);
+        }
+    };
+    private KdbPublisher publisher;
+
+    @AfterEach
+    void close() {
+        if (publisher != null) publisher.close();
+    }
+
+    @Test
+    void takesNoRowsUntilStarted() throws Exception {
+        publisher = new KdbPublisher(connection, 2, false, 10, 4, ExecutionMode.PLATFORM);
+        IOException e = assertThrows(IOException.class, () -> publisher.publishRow("trade", Map.of("px", 1.0)));
+        assertEquals("KdbPublisher is not started", e.getMessage());
+
+        publisher.start();
+        publisher.start();
+        publisher.publishRow("trade", Map.of("px", 1.0));
+        publisher.publishRow("trade", Map.of("px", 2.0));
+        assertEquals(2, inserts.poll(5, TimeUnit.SECONDS), "a full batch is written by the publisher");
+        publisher.publishRow("trade", Map.of("px", 3.0));
+        assertEquals(1, inserts.poll(5, TimeUnit.SECONDS), "a lingering row is written by the flusher");
+
+        publisher.close();
+        assertThrows(IllegalStateException.class, publisher::start);
+        e = assertThrows(IOException.class, () -> publisher.publishRow("trade", Map.of("px", 1.0)));
+        assertEquals("KdbPublisher is closed", e.getMessage());
+    }
+
+    @Test
+    void reportsABatchTheFlusherDroppedOnTheNextPublish() throws Exception {
+        publisher = new KdbPublisher(connection, 2, true, 60_000, 4, ExecutionMode.PLATFORM);
+        publisher.start();
+        failing = true;
+        publisher.publishBatch("trade", List.of(Map.of("px", 1.0), Map.of("px", 2.0)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (publisher.getDroppedRows() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, publisher.getDroppedRows());
+        failing = false;
+        IOException e = assertThrows(IOException.class, () -> publisher.publishRow("trade", Map.of("px", 3.0)));
+        assertTrue(e.getMessage().contains("2 rows for trade dropped: kdb+ went away"), e.getMessage());
+
+        // Reported once; the row that saw the failure was not taken
+        publisher.publishRow("trade", Map.of("px", 4.0));
+        publisher.close();
+        assertEquals(1, inserts.poll(5, TimeUnit.SECONDS), "close writes what is collected");
+        assertNull(inserts.poll());
+    }
+}
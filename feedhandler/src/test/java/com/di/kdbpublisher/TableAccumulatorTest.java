@@ -0,0 +1,127 @@
+package com.di.kdbpublisher;
+
+import com.di.codec.FixCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableAccumulatorTest {
+    private static final Instant TIME = Instant.parse("2025-01-02T10:15:30.123Z");
+
+    @Test
+    void typesColumnsByTheFirstRowAndConvertsLaterValues() {
+        TableAccumulator accumulator = new TableAccumulator("trade", row(7, 1L, 1.5, TIME, "EUR/USD", null), 4);
+        accumulator.add(row(7, 1L, 1.5, TIME, "EUR/USD", null));
+        accumulator.add(row(8L, null, "x", null, 42, 'c'));
+
+        Object[] columns = accumulator.columns();
+        assertEquals(2, accumulator.getRows());
+        assertArrayEquals(new int[]{7, 8}, head((int[]) columns[0], 2));
+        assertArrayEquals(new long[]{1, Long.MIN_VALUE}, head((long[]) columns[1], 2), "null is the kdb+ null");
+        assertEquals(1.5, ((double[]) columns[2])[0]);
+        assertTrue(Double.isNaN(((double[]) columns[2])[1]), "a value that does not convert is the kdb+ null");
+        long[] times = ((KdbConnection.Timestamps) columns[3]).values();
+        assertEquals(FixCodec.toKdbTimestamp(TIME.getEpochSecond() * FixCodec.NANOS_PER_SECOND + TIME.getNano()),
+                times[0]);
+        assertEquals(Long.MIN_VALUE, times[1]);
+        assertArrayEquals(new String[]{"EUR/USD", "42"}, head((String[]) columns[4], 2));
+        assertArrayEquals(new String[]{null, "c"}, head((String[]) columns[5], 2), "a null first value is a symbol");
+    }
+
+    @Test
+    void acceptsRowsWithTheSameColumnsInTheSameOrder() {
+        TableAccumulator accumulator = new TableAccumulator("trade", Map.of("price", 1.0), 4);
+        assertTrue(accumulator.accepts(Map.<String, Object>of("price", "not a number")));
+        assertFalse(accumulator.accepts(Map.<String, Object>of("size", 1.0)));
+
+        Map<String, Object> ab = new LinkedHashMap<>();
+        ab.put("a", 1);
+        ab.put("b", 2);
+        Map<String, Object> ba = new LinkedHashMap<>();
+        ba.put("b", 2);
+        ba.put("a", 1);
+        assertFalse(new TableAccumulator("trade", ab, 4).accepts(ba));
+
+        String[] names = {"a", "b"};
+        KdbRow.Type[] types = {KdbRow.Type.INT, KdbRow.Type.INT};
+        TableAccumulator rows = new TableAccumulator("trade", new KdbRow(names, types), 4);
+        assertTrue(rows.accepts(new KdbRow(names, types)));
+        assertFalse(rows.accepts(new KdbRow(names.clone(), types)), "only rows sharing the names array");
+        assertFalse(rows.accepts(ab));
+        assertFalse(accumulator.accepts(new KdbRow(new String[]{"price"}, new KdbRow.Type[]{KdbRow.Type.DOUBLE})));
+    }
+
+    @Test
+    void copiesKdbRowCellsByTheirTypes() {
+        KdbRow row = new KdbRow(new String[]{"qty", "seq", "px", "sym", "time"}, new KdbRow.Type[]{
+                KdbRow.Type.INT, KdbRow.Type.LONG, KdbRow.Type.DOUBLE, KdbRow.Type.SYMBOL, KdbRow.Type.OBJECT});
+        row.setObject(4, TIME);
+        TableAccumulator accumulator = new TableAccumulator("trade", row, 1);
+        for (int i = 0; i < 3; i++) {
+            row.setInt(0, i);
+            row.setLong(1, 100L + i);
+            row.setDouble(2, i / 2.0);
+            row.setSymbol(3, "S" + i);
+            row.setObject(4, i == 2 ? null : TIME);
+            accumulator.add(row);
+        }
+
+        Object[] columns = accumulator.columns();
+        assertEquals(3, accumulator.getRows(), "grown past the initial capacity");
+        assertArrayEquals(new int[]{0, 1, 2}, head((int[]) columns[0], 3));
+        assertArrayEquals(new long[]{100, 101, 102}, head((long[]) columns[1], 3));
+        assertArrayEquals(new double[]{0, 0.5, 1}, head((double[]) columns[2], 3));
+        assertArrayEquals(new String[]{"S0", "S1", "S2"}, head((String[]) columns[3], 3));
+        long[] times = ((KdbConnection.Timestamps) columns[4]).values();
+        assertEquals(times[0], times[1]);
+        assertEquals(Long.MIN_VALUE, times[2]);
+    }
+
+    @Test
+    void clearReleasesSymbolsAndTimesTheNextBatchFromItsFirstRow() throws Exception {
+        TableAccumulator accumulator = new TableAccumulator("quote", Map.of("sym", "EUR/USD"), 2);
+        accumulator.add(Map.of("sym", "EUR/USD"));
+        long first = accumulator.getFirstRowNanos();
+        Thread.sleep(2);
+        accumulator.add(Map.of("sym", "GBP/USD"));
+        assertEquals(first, accumulator.getFirstRowNanos(), "only the first row of a batch is timed");
+
+        accumulator.clear();
+        assertEquals(0, accumulator.getRows());
+        assertArrayEquals(new String[]{null, null}, (String[]) accumulator.columns()[0]);
+
+        accumulator.add(Map.of("sym", "USD/JPY"));
+        assertTrue(accumulator.getFirstRowNanos() > first);
+        assertEquals("quote", accumulator.getTable());
+    }
+
+    // Columns c0, c1, ... in order, nulls included
+    private static Map<String, Object> row(Object... values) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int c = 0; c < values.length; c++) {
+            row.put("c" + c, values[c]);
+        }
+        return row;
+    }
+
+    private static int[] head(int[] values, int n) {
+        return Arrays.copyOf(values, n);
+    }
+
+    private static long[] head(long[] values, int n) {
+        return Arrays.copyOf(values, n);
+    }
+
+    private static double[] head(double[] values, int n) {
+        return Arrays.copyOf(values, n);
+    }
+
+    private static String[] head(String[] values, int n) {
+        return Arrays.copyOf(values, n);
+    }
+}
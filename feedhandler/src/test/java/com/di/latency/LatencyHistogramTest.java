@@ -0,0 +1,91 @@
+package com.di.latency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void bucketsAreContiguousAndWithinThreePercent() {
+        assertEquals(0, LatencyHistogram.bucket(-5));
+        assertEquals(63, LatencyHistogram.bucket(63));
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long lower = LatencyHistogram.lowerBound(bucket);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(lower), "lower bound of " + bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(upper), "upper bound of " + bucket);
+            if (bucket > 0) {
+                assertEquals(LatencyHistogram.upperBound(bucket - 1) + 1, lower);
+            }
+            assertTrue(upper - lower <= lower / 32, "bucket " + bucket + " is " + lower + "-" + upper);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE), "capped");
+    }
+
+    @Test
+    void reportsPercentilesAsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.cumulative();
+        assertEquals(100, snapshot.getCount());
+        assertWithin(50_000, snapshot.getPercentile(50));
+        assertWithin(99_000, snapshot.getPercentile(99));
+        assertWithin(100_000, snapshot.getMax());
+        assertWithin(50_500, (long) snapshot.getMean());
+
+        LatencyHistogram.Snapshot empty = LatencyHistogram.Snapshot.empty();
+        assertEquals(0, empty.getPercentile(99));
+        assertEquals(0, empty.getMax());
+        assertEquals(0.0, empty.getMean());
+    }
+
+    @Test
+    void snapshotsCountOnlyTheInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000, 3);
+        histogram.record(2_000, 0);
+        assertEquals(3, histogram.snapshot().getCount());
+
+        histogram.record(1_000_000);
+        LatencyHistogram.Snapshot interval = histogram.snapshot();
+        assertEquals(1, interval.getCount());
+        assertWithin(1_000_000, interval.getPercentile(50));
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(4, histogram.cumulative().getCount(), "cumulative counts are kept");
+        assertEquals(8, histogram.cumulative().add(histogram.cumulative()).getCount());
+    }
+
+    @Test
+    void recordsFromManyThreadsWithoutLosingCounts() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.cumulative().getCount());
+    }
+
+    @Test
+    void dumpsNonEmptyBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10, 2);
+        histogram.record(100);
+        StringBuilder sb = new StringBuilder();
+        histogram.cumulative().appendBuckets(sb, "  ");
+        assertEquals("  10-10: 2\n  100-101: 1\n", sb.toString());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, "expected ~" + expected + " but was " + actual);
+    }
+}
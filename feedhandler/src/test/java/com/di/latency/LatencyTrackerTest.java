@@ -0,0 +1,75 @@
+package com.di.latency;
+
+import com.di.codec.StringDictionary;
+import com.di.connection.MarketDataBatch;
+import com.di.helper.FeedConfig;
+import com.di.tenor.Tenor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyTrackerTest {
+    @Test
+    void recordsEachStageBySpotAndForwardRows() {
+        LatencyTracker tracker = tracker(true);
+        MarketDataBatch batch = new MarketDataBatch();
+        add(batch, "EUR/USD", "", 1_000);
+        add(batch, "EUR/USD", "1M", 1_000);
+        add(batch, "EUR/USD", "2M", 1_000);
+
+        tracker.recordSnapshot(batch, 0, 40_000, 50_000, 60_000);
+        tracker.recordPublished(batch, 1_000 + 80_000);
+
+        assertEquals(Set.of("EUR/USD"), tracker.getSymbols());
+        String summary = tracker.getSymbolSummary("EUR/USD");
+        // Bucket midpoints: 40us, 10us, 10us and 80us are within 3%
+        assertTrue(summary.contains("WIRE spot count=1 mean=40.4us"), summary);
+        assertTrue(summary.contains("WIRE forward count=2 mean=40.4us"), summary);
+        assertTrue(summary.contains("SESSION forward count=2 mean=10.1us"), summary);
+        assertTrue(summary.contains("DECODE spot count=1 mean=10.1us"), summary);
+        assertTrue(summary.contains("PUBLISH forward count=2 mean=80.9us"), summary);
+        assertTrue(tracker.getSummary().startsWith("WIRE count=3 "), tracker.getSummary());
+        assertEquals("", tracker.getSymbolSummary("GBP/USD"));
+    }
+
+    @Test
+    void skipsStagesWithoutAReceiveStamp() {
+        LatencyTracker tracker = tracker(true);
+        MarketDataBatch batch = new MarketDataBatch();
+        add(batch, "USD/JPY", "1W", 0);
+
+        tracker.recordSnapshot(batch, ReceiveTimes.UNKNOWN, ReceiveTimes.UNKNOWN, 50_000, 60_000);
+        String summary = tracker.getSymbolSummary("USD/JPY");
+        assertTrue(summary.contains("WIRE forward count=0 "), summary);
+        assertTrue(summary.contains("SESSION forward count=0 "), summary);
+        assertTrue(summary.contains("DECODE forward count=1 "), summary);
+    }
+
+    @Test
+    void recordsNothingWhenDisabled() {
+        LatencyTracker tracker = tracker(false);
+        MarketDataBatch batch = new MarketDataBatch();
+        add(batch, "EUR/USD", "1M", 0);
+        tracker.recordSnapshot(batch, 0, 1, 2, 3);
+        tracker.recordPublished(batch, 4);
+        assertFalse(tracker.isEnabled());
+        assertTrue(tracker.getSymbols().isEmpty());
+    }
+
+    private static LatencyTracker tracker(boolean enabled) {
+        Properties properties = new Properties();
+        properties.setProperty("latency.enabled", Boolean.toString(enabled));
+        properties.setProperty("latency.intervalSeconds", "0");
+        return new LatencyTracker(new FeedConfig(properties));
+    }
+
+    private static void add(MarketDataBatch batch, String symbol, String tenor, long builtNanos) {
+        int row = batch.add(0, 0, null, batch.encode(symbol), StringDictionary.EMPTY, MarketDataBatch.SIDE_BID,
+                1.08, 1e6, MarketDataBatch.NO_DATE, false, MarketDataBatch.NO_DATE, 0, StringDictionary.EMPTY,
+                Tenor.parse(tenor).getCode(), StringDictionary.EMPTY, StringDictionary.EMPTY);
+        batch.setBuiltTime(row, builtNanos);
+    }
+}
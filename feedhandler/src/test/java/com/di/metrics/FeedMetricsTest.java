@@ -0,0 +1,109 @@
+package com.di.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedMetricsTest {
+    @Test
+    void rendersCountersWithOneHeaderEach() {
+        FeedMetrics metrics = new FeedMetrics(true);
+        metrics.onSnapshot("EUR/USD", 10);
+        metrics.onSnapshot("EUR/USD", 10);
+        metrics.onIncremental(3);
+        metrics.onSuppressed("EUR/USD", 4);
+        metrics.onPublished(19);
+        metrics.onInsertFailure();
+        metrics.onRequestReject();
+
+        String scrape = metrics.scrape();
+        assertSample(scrape, "# HELP feed_messages_total MarketDataSnapshotFullRefresh and IncrementalRefresh "
+                + "messages decoded");
+        assertSample(scrape, "# TYPE feed_messages_total counter");
+        assertSample(scrape, "feed_messages_total 3");
+        assertSample(scrape, "feed_rows_total 23");
+        assertSample(scrape, "feed_rows_suppressed_total 4");
+        assertSample(scrape, "feed_rows_published_total 19");
+        assertSample(scrape, "feed_insert_failures_total 1");
+        assertSample(scrape, "feed_market_data_request_rejects_total 1");
+        assertSample(scrape, "# TYPE feed_messages_per_second gauge");
+        assertSample(scrape, "feed_messages_per_second 0.0");
+        assertSample(scrape, "feed_symbol_messages_total{symbol=\"EUR/USD\"} 2");
+        assertSample(scrape, "feed_symbol_rows_total{symbol=\"EUR/USD\"} 20");
+        assertSample(scrape, "feed_symbol_rows_suppressed_total{symbol=\"EUR/USD\"} 4");
+
+        List<String> lines = scrape.lines().toList();
+        for (String line : lines) {
+            if (!line.startsWith("# TYPE ")) continue;
+            String name = line.split(" ")[2];
+            assertEquals(1, lines.stream().filter(l -> l.startsWith("# TYPE " + name + " ")).count(), name);
+        }
+    }
+
+    @Test
+    void escapesLabelValues() {
+        FeedMetrics metrics = new FeedMetrics(true);
+        metrics.onSnapshot("A\\B\"C\nD", 1);
+        metrics.gauge("feed_queue_depth", "Queued batches", "FIX.4.4:\"CLIENT\"->FEED", "rt\\2", () -> 7);
+
+        String scrape = metrics.scrape();
+        assertSample(scrape, "feed_symbol_messages_total{symbol=\"A\\\\B\\\"C\\nD\"} 1");
+        assertSample(scrape, "feed_queue_depth{session=\"FIX.4.4:\\\"CLIENT\\\"->FEED\",destination=\"rt\\\\2\"} 7");
+    }
+
+    @Test
+    void groupsGaugesByNameAndReplacesARegistration() {
+        FeedMetrics metrics = new FeedMetrics(true);
+        metrics.gauge("feed_queue_depth", "Queued batches", "s1", () -> 1);
+        metrics.gauge("feed_uptime_seconds", "Uptime", () -> 60);
+        metrics.gauge("feed_queue_depth", "Queued batches", "s2", () -> 2);
+        metrics.gauge("feed_queue_depth", "Queued batches", "s1", () -> 3);
+        metrics.gauge("feed_queue_depth", "Queued batches", "s1", "rt2", () -> 4);
+
+        String scrape = metrics.scrape();
+        int header = scrape.indexOf("# TYPE feed_queue_depth gauge\n");
+        assertTrue(header >= 0, scrape);
+        String samples = scrape.substring(header);
+        assertTrue(samples.startsWith("# TYPE feed_queue_depth gauge\nfeed_queue_depth{session=\"s2\"} 2\n"
+                + "feed_queue_depth{session=\"s1\"} 3\nfeed_queue_depth{session=\"s1\",destination=\"rt2\"} 4\n"),
+                samples);
+        assertSample(scrape, "feed_uptime_seconds 60");
+    }
+
+    @Test
+    void derivesRatesFromTheDeltaBetweenScrapes() throws Exception {
+        FeedMetrics metrics = new FeedMetrics(true);
+        metrics.scrape();
+        Thread.sleep(20);
+        metrics.onSnapshot("EUR/USD", 5);
+        String scrape = metrics.scrape();
+        double rate = value(scrape, "feed_rows_per_second ");
+        assertTrue(rate > 0 && rate <= 5 / 0.02, scrape);
+        assertTrue(value(scrape, "feed_symbol_rows_per_second{symbol=\"EUR/USD\"} ") > 0, scrape);
+
+        assertEquals(0.0, value(metrics.scrape(), "feed_rows_per_second "), "no rows since the last scrape");
+    }
+
+    @Test
+    void countsNothingWhenDisabled() {
+        FeedMetrics metrics = new FeedMetrics(false);
+        metrics.onSnapshot("EUR/USD", 10);
+        metrics.gauge("feed_queue_depth", "Queued batches", () -> 1);
+        String scrape = metrics.scrape();
+        assertSample(scrape, "feed_messages_total 0");
+        assertFalse(scrape.contains("EUR/USD"), scrape);
+        assertFalse(scrape.contains("feed_queue_depth"), scrape);
+    }
+
+    private static void assertSample(String scrape, String line) {
+        assertTrue(scrape.lines().anyMatch(line::equals), "no line " + line + " in\n" + scrape);
+    }
+
+    private static double value(String scrape, String prefix) {
+        return scrape.lines().filter(line -> line.startsWith(prefix)).findFirst()
+                .map(line -> Double.parseDouble(line.substring(prefix.length())))
+                .orElseThrow(() -> new AssertionError("no " + prefix + " in\n" + scrape));
+    }
+}
@@ -0,0 +1,123 @@
+package com.di.spill;
+
+import com.di.connection.MarketDataBatch;
+import com.di.connection.PublishAcknowledger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.di.spill.SpillStore.Placement.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillStoreTest {
+    private static final long BATCH_BYTES = batch(0).estimateBytes();
+
+    @TempDir
+    Path directory;
+
+    private final List<Long> acknowledged = new ArrayList<>();
+    private final PublishAcknowledger acknowledger = new PublishAcknowledger() {
+        @Override public void acknowledge(long position) { acknowledged.add(position); }
+        @Override public void reject(long position) { fail("rejected " + position); }
+    };
+
+    @Test
+    void keepsBatchesInMemoryThenOnDiskAndReadsThemBackOldestFirst() throws Exception {
+        SpillStore store = new SpillStore(directory, 2 * BATCH_BYTES, 1024 * 1024, 0, false);
+        List<SpillStore.Placement> placements = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MarketDataBatch batch = batch(i);
+            batch.addAcknowledgement(acknowledger, i);
+            placements.add(store.append(batch));
+        }
+        assertEquals(List.of(MEMORY, MEMORY, DISK, DISK), placements);
+        assertEquals(1, segmentFiles().size());
+
+        // Memory has room again, but appends stay on disk behind the spilled batches until they drain
+        MarketDataBatch first = take(store);
+        assertEquals(0, first.getPrice(0));
+        first.acknowledge();
+        assertEquals(DISK, store.append(batch(4)));
+
+        for (int i = 1; i < 5; i++) {
+            MarketDataBatch next = take(store);
+            assertEquals(i, next.getPrice(0));
+            assertEquals("EUR/USD", next.getSymbol(0));
+            next.acknowledge();
+        }
+        assertNull(store.peek());
+        assertTrue(store.isEmpty());
+        assertEquals(List.of(), segmentFiles(), "drained segments are deleted");
+        assertEquals(List.of(0L, 1L), acknowledged, "only memory copies keep their acknowledgements");
+    }
+
+    @Test
+    void dropsBatchesOnceTheDiskBacklogIsOverMaxDiskBytes() throws Exception {
+        SpillStore store = new SpillStore(directory, 0, 1024 * 1024, 1, false);
+        assertEquals(DISK, store.append(batch(0)));
+        assertEquals(DROPPED, store.append(batch(1)));
+        assertEquals(1, store.getDroppedRows());
+
+        assertEquals(0, take(store).getPrice(0));
+        assertNull(store.peek());
+        assertEquals(DISK, store.append(batch(2)), "takes batches again once drained");
+    }
+
+    @Test
+    void durableStoreReadsItsBacklogBackAfterARestart() throws Exception {
+        SpillStore store = new SpillStore(directory, BATCH_BYTES, 1024 * 1024, 0, true);
+        assertEquals(MEMORY, store.append(batch(0)));
+        assertEquals(DISK, store.append(batch(1)));
+        assertEquals(DISK, store.append(batch(2)));
+        store.close();
+
+        SpillStore reopened = new SpillStore(directory, BATCH_BYTES, 1024 * 1024, 0, true);
+        assertTrue(reopened.getDiskBytes() > 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, take(reopened).getPrice(0), "the memory backlog goes ahead of the segments");
+        }
+        assertNull(reopened.peek());
+    }
+
+    @Test
+    void storeThatIsNotDurableDeletesItsSegments() throws Exception {
+        SpillStore store = new SpillStore(directory, 0, 1024 * 1024, 0, false);
+        assertEquals(DISK, store.append(batch(0)));
+        store.close();
+        assertEquals(List.of(), segmentFiles());
+
+        Files.write(directory.resolve("spill-7.dat"), new byte[]{1, 2, 3});
+        SpillStore reopened = new SpillStore(directory, 0, 1024 * 1024, 0, false);
+        assertTrue(reopened.isEmpty());
+        assertEquals(List.of(), segmentFiles());
+    }
+
+    private static MarketDataBatch take(SpillStore store) throws IOException {
+        MarketDataBatch batch = store.peek();
+        assertNotNull(batch);
+        MarketDataBatch copy = new MarketDataBatch(batch.getDictionary(), 1);
+        copy.copyFrom(batch);
+        store.remove();
+        return copy;
+    }
+
+    // One row priced at price
+    private static MarketDataBatch batch(double price) {
+        MarketDataBatch batch = new MarketDataBatch();
+        batch.add(1, 1, null, batch.encode("EUR/USD"), 0, MarketDataBatch.SIDE_BID, price, 1e6,
+                MarketDataBatch.NO_DATE, false, MarketDataBatch.NO_DATE, 0, 0, 0, 0, 0);
+        return batch;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.di.subscription;
+
+import com.di.helper.FeedConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.field.MDReqID;
+import quickfix.field.SubscriptionRequestType;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionEngineTest {
+    private static final SessionID SESSION = new SessionID("FIX.4.4", "FEED", "VENUE");
+    private static final String PACER = "subscription-pacer-test";
+
+    private final BlockingQueue<Message> sent = new LinkedBlockingQueue<>();
+    private SubscriptionEngine engine;
+
+    @AfterEach
+    void stop() {
+        if (engine != null) engine.stop();
+    }
+
+    @Test
+    void cancelsTheOldMdReqIdBeforeSendingAStaleRequestAgain() throws Exception {
+        engine = newEngine("100");
+        engine.start(SESSION, List.of(Subscription.spot("EUR/USD")));
+
+        Message first = next();
+        assertEquals(SubscriptionRequestType.SNAPSHOT_UPDATES, first.getChar(SubscriptionRequestType.FIELD));
+        String stale = first.getString(MDReqID.FIELD);
+
+        Message cancel = next();
+        assertEquals(SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST,
+                cancel.getChar(SubscriptionRequestType.FIELD));
+        assertEquals(stale, cancel.getString(MDReqID.FIELD));
+
+        Message resend = next();
+        assertEquals(SubscriptionRequestType.SNAPSHOT_UPDATES, resend.getChar(SubscriptionRequestType.FIELD));
+        String mdReqId = resend.getString(MDReqID.FIELD);
+        assertNotEquals(stale, mdReqId);
+
+        engine.onSnapshot(mdReqId, "EUR/USD");
+        assertEquals(SubscriptionState.ACTIVE, engine.getSubscription("EUR/USD::SPOT").getState());
+    }
+
+    @Test
+    void runsThePacerOnlyBetweenStartAndStop() throws Exception {
+        engine = newEngine("0");
+        assertFalse(pacerRunning(), "pacer started by the constructor");
+
+        engine.start(SESSION, List.of(Subscription.spot("EUR/USD")));
+        assertNotNull(next());
+        assertTrue(pacerRunning());
+
+        engine.stop();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pacerRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(pacerRunning(), "pacer still running after stop");
+    }
+
+    private SubscriptionEngine newEngine(String staleAfterMs) {
+        Properties properties = new Properties();
+        properties.setProperty("subscription.tickMillis", "5");
+        properties.setProperty("subscription.requestsPerSecond", "1000");
+        properties.setProperty("subscription.staleAfterMs", staleAfterMs);
+        return new SubscriptionEngine(new FeedConfig(properties), "test", (message, sessionId) -> sent.add(message));
+    }
+
+    private Message next() throws InterruptedException {
+        Message message = sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(message, "nothing sent");
+        return message;
+    }
+
+    private static boolean pacerRunning() {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals(PACER));
+    }
+}
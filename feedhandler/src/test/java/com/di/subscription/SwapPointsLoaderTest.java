@@ -0,0 +1,99 @@
+package com.di.subscription;
+
+import com.di.helper.FeedConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwapPointsLoaderTest {
+    private static final String TWO_PAIRS = "swappoints/two-pairs.csv";
+    private static final String ONE_PAIR = "swappoints/one-pair.csv";
+    // Magic, version and the CSV's CRC32 ahead of the plan
+    private static final int CACHE_HEADER_BYTES = 4 + 4 + 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void normalizesTenorsAndSkipsDuplicatesAndSpot() {
+        SubscriptionPlan plan = SwapPointsLoader.load(config(TWO_PAIRS, ""));
+        assertEquals(2, plan.getPairCount());
+        assertEquals(4, plan.getTenorCount());
+        assertEquals(1, plan.getSkippedTenors(), "SP- has no tenor");
+
+        SubscriptionPlan.PairPlan eurUsd = plan.get("EUR/USD");
+        assertEquals(3, eurUsd.getTenorCount(), "the repeated 1M row is dropped");
+        assertEquals("ON+1", eurUsd.getToMaturity(0));
+        assertEquals("1M", eurUsd.getToMaturity(1));
+        assertEquals("3M", eurUsd.getToMaturity(2));
+        assertEquals("ON", eurUsd.getFromMaturity(0));
+        assertEquals("1W", plan.get("USD/JPY").getToMaturity(0));
+    }
+
+    @Test
+    void readsTheCachedPlanWhileTheChecksumMatches() throws Exception {
+        Path cache = dir.resolve("cache").resolve("plan.bin");
+        SubscriptionPlan parsed = SwapPointsLoader.load(config(TWO_PAIRS, cache.toString()));
+        assertTrue(Files.isRegularFile(cache), "written on the first load");
+        assertFalse(Files.exists(cache.resolveSibling("plan.bin.tmp")));
+        byte[] twoPairs = Files.readAllBytes(cache);
+
+        // A plan body under the header of the two-pair CSV is only returned if the cache is read
+        SwapPointsLoader.load(config(ONE_PAIR, cache.toString()));
+        byte[] onePair = Files.readAllBytes(cache);
+        Files.write(cache, concat(Arrays.copyOf(twoPairs, CACHE_HEADER_BYTES),
+                Arrays.copyOfRange(onePair, CACHE_HEADER_BYTES, onePair.length)));
+        SubscriptionPlan cached = SwapPointsLoader.load(config(TWO_PAIRS, cache.toString()));
+        assertEquals(1, cached.getPairCount());
+        assertNotNull(cached.get("GBP/USD"));
+        assertEquals(2, parsed.getPairCount());
+    }
+
+    @Test
+    void reparsesWhenTheChecksumChanges() throws Exception {
+        Path cache = dir.resolve("plan.bin");
+        SwapPointsLoader.load(config(TWO_PAIRS, cache.toString()));
+        byte[] twoPairs = Files.readAllBytes(cache);
+
+        SubscriptionPlan plan = SwapPointsLoader.load(config(ONE_PAIR, cache.toString()));
+        assertEquals(1, plan.getPairCount());
+        byte[] onePair = Files.readAllBytes(cache);
+        assertFalse(Arrays.equals(Arrays.copyOf(twoPairs, CACHE_HEADER_BYTES),
+                Arrays.copyOf(onePair, CACHE_HEADER_BYTES)), "rewritten under the new checksum");
+
+        plan = SwapPointsLoader.load(config(TWO_PAIRS, cache.toString()));
+        assertEquals(2, plan.getPairCount());
+        assertArrayEquals(twoPairs, Files.readAllBytes(cache));
+    }
+
+    @Test
+    void fallsBackToTheCsvWhenTheCacheIsUnreadable() throws Exception {
+        Path cache = dir.resolve("plan.bin");
+        SwapPointsLoader.load(config(TWO_PAIRS, cache.toString()));
+        byte[] bytes = Files.readAllBytes(cache);
+        Files.write(cache, Arrays.copyOf(bytes, CACHE_HEADER_BYTES + 2));
+
+        assertEquals(2, SwapPointsLoader.load(config(TWO_PAIRS, cache.toString())).getPairCount());
+        assertArrayEquals(bytes, Files.readAllBytes(cache), "the truncated cache is replaced");
+        assertSame(SubscriptionPlan.EMPTY, SwapPointsLoader.load(config("swappoints/missing.csv", "")));
+    }
+
+    private static FeedConfig config(String file, String cache) {
+        Properties properties = new Properties();
+        properties.setProperty("subscription.swapPointsFile", file);
+        properties.setProperty("subscription.planCache", cache);
+        return new FeedConfig(properties);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] bytes = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, bytes, a.length, b.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.di.tenor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenorTest {
+    private static final List<String> VOCABULARY = List.of(
+            "", "FED_Jan_25", "ECB_Mar_25", "RBA_Q_1_26", "BOE_Dec_99", "SNB_Jun_3", "XYZ_Jan_25",
+            "IMM1", "IMM12", "IMM", "EOQ5", "BOQ6", "EOQ", "F1", "M2", "T10", "F", "MX",
+            "ON", "TN", "SN", "ON+1", "TN+12", "ON+", "OX", "1W", "3M", "30D", "2Y", "M", "1X", "W3",
+            "BOM1", "EOM12", "1BOM2", "XEOM3Y", "BOM", "20250131", "2025013", "202501311",
+            "SP-1M", "SP:ON", "SP-", "SP-EOM2", "SPOT", "BROKEN");
+
+    // The String.matches based normalizeTenor that Tenor replaced, without its warning log
+    private static String regexNormalizeTenor(String tenor) {
+        if (tenor == null || tenor.isEmpty()) return "";
+        String normalizedTenor = tenor.replaceAll("^(SP-|SP:)", "");
+        if (normalizedTenor.matches("^(FED|RBA|ECB|BOE|BOC|SNB)_\\w{3}_\\d{2}$")) return normalizedTenor;
+        if (normalizedTenor.matches("^IMM\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^(EOQ|BOQ)\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^[FMT]\\d+$")) return normalizedTenor;
+        if (normalizedTenor.matches("^(ON|TN|SN)(\\+\\d+)?$")) return normalizedTenor;
+        if (normalizedTenor.matches(".*BOM\\d+.*") || normalizedTenor.matches(".*EOM\\d+.*")) {
+            String number = normalizedTenor.replaceAll(".*?(\\d+).*", "$1");
+            return number.isEmpty() ? "" : number + "M";
+        }
+        if (normalizedTenor.matches("^\\d+[DWMY]$")) return normalizedTenor;
+        if (normalizedTenor.matches("^\\d{8}$")) return normalizedTenor;
+        return normalizedTenor;
+    }
+
+    @Test
+    void normalizesLikeTheRegexItReplaced() {
+        for (String raw : VOCABULARY) {
+            assertEquals(regexNormalizeTenor(raw), Tenor.parse(raw).getValue(), raw);
+        }
+        assertSame(Tenor.NONE, Tenor.parse(null));
+    }
+
+    @Test
+    void classifiesEachFamily() {
+        assertEquals(Tenor.Kind.NONE, Tenor.parse("").getKind());
+        assertEquals(Tenor.Kind.CENTRAL_BANK, Tenor.parse("FED_Jan_25").getKind());
+        assertEquals(Tenor.Kind.IMM, Tenor.parse("IMM1").getKind());
+        assertEquals(Tenor.Kind.QUARTER, Tenor.parse("EOQ5").getKind());
+        assertEquals(Tenor.Kind.FUTURE, Tenor.parse("T10").getKind());
+        assertEquals(Tenor.Kind.SHORT_DATE, Tenor.parse("ON+1").getKind());
+        assertEquals(Tenor.Kind.PERIOD, Tenor.parse("3M").getKind());
+        assertEquals(Tenor.Kind.PERIOD, Tenor.parse("EOM12").getKind(), "month ends roll to months");
+        assertTrue(Tenor.parse("20250131").isDate());
+        assertEquals(Tenor.Kind.UNKNOWN, Tenor.parse("BROKEN").getKind());
+    }
+
+    @Test
+    void internsOneInstanceAndCodePerValue() {
+        Tenor threeMonths = Tenor.parse("3M");
+        assertSame(threeMonths, Tenor.parse("3M"));
+        assertSame(threeMonths, Tenor.parse("SP-3M"), "raw spellings of one value share the instance");
+        assertSame(threeMonths, Tenor.parse("EOM3"));
+        assertSame(threeMonths, Tenor.ofCode(threeMonths.getCode()));
+        assertSame(Tenor.NONE, Tenor.parse("SP-"));
+        assertEquals(0, Tenor.NONE.getCode());
+
+        Tenor oneYear = Tenor.parse(new String("1Y"));
+        assertNotEquals(threeMonths.getCode(), oneYear.getCode());
+        assertSame(oneYear, Tenor.parse("1Y"));
+        assertEquals("1Y", oneYear.toString());
+    }
+}